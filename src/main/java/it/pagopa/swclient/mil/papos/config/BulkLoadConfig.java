@@ -0,0 +1,49 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "papos.bulk-load")
+public interface BulkLoadConfig {
+
+    /**
+     * @return number of terminals read from the bulk load file and processed together
+     */
+    int chunkSize();
+
+    /**
+     * @return number of terminals upserted with a single bulkWrite
+     */
+    int batchSize();
+
+    /**
+     * @return maximum number of insert batches in flight at the same time for a bulk load
+     */
+    int maxInFlightBatches();
+
+    /**
+     * @return directory where uploaded bulk load files are stored until processed, it has no default since it must
+     * be a volume shared by all the instances of the service and surviving their restarts, for interrupted bulk
+     * loads to be resumed by whichever instance claims them
+     */
+    String workDir();
+
+    /**
+     * @return number of bulk loads processed concurrently by an instance of the service
+     */
+    int workers();
+
+    /**
+     * @return true if bulk loads interrupted by a restart have to be resumed, or marked as failed, at startup and then
+     * every {@link #leaseDuration()}
+     */
+    boolean recoverOnStartup();
+
+    /**
+     * @return time after which a bulk load whose heartbeat has not been refreshed by the instance processing it can
+     * be claimed by another instance, and interval between the checks for such bulk loads; it must be longer than the
+     * time needed to process a chunk
+     */
+    Duration leaseDuration();
+}
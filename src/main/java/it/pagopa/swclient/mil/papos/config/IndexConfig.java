@@ -0,0 +1,12 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "papos.indexes")
+public interface IndexConfig {
+
+    /**
+     * @return true if the indexes required by the service have to be created at startup
+     */
+    boolean createOnStartup();
+}
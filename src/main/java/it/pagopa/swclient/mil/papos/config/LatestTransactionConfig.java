@@ -0,0 +1,28 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "papos.latest-transactions")
+public interface LatestTransactionConfig {
+
+    /**
+     * @return true if the latest transaction of each terminal and status is kept in the latestTransactions
+     * collection, so that the latest transaction of a PSP is found without scanning its transactions
+     */
+    boolean enabled();
+
+    /**
+     * @return true if the latestTransactions collection has to be rebuilt from the transactions at startup; until the
+     * rebuild completes the latest transaction is searched among the transactions. Meant as a one-off, for the first
+     * deployment or after the entries were lost, on a single instance: the rebuild scans every transaction
+     */
+    boolean rebuildOnStartup();
+
+    /**
+     * @return interval at which an instance that did not rebuild the latestTransactions collection checks whether a
+     * rebuild has completed, until then the latest transaction is searched among the transactions
+     */
+    Duration readyCheckInterval();
+}
@@ -0,0 +1,13 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "papos.paging")
+public interface PagingConfig {
+
+    /**
+     * @return maximum estimated total reported when the listing is filtered and the collection metadata cannot be
+     * used, past it the total is left out
+     */
+    int estimatedCountLimit();
+}
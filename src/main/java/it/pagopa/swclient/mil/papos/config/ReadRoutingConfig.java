@@ -0,0 +1,22 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ConfigMapping(prefix = "papos.read-routing")
+public interface ReadRoutingConfig {
+
+    /**
+     * @return read preference of the listing endpoints (primary, primaryPreferred, secondary, secondaryPreferred or
+     * nearest), every other read stays on the primary
+     */
+    String listingReadPreference();
+
+    /**
+     * @return how far behind the primary a secondary can be to serve the listings, at least 90 seconds; ignored when
+     * the listings read from the primary
+     */
+    Optional<Duration> listingMaxStaleness();
+}
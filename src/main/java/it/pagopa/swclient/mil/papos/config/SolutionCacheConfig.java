@@ -0,0 +1,25 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "papos.solution-cache")
+public interface SolutionCacheConfig {
+
+    /**
+     * @return true if the solutions looked up by pspId, locationCode and id are kept in memory
+     */
+    boolean enabled();
+
+    /**
+     * @return time after which a cached lookup is read again from the database, it bounds how long the changes made
+     * by other instances of the service stay unseen
+     */
+    Duration ttl();
+
+    /**
+     * @return maximum number of lookups kept for each of pspId, locationCode and id
+     */
+    int maxEntries();
+}
@@ -0,0 +1,25 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "papos.terminal-cache")
+public interface TerminalCacheConfig {
+
+    /**
+     * @return true if the terminalUuids of the terminals of each solution are kept in memory
+     */
+    boolean enabled();
+
+    /**
+     * @return time after which the terminalUuids of a solution are read again from the database, it bounds how long
+     * the changes made by other instances of the service stay unseen
+     */
+    Duration ttl();
+
+    /**
+     * @return maximum number of solutions whose terminalUuids are kept
+     */
+    int maxEntries();
+}
@@ -0,0 +1,33 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+import java.time.Duration;
+
+@ConfigMapping(prefix = "papos.terminal-uuid")
+public interface TerminalUuidConfig {
+
+    /**
+     * @return true if the terminalUuids in canonical form are to be stored as 16 bytes binaries rather than as strings,
+     * they are written as binaries only once the migration is confirmed complete. Requires MongoDB 8.0, since the joins
+     * between terminals and transactions convert each terminalUuid to its other representation
+     */
+    boolean binaryStorage();
+
+    /**
+     * @return true if the terminalUuids still stored as strings have to be converted to binaries at startup, only
+     * when binary storage is enabled
+     */
+    boolean migrateOnStartup();
+
+    /**
+     * @return number of documents converted with a single bulkWrite by the migration
+     */
+    int migrationBatchSize();
+
+    /**
+     * @return interval at which an instance checks whether the migration has been confirmed complete by another
+     * instance, until then it keeps writing the terminalUuids as strings
+     */
+    Duration confirmationCheckInterval();
+}
@@ -0,0 +1,20 @@
+package it.pagopa.swclient.mil.papos.config;
+
+import io.smallrye.config.ConfigMapping;
+
+@ConfigMapping(prefix = "papos.transaction-rollups")
+public interface TransactionRollupConfig {
+
+    /**
+     * @return true if the number and the amount of the transactions of each payee, UTC day, terminal and status are
+     * kept up to date in the transactionRollups collection as transactions are created, updated and deleted
+     */
+    boolean enabled();
+
+    /**
+     * @return true if the transactionRollups collection has to be recomputed from the transactions at startup; meant
+     * for the first deployment, since the transactions stored while the rollups are recomputed may be counted twice
+     * or not at all
+     */
+    boolean rebuildOnStartup();
+}
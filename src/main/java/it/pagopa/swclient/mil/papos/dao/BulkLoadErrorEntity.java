@@ -0,0 +1,18 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@MongoEntity(database = "mil", collection = "bulkLoadErrors")
+public class BulkLoadErrorEntity extends PanacheMongoEntity {
+
+    private String bulkLoadingId;
+    private long rowIndex;
+    private String terminalId;
+    private String errorCode;
+    private String message;
+}
@@ -1,11 +1,15 @@
 package it.pagopa.swclient.mil.papos.dao;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
+import it.pagopa.swclient.mil.papos.model.BulkLoadState;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -14,8 +18,16 @@ public class BulkLoadStatusEntity extends PanacheMongoEntity {
 
     private String bulkLoadingId;
     private String pspId;
-    private int totalRecords;
-    private int successRecords;
-    private int failedRecords;
+    private String requestId;
+    private String contentHash;
+    private BulkLoadState state;
+    private long totalRecords;
+    private long successRecords;
+    private long failedRecords;
     private List<String> errorMessages;
+    private Map<String, Long> errorCounts;
+    @JsonIgnore
+    private String owner;
+    @JsonIgnore
+    private Date heartbeatAt;
 }
@@ -0,0 +1,196 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.quarkus.logging.Log;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.IndexConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ensures at startup the indexes required by the queries of the services, and reports the declared indexes that
+ * could not be created and the indexes found on the collections that are not declared here. Index creation is
+ * idempotent, so existing indexes with the same definition are left untouched; extra indexes are never dropped.
+ * A declared unique index that cannot be created, typically because the collection already holds duplicate keys,
+ * stops the startup: the duplicates have to be removed first, as described in the README.
+ */
+@ApplicationScoped
+public class IndexProvisioner {
+    public static final String TERMINALS_SOLUTION_TERMINAL_INDEX = "solutionId_1_terminalId_1";
+
+    public static final String LATEST_TRANSACTIONS_KEY_INDEX = "terminalUuid_1_status_1";
+
+    public static final String TRANSACTION_ROLLUPS_KEY_INDEX = "payeeCode_1_day_1_terminalUuid_1_status_1";
+
+    private static final String ID_INDEX = "_id_";
+
+    private final List<CollectionIndexes> collectionIndexes;
+
+    private final IndexConfig config;
+
+    public IndexProvisioner(TerminalRepository terminalRepository, TransactionRepository transactionRepository, SolutionRepository solutionRepository,
+                            BulkLoadStatusRepository bulkLoadStatusRepository, BulkLoadErrorRepository bulkLoadErrorRepository,
+                            LatestTransactionRepository latestTransactionRepository, TransactionRollupRepository transactionRollupRepository, IndexConfig config) {
+        this.config = config;
+        this.collectionIndexes = List.of(
+                new CollectionIndexes(terminalRepository.mongoCollection(), List.of(
+                        // terminal key, also serves the queries by solutionId in
+                        index(TERMINALS_SOLUTION_TERMINAL_INDEX, true, "solutionId", "terminalId"),
+                        // findTerminal, deleteByTerminalUuids
+                        index("terminalUuid_1", true, "terminalUuid"),
+                        // countBySolutionIds, findBySolutionIds in _id order, exportBySolutionIds
+                        index("solutionId_1__id_1", false, "solutionId", "_id"),
+                        // getTerminalCountByWorkstation, getTerminalListPagedByWorkstation in _id order
+                        index("workstations_1_solutionId_1__id_1", false, "workstations", "solutionId", "_id"))),
+                new CollectionIndexes(transactionRepository.mongoCollection(), List.of(
+                        // getTransactionCountByPayee, getTransactionListPagedByPayeeAndTerminals sorted by _id
+                        index("payeeCode_1_terminalUuid_1__id_1", false, "payeeCode", "terminalUuid", "_id"),
+                        // findLatestByTerminalUuidAndStatus sorted by _id
+                        index("terminalUuid_1_status_1__id_1", false, "terminalUuid", "status", "_id"),
+                        // findTransactionPageByPsp, exportTransactionsByPsp and queries by terminalUuid in, in _id order
+                        index("terminalUuid_1__id_1", false, "terminalUuid", "_id"))),
+                new CollectionIndexes(solutionRepository.mongoCollection(), List.of(
+                        // findAllByPsp, findAllByPspAndSolutionId, getSolutionsListPagedByAttribute in _id order
+                        index("pspId_1__id_1", false, "pspId", "_id"),
+                        // getSolutionsListByLocationCode, getSolutionsListPagedByAttribute in _id order
+                        index("locationCode_1__id_1", false, "locationCode", "_id"))),
+                new CollectionIndexes(bulkLoadStatusRepository.mongoCollection(), List.of(
+                        // findBulkLoadStatus
+                        index("bulkLoadingId_1", true, "bulkLoadingId"),
+                        // idempotent submit of a bulk load
+                        index("pspId_1_requestId_1_contentHash_1", true, "pspId", "requestId", "contentHash"),
+                        // recovery of the interrupted bulk loads at startup
+                        index("state_1", false, "state"))),
+                new CollectionIndexes(bulkLoadErrorRepository.mongoCollection(), List.of(
+                        // getErrorCount, getErrorListPaged sorted by rowIndex, discard of an uncommitted chunk
+                        index("bulkLoadingId_1_rowIndex_1", false, "bulkLoadingId", "rowIndex"))),
+                new CollectionIndexes(latestTransactionRepository.mongoCollection(), List.of(
+                        // entry of a terminal and status, also serves findLatest by terminalUuid in
+                        index(LATEST_TRANSACTIONS_KEY_INDEX, true, "terminalUuid", "status"))),
+                new CollectionIndexes(transactionRollupRepository.mongoCollection(), List.of(
+                        // entry of a payee, day, terminal and status, also serves findByPayee by day range
+                        index(TRANSACTION_ROLLUPS_KEY_INDEX, true, "payeeCode", "day", "terminalUuid", "status"))));
+    }
+
+    /**
+     * Provisions the indexes before the service starts accepting requests.
+     *
+     * @throws IllegalStateException if a declared unique index is missing after provisioning
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (!config.createOnStartup()) {
+            return;
+        }
+
+        List<IndexReport> reports;
+        try {
+            reports = provision().await().indefinitely();
+        } catch (RuntimeException e) {
+            Log.error("IndexProvisioner -> onStart: error provisioning indexes", e);
+
+            return;
+        }
+        Log.infof("IndexProvisioner -> onStart: indexes provisioned on %d collections", reports.size());
+
+        List<String> missingUnique = reports.stream()
+                .flatMap(report -> report.missingUnique().stream().map(name -> report.collection() + "." + name))
+                .toList();
+        if (!missingUnique.isEmpty()) {
+            throw new IllegalStateException("unique indexes missing " + missingUnique + ", remove the duplicate keys and restart");
+        }
+    }
+
+    /**
+     * Creates the declared indexes on every collection, one collection at a time.
+     *
+     * @return for each collection, the declared indexes missing and the undeclared indexes found after provisioning
+     */
+    public Uni<List<IndexReport>> provision() {
+        return Multi.createFrom().iterable(collectionIndexes)
+                .onItem()
+                .transformToUniAndConcatenate(this::provision)
+                .collect()
+                .asList();
+    }
+
+    private Uni<IndexReport> provision(CollectionIndexes collectionIndexes) {
+        ReactiveMongoCollection<?> collection = collectionIndexes.collection();
+        String collectionName = collection.getNamespace().getCollectionName();
+
+        return Multi.createFrom().iterable(collectionIndexes.indexes())
+                .onItem()
+                .transformToUniAndConcatenate(index -> collection.createIndex(index.getKeys(), index.getOptions())
+                        .onFailure()
+                        .recoverWithItem(error -> {
+                            Log.errorf(error, "IndexProvisioner -> provision: error creating index [%s] on [%s]", index.getOptions().getName(), collectionName);
+
+                            return null;
+                        }))
+                .collect()
+                .asList()
+                .chain(() -> collection.listIndexes().collect().asList())
+                .onItem()
+                .transform(existingIndexes -> {
+                    Set<String> declared = collectionIndexes.indexes()
+                            .stream()
+                            .map(index -> index.getOptions().getName())
+                            .collect(Collectors.toSet());
+                    Set<String> existing = existingIndexes.stream()
+                            .map(index -> index.getString("name"))
+                            .collect(Collectors.toSet());
+
+                    List<String> missing = declared.stream()
+                            .filter(name -> !existing.contains(name))
+                            .sorted()
+                            .toList();
+                    List<String> missingUnique = collectionIndexes.indexes()
+                            .stream()
+                            .filter(index -> index.getOptions().isUnique())
+                            .map(index -> index.getOptions().getName())
+                            .filter(missing::contains)
+                            .sorted()
+                            .toList();
+                    List<String> extra = existing.stream()
+                            .filter(name -> !declared.contains(name) && !ID_INDEX.equals(name))
+                            .sorted()
+                            .toList();
+
+                    if (!missing.isEmpty()) {
+                        Log.errorf("IndexProvisioner -> provision: indexes missing on [%s]: %s", collectionName, missing);
+                    }
+                    if (!extra.isEmpty()) {
+                        Log.warnf("IndexProvisioner -> provision: indexes not declared on [%s]: %s", collectionName, extra);
+                    }
+
+                    return new IndexReport(collectionName, missing, missingUnique, extra);
+                });
+    }
+
+    private static IndexModel index(String name, boolean unique, String... fields) {
+        return new IndexModel(Indexes.ascending(fields), new IndexOptions().name(name).unique(unique));
+    }
+
+    /**
+     * Outcome of the provisioning of the indexes of a collection.
+     *
+     * @param collection    name of the collection
+     * @param missing       declared indexes not found on the collection
+     * @param missingUnique declared unique indexes not found on the collection, a subset of missing
+     * @param extra         indexes found on the collection but not declared
+     */
+    public record IndexReport(String collection, List<String> missing, List<String> missingUnique, List<String> extra) {
+    }
+
+    private record CollectionIndexes(ReactiveMongoCollection<?> collection, List<IndexModel> indexes) {
+    }
+}
@@ -0,0 +1,18 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import lombok.Getter;
+import lombok.Setter;
+import org.bson.types.ObjectId;
+
+@Getter
+@Setter
+@MongoEntity(database = "mil", collection = "latestTransactions")
+public class LatestTransactionEntity extends PanacheMongoEntity {
+
+    private TerminalUuid terminalUuid;
+    private String status;
+    private ObjectId transactionId;
+}
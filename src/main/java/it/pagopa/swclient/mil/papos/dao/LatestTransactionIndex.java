@@ -0,0 +1,281 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.logging.Log;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.LatestTransactionConfig;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Keeps in the latestTransactions collection the id of the latest transaction of each terminal and status, so that
+ * the latest transaction of many terminals is a lookup of one entry per terminal rather than a sorted scan of their
+ * transactions. Entries only move forward when a transaction is recorded, and are recomputed when the transaction
+ * they point to changes status or is deleted; the readers still check the transaction an entry points to, and fall
+ * back to the transactions when it does not match. The entries are keyed on the canonical string of the terminalUuid,
+ * whichever representation the transactions store it in. The entries are read only once a rebuild has completed, as
+ * recorded by a marker document in the same collection, since before that the terminals may have no entry at all.
+ */
+@ApplicationScoped
+public class LatestTransactionIndex {
+
+    private static final String TERMINAL_UUID = "terminalUuid";
+
+    private static final String STATUS = "status";
+
+    private static final String TRANSACTION_ID = "transactionId";
+
+    private static final String REBUILT_MARKER = "rebuilt";
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final LatestTransactionRepository latestTransactionRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final LatestTransactionConfig config;
+
+    private volatile boolean ready;
+
+    public LatestTransactionIndex(LatestTransactionRepository latestTransactionRepository, TransactionRepository transactionRepository, LatestTransactionConfig config) {
+        this.latestTransactionRepository = latestTransactionRepository;
+        this.transactionRepository = transactionRepository;
+        this.config = config;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled()) {
+            return;
+        }
+        if (!config.rebuildOnStartup()) {
+            awaitRebuilt();
+
+            return;
+        }
+
+        rebuild()
+                .subscribe()
+                .with(
+                        unused -> {
+                            ready = true;
+                            Log.info("LatestTransactionIndex -> onStart: latestTransactions rebuilt");
+                        },
+                        error -> Log.error("LatestTransactionIndex -> onStart: error rebuilding latestTransactions, the latest transactions are searched among the transactions", error));
+    }
+
+    /**
+     * @return true if the entries can be read, false until a rebuild has completed or if the index is disabled
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the entry pointing to the latest transaction among the given terminals and status.
+     *
+     * @param terminalUuids uuids of the terminals
+     * @param status        status of the transaction
+     * @return the entry of the latest transaction, null if none of the terminals has an entry for the status
+     */
+    public Uni<LatestTransactionEntity> findLatest(List<String> terminalUuids, String status) {
+        Document query = new Document(TERMINAL_UUID, new Document("$in", terminalUuids))
+                .append(STATUS, status);
+
+        return latestTransactionRepository.find(query, new Document(TRANSACTION_ID, -1))
+                .firstResult();
+    }
+
+    /**
+     * Records a transaction created or updated as the latest of its terminal and status, unless a later one is
+     * already recorded. A failure is logged and not propagated, since the transaction is already stored.
+     *
+     * @param transaction transaction stored
+     * @return void
+     */
+    public Uni<Void> record(TransactionEntity transaction) {
+        if (!config.enabled() || transaction.id == null || transaction.getTerminalUuid() == null || transaction.getStatus() == null) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return latestTransactionRepository.mongoCollection()
+                .updateOne(key(transaction.getTerminalUuid(), transaction.getStatus()),
+                        Updates.max(TRANSACTION_ID, transaction.id),
+                        new UpdateOptions().upsert(true))
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.errorf(error, "LatestTransactionIndex -> record: error recording transaction [%s] as latest", transaction.id);
+
+                    return null;
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Records many transactions created or updated with a single unordered bulk write, as {@link #record} does for
+     * one. A failure is logged and not propagated.
+     *
+     * @param transactions transactions stored
+     * @return void
+     */
+    public Uni<Void> recordAll(List<TransactionEntity> transactions) {
+        if (!config.enabled()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        List<UpdateOneModel<LatestTransactionEntity>> updates = transactions.stream()
+                .filter(transaction -> transaction.id != null && transaction.getTerminalUuid() != null && transaction.getStatus() != null)
+                .map(transaction -> new UpdateOneModel<LatestTransactionEntity>(key(transaction.getTerminalUuid(), transaction.getStatus()),
+                        Updates.max(TRANSACTION_ID, transaction.id),
+                        new UpdateOptions().upsert(true)))
+                .toList();
+        if (updates.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return latestTransactionRepository.mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.errorf(error, "LatestTransactionIndex -> recordAll: error recording %d transactions as latest", updates.size());
+
+                    return null;
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Recomputes the entry of a terminal and status if it points to a transaction that changed status or was deleted.
+     * The entry is replaced only if it still points to that transaction, so that a transaction recorded in the
+     * meantime is not overwritten. A failure is logged and not propagated, the readers detect the stale entry.
+     *
+     * @param terminalUuid       uuid of the terminal
+     * @param status             status the transaction had
+     * @param staleTransactionId id of the transaction
+     * @return void
+     */
+    public Uni<Void> refresh(TerminalUuid terminalUuid, String status, ObjectId staleTransactionId) {
+        if (!config.enabled() || terminalUuid == null) {
+            return Uni.createFrom().voidItem();
+        }
+
+        Bson staleEntry = Filters.and(key(terminalUuid, status), Filters.eq(TRANSACTION_ID, staleTransactionId));
+
+        return transactionRepository.find(new Document(TERMINAL_UUID, TerminalUuidCodec.in(List.of(terminalUuid))).append(STATUS, status), new Document("_id", -1))
+                .firstResult()
+                .onItem()
+                .transformToUni(latest -> latest == null
+                        ? latestTransactionRepository.mongoCollection().deleteOne(staleEntry).replaceWithVoid()
+                        : latestTransactionRepository.mongoCollection().updateOne(staleEntry, Updates.set(TRANSACTION_ID, latest.id)).replaceWithVoid())
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.errorf(error, "LatestTransactionIndex -> refresh: error refreshing the latest transaction of [%s, %s]", terminalUuid, status);
+
+                    return null;
+                });
+    }
+
+    /**
+     * Moves forward the entries of latestTransactions to the latest transaction of each terminal and status found
+     * among the transactions, deletes the entries left keyed on a binary terminalUuid and records the rebuild as
+     * completed. The entries already recorded are moved forward only, so the rebuild can run while transactions are
+     * stored.
+     *
+     * @return void
+     */
+    public Uni<Void> rebuild() {
+        /*
+         * The transactions are grouped on the terminalUuid as stored, since the server converts a binary to a uuid
+         * string only from MongoDB 8.0; each group is moved forward on the canonical string, so the string and the
+         * binary group of a terminal end up in the same entry.
+         */
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document(TERMINAL_UUID, new Document("$type", List.of("string", "binData")))
+                        .append(STATUS, new Document("$type", "string"))),
+                new Document("$group", new Document("_id", new Document(TERMINAL_UUID, "$" + TERMINAL_UUID).append(STATUS, "$" + STATUS))
+                        .append(TRANSACTION_ID, new Document("$max", "$_id"))));
+        ReactiveMongoCollection<Document> entries = documents();
+
+        // the upserts rely on the unique index on their keys, which the index provisioning may not have created yet
+        return entries
+                .createIndex(Indexes.ascending(TERMINAL_UUID, STATUS), new IndexOptions().name(IndexProvisioner.LATEST_TRANSACTIONS_KEY_INDEX).unique(true))
+                .chain(() -> transactionRepository.mongoCollection()
+                        .aggregate(pipeline, Document.class)
+                        .onItem()
+                        .transform(LatestTransactionIndex::moveForward)
+                        .group()
+                        .intoLists()
+                        .of(REBUILD_BATCH_SIZE)
+                        .onItem()
+                        .transformToUniAndConcatenate(updates -> entries.bulkWrite(updates, new BulkWriteOptions().ordered(false)))
+                        .collect()
+                        .last())
+                .chain(() -> entries.deleteMany(Filters.type(TERMINAL_UUID, BsonType.BINARY)))
+                .chain(() -> entries.updateOne(Filters.eq("_id", REBUILT_MARKER), Updates.set("rebuiltAt", new Date()), new UpdateOptions().upsert(true)))
+                .replaceWithVoid();
+    }
+
+    private static UpdateOneModel<Document> moveForward(Document group) {
+        Document id = group.get("_id", Document.class);
+
+        return new UpdateOneModel<>(key(TerminalUuidCodec.fromDocumentValue(id.get(TERMINAL_UUID)), id.getString(STATUS)),
+                Updates.max(TRANSACTION_ID, group.getObjectId(TRANSACTION_ID)),
+                new UpdateOptions().upsert(true));
+    }
+
+    /*
+     * Checks the marker at startup and then at every interval, since the rebuild may run on another instance, until
+     * it is found.
+     */
+    private void awaitRebuilt() {
+        Uni.createFrom()
+                .deferred(this::isRebuilt)
+                .repeat()
+                .withDelay(config.readyCheckInterval())
+                .whilst(rebuilt -> !rebuilt)
+                .select()
+                .where(rebuilt -> rebuilt)
+                .toUni()
+                .subscribe()
+                .with(rebuilt -> {
+                    ready = true;
+                    Log.info("LatestTransactionIndex -> awaitRebuilt: latestTransactions rebuilt, the latest transactions are read from it");
+                });
+    }
+
+    private Uni<Boolean> isRebuilt() {
+        return documents()
+                .countDocuments(Filters.eq("_id", REBUILT_MARKER))
+                .onItem()
+                .transform(count -> count > 0)
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.warn("LatestTransactionIndex -> isRebuilt: error reading the rebuilt marker", error);
+
+                    return false;
+                });
+    }
+
+    private ReactiveMongoCollection<Document> documents() {
+        return latestTransactionRepository.mongoCollection().withDocumentClass(Document.class);
+    }
+
+    private static Bson key(TerminalUuid terminalUuid, String status) {
+        return Filters.and(Filters.eq(TERMINAL_UUID, terminalUuid.value()), Filters.eq(STATUS, status));
+    }
+}
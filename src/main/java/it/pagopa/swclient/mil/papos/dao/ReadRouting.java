@@ -0,0 +1,40 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.ReadPreference;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import it.pagopa.swclient.mil.papos.config.ReadRoutingConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes the reads of the listing endpoints, which scan many documents and tolerate a bounded staleness, to the
+ * configured read preference. Every other read stays on the primary, so that a flow reading what it has just written,
+ * like a transaction read back after its creation, always sees its own writes.
+ */
+@ApplicationScoped
+public class ReadRouting {
+
+    private final ReadPreference listingReadPreference;
+
+    public ReadRouting(ReadRoutingConfig config) {
+        ReadPreference readPreference = ReadPreference.valueOf(config.listingReadPreference());
+        this.listingReadPreference = readPreference.equals(ReadPreference.primary()) || config.listingMaxStaleness().isEmpty()
+                ? readPreference
+                : ReadPreference.valueOf(readPreference.getName(), List.of(), config.listingMaxStaleness().get().toSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the collection to be used by a listing.
+     *
+     * @param collection collection of the repository
+     * @param <T>        type of the documents
+     * @return the collection reading with the listing read preference
+     */
+    public <T> ReactiveMongoCollection<T> forListings(ReactiveMongoCollection<T> collection) {
+        return listingReadPreference.equals(ReadPreference.primary())
+                ? collection
+                : collection.withReadPreference(listingReadPreference);
+    }
+}
@@ -2,6 +2,7 @@ package it.pagopa.swclient.mil.papos.dao;
 
 import io.quarkus.mongodb.panache.PanacheMongoEntity;
 import io.quarkus.mongodb.panache.common.MongoEntity;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -12,7 +13,7 @@ import java.util.List;
 @MongoEntity(database = "mil", collection = "terminals")
 public class TerminalEntity extends PanacheMongoEntity {
 
-    private String terminalUuid;
+    private TerminalUuid terminalUuid;
     private String solutionId;
     private String terminalId;
     private Boolean enabled;
@@ -0,0 +1,16 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+
+/**
+ * Projection of a terminal on its identifiers, read instead of the whole document, workstations included, when only
+ * the ids are needed.
+ *
+ * @param solutionId   id of the solution of the terminal
+ * @param terminalId   ID of the terminal for the PSP
+ * @param terminalUuid uuid of the terminal
+ */
+@RegisterForReflection
+public record TerminalIds(String solutionId, String terminalId, TerminalUuid terminalUuid) {
+}
@@ -0,0 +1,149 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Binary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores a terminal uuid as a BSON binary of subtype 4 when binary storage is enabled, the migration of the stored
+ * strings is confirmed complete and the uuid is in canonical form, as a string otherwise. Both representations are
+ * read, and the query filters built with {@link #in} match both, so that the collections can be migrated while in use.
+ */
+public class TerminalUuidCodec implements Codec<TerminalUuid> {
+
+    private final boolean binaryStorage;
+
+    private volatile boolean migrated;
+
+    public TerminalUuidCodec(boolean binaryStorage) {
+        this.binaryStorage = binaryStorage;
+    }
+
+    /**
+     * Switches the writes to binaries, once no terminalUuid in canonical form is left stored as a string. Until then
+     * they stay strings, so that the documents written during the migration are still found by the instances not
+     * migrated yet.
+     */
+    public void confirmMigrated() {
+        migrated = true;
+    }
+
+    /**
+     * @return true if the terminalUuids in canonical form are written as binaries
+     */
+    public boolean writesBinary() {
+        return binaryStorage && migrated;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, TerminalUuid value, EncoderContext encoderContext) {
+        UUID uuid = writesBinary() ? value.toUuid() : null;
+        if (uuid != null) {
+            writer.writeBinaryData(new BsonBinary(uuid, UuidRepresentation.STANDARD));
+        } else {
+            writer.writeString(value.value());
+        }
+    }
+
+    @Override
+    public TerminalUuid decode(BsonReader reader, DecoderContext decoderContext) {
+        if (reader.getCurrentBsonType() == BsonType.BINARY) {
+            return TerminalUuid.of(reader.readBinaryData().asUuid(UuidRepresentation.STANDARD));
+        }
+
+        return TerminalUuid.of(reader.readString());
+    }
+
+    @Override
+    public Class<TerminalUuid> getEncoderClass() {
+        return TerminalUuid.class;
+    }
+
+    /**
+     * Builds the $in operator matching the given terminalUuids whichever their representation: the string of each
+     * one and, for those in canonical form, the binary too.
+     *
+     * @param terminalUuids uuids of the terminals
+     * @return the $in operator
+     */
+    public static Document in(List<TerminalUuid> terminalUuids) {
+        List<Object> values = new ArrayList<>();
+        terminalUuids.forEach(terminalUuid -> {
+            values.add(terminalUuid.value());
+            UUID uuid = terminalUuid.toUuid();
+            if (uuid != null) {
+                values.add(new BsonBinary(uuid, UuidRepresentation.STANDARD));
+            }
+        });
+
+        return new Document("$in", values);
+    }
+
+    /**
+     * Builds the expression of a terminalUuid to be used as the localField of a $lookup that has to match the other
+     * collection whichever representation each side stores. With binary storage it is the array of the value as
+     * stored and of its other representation, converted by $convert, which requires MongoDB 8.0; without it the
+     * terminalUuids are strings on both sides and it is the value as stored.
+     *
+     * @param path          path of the terminalUuid in the documents of the pipeline
+     * @param binaryStorage true if binary storage is enabled
+     * @return the expression
+     */
+    public static Object bothRepresentations(String path, boolean binaryStorage) {
+        String field = "$" + path;
+        if (!binaryStorage) {
+            return field;
+        }
+
+        Document toString = new Document("$convert", new Document("input", field)
+                .append("to", "string")
+                .append("format", "uuid")
+                .append("onError", field));
+        Document toBinary = new Document("$convert", new Document("input", field)
+                .append("to", new Document("type", "binData").append("subtype", 4))
+                .append("format", "uuid")
+                .append("onError", field));
+
+        return List.of(field, new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$type", field), "binData")),
+                toString,
+                toBinary)));
+    }
+
+    /**
+     * Converts the terminalUuid of a document decoded without this codec, as the result of an aggregation.
+     *
+     * @param value terminalUuid read from the document
+     * @return the terminal uuid, null if the value is null
+     * @throws IllegalArgumentException if the value is neither a string nor a uuid
+     */
+    public static TerminalUuid fromDocumentValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String string) {
+            return TerminalUuid.of(string);
+        }
+        if (value instanceof UUID uuid) {
+            return TerminalUuid.of(uuid);
+        }
+        if (value instanceof Binary binary && binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+            return TerminalUuid.of(new BsonBinary(binary.getType(), binary.getData()).asUuid(UuidRepresentation.STANDARD));
+        }
+
+        throw new IllegalArgumentException("Unexpected terminalUuid of type " + value.getClass().getName());
+    }
+}
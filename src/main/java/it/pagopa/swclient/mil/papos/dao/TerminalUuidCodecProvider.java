@@ -0,0 +1,34 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+/**
+ * Registers TerminalUuidCodec with the MongoDB client. Codec providers are instantiated by the client rather than
+ * injected, so the storage option is read from the configuration directly, and the codec is shared for
+ * TerminalUuidMigration to confirm the migration to it.
+ */
+public class TerminalUuidCodecProvider implements CodecProvider {
+
+    static final String BINARY_STORAGE_PROPERTY = "papos.terminal-uuid.binary-storage";
+
+    private static final TerminalUuidCodec CODEC = new TerminalUuidCodec(ConfigProvider.getConfig()
+            .getOptionalValue(BINARY_STORAGE_PROPERTY, Boolean.class)
+            .orElse(false));
+
+    /**
+     * @return the codec registered with the MongoDB client
+     */
+    static TerminalUuidCodec codec() {
+        return CODEC;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        return clazz == TerminalUuid.class ? (Codec<T>) CODEC : null;
+    }
+}
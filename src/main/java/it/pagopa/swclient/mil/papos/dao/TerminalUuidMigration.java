@@ -0,0 +1,271 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.logging.Log;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.TerminalUuidConfig;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.BsonBinary;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Converts to 16 bytes binaries the terminalUuids still stored as strings, once binary storage is enabled. The query
+ * filters on terminalUuid and the joins between terminals and transactions match both representations, so the
+ * collections can be converted while in use. The terminalUuids that are not in canonical form stay strings. The
+ * derived collections, latestTransactions and transactionRollups, are keyed on the canonical string instead: their
+ * entries left keyed on a binary are merged into the entry of the string.
+ * <p>
+ * The terminalUuids keep being written as strings until the migration is confirmed complete, that is until no
+ * terminalUuid in canonical form is found stored as a string. The confirmation is persisted in the migrations
+ * collection and every instance switches its writes to binaries once it finds it, at startup or at the following
+ * checks; the strings written meanwhile by the instances not switched yet are converted by the next migration.
+ */
+@ApplicationScoped
+public class TerminalUuidMigration {
+
+    private static final String TERMINAL_UUID = "terminalUuid";
+
+    private static final String STATUS = "status";
+
+    private static final String CANONICAL_UUID_PATTERN = "^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$";
+
+    private static final String MIGRATIONS_COLLECTION = "migrations";
+
+    private static final String CONFIRMED = "terminalUuidBinaryStorage";
+
+    private final List<ReactiveMongoCollection<Document>> collections;
+
+    private final ReactiveMongoCollection<Document> latestTransactions;
+
+    private final ReactiveMongoCollection<Document> transactionRollups;
+
+    private final ReactiveMongoCollection<Document> migrations;
+
+    private final TerminalUuidConfig config;
+
+    private final TerminalUuidCodec codec;
+
+    @Inject
+    public TerminalUuidMigration(TerminalRepository terminalRepository, TransactionRepository transactionRepository, LatestTransactionRepository latestTransactionRepository,
+                                 TransactionRollupRepository transactionRollupRepository, TerminalUuidConfig config) {
+        this(terminalRepository, transactionRepository, latestTransactionRepository, transactionRollupRepository, config, TerminalUuidCodecProvider.codec());
+    }
+
+    TerminalUuidMigration(TerminalRepository terminalRepository, TransactionRepository transactionRepository, LatestTransactionRepository latestTransactionRepository,
+                          TransactionRollupRepository transactionRollupRepository, TerminalUuidConfig config, TerminalUuidCodec codec) {
+        this.config = config;
+        this.codec = codec;
+        this.collections = List.of(
+                terminalRepository.mongoCollection().withDocumentClass(Document.class),
+                transactionRepository.mongoCollection().withDocumentClass(Document.class));
+        this.latestTransactions = latestTransactionRepository.mongoCollection().withDocumentClass(Document.class);
+        this.transactionRollups = transactionRollupRepository.mongoCollection().withDocumentClass(Document.class);
+        this.migrations = terminalRepository.mongoDatabase().getCollection(MIGRATIONS_COLLECTION);
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.binaryStorage()) {
+            return;
+        }
+
+        Uni<Long> migration = config.migrateOnStartup()
+                ? migrate()
+                        .onItem()
+                        .invoke(converted -> Log.infof("TerminalUuidMigration -> onStart: %d terminalUuids converted to binary", converted))
+                : Uni.createFrom().item(0L);
+        migration
+                .chain(this::confirm)
+                .subscribe()
+                .with(
+                        confirmed -> {
+                            if (Boolean.TRUE.equals(confirmed)) {
+                                Log.info("TerminalUuidMigration -> onStart: migration complete, terminalUuids written as binaries");
+                            } else {
+                                Log.warn("TerminalUuidMigration -> onStart: terminalUuids still stored as strings, written as strings until migrated");
+                                awaitConfirmed();
+                            }
+                        },
+                        error -> Log.error("TerminalUuidMigration -> onStart: error converting terminalUuids to binary", error));
+    }
+
+    /**
+     * Switches the writes to binaries if the migration was already confirmed complete or, otherwise, if no
+     * terminalUuid in canonical form is left stored as a string, persisting the confirmation for the other instances.
+     *
+     * @return true if the migration is complete
+     */
+    public Uni<Boolean> confirm() {
+        Bson remaining = Filters.and(Filters.type(TERMINAL_UUID, BsonType.STRING), Filters.regex(TERMINAL_UUID, CANONICAL_UUID_PATTERN));
+
+        return isConfirmed()
+                .chain(confirmed -> confirmed
+                        ? Uni.createFrom().item(true)
+                        : Multi.createFrom().iterable(collections)
+                                .onItem()
+                                .transformToUniAndConcatenate(collection -> collection.countDocuments(remaining, new CountOptions().limit(1)))
+                                .collect()
+                                .asList()
+                                .onItem()
+                                .transformToUni(counts -> counts.stream().allMatch(count -> count == 0)
+                                        ? migrations.updateOne(Filters.eq("_id", CONFIRMED), Updates.set("confirmedAt", new Date()), new UpdateOptions().upsert(true))
+                                                .replaceWith(true)
+                                        : Uni.createFrom().item(false)))
+                .onItem()
+                .invoke(complete -> {
+                    if (Boolean.TRUE.equals(complete)) {
+                        codec.confirmMigrated();
+                    }
+                });
+    }
+
+    /*
+     * Checks the confirmation at every interval, since the migration may be confirmed by another instance, until it
+     * is found.
+     */
+    private void awaitConfirmed() {
+        Uni.createFrom()
+                .deferred(() -> isConfirmed()
+                        .onFailure()
+                        .recoverWithItem(error -> {
+                            Log.warn("TerminalUuidMigration -> awaitConfirmed: error reading the confirmation of the migration", error);
+
+                            return false;
+                        }))
+                .onItem()
+                .delayIt()
+                .by(config.confirmationCheckInterval())
+                .repeat()
+                .whilst(confirmed -> !confirmed)
+                .select()
+                .where(confirmed -> confirmed)
+                .toUni()
+                .subscribe()
+                .with(confirmed -> {
+                    codec.confirmMigrated();
+                    Log.info("TerminalUuidMigration -> awaitConfirmed: migration confirmed, terminalUuids written as binaries");
+                });
+    }
+
+    private Uni<Boolean> isConfirmed() {
+        return migrations.countDocuments(Filters.eq("_id", CONFIRMED))
+                .onItem()
+                .transform(count -> count > 0);
+    }
+
+    /**
+     * Converts the terminalUuids stored as strings, one collection at a time, then merges the entries of the derived
+     * collections keyed on a binary into the entries of the canonical string.
+     *
+     * @return number of documents converted
+     */
+    public Uni<Long> migrate() {
+        return Multi.createFrom().iterable(collections)
+                .onItem()
+                .transformToUniAndConcatenate(this::migrate)
+                .collect()
+                .asList()
+                .onItem()
+                .transform(counts -> counts.stream().mapToLong(Long::longValue).sum())
+                .call(() -> toCanonicalString(latestTransactions, List.of(STATUS),
+                        entry -> Updates.max("transactionId", entry.get("transactionId"))))
+                .call(() -> toCanonicalString(transactionRollups, List.of("payeeCode", "day", STATUS),
+                        entry -> Updates.combine(
+                                Updates.inc("count", entry.get("count", Number.class).longValue()),
+                                Updates.inc("amount", entry.get("amount", Number.class).longValue()))));
+    }
+
+    private Uni<Long> migrate(ReactiveMongoCollection<Document> collection) {
+        String collectionName = collection.getNamespace().getCollectionName();
+
+        return collection.find(Filters.type(TERMINAL_UUID, BsonType.STRING), new FindOptions().projection(Projections.include(TERMINAL_UUID)))
+                .select()
+                .where(document -> TerminalUuid.of(document.getString(TERMINAL_UUID)).toUuid() != null)
+                .group()
+                .intoLists()
+                .of(config.migrationBatchSize())
+                .onItem()
+                .transformToUniAndConcatenate(batch -> collection.bulkWrite(batch.stream().map(TerminalUuidMigration::toBinary).toList(),
+                        new BulkWriteOptions().ordered(false)))
+                .collect()
+                .asList()
+                .onItem()
+                .transform(results -> {
+                    long converted = results.stream().mapToLong(BulkWriteResult::getModifiedCount).sum();
+                    Log.infof("TerminalUuidMigration -> migrate: %d terminalUuids converted on [%s]", converted, collectionName);
+
+                    return converted;
+                });
+    }
+
+    /*
+     * Each entry is merged into the entry of the same keys and the canonical string, created if missing, and then
+     * deleted. The batch is ordered, so an entry whose merge fails is not deleted and is left to the next run.
+     */
+    private Uni<Void> toCanonicalString(ReactiveMongoCollection<Document> collection, List<String> keys, Function<Document, Bson> merge) {
+        String collectionName = collection.getNamespace().getCollectionName();
+
+        return collection.find(Filters.type(TERMINAL_UUID, BsonType.BINARY))
+                .group()
+                .intoLists()
+                .of(config.migrationBatchSize())
+                .onItem()
+                .transformToUniAndConcatenate(batch -> collection.bulkWrite(batch.stream()
+                                .flatMap(entry -> Stream.<WriteModel<Document>>of(
+                                        new UpdateOneModel<>(canonicalKey(entry, keys), merge.apply(entry), new UpdateOptions().upsert(true)),
+                                        new DeleteOneModel<>(Filters.eq("_id", entry.get("_id")))))
+                                .toList(),
+                        new BulkWriteOptions().ordered(true)))
+                .collect()
+                .asList()
+                .onItem()
+                .invoke(results -> Log.infof("TerminalUuidMigration -> toCanonicalString: %d entries merged on [%s]",
+                        results.stream().mapToLong(BulkWriteResult::getDeletedCount).sum(), collectionName))
+                .replaceWithVoid();
+    }
+
+    private static Bson canonicalKey(Document entry, List<String> keys) {
+        List<Bson> key = new ArrayList<>();
+        key.add(Filters.eq(TERMINAL_UUID, TerminalUuidCodec.fromDocumentValue(entry.get(TERMINAL_UUID)).value()));
+        keys.forEach(field -> key.add(Filters.eq(field, entry.get(field))));
+
+        return Filters.and(key);
+    }
+
+    /*
+     * The update is conditioned on the string read, so a document changed in the meantime is left to the next run.
+     */
+    private static UpdateOneModel<Document> toBinary(Document document) {
+        String terminalUuid = document.getString(TERMINAL_UUID);
+        UUID uuid = TerminalUuid.of(terminalUuid).toUuid();
+
+        return new UpdateOneModel<>(
+                Filters.and(Filters.eq("_id", document.get("_id")), Filters.eq(TERMINAL_UUID, terminalUuid)),
+                Updates.set(TERMINAL_UUID, new BsonBinary(uuid, UuidRepresentation.STANDARD)));
+    }
+}
@@ -0,0 +1,303 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import io.quarkus.logging.Log;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.TransactionRollupConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keeps in the transactionRollups collection the number and the amount of the transactions of each payee, UTC day of
+ * creation, terminal and status, so that the daily totals of a payee are read from a few entries rather than summed
+ * over its transactions. The entries are incremented and decremented as transactions are created, updated and
+ * deleted; an increment that fails is logged and lost, and is recovered only by a rebuild. The entries are keyed on
+ * the canonical string of the terminalUuid, whichever representation the transactions store it in, so that the
+ * entries of a terminal stay the same across the migration of the terminalUuids to binaries.
+ */
+@ApplicationScoped
+public class TransactionRollup {
+
+    private static final String PAYEE_CODE = "payeeCode";
+
+    private static final String DAY = "day";
+
+    private static final String TERMINAL_UUID = "terminalUuid";
+
+    private static final String STATUS = "status";
+
+    private static final String COUNT = "count";
+
+    private static final String AMOUNT = "amount";
+
+    private final TransactionRollupRepository transactionRollupRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final ReadRouting readRouting;
+
+    private final TransactionRollupConfig config;
+
+    public TransactionRollup(TransactionRollupRepository transactionRollupRepository, TransactionRepository transactionRepository, ReadRouting readRouting,
+                             TransactionRollupConfig config) {
+        this.transactionRollupRepository = transactionRollupRepository;
+        this.transactionRepository = transactionRepository;
+        this.readRouting = readRouting;
+        this.config = config;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.enabled() || !config.rebuildOnStartup()) {
+            return;
+        }
+
+        rebuild()
+                .subscribe()
+                .with(
+                        unused -> Log.info("TransactionRollup -> onStart: transactionRollups rebuilt"),
+                        error -> Log.error("TransactionRollup -> onStart: error rebuilding transactionRollups", error));
+    }
+
+    /**
+     * Returns the entries of a payee for the days in a range, ordered by day, terminal and status. The entries left
+     * without transactions are returned too, with count 0.
+     *
+     * @param payeeCode CF of the subject that receives the payment
+     * @param startDate any instant of the first day
+     * @param endDate   any instant of the last day
+     * @return the entries found
+     */
+    public Uni<List<TransactionRollupEntity>> findByPayee(String payeeCode, Date startDate, Date endDate) {
+        Bson filter = Filters.and(
+                Filters.eq(PAYEE_CODE, payeeCode),
+                Filters.gte(DAY, toDay(startDate)),
+                Filters.lte(DAY, toDay(endDate)));
+
+        return readRouting.forListings(transactionRollupRepository.mongoCollection())
+                .find(filter, new FindOptions().sort(Sorts.ascending(DAY, TERMINAL_UUID, STATUS)))
+                .collect()
+                .asList();
+    }
+
+    /**
+     * Adds a transaction created to the entry of its payee, day, terminal and status. A failure is logged and not
+     * propagated, since the transaction is already stored.
+     *
+     * @param transaction transaction stored
+     * @return void
+     */
+    public Uni<Void> add(TransactionEntity transaction) {
+        return apply(transaction, 1);
+    }
+
+    /**
+     * Adds many transactions created with a single unordered bulk write, as {@link #add} does for one. A failure is
+     * logged and not propagated.
+     *
+     * @param transactions transactions stored
+     * @return void
+     */
+    public Uni<Void> addAll(List<TransactionEntity> transactions) {
+        if (!config.enabled()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        List<UpdateOneModel<TransactionRollupEntity>> updates = new ArrayList<>();
+        transactions.forEach(transaction -> increment(transaction, 1).ifPresent(updates::add));
+
+        return applyAll(updates);
+    }
+
+    /**
+     * Removes a transaction deleted from the entry of its payee, day, terminal and status. A failure is logged and not
+     * propagated, since the transaction is already deleted.
+     *
+     * @param transaction transaction deleted
+     * @return void
+     */
+    public Uni<Void> remove(TransactionEntity transaction) {
+        return apply(transaction, -1);
+    }
+
+    /**
+     * Moves a transaction updated from the entry of its previous status and amount to the entry of the current ones.
+     *
+     * @param before transaction as it was before the update
+     * @param after  transaction updated
+     * @return void
+     */
+    public Uni<Void> replace(TransactionEntity before, TransactionEntity after) {
+        if (Objects.equals(before.getStatus(), after.getStatus()) && Objects.equals(before.getAmount(), after.getAmount())) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return remove(before)
+                .chain(() -> add(after));
+    }
+
+    /**
+     * Moves many transactions updated with a single unordered bulk write, as {@link #replace} does for one. A failure
+     * is logged and not propagated.
+     *
+     * @param before transactions as they were before the update
+     * @param after  transactions updated, in the same order
+     * @return void
+     */
+    public Uni<Void> replaceAll(List<TransactionEntity> before, List<TransactionEntity> after) {
+        if (!config.enabled()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        List<UpdateOneModel<TransactionRollupEntity>> updates = new ArrayList<>();
+        for (int i = 0; i < before.size(); i++) {
+            if (Objects.equals(before.get(i).getStatus(), after.get(i).getStatus()) && Objects.equals(before.get(i).getAmount(), after.get(i).getAmount())) {
+                continue;
+            }
+            increment(before.get(i), -1).ifPresent(updates::add);
+            increment(after.get(i), 1).ifPresent(updates::add);
+        }
+
+        return applyAll(updates);
+    }
+
+    /**
+     * Recomputes every entry from the transactions. The entries are replaced, so the transactions created or updated
+     * while the rollups are recomputed may be counted twice or not at all, and the entries left keyed on a binary
+     * terminalUuid are deleted.
+     *
+     * @return void
+     */
+    public Uni<Void> rebuild() {
+        /*
+         * The transactions are grouped on the terminalUuid as stored; a terminal whose transactions are partly
+         * strings and partly binaries gets two groups, which are summed here on the canonical string, since the
+         * server converts a binary to a uuid string only from MongoDB 8.0.
+         */
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document(PAYEE_CODE, new Document("$type", "string"))
+                        .append(TERMINAL_UUID, new Document("$type", List.of("string", "binData")))
+                        .append(STATUS, new Document("$type", "string"))),
+                new Document("$group", new Document("_id", new Document(PAYEE_CODE, "$" + PAYEE_CODE)
+                        .append(DAY, new Document("$dateToString", new Document("format", "%Y-%m-%d")
+                                .append("date", new Document("$toDate", "$_id"))
+                                .append("timezone", "UTC")))
+                        .append(TERMINAL_UUID, "$" + TERMINAL_UUID)
+                        .append(STATUS, "$" + STATUS))
+                        .append(COUNT, new Document("$sum", 1L))
+                        .append(AMOUNT, new Document("$sum", new Document("$toLong", new Document("$ifNull", List.of("$" + AMOUNT, 0)))))));
+        ReactiveMongoCollection<Document> entries = transactionRollupRepository.mongoCollection().withDocumentClass(Document.class);
+
+        // the upserts rely on the unique index on their keys, which the index provisioning may not have created yet
+        return entries
+                .createIndex(Indexes.ascending(PAYEE_CODE, DAY, TERMINAL_UUID, STATUS), new IndexOptions().name(IndexProvisioner.TRANSACTION_ROLLUPS_KEY_INDEX).unique(true))
+                .chain(() -> transactionRepository.mongoCollection()
+                        .aggregate(pipeline, Document.class)
+                        .collect()
+                        .in(LinkedHashMap<Document, Document>::new, TransactionRollup::accumulate))
+                .chain(rollups -> rollups.isEmpty()
+                        ? Uni.createFrom().voidItem()
+                        : entries.bulkWrite(rollups.entrySet()
+                                        .stream()
+                                        .map(rollup -> new ReplaceOneModel<>(rollup.getKey(), rollup.getValue(), new ReplaceOptions().upsert(true)))
+                                        .toList(), new BulkWriteOptions().ordered(false))
+                                .replaceWithVoid())
+                .chain(() -> entries.deleteMany(Filters.type(TERMINAL_UUID, BsonType.BINARY)))
+                .replaceWithVoid();
+    }
+
+    private static void accumulate(Map<Document, Document> rollups, Document group) {
+        Document id = group.get("_id", Document.class);
+        Document key = new Document(PAYEE_CODE, id.getString(PAYEE_CODE))
+                .append(DAY, id.getString(DAY))
+                .append(TERMINAL_UUID, TerminalUuidCodec.fromDocumentValue(id.get(TERMINAL_UUID)).value())
+                .append(STATUS, id.getString(STATUS));
+        Document rollup = new Document(key)
+                .append(COUNT, group.get(COUNT, Number.class).longValue())
+                .append(AMOUNT, group.get(AMOUNT, Number.class).longValue());
+
+        rollups.merge(key, rollup, (current, other) -> current
+                .append(COUNT, current.getLong(COUNT) + other.getLong(COUNT))
+                .append(AMOUNT, current.getLong(AMOUNT) + other.getLong(AMOUNT)));
+    }
+
+    private Uni<Void> apply(TransactionEntity transaction, int sign) {
+        Optional<UpdateOneModel<TransactionRollupEntity>> update = config.enabled() ? increment(transaction, sign) : Optional.empty();
+        if (update.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return transactionRollupRepository.mongoCollection()
+                .updateOne(update.get().getFilter(), update.get().getUpdate(), update.get().getOptions())
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.errorf(error, "TransactionRollup -> apply: error applying transaction [%s] to the rollups with sign %d", transaction.id, sign);
+
+                    return null;
+                })
+                .replaceWithVoid();
+    }
+
+    private Uni<Void> applyAll(List<UpdateOneModel<TransactionRollupEntity>> updates) {
+        if (updates.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        return transactionRollupRepository.mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.errorf(error, "TransactionRollup -> applyAll: error applying %d updates to the rollups", updates.size());
+
+                    return null;
+                })
+                .replaceWithVoid();
+    }
+
+    /*
+     * The transactions without payeeCode, terminalUuid or status are left out, as by the rebuild.
+     */
+    private static Optional<UpdateOneModel<TransactionRollupEntity>> increment(TransactionEntity transaction, int sign) {
+        if (transaction.id == null || transaction.getPayeeCode() == null || transaction.getTerminalUuid() == null || transaction.getStatus() == null) {
+            return Optional.empty();
+        }
+
+        Bson key = Filters.and(
+                Filters.eq(PAYEE_CODE, transaction.getPayeeCode()),
+                Filters.eq(DAY, toDay(transaction.id.getDate())),
+                Filters.eq(TERMINAL_UUID, transaction.getTerminalUuid().value()),
+                Filters.eq(STATUS, transaction.getStatus()));
+        long amount = transaction.getAmount() == null ? 0 : transaction.getAmount();
+
+        return Optional.of(new UpdateOneModel<>(key,
+                Updates.combine(Updates.inc(COUNT, (long) sign), Updates.inc(AMOUNT, sign * amount)),
+                new UpdateOptions().upsert(true)));
+    }
+
+    private static String toDay(Date date) {
+        return date.toInstant().atZone(ZoneOffset.UTC).toLocalDate().toString();
+    }
+}
@@ -0,0 +1,20 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import io.quarkus.mongodb.panache.PanacheMongoEntity;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@MongoEntity(database = "mil", collection = "transactionRollups")
+public class TransactionRollupEntity extends PanacheMongoEntity {
+
+    private String payeeCode;
+    private String day;
+    private TerminalUuid terminalUuid;
+    private String status;
+    private Long count;
+    private Long amount;
+}
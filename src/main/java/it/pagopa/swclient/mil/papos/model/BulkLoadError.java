@@ -0,0 +1,7 @@
+package it.pagopa.swclient.mil.papos.model;
+
+/**
+ * Failure of a single row of a bulk load file.
+ */
+public record BulkLoadError(long rowIndex, String terminalId, String errorCode, String message) {
+}
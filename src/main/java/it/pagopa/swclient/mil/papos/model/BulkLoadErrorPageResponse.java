@@ -0,0 +1,10 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorEntity;
+
+import java.util.List;
+
+@RegisterForReflection
+public record BulkLoadErrorPageResponse(List<BulkLoadErrorEntity> errors, PageMetadata page) {
+}
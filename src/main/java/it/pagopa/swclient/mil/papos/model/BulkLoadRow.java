@@ -0,0 +1,21 @@
+package it.pagopa.swclient.mil.papos.model;
+
+/**
+ * Terminal read from a bulk load file, together with its 0-based position in the file. The terminal is null when the
+ * element at that position could not be bound to a {@link TerminalDto}, and mappingError tells why.
+ */
+public record BulkLoadRow(long rowIndex, TerminalDto terminal, String mappingError) {
+
+    public BulkLoadRow(long rowIndex, TerminalDto terminal) {
+        this(rowIndex, terminal, null);
+    }
+
+    /**
+     * @param rowIndex     0-based position of the element in the file
+     * @param mappingError reason why the element could not be bound to a terminal
+     * @return the row of an element that is not a valid terminal
+     */
+    public static BulkLoadRow malformed(long rowIndex, String mappingError) {
+        return new BulkLoadRow(rowIndex, null, mappingError);
+    }
+}
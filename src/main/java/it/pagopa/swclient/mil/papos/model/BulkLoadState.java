@@ -0,0 +1,8 @@
+package it.pagopa.swclient.mil.papos.model;
+
+public enum BulkLoadState {
+    PENDING,
+    IN_PROGRESS,
+    COMPLETED,
+    FAILED
+}
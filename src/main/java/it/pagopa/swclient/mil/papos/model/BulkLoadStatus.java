@@ -6,32 +6,126 @@ import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-@Getter
-@Setter
+/**
+ * Lock-free accumulator of the outcome of a bulk load. Counters can be updated concurrently by the batches of a
+ * bulk load; every failure is counted by error code and queued as a row error until drained, while only a capped
+ * sample of the bulk load level error messages is kept.
+ */
 @ToString
 public class BulkLoadStatus {
-    private String bulkLoadingId;
+    public static final int MAX_ERROR_MESSAGES = 100;
+
+    @Getter
+    private final String bulkLoadingId;
+    @Getter
+    @Setter
     private String pspId;
-    private int totalRecords;
-    private int successRecords;
-    private int failedRecords;
-    private List<String> errorMessages;
+    private final LongAdder totalRecords;
+    private final LongAdder successRecords;
+    private final LongAdder failedRecords;
+    private final Queue<String> errorMessages;
+    private final AtomicInteger sampledErrorMessages;
+    private final Map<String, LongAdder> errorCounts;
+    private final Queue<BulkLoadError> pendingErrors;
 
-    public BulkLoadStatus(String bulkLoadingId, int totalRecords) {
+    public BulkLoadStatus(String bulkLoadingId, String pspId) {
         this.bulkLoadingId = bulkLoadingId;
-        this.totalRecords = totalRecords;
-        this.successRecords = 0;
-        this.failedRecords = 0;
-        this.errorMessages = new ArrayList<>();
+        this.pspId = pspId;
+        this.totalRecords = new LongAdder();
+        this.successRecords = new LongAdder();
+        this.failedRecords = new LongAdder();
+        this.errorMessages = new ConcurrentLinkedQueue<>();
+        this.sampledErrorMessages = new AtomicInteger();
+        this.errorCounts = new ConcurrentHashMap<>();
+        this.pendingErrors = new ConcurrentLinkedQueue<>();
+    }
+
+    public long getTotalRecords() {
+        return totalRecords.sum();
+    }
+
+    public long getSuccessRecords() {
+        return successRecords.sum();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+    /**
+     * @return sample of the bulk load level error messages, at most {@link #MAX_ERROR_MESSAGES}
+     */
+    public List<String> getErrorMessages() {
+        return List.copyOf(errorMessages);
+    }
+
+    /**
+     * @return number of failed records by error code
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((errorCode, count) -> counts.put(errorCode, count.sum()));
+
+        return counts;
+    }
+
+    /**
+     * Restores the counters flushed by a previous run of the bulk load, before resuming it.
+     *
+     * @param totalRecords   terminals already read
+     * @param successRecords terminals already loaded
+     * @param errorCounts    terminals already discarded, by error code
+     */
+    public void restore(long totalRecords, long successRecords, Map<String, Long> errorCounts) {
+        this.totalRecords.add(totalRecords);
+        this.successRecords.add(successRecords);
+        errorCounts.forEach((errorCode, count) -> {
+            this.failedRecords.add(count);
+            this.errorCounts.computeIfAbsent(errorCode, code -> new LongAdder()).add(count);
+        });
     }
 
-    public void recordSuccess() {
-        this.successRecords++;
+    public void recordRead(int records) {
+        totalRecords.add(records);
     }
 
-    public void recordFailure(String errorMessage) {
-        this.failedRecords++;
-        this.errorMessages.add(errorMessage);
+    public void recordSuccess(int records) {
+        successRecords.add(records);
+    }
+
+    public void recordFailure(BulkLoadRow row, String errorCode, String errorMessage) {
+        failedRecords.increment();
+        errorCounts.computeIfAbsent(errorCode, code -> new LongAdder()).increment();
+        pendingErrors.add(new BulkLoadError(row.rowIndex(), row.terminal() == null ? null : row.terminal().terminalId(), errorCode, errorMessage));
+    }
+
+    public void recordError(String errorMessage) {
+        if (sampledErrorMessages.get() < MAX_ERROR_MESSAGES && sampledErrorMessages.incrementAndGet() <= MAX_ERROR_MESSAGES) {
+            errorMessages.add(errorMessage);
+        }
+    }
+
+    /**
+     * Removes and returns the row errors recorded since the last call.
+     *
+     * @return row errors not yet drained
+     */
+    public List<BulkLoadError> drainErrors() {
+        List<BulkLoadError> errors = new ArrayList<>();
+
+        BulkLoadError error;
+        while ((error = pendingErrors.poll()) != null) {
+            errors.add(error);
+        }
+
+        return errors;
     }
 }
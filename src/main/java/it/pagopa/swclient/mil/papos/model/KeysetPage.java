@@ -0,0 +1,35 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import org.bson.types.ObjectId;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page of entities read in _id order, with the id to resume the listing from.
+ *
+ * @param items     entities of the page
+ * @param nextAfter id of the last entity of the page, null if there is no next page
+ * @param <T>       type of the entities
+ */
+public record KeysetPage<T>(List<T> items, ObjectId nextAfter) {
+
+    /**
+     * Builds a page from the entities read with a limit of pageSize + 1: the extra entity, if read, only signals that
+     * a next page exists and is not returned.
+     *
+     * @param fetched  entities read, at most pageSize + 1
+     * @param pageSize page size
+     * @param id       extractor of the id of an entity
+     * @return the page
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int pageSize, Function<T, ObjectId> id) {
+        if (pageSize <= 0 || fetched.size() <= pageSize) {
+            return new KeysetPage<>(fetched, null);
+        }
+
+        List<T> items = fetched.subList(0, pageSize);
+
+        return new KeysetPage<>(items, id.apply(items.get(pageSize - 1)));
+    }
+}
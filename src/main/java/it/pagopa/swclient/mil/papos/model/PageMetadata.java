@@ -1,7 +1,42 @@
 package it.pagopa.swclient.mil.papos.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
+/**
+ * Metadata of a page of a listing.
+ *
+ * @param size          page size
+ * @param totalElements number of elements of the listing, null if not computed
+ * @param totalPages    number of pages of the listing, null if not computed
+ * @param estimated     true if totalElements may be approximate, null if it is exact or not computed
+ * @param hasNext       true if a next page exists, null if not known
+ */
 @RegisterForReflection
-public record PageMetadata(int size, long totalElements, int totalPages) {
+@JsonInclude(Include.NON_NULL)
+public record PageMetadata(int size, Long totalElements, Integer totalPages, Boolean estimated, Boolean hasNext) {
+
+    public PageMetadata(int size, long totalElements, int totalPages) {
+        this(size, totalElements, totalPages, null, null);
+    }
+
+    /**
+     * Builds the metadata of a page read with a limit of size + 1.
+     *
+     * @param size          page size
+     * @param totalElements number of elements of the listing, null if not computed
+     * @param withTotal     how totalElements was computed
+     * @param hasNext       true if a next page exists
+     * @return the metadata
+     */
+    public static PageMetadata of(int size, Long totalElements, TotalMode withTotal, boolean hasNext) {
+        if (totalElements == null) {
+            return new PageMetadata(size, null, null, null, hasNext);
+        }
+
+        int totalPages = (int) Math.ceil((double) totalElements / size);
+
+        return new PageMetadata(size, totalElements, totalPages, withTotal == TotalMode.ESTIMATED ? Boolean.TRUE : null, hasNext);
+    }
 }
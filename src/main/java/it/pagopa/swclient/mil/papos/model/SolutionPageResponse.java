@@ -2,9 +2,12 @@ package it.pagopa.swclient.mil.papos.model;
 
 
 import java.util.List;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 
 @RegisterForReflection
-public record SolutionPageResponse(List<SolutionEntity> terminals, PageMetadata page) {
+@JsonInclude(Include.NON_NULL)
+public record SolutionPageResponse(List<SolutionEntity> terminals, PageMetadata page, String nextCursor) {
 }
\ No newline at end of file
@@ -1,9 +1,12 @@
 package it.pagopa.swclient.mil.papos.model;
 
 import java.util.List;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
 
 @RegisterForReflection
-public record TerminalPageResponse(List<TerminalEntity> terminals, PageMetadata page) {
+@JsonInclude(Include.NON_NULL)
+public record TerminalPageResponse(List<TerminalEntity> terminals, PageMetadata page, String nextCursor) {
 }
@@ -0,0 +1,76 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Uuid of a terminal. It is exposed by the REST api as its canonical string, while the database stores it either as
+ * the string or as a 16 bytes BSON binary (see TerminalUuidCodec). It is a class rather than a record so that the
+ * record codec of the driver does not store it as a subdocument.
+ */
+@RegisterForReflection
+public final class TerminalUuid {
+
+    private final String value;
+
+    private TerminalUuid(String value) {
+        this.value = Objects.requireNonNull(value);
+    }
+
+    /**
+     * @param value string representation of the uuid, may be null
+     * @return the terminal uuid, null if the value is null
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static TerminalUuid of(String value) {
+        return value == null ? null : new TerminalUuid(value);
+    }
+
+    /**
+     * @param uuid uuid of the terminal
+     * @return the terminal uuid, represented by the canonical string of the uuid
+     */
+    public static TerminalUuid of(UUID uuid) {
+        return new TerminalUuid(uuid.toString());
+    }
+
+    /**
+     * @return string representation of the uuid, as received when the terminal was created
+     */
+    @JsonValue
+    public String value() {
+        return value;
+    }
+
+    /**
+     * @return the uuid, null if the value is not a uuid in canonical form and can only be stored as a string
+     */
+    public UUID toUuid() {
+        try {
+            UUID uuid = UUID.fromString(value);
+
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof TerminalUuid terminalUuid && value.equals(terminalUuid.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import io.smallrye.mutiny.Uni;
+
+import java.util.function.Supplier;
+
+/**
+ * How the total number of elements of a paged listing is computed.
+ */
+public enum TotalMode {
+    /**
+     * The total is not computed, the page only reports whether a next page exists.
+     */
+    NONE,
+
+    /**
+     * The total is counted exactly.
+     */
+    EXACT,
+
+    /**
+     * The total is estimated from the collection metadata, or counted up to a limit and left out past it, so it may
+     * be approximate.
+     */
+    ESTIMATED;
+
+    /**
+     * Maps the withTotal query parameter, already validated against RegexPatterns.WITH_TOTAL_PATTERN.
+     *
+     * @param withTotal false, exact or estimated; null defaults to exact
+     * @return the total mode
+     */
+    public static TotalMode fromParam(String withTotal) {
+        if ("false".equals(withTotal)) {
+            return NONE;
+        }
+
+        return "estimated".equals(withTotal) ? ESTIMATED : EXACT;
+    }
+
+    /**
+     * Computes the total according to this mode.
+     *
+     * @param exact     exact count
+     * @param estimated approximate count
+     * @return the total, null item if the total is not computed
+     */
+    public Uni<Long> count(Supplier<Uni<Long>> exact, Supplier<Uni<Long>> estimated) {
+        return switch (this) {
+            case NONE -> Uni.createFrom().nullItem();
+            case EXACT -> exact.get();
+            case ESTIMATED -> estimated.get();
+        };
+    }
+
+    /**
+     * Keeps a total counted up to limit + 1 documents only if it does not exceed the limit, since past the limit the
+     * count is just a lower bound of the total.
+     *
+     * @param count number of documents counted, at most limit + 1
+     * @param limit maximum total reported
+     * @return the count, null if it exceeds the limit
+     */
+    public static Long withinLimit(long count, int limit) {
+        return count > limit ? null : count;
+    }
+}
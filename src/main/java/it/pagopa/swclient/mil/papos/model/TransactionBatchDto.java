@@ -0,0 +1,13 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record TransactionBatchDto(@NotNull(message = ErrorCodes.ERROR_BATCH_SIZE_NOT_VALID_MSG)
+                                  @Size(min = 1, max = TransactionBatchResponse.MAX_ITEMS, message = ErrorCodes.ERROR_BATCH_SIZE_NOT_VALID_MSG)
+                                  List<@Valid @NotNull TransactionDto> transactions) {
+}
@@ -0,0 +1,17 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.util.List;
+
+/**
+ * Outcomes of the items of a transaction batch, in the order of the items.
+ */
+@RegisterForReflection
+public record TransactionBatchResponse(List<TransactionBatchResult> results) {
+
+    /**
+     * Maximum number of items of a batch, which bounds the $in that authorizes them and the bulk write that applies them.
+     */
+    public static final int MAX_ITEMS = 1000;
+}
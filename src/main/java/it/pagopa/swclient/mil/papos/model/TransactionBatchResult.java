@@ -0,0 +1,23 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.pagopa.swclient.mil.papos.util.Errors;
+
+/**
+ * Outcome of a single item of a transaction batch, as the HTTP status of the item and the errors of the items that
+ * failed. The transactionId is missing for the items of a creation that were rejected before the insert.
+ */
+@RegisterForReflection
+@JsonInclude(Include.NON_NULL)
+public record TransactionBatchResult(String transactionId, int status, Errors errors) {
+
+    public static TransactionBatchResult success(String transactionId, int status) {
+        return new TransactionBatchResult(transactionId, status, null);
+    }
+
+    public static TransactionBatchResult failure(String transactionId, int status, String errorCode, String errorMessage) {
+        return new TransactionBatchResult(transactionId, status, new Errors(errorCode, errorMessage));
+    }
+}
@@ -1,10 +1,13 @@
 package it.pagopa.swclient.mil.papos.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import io.quarkus.runtime.annotations.RegisterForReflection;
 import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
 
 import java.util.List;
 
 @RegisterForReflection
-public record TransactionPageResponse(List<TransactionEntity> transactions, PageMetadata page) {
+@JsonInclude(Include.NON_NULL)
+public record TransactionPageResponse(List<TransactionEntity> transactions, PageMetadata page, String nextCursor) {
 }
@@ -0,0 +1,21 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
+import org.bson.types.ObjectId;
+
+import java.util.List;
+
+/**
+ * Outcome of a transaction search resolved server-side through solutions and terminals.
+ *
+ * @param solutionCount    number of solutions matching the search
+ * @param terminalCount    number of terminals belonging to those solutions
+ * @param totalElements    number of transactions matching the search, null if not requested or if the estimate
+ *                         exceeds its limit
+ * @param transactions     requested page of transactions
+ * @param nextAfter        id of the last transaction of the page, null if there is no next page
+ */
+@RegisterForReflection
+public record TransactionSearchResult(long solutionCount, long terminalCount, Long totalElements, List<TransactionEntity> transactions, ObjectId nextAfter) {
+}
@@ -0,0 +1,19 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollupEntity;
+
+import java.util.List;
+
+/**
+ * Rollups of the transactions of a payee in a range of days, with the number and the amount of all of them.
+ */
+@RegisterForReflection
+public record TransactionStatsResponse(List<TransactionRollupEntity> stats, long count, long amount) {
+
+    public static TransactionStatsResponse of(List<TransactionRollupEntity> stats) {
+        return new TransactionStatsResponse(stats,
+                stats.stream().mapToLong(rollup -> rollup.getCount() == null ? 0 : rollup.getCount()).sum(),
+                stats.stream().mapToLong(rollup -> rollup.getAmount() == null ? 0 : rollup.getAmount()).sum());
+    }
+}
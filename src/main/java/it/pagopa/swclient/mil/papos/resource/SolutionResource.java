@@ -3,13 +3,17 @@ package it.pagopa.swclient.mil.papos.resource;
 import io.quarkus.logging.Log;
 import io.smallrye.mutiny.Uni;
 
+import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.PageMetadata;
 import it.pagopa.swclient.mil.papos.model.SolutionDto;
 import it.pagopa.swclient.mil.papos.model.SolutionPageResponse;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.Errors;
 import it.pagopa.swclient.mil.papos.util.RegexPatterns;
+import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -17,6 +21,7 @@ import jakarta.validation.constraints.Pattern;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.bson.types.ObjectId;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 
 @Path("/solutions")
@@ -75,14 +80,18 @@ public class SolutionResource {
     public Uni<Response> getSolutions(
             @HeaderParam("RequestId") @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG) @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN) @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN) @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("SolutionResource -> getSolutions - Input requestId, pageNumber, pageSize: %s, %s, %s",
+        Log.debugf("SolutionResource -> getSolutions - Input requestId, pageNumber, pageSize, after, withTotal: %s, %s, %s, %s, %s",
                 requestId,
-                pageNumber, pageSize);
+                pageNumber, pageSize, after, withTotal);
 
-        return solutionService
-                .getSolutionsCount()
+        TotalMode totalMode = TotalMode.fromParam(withTotal);
+
+        Uni<Long> count = solutionService
+                .getSolutionsCount(totalMode)
                 .onFailure()
                 .transform(err -> {
                     Log.errorf(err, "SolutionResource -> findAll: error while counting all solutions");
@@ -92,44 +101,40 @@ public class SolutionResource {
                             .entity(new Errors(ErrorCodes.ERROR_COUNTING_SOLUTIONS,
                                     ErrorCodes.ERROR_COUNTING_SOLUTIONS_MSG))
                             .build());
-                })
-                .onItem()
-                .transformToUni(numberOfSolutions -> {
-                    Log.debugf("SolutionResource -> findAll: found a total count of [%s] solutions",
-                            numberOfSolutions);
+                });
+        Uni<KeysetPage<SolutionEntity>> page = solutionService
+                .findSolutions(Utility.decodeCursor(after), pageNumber, pageSize)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err,
+                            "SolutionResources -> findAll: Error while retrieving list of solutions, index and size [%s, %s]",
+                            pageNumber, pageSize);
 
-                    return solutionService.findSolutions(pageNumber, pageSize)
-                            .onFailure()
-                            .transform(err -> {
-                                Log.errorf(err,
-                                        "SolutionResources -> findAll: Error while retrieving list of solutions, index and size [%s, %s]",
-                                        pageNumber, pageSize);
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(
+                                    ErrorCodes.ERROR_LIST_SOLUTIONS,
+                                    ErrorCodes.ERROR_LIST_SOLUTIONS_MSG))
+                            .build());
+                });
 
-                                return new InternalServerErrorException(Response
-                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                        .entity(new Errors(
-                                                ErrorCodes.ERROR_LIST_SOLUTIONS,
-                                                ErrorCodes.ERROR_LIST_SOLUTIONS_MSG))
-                                        .build());
-                            })
-                            .onItem()
-                            .transform(solutionsPaged -> {
-                                Log.debugf(
-                                        "SolutionResource -> findAll: size of list of solutions paginated found: [%s]",
-                                        solutionsPaged.size());
+        return Uni.combine()
+                .all()
+                .unis(count, page)
+                .with((numberOfSolutions, solutionsPaged) -> {
+                    Log.debugf("SolutionResource -> findAll: found a total count of [%s] solutions, size of list of solutions paginated found: [%s]",
+                            numberOfSolutions, solutionsPaged.items().size());
 
-                                int totalPages = (int) Math.ceil(
-                                        (double) numberOfSolutions / pageSize);
-                                PageMetadata pageMetadata = new PageMetadata(pageSize,
-                                        numberOfSolutions, totalPages);
+                    PageMetadata pageMetadata = PageMetadata.of(pageSize,
+                            numberOfSolutions, totalMode, solutionsPaged.nextAfter() != null);
 
-                                return Response
-                                        .status(Response.Status.OK)
-                                        .entity(new SolutionPageResponse(
-                                                solutionsPaged,
-                                                pageMetadata))
-                                        .build();
-                            });
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new SolutionPageResponse(
+                                    solutionsPaged.items(),
+                                    pageMetadata,
+                                    Utility.encodeCursor(solutionsPaged.nextAfter())))
+                            .build();
                 });
     }
 
@@ -188,12 +193,14 @@ public class SolutionResource {
             @HeaderParam("RequestId") @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG) @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
             @QueryParam("pspId") String pspId,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN) @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN) @QueryParam("withTotal") String withTotal) {
         if (jwt.getGroups().contains("pos_service_provider")) {
             checkToken(pspId);
         }
 
-        return findByAttribute(requestId, "pspId", pspId, pageNumber, pageSize);
+        return findByAttribute(requestId, "pspId", pspId, Utility.decodeCursor(after), TotalMode.fromParam(withTotal), pageNumber, pageSize);
     }
 
     @GET
@@ -205,12 +212,14 @@ public class SolutionResource {
             @HeaderParam("RequestId") @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG) @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
             @QueryParam("locationCode") String locationCode,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN) @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN) @QueryParam("withTotal") String withTotal) {
         if (jwt.getGroups().contains("public_administration")) {
             checkToken(locationCode);
         }
 
-        return findByAttribute(requestId, "locationCode", locationCode, pageNumber, pageSize);
+        return findByAttribute(requestId, "locationCode", locationCode, Utility.decodeCursor(after), TotalMode.fromParam(withTotal), pageNumber, pageSize);
     }
 
     @DELETE
@@ -333,13 +342,15 @@ public class SolutionResource {
     }
 
     private Uni<Response> findByAttribute(String requestId, String attributeName, String attributeValue,
+            ObjectId after,
+            TotalMode totalMode,
             int pageNumber,
             int pageSize) {
         Log.debugf(
-                "SolutionResource -> findBy - Input requestId: %s, attributeName: %s, attributeValue: %s, pageNumber: %s, size: %s",
-                requestId, attributeName, attributeValue, pageNumber, pageSize);
+                "SolutionResource -> findBy - Input requestId: %s, attributeName: %s, attributeValue: %s, after: %s, withTotal: %s, pageNumber: %s, size: %s",
+                requestId, attributeName, attributeValue, after, totalMode, pageNumber, pageSize);
 
-        return solutionService.getSolutionCountByAttribute(attributeName, attributeValue)
+        Uni<Long> count = solutionService.getSolutionCountByAttribute(attributeName, attributeValue, totalMode)
                 .onFailure()
                 .transform(err -> {
                     Log.errorf(err, "SolutionResource -> findBy: error while counting solutions for [%s, %s]",
@@ -350,47 +361,42 @@ public class SolutionResource {
                             .entity(new Errors(ErrorCodes.ERROR_COUNTING_SOLUTIONS,
                                     ErrorCodes.ERROR_COUNTING_SOLUTIONS_MSG))
                             .build());
-                })
-                .onItem()
-                .transformToUni(numberOfSolutions -> {
-                    Log.debugf("SolutionResource -> findBy: found a total count of [%s] solutions",
-                            numberOfSolutions);
+                });
+        Uni<KeysetPage<SolutionEntity>> page = solutionService
+                .getSolutionsListPagedByAttribute(attributeName, attributeValue,
+                        after, pageNumber, pageSize)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err,
+                            "SolutionResource -> findBy: Error while retrieving list of solutions for [%s, %s], index and size [%s, %s]",
+                            attributeName, attributeValue,
+                            pageNumber, pageSize);
 
-                    return solutionService
-                            .getSolutionsListPagedByAttribute(attributeName, attributeValue,
-                                    pageNumber, pageSize)
-                            .onFailure()
-                            .transform(err -> {
-                                Log.errorf(err,
-                                        "SolutionResource -> findBy: Error while retrieving list of solutions for [%s, %s], index and size [%s, %s]",
-                                        attributeName, attributeValue,
-                                        pageNumber, pageSize);
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(
+                                    ErrorCodes.ERROR_LIST_SOLUTIONS,
+                                    ErrorCodes.ERROR_LIST_SOLUTIONS_MSG))
+                            .build());
+                });
 
-                                return new InternalServerErrorException(Response
-                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                        .entity(new Errors(
-                                                ErrorCodes.ERROR_LIST_SOLUTIONS,
-                                                ErrorCodes.ERROR_LIST_SOLUTIONS_MSG))
-                                        .build());
-                            })
-                            .onItem()
-                            .transform(solutionPaged -> {
-                                Log.debugf(
-                                        "SolutionResource -> findBy: size of list of solutions paginated found: [%s]",
-                                        solutionPaged.size());
+        return Uni.combine()
+                .all()
+                .unis(count, page)
+                .with((numberOfSolutions, solutionPaged) -> {
+                    Log.debugf("SolutionResource -> findBy: found a total count of [%s] solutions, size of list of solutions paginated found: [%s]",
+                            numberOfSolutions, solutionPaged.items().size());
 
-                                int totalPages = (int) Math.ceil(
-                                        (double) numberOfSolutions / pageSize);
-                                PageMetadata pageMetadata = new PageMetadata(pageSize,
-                                        numberOfSolutions, totalPages);
+                    PageMetadata pageMetadata = PageMetadata.of(pageSize,
+                            numberOfSolutions, totalMode, solutionPaged.nextAfter() != null);
 
-                                return Response
-                                        .status(Response.Status.OK)
-                                        .entity(new SolutionPageResponse(
-                                                solutionPaged,
-                                                pageMetadata))
-                                        .build();
-                            });
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new SolutionPageResponse(
+                                    solutionPaged.items(),
+                                    pageMetadata,
+                                    Utility.encodeCursor(solutionPaged.nextAfter())))
+                            .build();
                 });
     }
 
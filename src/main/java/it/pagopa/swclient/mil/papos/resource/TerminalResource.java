@@ -1,48 +1,61 @@
 package it.pagopa.swclient.mil.papos.resource;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
-import io.smallrye.mutiny.unchecked.Unchecked;
+import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
+import it.pagopa.swclient.mil.papos.model.BulkLoadErrorPageResponse;
+import it.pagopa.swclient.mil.papos.model.BulkLoadState;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.PageMetadata;
 import it.pagopa.swclient.mil.papos.model.TerminalDto;
 import it.pagopa.swclient.mil.papos.model.TerminalPageResponse;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.model.WorkstationsDto;
+import it.pagopa.swclient.mil.papos.service.BulkLoadService;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.service.TerminalService;
 import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.Errors;
 import it.pagopa.swclient.mil.papos.util.RegexPatterns;
+import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.bson.types.ObjectId;
 import org.eclipse.microprofile.jwt.JsonWebToken;
 import org.jboss.resteasy.reactive.RestForm;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
-import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Path("/terminals")
 public class TerminalResource {
     private final TerminalService terminalService;
     private final SolutionService solutionService;
 
+    private final BulkLoadService bulkLoadService;
+
     private final JsonWebToken jwt;
 
-    private final ObjectMapper objectMapper;
+    private static final String EXPORT_NDJSON = "application/x-ndjson";
+
+    private static final String EXPORT_CSV = "text/csv";
+
+    private static final List<String> CSV_HEADER = List.of("id", "terminalUuid", "solutionId", "terminalId", "enabled", "workstations");
 
-    public TerminalResource(TerminalService terminalService, SolutionService solutionService, JsonWebToken jwt, ObjectMapper objectMapper) {
+    public TerminalResource(TerminalService terminalService, SolutionService solutionService, BulkLoadService bulkLoadService, JsonWebToken jwt) {
         this.terminalService = terminalService;
         this.solutionService = solutionService;
+        this.bulkLoadService = bulkLoadService;
         this.jwt = jwt;
-        this.objectMapper = objectMapper;
     }
 
     @POST
@@ -84,6 +97,14 @@ public class TerminalResource {
                             })
                             .onItem()
                             .transform(terminalSaved -> {
+                                if (terminalSaved == null) {
+                                    Log.errorf("TerminalResource -> createTerminal: error 409 terminal already exists [%s]", terminal);
+
+                                    return Response
+                                            .status(Response.Status.CONFLICT)
+                                            .entity(new Errors(ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS, ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS_MSG))
+                                            .build();
+                                }
                                 Log.debugf("TerminalResource -> createTerminal: terminal saved correctly on DB [%s]", terminalSaved);
 
                                 return Response.status(Response.Status.CREATED).build();
@@ -114,85 +135,33 @@ public class TerminalResource {
             );
         }
 
-        return Uni.createFrom().item(Unchecked.supplier(fileInputStream::readAllBytes))
+        return bulkLoadService.submit(jwt.getSubject(), requestId, fileInputStream)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err, "TerminalResource -> bulkLoadTerminals: error during submit of bulkLoad for pspId [%s]", jwt.getSubject());
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
                 .onItem()
-                .transformToUni(Unchecked.function(file -> {
-                    if (file.length == 0) {
+                .transform(bulkLoadStatus -> {
+                    if (bulkLoadStatus == null) {
                         Log.error("TerminalResource -> bulkLoadTerminals: error uploaded file is empty");
 
-                        return Uni.createFrom().item(() ->
-                                Response.status(Response.Status.BAD_REQUEST)
-                                        .entity(new Errors(ErrorCodes.ERROR_BULKLOAD_FILE_MUST_NOT_BE_NULL, ErrorCodes.ERROR_BULKLOAD_FILE_MUST_NOT_BE_NULL_MSG))
-                                        .build()
-                        );
-                    }
-
-                    try {
-                        List<TerminalDto> terminalRequests = objectMapper.readValue(file, objectMapper.getTypeFactory().constructCollectionType(List.class, TerminalDto.class));
-                        List<String> solutionIds = terminalRequests.stream()
-                                .map(TerminalDto::solutionId)
-                                .toList();
-
-                        return solutionService.findAllByPspAndSolutionId(jwt.getSubject(), solutionIds)
-                                .onFailure()
-                                .transform(err -> {
-                                    Log.errorf(err, "TerminalResource -> bulkLoadTerminals: error during bulkLoad process with file: length [%d] bytes", file.length);
-
-                                    return new InternalServerErrorException(Response
-                                            .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                            .build());
-                                })
-                                .onItem()
-                                .transformToUni(solutionEntities -> {
-                                    if (solutionEntities.isEmpty()) {
-                                        Log.errorf("TerminalResource -> bulkLoadTerminals: no solutions found for pspId %s and solutionIds %s", jwt.getSubject(), solutionIds);
-
-                                        return Uni.createFrom().item(() ->
-                                                Response.status(Response.Status.NOT_FOUND)
-                                                        .entity(new Errors(ErrorCodes.ERROR_NO_SOLUTIONS_FOUND, ErrorCodes.ERROR_NO_SOLUTIONS_FOUND_MSG))
-                                                        .build()
-                                        );
-                                    }
-
-                                    Set<String> uniqueSolutions = solutionEntities.stream()
-                                            .map(solution -> solution.id.toString())
-                                            .collect(Collectors.toSet());
-
-                                    List<TerminalDto> filteredTerminals = terminalRequests.stream()
-                                            .filter(terminal -> uniqueSolutions.contains(terminal.solutionId()))
-                                            .toList();
-
-                                    return terminalService.processBulkLoad(filteredTerminals, terminalRequests.size(), jwt.getSubject())
-                                            .onFailure()
-                                            .transform(err -> {
-                                                Log.errorf(err, "TerminalResource -> bulkLoadTerminals: error during bulkLoad process with file: length [%d] bytes", file.length);
-
-                                                return new InternalServerErrorException(Response
-                                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                                        .build());
-                                            })
-                                            .onItem()
-                                            .transform(bulkLoadStatus -> {
-                                                Log.debugf("TerminalResource -> bulkLoadTerminals: bulkLoad terminals completed [%s]", bulkLoadStatus);
-
-                                                return Response
-                                                        .status(Response.Status.ACCEPTED)
-                                                        .entity(bulkLoadStatus)
-                                                        .build();
-                                            });
-                                });
-                    } catch (IOException e) {
-                        Log.error("TerminalService -> bulkLoadTerminals: Error processing file", e);
-
-                        return Uni.createFrom().failure(new InternalServerErrorException(Response
-                                .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                .entity(new Errors(ErrorCodes.ERROR_PROCESSING_FILE, ErrorCodes.ERROR_PROCESSING_FILE_MSG))
-                                .build()));
+                        return Response.status(Response.Status.BAD_REQUEST)
+                                .entity(new Errors(ErrorCodes.ERROR_BULKLOAD_FILE_MUST_NOT_BE_NULL, ErrorCodes.ERROR_BULKLOAD_FILE_MUST_NOT_BE_NULL_MSG))
+                                .build();
                     }
+                    Log.debugf("TerminalResource -> bulkLoadTerminals: bulkLoad terminals accepted [%s]", bulkLoadStatus);
 
-                }));
+                    return Response
+                            .status(Response.Status.ACCEPTED)
+                            .location(URI.create("/terminals/bulkload/" + bulkLoadStatus.getBulkLoadingId()))
+                            .entity(bulkLoadStatus)
+                            .build();
+                });
     }
 
     @GET
@@ -234,13 +203,81 @@ public class TerminalResource {
                     }
                     checkToken(bulkLoadStatus.getPspId());
 
+                    boolean running = bulkLoadStatus.getState() == BulkLoadState.PENDING || bulkLoadStatus.getState() == BulkLoadState.IN_PROGRESS;
+
                     return Uni.createFrom().item(Response
-                            .status(Response.Status.OK)
+                            .status(running ? Response.Status.ACCEPTED : Response.Status.OK)
                             .entity(bulkLoadStatus)
                             .build());
                 });
     }
 
+    @GET
+    @Path("/bulkload/{bulkLoadingId}/errors")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"pos_service_provider"})
+    public Uni<Response> getBulkLoadingErrors(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @PathParam(value = "bulkLoadingId") String bulkLoadingId,
+            @QueryParam("page") int pageNumber,
+            @Min(value = 1, message = ErrorCodes.ERROR_PAGE_SIZE_NOT_VALID_MSG)
+            @QueryParam("size") int pageSize) {
+
+        Log.debugf("TerminalResource -> getBulkLoadingErrors: Input requestId, bulkLoadingId, pageNumber, size: %s, %s, %s, %s", requestId, bulkLoadingId, pageNumber, pageSize);
+
+        return terminalService.findBulkLoadStatus(bulkLoadingId)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err,
+                            "TerminalResource -> getBulkLoadingErrors: error during search bulkLoadStatus with bulkLoadingId: [%s]",
+                            bulkLoadingId);
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
+                .onItem()
+                .transformToUni(bulkLoadStatus -> {
+                    if (bulkLoadStatus == null) {
+                        Log.errorf("TerminalResource -> getBulkLoadingErrors: error 404 during searching bulkLoadStatus with bulkLoadingId: [%s]", bulkLoadingId);
+
+                        return Uni.createFrom().failure(new NotFoundException(Response
+                                .status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_BULKLOADSTATUS_NOT_FOUND, ErrorCodes.ERROR_BULKLOADSTATUS_NOT_FOUND_MSG))
+                                .build()));
+                    }
+                    checkToken(bulkLoadStatus.getPspId());
+
+                    return Uni.combine()
+                            .all()
+                            .unis(bulkLoadService.getErrorCount(bulkLoadingId), bulkLoadService.getErrorListPaged(bulkLoadingId, pageNumber, pageSize))
+                            .with((numberOfErrors, errorsPaged) -> {
+                                Log.debugf("TerminalResource -> getBulkLoadingErrors: found a total count of [%s] errors, size of list of errors paginated found: [%s]", numberOfErrors, errorsPaged.size());
+
+                                int totalPages = (int) Math.ceil((double) numberOfErrors / pageSize);
+                                PageMetadata pageMetadata = new PageMetadata(pageSize, numberOfErrors, totalPages);
+
+                                return Response
+                                        .status(Response.Status.OK)
+                                        .entity(new BulkLoadErrorPageResponse(errorsPaged, pageMetadata))
+                                        .build();
+                            })
+                            .onFailure()
+                            .transform(err -> {
+                                Log.errorf(err, "TerminalResource -> getBulkLoadingErrors: error while retrieving errors of bulkLoad [%s], index and size [%s, %s]", bulkLoadingId, pageNumber, pageSize);
+
+                                return new InternalServerErrorException(Response
+                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
+                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                                        .build());
+                            });
+                });
+    }
+
     @GET
     @Path("/findByPayeeCode")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -252,12 +289,16 @@ public class TerminalResource {
             @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
             @QueryParam("payeeCode") String payeeCode,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN)
+            @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN)
+            @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("TerminalResource -> findBy - Input requestId: %s, payeeCode: %s, pageNumber: %s, size: %s", requestId, payeeCode, pageNumber, pageSize);
+        Log.debugf("TerminalResource -> findBy - Input requestId: %s, payeeCode: %s, pageNumber: %s, size: %s, after: %s, withTotal: %s", requestId, payeeCode, pageNumber, pageSize, after, withTotal);
         checkToken(payeeCode);
 
-        return findByLocationOrPsp("locationCode", payeeCode, pageNumber, pageSize);
+        return findByLocationOrPsp("locationCode", payeeCode, Utility.decodeCursor(after), TotalMode.fromParam(withTotal), pageNumber, pageSize);
     }
 
     @GET
@@ -271,12 +312,58 @@ public class TerminalResource {
             @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
             @QueryParam("pspId") String pspId,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN)
+            @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN)
+            @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("TerminalResource -> findBy - Input requestId: %s, payeeCode: %s, pageNumber: %s, size: %s", requestId, pspId, pageNumber, pageSize);
+        Log.debugf("TerminalResource -> findBy - Input requestId: %s, payeeCode: %s, pageNumber: %s, size: %s, after: %s, withTotal: %s", requestId, pspId, pageNumber, pageSize, after, withTotal);
         checkToken(pspId);
 
-        return findByLocationOrPsp("pspId", pspId, pageNumber, pageSize);
+        return findByLocationOrPsp("pspId", pspId, Utility.decodeCursor(after), TotalMode.fromParam(withTotal), pageNumber, pageSize);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(EXPORT_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"pos_service_provider"})
+    public Multi<TerminalEntity> exportByPspId(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @QueryParam("pspId") String pspId) {
+
+        Log.debugf("TerminalResource -> exportByPspId - Input requestId: %s, pspId: %s", requestId, pspId);
+        checkToken(pspId);
+
+        return exportTerminals(pspId);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(EXPORT_CSV)
+    @RolesAllowed({"pos_service_provider"})
+    public Multi<String> exportByPspIdAsCsv(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @QueryParam("pspId") String pspId) {
+
+        Log.debugf("TerminalResource -> exportByPspIdAsCsv - Input requestId: %s, pspId: %s", requestId, pspId);
+        checkToken(pspId);
+
+        return Multi.createBy().concatenating().streams(
+                Multi.createFrom().item(Utility.toCsvLine(CSV_HEADER.toArray())),
+                exportTerminals(pspId)
+                        .map(terminal -> Utility.toCsvLine(
+                                terminal.id,
+                                terminal.getTerminalUuid(),
+                                terminal.getSolutionId(),
+                                terminal.getTerminalId(),
+                                terminal.getEnabled(),
+                                terminal.getWorkstations() == null ? null : String.join(";", terminal.getWorkstations()))));
     }
 
     @GET
@@ -291,11 +378,17 @@ public class TerminalResource {
             @QueryParam("workstation") String workstation,
             @QueryParam("payeeCode") String payeeCode,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN)
+            @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN)
+            @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("TerminalResource -> findByWorkstation - Input requestId: %s, workstation: %s, pageNumber: %s, size: %s", requestId, workstation, pageNumber, pageSize);
+        Log.debugf("TerminalResource -> findByWorkstation - Input requestId: %s, workstation: %s, pageNumber: %s, size: %s, after: %s, withTotal: %s", requestId, workstation, pageNumber, pageSize, after, withTotal);
         checkToken(payeeCode);
 
+        TotalMode totalMode = TotalMode.fromParam(withTotal);
+
         return solutionService.getSolutionsListByLocationCode(payeeCode)
                 .onFailure()
                 .transform(err -> {
@@ -323,7 +416,7 @@ public class TerminalResource {
                             .map(solution -> solution.id.toString())
                             .toList();
 
-                    return terminalService.getTerminalCountByWorkstation(workstation, solutionIds)
+                    Uni<Long> count = terminalService.getTerminalCountByWorkstation(workstation, solutionIds, totalMode)
                             .onFailure()
                             .transform(err -> {
                                 Log.errorf(err, "TerminalResource -> findByWorkstation: error while counting terminals for [%s]", workstation);
@@ -332,33 +425,30 @@ public class TerminalResource {
                                         .status(Response.Status.INTERNAL_SERVER_ERROR)
                                         .entity(new Errors(ErrorCodes.ERROR_COUNTING_TERMINALS, ErrorCodes.ERROR_COUNTING_TERMINALS_MSG))
                                         .build());
-                            })
-                            .onItem()
-                            .transformToUni(numberOfTerminals -> {
-                                Log.debugf("TerminalResource -> findByWorkstation: found a total count of [%s] terminals", numberOfTerminals);
+                            });
+                    Uni<KeysetPage<TerminalEntity>> page = terminalService.getTerminalListPagedByWorkstation(workstation, Utility.decodeCursor(after), pageNumber, pageSize, solutionIds)
+                            .onFailure()
+                            .transform(err -> {
+                                Log.errorf(err, "TerminalResource -> findByWorkstation: Error while retrieving list of terminals for workstation [%s], index and size [%s, %s]", workstation, pageNumber, pageSize);
 
-                                return terminalService.getTerminalListPagedByWorkstation(workstation, pageNumber, pageSize, solutionIds)
-                                        .onFailure()
-                                        .transform(err -> {
-                                            Log.errorf(err, "TerminalResource -> findByWorkstation: Error while retrieving list of terminals for workstation [%s], index and size [%s, %s]", workstation, pageNumber, pageSize);
+                                return new InternalServerErrorException(Response
+                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
+                                        .entity(new Errors(ErrorCodes.ERROR_LIST_TERMINALS, ErrorCodes.ERROR_LIST_TERMINALS_MSG))
+                                        .build());
+                            });
 
-                                            return new InternalServerErrorException(Response
-                                                    .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                    .entity(new Errors(ErrorCodes.ERROR_LIST_TERMINALS, ErrorCodes.ERROR_LIST_TERMINALS_MSG))
-                                                    .build());
-                                        })
-                                        .onItem()
-                                        .transform(terminalsPaged -> {
-                                            Log.debugf("TerminalResource -> findByWorkstation: size of list of terminals paginated found: [%s]", terminalsPaged.size());
+                    return Uni.combine()
+                            .all()
+                            .unis(count, page)
+                            .with((numberOfTerminals, terminalsPaged) -> {
+                                Log.debugf("TerminalResource -> findByWorkstation: found a total count of [%s] terminals, size of list of terminals paginated found: [%s]", numberOfTerminals, terminalsPaged.items().size());
 
-                                            int totalPages = (int) Math.ceil((double) numberOfTerminals / pageSize);
-                                            PageMetadata pageMetadata = new PageMetadata(pageSize, numberOfTerminals, totalPages);
+                                PageMetadata pageMetadata = PageMetadata.of(pageSize, numberOfTerminals, totalMode, terminalsPaged.nextAfter() != null);
 
-                                            return Response
-                                                    .status(Response.Status.OK)
-                                                    .entity(new TerminalPageResponse(terminalsPaged, pageMetadata))
-                                                    .build();
-                                        });
+                                return Response
+                                        .status(Response.Status.OK)
+                                        .entity(new TerminalPageResponse(terminalsPaged.items(), pageMetadata, Utility.encodeCursor(terminalsPaged.nextAfter())))
+                                        .build();
                             });
                 });
     }
@@ -504,6 +594,14 @@ public class TerminalResource {
                                         })
                                         .onItem()
                                         .transform(terminalUpdated -> {
+                                            if (terminalUpdated == null) {
+                                                Log.errorf("TerminalResource -> updateTerminal: error 409 terminal already exists [%s]", terminal);
+
+                                                return Response
+                                                        .status(Response.Status.CONFLICT)
+                                                        .entity(new Errors(ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS, ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS_MSG))
+                                                        .build();
+                                            }
                                             Log.debugf("TerminalResource -> updateTerminal: terminal updated correctly on DB [%s]", terminalUpdated);
 
                                             return Response
@@ -585,7 +683,7 @@ public class TerminalResource {
                 });
     }
 
-    private Uni<Response> findByLocationOrPsp(String attributeName, String attributeValue, int pageNumber, int pageSize) {
+    private Uni<Response> findByLocationOrPsp(String attributeName, String attributeValue, ObjectId after, TotalMode totalMode, int pageNumber, int pageSize) {
         return solutionService.findAllByLocationOrPsp(attributeName, attributeValue)
                 .onFailure()
                 .transform(err -> {
@@ -611,7 +709,7 @@ public class TerminalResource {
                             .map(solution -> solution.id.toString())
                             .toList();
 
-                    return terminalService.countBySolutionIds(solutionIds)
+                    Uni<Long> count = terminalService.countBySolutionIds(solutionIds, totalMode)
                             .onFailure()
                             .transform(err -> {
                                 Log.errorf(err, "TerminalResource -> findByLocationOrPsp: error during search solutions with locationCode" + attributeName + ": [%s]", attributeValue);
@@ -620,31 +718,67 @@ public class TerminalResource {
                                         .status(Response.Status.INTERNAL_SERVER_ERROR)
                                         .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
                                         .build());
-                            })
-                            .onItem()
-                            .transformToUni(numberOfTerminals ->
-                                    terminalService.findBySolutionIds(solutionIds, pageNumber, pageSize)
-                                            .onFailure()
-                                            .transform(err -> {
-                                                Log.errorf(err, "TerminalResource -> findByLocationOrPsp: error during finding terminal with solutionIds [%s]", solutionIds);
-
-                                                return new InternalServerErrorException(Response
-                                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                                        .build());
-                                            })
-                                            .onItem()
-                                            .transform(terminalsPaged -> {
-                                                Log.debugf("TerminalResource -> findByLocationOrPsp: size of list of terminals paginated found: [%s]", terminalsPaged.size());
-
-                                                int totalPages = (int) Math.ceil((double) numberOfTerminals / pageSize);
-                                                PageMetadata pageMetadata = new PageMetadata(pageSize, numberOfTerminals, totalPages);
+                            });
+                    Uni<KeysetPage<TerminalEntity>> page = terminalService.findBySolutionIds(solutionIds, after, pageNumber, pageSize)
+                            .onFailure()
+                            .transform(err -> {
+                                Log.errorf(err, "TerminalResource -> findByLocationOrPsp: error during finding terminal with solutionIds [%s]", solutionIds);
 
-                                                return Response
-                                                        .status(Response.Status.OK)
-                                                        .entity(new TerminalPageResponse(terminalsPaged, pageMetadata))
-                                                        .build();
-                                            }));
+                                return new InternalServerErrorException(Response
+                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
+                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                                        .build());
+                            });
+
+                    return Uni.combine()
+                            .all()
+                            .unis(count, page)
+                            .with((numberOfTerminals, terminalsPaged) -> {
+                                Log.debugf("TerminalResource -> findByLocationOrPsp: found a total count of [%s] terminals, size of list of terminals paginated found: [%s]", numberOfTerminals, terminalsPaged.items().size());
+
+                                PageMetadata pageMetadata = PageMetadata.of(pageSize, numberOfTerminals, totalMode, terminalsPaged.nextAfter() != null);
+
+                                return Response
+                                        .status(Response.Status.OK)
+                                        .entity(new TerminalPageResponse(terminalsPaged.items(), pageMetadata, Utility.encodeCursor(terminalsPaged.nextAfter())))
+                                        .build();
+                            });
+                });
+    }
+
+    /*
+     * The solutions are resolved once, before the first terminal is written, so a PSP without solutions still gets a
+     * 404. A failure after the first terminal is logged and ends the response early.
+     */
+    private Multi<TerminalEntity> exportTerminals(String pspId) {
+        return solutionService.findAllByLocationOrPsp("pspId", pspId)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err, "TerminalResource -> exportTerminals: error during search solutions with pspId: %s", pspId);
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
+                .onItem()
+                .transformToMulti(solutions -> {
+                    if (solutions.isEmpty()) {
+                        Log.errorf("TerminalResource -> exportTerminals: error 404 during searching solutions with pspId: [%s]", pspId);
+
+                        return Multi.createFrom().failure(new NotFoundException(Response
+                                .status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_SOLUTION_NOT_FOUND, ErrorCodes.ERROR_SOLUTION_NOT_FOUND_MSG))
+                                .build()));
+                    }
+
+                    List<String> solutionIds = solutions.stream()
+                            .map(solution -> solution.id.toString())
+                            .toList();
+
+                    return terminalService.exportBySolutionIds(solutionIds)
+                            .onFailure()
+                            .invoke(err -> Log.errorf(err, "TerminalResource -> exportTerminals: error during export of the terminals with solutionIds [%s]", solutionIds));
                 });
     }
 
@@ -2,12 +2,22 @@ package it.pagopa.swclient.mil.papos.resource;
 
 import io.quarkus.logging.Log;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
 import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
 import it.pagopa.swclient.mil.papos.model.PageMetadata;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchDto;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchResponse;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchResult;
 import it.pagopa.swclient.mil.papos.model.TransactionDto;
 import it.pagopa.swclient.mil.papos.model.TransactionPageResponse;
+import it.pagopa.swclient.mil.papos.model.TransactionSearchResult;
+import it.pagopa.swclient.mil.papos.model.TransactionStatsResponse;
+import it.pagopa.swclient.mil.papos.model.UpdateTransactionBatchDto;
 import it.pagopa.swclient.mil.papos.model.UpdateTransactionDto;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.service.TerminalService;
@@ -24,9 +34,14 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.jwt.JsonWebToken;
+import org.jboss.resteasy.reactive.RestStreamElementType;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Path("/transactions")
 public class TransactionResource {
@@ -41,6 +56,12 @@ public class TransactionResource {
 
     private static final String ID_TRANSACTION = "_id";
 
+    private static final String EXPORT_NDJSON = "application/x-ndjson";
+
+    private static final String EXPORT_CSV = "text/csv";
+
+    private static final List<String> CSV_HEADER = List.of("id", "terminalUuid", "noticeNumber", "payeeCode", "creationTimestamp", "lastUpdateTimestamp", "status", "amount");
+
     public TransactionResource(TransactionService transactionService, TerminalService terminalService, SolutionService solutionService, JsonWebToken jwt) {
         this.transactionService = transactionService;
         this.terminalService = terminalService;
@@ -118,6 +139,81 @@ public class TransactionResource {
                 });
     }
 
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"public_administration"})
+    public Uni<Response> createTransactions(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @Valid @NotNull(message = ErrorCodes.ERROR_DTO_MUST_NOT_BE_NULL_MSG) TransactionBatchDto batch) {
+
+        Log.debugf("TransactionResource -> createTransactions - Input requestId, items: %s, %d", requestId, batch.transactions().size());
+
+        List<TransactionDto> transactions = batch.transactions();
+        List<String> terminalUuids = transactions.stream()
+                .map(TransactionDto::terminalUuid)
+                .distinct()
+                .toList();
+
+        return terminalService.findAllByTerminalUuids(terminalUuids)
+                .onItem()
+                .transformToUni(terminals -> solutionService.findAllByIds(terminals.stream()
+                                .map(TerminalEntity::getSolutionId)
+                                .distinct()
+                                .toList())
+                        .onItem()
+                        .transformToUni(solutions -> {
+                            Map<TerminalUuid, TerminalEntity> terminalsByUuid = terminals.stream()
+                                    .collect(Collectors.toMap(TerminalEntity::getTerminalUuid, Function.identity(), (first, second) -> first));
+                            Map<String, SolutionEntity> solutionsById = solutions.stream()
+                                    .collect(Collectors.toMap(solution -> solution.id.toHexString(), Function.identity()));
+
+                            TransactionBatchResult[] results = new TransactionBatchResult[transactions.size()];
+                            List<Integer> authorized = new ArrayList<>();
+                            for (int i = 0; i < transactions.size(); i++) {
+                                results[i] = checkBatchItem(transactions.get(i), terminalsByUuid, solutionsById);
+                                if (results[i] == null) {
+                                    authorized.add(i);
+                                }
+                            }
+
+                            if (authorized.isEmpty()) {
+                                return Uni.createFrom().item(List.of(results));
+                            }
+
+                            return transactionService.createTransactions(authorized.stream().map(transactions::get).toList())
+                                    .onItem()
+                                    .transform(created -> {
+                                        for (int j = 0; j < authorized.size(); j++) {
+                                            results[authorized.get(j)] = created.get(j);
+                                        }
+
+                                        return List.of(results);
+                                    });
+                        }))
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err, "TransactionResource -> createTransactions: unexpected error during creation of a batch of %d transactions", transactions.size());
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
+                .onItem()
+                .transform(results -> {
+                    Log.debugf("TransactionResource -> createTransactions: batch of %d transactions processed", results.size());
+
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new TransactionBatchResponse(results))
+                            .build();
+                });
+    }
+
     @GET
     @Path("/findByPayeeCode")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -133,114 +229,103 @@ public class TransactionResource {
             @Pattern(regexp = RegexPatterns.SORT_STRATEGY_PATTERN)
             @QueryParam("sortStrategy") String sortStrategy,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN)
+            @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN)
+            @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("TransactionResource -> findByPayeeCode - Input requestId, payeeCode, startDate, endDate, sortStrategy, page, size: %s, %s, %s, %s, %s, %s, %s", requestId, payeeCode, startDate, endDate, sortStrategy, pageNumber, pageSize);
+        Log.debugf("TransactionResource -> findByPayeeCode - Input requestId, payeeCode, startDate, endDate, sortStrategy, page, size, after, withTotal: %s, %s, %s, %s, %s, %s, %s, %s, %s", requestId, payeeCode, startDate, endDate, sortStrategy, pageNumber, pageSize, after, withTotal);
 
         Date convertedStartDate = Utility.convertStringToDate(startDate, true);
         Date convertedEndDate = Utility.convertStringToDate(endDate, false);
         Sort sort = Sort.by(ID_TRANSACTION, "asc".equalsIgnoreCase(sortStrategy) ? Sort.Direction.Ascending : Sort.Direction.Descending);
 
-        return solutionService.findAllByLocationOrPsp("locationCode", jwt.getSubject())
+        TotalMode totalMode = TotalMode.fromParam(withTotal);
+
+        return transactionService.findTransactionPageByPayee(jwt.getSubject(), payeeCode, convertedStartDate, convertedEndDate, sort, totalMode, Utility.decodeCursor(after), pageNumber, pageSize)
                 .onFailure()
                 .transform(err -> {
-                    Log.errorf(err, "TransactionResource -> findByPayeeCode: unexpected error during finding solution with locationCode [%s]", jwt.getSubject());
+                    Log.errorf(err, "TransactionResource -> findByPayeeCode: Error while retrieving list of transactions for locationCode [%s], payeeCode [%s], index and size [%s, %s]", jwt.getSubject(), payeeCode, pageNumber, pageSize);
 
                     return new InternalServerErrorException(Response
                             .status(Response.Status.INTERNAL_SERVER_ERROR)
-                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .entity(new Errors(ErrorCodes.ERROR_LIST_TRANSACTIONS, ErrorCodes.ERROR_LIST_TRANSACTIONS_MSG))
                             .build());
                 })
                 .onItem()
-                .transformToUni(solutions -> {
-                    if (solutions.isEmpty()) {
-                        Log.errorf("TransactionResource -> findByPayeeCode: no solutions found for locationCode", jwt.getSubject());
-
-                        return Uni.createFrom().item(() ->
-                                Response.status(Response.Status.NOT_FOUND)
-                                        .entity(new Errors(ErrorCodes.ERROR_NO_SOLUTIONS_FOUND, ErrorCodes.ERROR_NO_SOLUTIONS_FOUND_PAYEE_MSG))
-                                        .build()
-                        );
+                .transform(result -> {
+                    if (result.solutionCount() == 0) {
+                        Log.errorf("TransactionResource -> findByPayeeCode: no solutions found for locationCode [%s]", jwt.getSubject());
+
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_NO_SOLUTIONS_FOUND, ErrorCodes.ERROR_NO_SOLUTIONS_FOUND_PAYEE_MSG))
+                                .build();
                     }
-                    Log.debugf("TransactionResource -> findByPayeeCode: solution found by locationCode [%s]: %s", jwt.getSubject(), solutions);
 
-                    List<String> solutionIds = solutions.stream()
-                            .map(solution -> solution.id.toString())
-                            .toList();
+                    if (result.terminalCount() == 0) {
+                        Log.errorf("TransactionResource -> findByPayeeCode: no terminals found for the solutions of locationCode [%s]", jwt.getSubject());
 
-                    return terminalService.findAllBySolutionIds(solutionIds)
-                            .onFailure()
-                            .transform(err -> {
-                                Log.errorf(err, "TransactionResource -> findByPayeeCode: unexpected error during finding solution with locationCode [%s]", jwt.getSubject());
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_NO_TERMINALS_FOUND, ErrorCodes.ERROR_NO_TERMINALS_FOUND_MSG))
+                                .build();
+                    }
 
-                                return new InternalServerErrorException(Response
-                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                        .build());
-                            })
-                            .onItem()
-                            .transformToUni(terminals -> {
-                                if (terminals.isEmpty()) {
-                                    Log.errorf("TransactionResource -> findByPayeeCode: no terminals found for solutionIds", solutionIds);
-
-                                    return Uni.createFrom().item(() ->
-                                            Response.status(Response.Status.NOT_FOUND)
-                                                    .entity(new Errors(ErrorCodes.ERROR_NO_TERMINALS_FOUND, ErrorCodes.ERROR_NO_TERMINALS_FOUND_MSG))
-                                                    .build()
-                                    );
-                                }
-                                Log.debugf("TransactionResource -> findByPayeeCode: solution found by locationCode [%s]: %s", jwt.getSubject(), solutions);
+                    if (isEmptyListing(result, after, pageNumber)) {
+                        Log.errorf("TransactionResource -> findByPayeeCode: no transaction found on db by payeeCode [%s]", payeeCode);
 
-                                return transactionService.getTransactionCountByPayee(payeeCode)
-                                        .onFailure()
-                                        .transform(err -> {
-                                            Log.errorf(err, "TransactionResource -> findByPayeeCode: error while counting transactions for payeeCode", payeeCode);
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG))
+                                .build();
+                    }
+                    Log.debugf("TransactionResource -> findByPayeeCode: size of list of transactions paginated found: [%s]", result.transactions().size());
 
-                                            return new InternalServerErrorException(Response
-                                                    .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                    .entity(new Errors(ErrorCodes.ERROR_COUNTING_TRANSACTIONS, ErrorCodes.ERROR_COUNTING_TRANSACTIONS_MSG))
-                                                    .build());
-                                        })
-                                        .onItem()
-                                        .transformToUni(numberOfTransactions -> {
-                                            if (numberOfTransactions == 0) {
-                                                Log.errorf("TransactionResource -> findByPayeeCode: no transaction found on db by payeeCode [%s]", payeeCode);
+                    PageMetadata pageMetadata = PageMetadata.of(pageSize, result.totalElements(), totalMode, result.nextAfter() != null);
 
-                                                return Uni.createFrom().failure(new NotFoundException(Response
-                                                        .status(Response.Status.NOT_FOUND)
-                                                        .entity(new Errors(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG))
-                                                        .build()));
-                                            }
-                                            Log.debugf("TransactionResource -> findByPayeeCode: total number of transaction by payeeCode [%s] found: [%s]", numberOfTransactions);
-
-                                            List<String> terminalUuids = terminals.stream()
-                                                    .map(TerminalEntity::getTerminalUuid)
-                                                    .toList();
-
-                                            return transactionService.getTransactionListPagedByPayeeAndTerminals(payeeCode, terminalUuids, convertedStartDate, convertedEndDate, sort, pageNumber, pageSize)
-                                                    .onFailure()
-                                                    .transform(err -> {
-                                                        Log.errorf(err, "TransactionResource -> findByPayeeCode: Error while retrieving list of transactions for payeeCode [%s], index and size [%s, %s]", payeeCode, pageNumber, pageSize);
-
-                                                        return new InternalServerErrorException(Response
-                                                                .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                                .entity(new Errors(ErrorCodes.ERROR_LIST_TRANSACTIONS, ErrorCodes.ERROR_LIST_TRANSACTIONS_MSG))
-                                                                .build());
-                                                    })
-                                                    .onItem()
-                                                    .transform(transactionsPaged -> {
-                                                        Log.debugf("TransactionResource -> findByPayeeCode: size of list of transactions paginated found: [%s]", transactionsPaged.size());
-
-                                                        int totalPages = (int) Math.ceil((double) numberOfTransactions / pageSize);
-                                                        PageMetadata pageMetadata = new PageMetadata(pageSize, numberOfTransactions, totalPages);
-
-                                                        return Response
-                                                                .status(Response.Status.OK)
-                                                                .entity(new TransactionPageResponse(transactionsPaged, pageMetadata))
-                                                                .build();
-                                                    });
-                                        });
-                            });
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new TransactionPageResponse(result.transactions(), pageMetadata, Utility.encodeCursor(result.nextAfter())))
+                            .build();
+                });
+    }
+
+    @GET
+    @Path("/stats")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"public_administration"})
+    public Uni<Response> getStatsByPayeeCode(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @QueryParam("payeeCode") String payeeCode,
+            @QueryParam("startDate") String startDate,
+            @QueryParam("endDate") String endDate) {
+
+        Log.debugf("TransactionResource -> getStatsByPayeeCode - Input requestId, payeeCode, startDate, endDate: %s, %s, %s, %s", requestId, payeeCode, startDate, endDate);
+        checkToken(payeeCode);
+
+        Date convertedStartDate = Utility.convertStringToDate(startDate, true);
+        Date convertedEndDate = Utility.convertStringToDate(endDate, false);
+
+        return transactionService.getTransactionStatsByPayee(payeeCode, convertedStartDate, convertedEndDate)
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err, "TransactionResource -> getStatsByPayeeCode: unexpected error during find transaction stats by payeeCode [%s] and [%s, %s]", payeeCode, convertedStartDate, convertedEndDate);
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
+                .onItem()
+                .transform(stats -> {
+                    Log.debugf("TransactionResource -> getStatsByPayeeCode: size of list of transaction stats found: [%s]", stats.size());
+
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(TransactionStatsResponse.of(stats))
+                            .build();
                 });
     }
 
@@ -259,15 +344,25 @@ public class TransactionResource {
             @Pattern(regexp = RegexPatterns.SORT_STRATEGY_PATTERN)
             @QueryParam("sortStrategy") String sortStrategy,
             @QueryParam("page") int pageNumber,
-            @QueryParam("size") int pageSize) {
+            @QueryParam("size") int pageSize,
+            @Pattern(regexp = RegexPatterns.CURSOR_PATTERN)
+            @QueryParam("after") String after,
+            @Pattern(regexp = RegexPatterns.WITH_TOTAL_PATTERN)
+            @QueryParam("withTotal") String withTotal) {
 
-        Log.debugf("TransactionResource -> findByPspId - Input requestId, pspId, startDate, endDate, sortStrategy, page, size: %s, %s, %s, %s, %s, %s, %s", requestId, pspId, startDate, endDate, sortStrategy, pageNumber, pageSize);
+        Log.debugf("TransactionResource -> findByPspId - Input requestId, pspId, startDate, endDate, sortStrategy, page, size, after, withTotal: %s, %s, %s, %s, %s, %s, %s, %s, %s", requestId, pspId, startDate, endDate, sortStrategy, pageNumber, pageSize, after, withTotal);
         checkToken(pspId);
 
-        return solutionService.findAllByLocationOrPsp("pspId", pspId)
+        Date convertedStartDate = Utility.convertStringToDate(startDate, true);
+        Date convertedEndDate = Utility.convertStringToDate(endDate, false);
+        Sort sort = Sort.by(ID_TRANSACTION, "asc".equalsIgnoreCase(sortStrategy) ? Sort.Direction.Ascending : Sort.Direction.Descending);
+
+        TotalMode totalMode = TotalMode.fromParam(withTotal);
+
+        return transactionService.findTransactionPageByPsp(pspId, convertedStartDate, convertedEndDate, sort, totalMode, Utility.decodeCursor(after), pageNumber, pageSize)
                 .onFailure()
                 .transform(err -> {
-                    Log.errorf(err, "TransactionResource -> findByPspId: unexpected error during finding solution with pspId [%s]", pspId);
+                    Log.errorf(err, "TransactionResource -> findByPspId: unexpected error during find transaction page by pspId [%s] and [%s, %s, %s, %s, %s]", pspId, convertedStartDate, convertedEndDate, sort, pageNumber, pageSize);
 
                     return new InternalServerErrorException(Response
                             .status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -275,99 +370,87 @@ public class TransactionResource {
                             .build());
                 })
                 .onItem()
-                .transformToUni(solutionEntities -> {
-                    if (solutionEntities.isEmpty()) {
-                        Log.errorf("TransactionResource -> findByPspId: no solutions found for pspId", pspId);
+                .transform(result -> {
+                    if (result.solutionCount() == 0) {
+                        Log.errorf("TransactionResource -> findByPspId: no solutions found for pspId [%s]", pspId);
 
-                        return Uni.createFrom().item(() ->
-                                Response.status(Response.Status.NOT_FOUND)
-                                        .entity(new Errors(ErrorCodes.ERROR_NO_SOLUTIONS_FOUND, ErrorCodes.ERROR_NO_SOLUTIONS_FOUND_MSG))
-                                        .build()
-                        );
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_NO_SOLUTIONS_FOUND, ErrorCodes.ERROR_NO_SOLUTIONS_FOUND_MSG))
+                                .build();
                     }
-                    Log.debugf("TransactionResource -> findByPspId: solution found by pspId [%s]: %s", pspId, solutionEntities);
 
-                    List<String> solutionIds = solutionEntities.stream()
-                            .map(solution -> solution.id.toString())
-                            .toList();
+                    if (result.terminalCount() == 0) {
+                        Log.errorf("TransactionResource -> findByPspId: no terminals found for the solutions of pspId [%s]", pspId);
 
-                    return terminalService.findAllBySolutionIds(solutionIds)
-                            .onFailure()
-                            .transform(err -> {
-                                Log.errorf(err, "TransactionResource -> findByPspId: unexpected error during find all terminal by solutionIds [%s]", solutionIds);
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_NO_TERMINALS_FOUND, ErrorCodes.ERROR_NO_TERMINALS_FOUND_MSG))
+                                .build();
+                    }
 
-                                return new InternalServerErrorException(Response
-                                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                        .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                        .build());
-                            })
-                            .onItem()
-                            .transformToUni(terminalEntities -> {
-                                if (terminalEntities.isEmpty()) {
-                                    Log.errorf("TransactionResource -> findByPspId: no solutions found for solutionIds %s", solutionIds);
+                    if (isEmptyListing(result, after, pageNumber)) {
+                        Log.errorf("TransactionResource -> findByPspId: no transaction found on db for the terminals of pspId [%s]", pspId);
 
-                                    return Uni.createFrom().item(() -> Response
-                                            .status(Response.Status.NOT_FOUND)
-                                            .entity(new Errors(ErrorCodes.ERROR_NO_TERMINALS_FOUND, ErrorCodes.ERROR_NO_TERMINALS_FOUND_MSG))
-                                            .build()
-                                    );
-                                }
-                                Log.debugf("TransactionResource -> findByPspId: terminals found by solutionIds [%s]: %s", solutionIds, terminalEntities);
+                        return Response.status(Response.Status.NOT_FOUND)
+                                .entity(new Errors(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG))
+                                .build();
+                    }
+                    Log.debugf("TransactionResource -> findByPspId: size of list of transactions paginated found: [%s]", result.transactions().size());
 
-                                List<String> terminalUuids = terminalEntities.stream()
-                                        .map(TerminalEntity::getTerminalUuid)
-                                        .toList();
+                    PageMetadata pageMetadata = PageMetadata.of(pageSize, result.totalElements(), totalMode, result.nextAfter() != null);
 
-                                return transactionService.getTransactionCountByTerminals(terminalUuids)
-                                        .onFailure()
-                                        .transform(err -> {
-                                            Log.errorf(err, "TransactionResource -> findByPspId: unexpected error during count transaction by terminalUuid [%s]", terminalUuids);
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new TransactionPageResponse(result.transactions(), pageMetadata, Utility.encodeCursor(result.nextAfter())))
+                            .build();
+                });
+    }
 
-                                            return new InternalServerErrorException(Response
-                                                    .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                    .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                                    .build());
-                                        })
-                                        .onItem()
-                                        .transformToUni(numberOfTransactions -> {
-                                            if (numberOfTransactions == 0) {
-                                                Log.errorf("TransactionResource -> findByPspId: no transaction found on db by terminalUuids [%s]", terminalUuids);
+    @GET
+    @Path("/export")
+    @Produces(EXPORT_NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"pos_service_provider"})
+    public Multi<TransactionEntity> exportByPspId(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @QueryParam("pspId") String pspId,
+            @QueryParam("startDate") String startDate,
+            @QueryParam("endDate") String endDate) {
 
-                                                return Uni.createFrom().failure(new NotFoundException(Response
-                                                        .status(Response.Status.NOT_FOUND)
-                                                        .entity(new Errors(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG))
-                                                        .build()));
-                                            }
+        Log.debugf("TransactionResource -> exportByPspId - Input requestId, pspId, startDate, endDate: %s, %s, %s, %s", requestId, pspId, startDate, endDate);
+        checkToken(pspId);
 
-                                            Date convertedStartDate = Utility.convertStringToDate(startDate, true);
-                                            Date convertedEndDate = Utility.convertStringToDate(endDate, false);
-                                            Sort sort = Sort.by(ID_TRANSACTION, "asc".equalsIgnoreCase(sortStrategy) ? Sort.Direction.Ascending : Sort.Direction.Descending);
-
-                                            return transactionService.getTransactionListPagedByTerminals(terminalUuids, convertedStartDate, convertedEndDate, sort, pageNumber, pageSize)
-                                                    .onFailure()
-                                                    .transform(err -> {
-                                                        Log.errorf(err, "TransactionResource -> findByPspId: unexpected error during find transaction list paged by terminalUuids [%s] and [%s, %s, %s, %s, %s]", terminalUuids, convertedStartDate, convertedEndDate, sort, pageNumber, pageSize);
-
-                                                        return new InternalServerErrorException(Response
-                                                                .status(Response.Status.INTERNAL_SERVER_ERROR)
-                                                                .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
-                                                                .build());
-                                                    })
-                                                    .onItem()
-                                                    .transformToUni(transactionsPaged -> {
-                                                        Log.debugf("TransactionResource -> findBy: size of list of transactions paginated found: [%s]", transactionsPaged.size());
-
-                                                        int totalPages = (int) Math.ceil((double) numberOfTransactions / pageSize);
-                                                        PageMetadata pageMetadata = new PageMetadata(pageSize, numberOfTransactions, totalPages);
-
-                                                        return Uni.createFrom().item(Response
-                                                                .status(Response.Status.OK)
-                                                                .entity(new TransactionPageResponse(transactionsPaged, pageMetadata))
-                                                                .build());
-                                                    });
-                                        });
-                            });
-                });
+        return exportTransactions(pspId, startDate, endDate);
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(EXPORT_CSV)
+    @RolesAllowed({"pos_service_provider"})
+    public Multi<String> exportByPspIdAsCsv(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @QueryParam("pspId") String pspId,
+            @QueryParam("startDate") String startDate,
+            @QueryParam("endDate") String endDate) {
+
+        Log.debugf("TransactionResource -> exportByPspIdAsCsv - Input requestId, pspId, startDate, endDate: %s, %s, %s, %s", requestId, pspId, startDate, endDate);
+        checkToken(pspId);
+
+        return Multi.createBy().concatenating().streams(
+                Multi.createFrom().item(Utility.toCsvLine(CSV_HEADER.toArray())),
+                exportTransactions(pspId, startDate, endDate)
+                        .map(transaction -> Utility.toCsvLine(
+                                transaction.id,
+                                transaction.getTerminalUuid(),
+                                transaction.getNoticeNumber(),
+                                transaction.getPayeeCode(),
+                                transaction.getCreationTimestamp(),
+                                transaction.getLastUpdateTimestamp(),
+                                transaction.getStatus(),
+                                transaction.getAmount())));
     }
 
     @DELETE
@@ -406,6 +489,40 @@ public class TransactionResource {
                                 })));
     }
 
+    @PATCH
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @RolesAllowed({"public_administration"})
+    public Uni<Response> updateTransactions(
+            @HeaderParam("RequestId")
+            @NotNull(message = ErrorCodes.ERROR_REQUESTID_MUST_NOT_BE_NULL_MSG)
+            @Pattern(regexp = RegexPatterns.REQUEST_ID_PATTERN) String requestId,
+            @Valid @NotNull(message = ErrorCodes.ERROR_DTO_MUST_NOT_BE_NULL_MSG) UpdateTransactionBatchDto batch) {
+
+        Log.debugf("TransactionResource -> updateTransactions - Input requestId, items: %s, %d", requestId, batch.transactions().size());
+
+        return transactionService.updateTransactions(jwt.getSubject(), batch.transactions())
+                .onFailure()
+                .transform(err -> {
+                    Log.errorf(err, "TransactionResource -> updateTransactions: error during update of a batch of %d transactions", batch.transactions().size());
+
+                    return new InternalServerErrorException(Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity(new Errors(ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG))
+                            .build());
+                })
+                .onItem()
+                .transform(results -> {
+                    Log.debugf("TransactionResource -> updateTransactions: batch of %d transactions processed", results.size());
+
+                    return Response
+                            .status(Response.Status.OK)
+                            .entity(new TransactionBatchResponse(results))
+                            .build();
+                });
+    }
+
     @PATCH
     @Path("/{transactionId}")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -509,7 +626,7 @@ public class TransactionResource {
                             .map(solution -> solution.id.toString())
                             .toList();
 
-                    return terminalService.findAllBySolutionIdAndTerminalId(solutionIds, terminalId)
+                    return terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, terminalId)
                             .onFailure()
                             .transform(err -> {
                                 Log.errorf(err, "TransactionResource -> getLatestTransaction: unexpected error during find terminal by solutionIds and terminalId [%s]", solutionIds, terminalId);
@@ -520,8 +637,8 @@ public class TransactionResource {
                                         .build());
                             })
                             .onItem()
-                            .transformToUni(terminalEntities -> {
-                                if (terminalEntities.isEmpty()) {
+                            .transformToUni(terminalUuids -> {
+                                if (terminalUuids.isEmpty()) {
                                     Log.errorf("TransactionResource -> getLatestTransaction: no solutions found for pspId %s", pspId);
 
                                     return Uni.createFrom().item(() -> Response
@@ -530,10 +647,6 @@ public class TransactionResource {
                                             .build()
                                     );
                                 }
-                                List<String> terminalUuids = terminalEntities.stream()
-                                        .map(TerminalEntity::getTerminalUuid)
-                                        .toList();
-
                                 return transactionService.findLatestByTerminalUuidAndStatus(terminalUuids, status, sort)
                                         .onFailure()
                                         .transform(err -> {
@@ -588,7 +701,7 @@ public class TransactionResource {
                     }
                     Log.debugf("TransactionResource -> %s: - Transaction found by id %s: %s", calledBy, transactionId, transactionEntity);
 
-                    return terminalService.findTerminal(transactionEntity.getTerminalUuid())
+                    return terminalService.findTerminal(transactionEntity.getTerminalUuid().value())
                             .onFailure()
                             .transform(err -> {
                                 Log.errorf(err, "TransactionResource -> %s: error during finding terminal with terminalUuid: [%s]", calledBy, transactionEntity.getTerminalUuid());
@@ -628,6 +741,58 @@ public class TransactionResource {
                 });
     }
 
+    /*
+     * Without the total, a listing is empty when its first page is: a later empty page only means the listing ended.
+     */
+    private static boolean isEmptyListing(TransactionSearchResult result, String after, int pageNumber) {
+        if (result.totalElements() != null) {
+            return result.totalElements() == 0;
+        }
+
+        return result.transactions().isEmpty() && after == null && pageNumber == 0;
+    }
+
+    /*
+     * Once the first transaction is written the status can no longer change, so a failure is logged and ends the
+     * response early; the clients detect it from the missing end of the stream.
+     */
+    private Multi<TransactionEntity> exportTransactions(String pspId, String startDate, String endDate) {
+        Date convertedStartDate = Utility.convertStringToDate(startDate, true);
+        Date convertedEndDate = Utility.convertStringToDate(endDate, false);
+
+        return transactionService.exportTransactionsByPsp(pspId, convertedStartDate, convertedEndDate)
+                .onFailure()
+                .invoke(err -> Log.errorf(err, "TransactionResource -> exportTransactions: unexpected error during export of the transactions of pspId [%s] and [%s, %s]", pspId, convertedStartDate, convertedEndDate));
+    }
+
+    /*
+     * Applies to an item of a batch the checks of createTransaction, turning into its outcome what would have been
+     * the error of the request.
+     */
+    private TransactionBatchResult checkBatchItem(TransactionDto transaction, Map<TerminalUuid, TerminalEntity> terminalsByUuid, Map<String, SolutionEntity> solutionsById) {
+        TerminalEntity terminal = terminalsByUuid.get(TerminalUuid.of(transaction.terminalUuid()));
+        if (terminal == null) {
+            Log.errorf("TransactionResource -> createTransactions: no terminal found for terminalUuid [%s]", transaction.terminalUuid());
+
+            return TransactionBatchResult.failure(null, 404, ErrorCodes.ERROR_TERMINAL_NOT_FOUND, ErrorCodes.ERROR_TERMINAL_NOT_FOUND_MSG);
+        }
+
+        SolutionEntity solution = solutionsById.get(terminal.getSolutionId());
+        if (solution == null) {
+            Log.errorf("TransactionResource -> createTransactions: no solution found for solutionId [%s]", terminal.getSolutionId());
+
+            return TransactionBatchResult.failure(null, 404, ErrorCodes.ERROR_SOLUTION_NOT_FOUND, ErrorCodes.ERROR_SOLUTION_NOT_FOUND_MSG);
+        }
+
+        if (!jwt.getSubject().equals(solution.getLocationCode())) {
+            Log.errorf("TransactionResource -> createTransactions: subject not equals to locationCode [%s, %s]", jwt.getSubject(), solution.getLocationCode());
+
+            return TransactionBatchResult.failure(null, 401, ErrorCodes.ERROR_CHECK_TOKEN, ErrorCodes.ERROR_CHECK_TOKEN_MSG);
+        }
+
+        return null;
+    }
+
     private void checkToken(String toCheck) {
         Log.debugf("TransactionResource -> checkToken: sub [%s], pspId/payeeCode: [%s]", jwt.getSubject(), toCheck);
 
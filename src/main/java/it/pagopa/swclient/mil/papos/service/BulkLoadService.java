@@ -0,0 +1,619 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import io.quarkus.logging.Log;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.mutiny.subscription.Cancellable;
+import io.smallrye.mutiny.unchecked.Unchecked;
+import it.pagopa.swclient.mil.papos.config.BulkLoadConfig;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorEntity;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorRepository;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusEntity;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusRepository;
+import it.pagopa.swclient.mil.papos.model.BulkLoadError;
+import it.pagopa.swclient.mil.papos.model.BulkLoadRow;
+import it.pagopa.swclient.mil.papos.model.BulkLoadState;
+import it.pagopa.swclient.mil.papos.model.BulkLoadStatus;
+import it.pagopa.swclient.mil.papos.model.TerminalDto;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
+import it.pagopa.swclient.mil.papos.util.TerminalJsonStreamReader;
+import it.pagopa.swclient.mil.papos.util.Utility;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.bson.types.ObjectId;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+@ApplicationScoped
+public class BulkLoadService {
+
+    private final TerminalService terminalService;
+
+    private final SolutionService solutionService;
+
+    private final BulkLoadStatusRepository bulkLoadStatusRepository;
+
+    private final BulkLoadErrorRepository bulkLoadErrorRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final BulkLoadConfig config;
+
+    /**
+     * Queue of the bulk loads to process, at most {@link BulkLoadConfig#workers()} of them at the same time.
+     */
+    private final UnicastProcessor<Uni<Void>> loads;
+
+    private final Cancellable loadsSubscription;
+
+    /**
+     * Periodic claim of the interrupted bulk loads, null if recovery is disabled.
+     */
+    private volatile Cancellable claimsSubscription;
+
+    /**
+     * Identifies this instance of the service as the owner of the bulk loads it processes.
+     */
+    private final String owner;
+
+    public BulkLoadService(TerminalService terminalService, SolutionService solutionService, BulkLoadStatusRepository bulkLoadStatusRepository,
+                           BulkLoadErrorRepository bulkLoadErrorRepository, ObjectMapper objectMapper, Validator validator, BulkLoadConfig config) {
+        this.terminalService = terminalService;
+        this.solutionService = solutionService;
+        this.bulkLoadStatusRepository = bulkLoadStatusRepository;
+        this.bulkLoadErrorRepository = bulkLoadErrorRepository;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.config = config;
+        this.owner = Utility.generateRandomUuid();
+        this.loads = UnicastProcessor.create();
+        this.loadsSubscription = loads.onItem()
+                .transformToUni(load -> load)
+                .merge(config.workers())
+                .subscribe()
+                .with(
+                        ignored -> {
+                        },
+                        error -> Log.error("BulkLoadService -> schedule: error processing bulk loads", error));
+    }
+
+    /**
+     * Claims the bulk loads left pending or in progress by an instance of the service that stopped refreshing their
+     * heartbeat, resumes the ones whose file is still in the work directory and marks as failed the others. The bulk
+     * loads whose lease has not expired yet are left to the instance processing them, and claimed at a later check if
+     * that instance stops too: the check is repeated every {@link BulkLoadConfig#leaseDuration()} while the service
+     * runs.
+     */
+    void onStart(@Observes StartupEvent event) {
+        if (!config.recoverOnStartup()) {
+            return;
+        }
+
+        /*
+         * The claims are repeated by a Mutiny loop instead of a scheduled method, the service not depending on the
+         * Quarkus scheduler. A failed check is only logged, so that the next one is still performed.
+         */
+        claimsSubscription = Uni.createFrom()
+                .deferred(this::claimInterrupted)
+                .onItem()
+                .transform(claimed -> Boolean.TRUE)
+                .onFailure()
+                .recoverWithItem(error -> {
+                    Log.error("BulkLoadService -> onStart: error claiming interrupted bulk loads", error);
+
+                    return Boolean.FALSE;
+                })
+                .repeat()
+                .withDelay(config.leaseDuration())
+                .indefinitely()
+                .subscribe()
+                .with(claimed -> {
+                    if (Boolean.TRUE.equals(claimed)) {
+                        Log.debug("BulkLoadService -> onStart: interrupted bulk loads claimed");
+                    }
+                });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loadsSubscription.cancel();
+
+        Cancellable claims = claimsSubscription;
+        if (claims != null) {
+            claims.cancel();
+        }
+    }
+
+    /**
+     * Stores the bulk load file in the work directory, persists a pending bulk load status and schedules its
+     * processing in background. A bulk load submitted again by the same PSP with the same requestId and the same
+     * file content is not processed twice: the status of the bulk load already submitted is returned instead.
+     *
+     * @param pspId           ID of the POS service provider performing the bulk load
+     * @param requestId       ID of the request submitting the bulk load
+     * @param fileInputStream content of the bulk load file
+     * @return bulkLoadStatus saved or already submitted, null if the file is empty
+     */
+    public Uni<BulkLoadStatusEntity> submit(String pspId, String requestId, InputStream fileInputStream) {
+        Log.debugf("BulkLoadService -> submit - Input parameters: %s, %s", pspId, requestId);
+
+        String bulkLoadingId = Utility.generateRandomUuid();
+
+        return Uni.createFrom().item(Unchecked.supplier(() -> storeFile(bulkLoadingId, fileInputStream)))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem()
+                .transformToUni(storedFile -> {
+                    if (storedFile == null) {
+                        Log.errorf("BulkLoadService -> submit: bulkLoad file [%s] is empty", bulkLoadingId);
+
+                        return Uni.createFrom().nullItem();
+                    }
+
+                    return findSubmitted(pspId, requestId, storedFile.contentHash())
+                            .onItem()
+                            .transformToUni(submitted -> {
+                                if (submitted != null) {
+                                    Log.infof("BulkLoadService -> submit: bulkLoad already submitted [%s]", submitted.getBulkLoadingId());
+                                    deleteFile(storedFile.path());
+
+                                    return Uni.createFrom().item(submitted);
+                                }
+
+                                return bulkLoadStatusRepository.persist(createBulkLoadStatusEntity(bulkLoadingId, pspId, requestId, storedFile.contentHash()))
+                                        .onItem()
+                                        .invoke(bulkLoadStatus -> schedule(process(bulkLoadStatus.id, new BulkLoadStatus(bulkLoadingId, pspId), storedFile.path())))
+                                        .onFailure(BulkLoadService::isDuplicateKey)
+                                        .recoverWithUni(() -> {
+                                            Log.infof("BulkLoadService -> submit: bulkLoad submitted concurrently for requestId [%s]", requestId);
+                                            deleteFile(storedFile.path());
+
+                                            return findSubmitted(pspId, requestId, storedFile.contentHash());
+                                        });
+                            })
+                            .onFailure()
+                            .invoke(() -> deleteFile(storedFile.path()));
+                });
+    }
+
+    /**
+     * Returns a number corresponding to the total number of errors of a bulk load.
+     *
+     * @param bulkLoadingId ID of the bulk load
+     * @return a number
+     */
+    public Uni<Long> getErrorCount(String bulkLoadingId) {
+        Log.debugf("BulkLoadService -> getErrorCount - Input parameters: %s", bulkLoadingId);
+
+        return bulkLoadErrorRepository.count("bulkLoadingId = ?1", bulkLoadingId);
+    }
+
+    /**
+     * Returns a list of errors of a bulk load paginated, sorted by row of the bulk load file.
+     *
+     * @param bulkLoadingId ID of the bulk load
+     * @param pageIndex     0-based page index
+     * @param pageSize      page size
+     * @return a list of errors
+     */
+    public Uni<List<BulkLoadErrorEntity>> getErrorListPaged(String bulkLoadingId, int pageIndex, int pageSize) {
+        Log.debugf("BulkLoadService -> getErrorListPaged - Input parameters: %s, %s, %s", bulkLoadingId, pageIndex, pageSize);
+
+        return bulkLoadErrorRepository
+                .find("bulkLoadingId = ?1", Sort.by("rowIndex"), bulkLoadingId)
+                .page(pageIndex, pageSize)
+                .list();
+    }
+
+    /**
+     * Processes a bulk load file chunk by chunk, flushing the progress on the bulk load status after each chunk.
+     * The terminals already read by the bulk load status, i.e. the ones committed by a previous run, are skipped.
+     * Each chunk is read from the file on the worker pool, only after the previous one has been flushed.
+     *
+     * @param id             ID of the bulk load status document
+     * @param bulkLoadStatus status of the bulk load, empty or restored from a previous run
+     * @param file           bulk load file
+     * @return a Uni completing when the whole file has been processed, or the bulk load marked as failed
+     */
+    Uni<Void> process(ObjectId id, BulkLoadStatus bulkLoadStatus, Path file) {
+        String bulkLoadingId = bulkLoadStatus.getBulkLoadingId();
+        Log.debugf("BulkLoadService -> process: processing bulkLoad [%s] from row [%d]", bulkLoadingId, bulkLoadStatus.getTotalRecords());
+
+        return Uni.createFrom().item(() -> new ChunkReader(file, bulkLoadStatus.getTotalRecords()))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .onItem()
+                .transformToUni(chunkReader -> flush(id, bulkLoadStatus, BulkLoadState.IN_PROGRESS)
+                        .chain(() -> Multi.createBy()
+                                .repeating()
+                                .uni(() -> Uni.createFrom().item(chunkReader::next).runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
+                                .until(List::isEmpty)
+                                .onItem()
+                                .transformToUniAndConcatenate(chunk -> processChunk(chunk, bulkLoadStatus)
+                                        .chain(() -> flush(id, bulkLoadStatus, BulkLoadState.IN_PROGRESS)))
+                                .onItem()
+                                .ignoreAsUni())
+                        .chain(() -> flush(id, bulkLoadStatus, BulkLoadState.COMPLETED))
+                        .eventually(chunkReader::close))
+                .invoke(() -> Log.debugf("BulkLoadService -> process: bulkLoad terminals completed [%s]", bulkLoadStatus))
+                .onFailure(failure -> !(failure instanceof LeaseLostException))
+                .recoverWithUni(failure -> {
+                    if (failure instanceof UncheckedIOException) {
+                        Log.errorf(failure, "BulkLoadService -> process: error processing file of bulkLoad [%s]", bulkLoadingId);
+
+                        return fail(id, bulkLoadStatus, ErrorCodes.ERROR_PROCESSING_FILE_MSG);
+                    }
+
+                    Log.errorf(failure, "BulkLoadService -> process: unexpected error during bulkLoad [%s]", bulkLoadingId);
+
+                    return fail(id, bulkLoadStatus, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG);
+                })
+                .invoke(() -> deleteFile(file))
+                .onFailure(LeaseLostException.class)
+                .recoverWithItem(() -> {
+                    Log.warnf("BulkLoadService -> process: bulkLoad [%s] claimed by another instance, processing stopped", bulkLoadingId);
+
+                    return null;
+                });
+    }
+
+    /**
+     * Resumes a bulk load interrupted by a service restart after its last committed chunk. The terminals and the
+     * errors of the chunk that was in progress are discarded first, since that chunk is processed again.
+     *
+     * @param bulkLoadStatusEntity bulk load status flushed by the previous run
+     * @param file                 bulk load file
+     * @return a Uni completing when the bulk load has been processed, or marked as failed
+     */
+    Uni<Void> resume(BulkLoadStatusEntity bulkLoadStatusEntity, Path file) {
+        BulkLoadStatus bulkLoadStatus = restoreBulkLoadStatus(bulkLoadStatusEntity);
+        String bulkLoadingId = bulkLoadStatus.getBulkLoadingId();
+        long committedRecords = bulkLoadStatus.getTotalRecords();
+        Log.infof("BulkLoadService -> resume: resuming bulkLoad [%s] from row [%d]", bulkLoadingId, committedRecords);
+
+        List<String> uncommittedTerminalUuids = LongStream.range(committedRecords, committedRecords + config.chunkSize())
+                .mapToObj(rowIndex -> Utility.generateBulkLoadTerminalUuid(bulkLoadingId, rowIndex))
+                .toList();
+
+        return terminalService.deleteByTerminalUuids(uncommittedTerminalUuids)
+                .chain(() -> bulkLoadErrorRepository.delete("bulkLoadingId = ?1 and rowIndex >= ?2", bulkLoadingId, committedRecords))
+                .onItemOrFailure()
+                .transformToUni((deleted, failure) -> {
+                    if (failure == null) {
+                        return process(bulkLoadStatusEntity.id, bulkLoadStatus, file);
+                    }
+
+                    Log.errorf(failure, "BulkLoadService -> resume: error discarding uncommitted chunk of bulkLoad [%s]", bulkLoadingId);
+
+                    return fail(bulkLoadStatusEntity.id, bulkLoadStatus, ErrorCodes.ERROR_BULKLOAD_INTERRUPTED_MSG)
+                            .invoke(() -> deleteFile(file));
+                });
+    }
+
+    /**
+     * Claims the interrupted bulk loads one at a time, atomically setting this instance as their owner, until none
+     * whose lease has expired is left.
+     */
+    private Uni<Void> claimInterrupted() {
+        Date now = new Date();
+        Date expiredBefore = Date.from(now.toInstant().minus(config.leaseDuration()));
+
+        return bulkLoadStatusRepository.mongoCollection().findOneAndUpdate(
+                        Filters.and(
+                                Filters.in("state", BulkLoadState.PENDING.name(), BulkLoadState.IN_PROGRESS.name()),
+                                Filters.or(Filters.eq("heartbeatAt", null), Filters.lt("heartbeatAt", expiredBefore))),
+                        Updates.combine(
+                                Updates.set("owner", owner),
+                                Updates.set("heartbeatAt", now)),
+                        new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER))
+                .onItem()
+                .ifNotNull()
+                .transformToUni(claimed -> {
+                    Log.infof("BulkLoadService -> claimInterrupted: bulkLoad [%s] claimed", claimed.getBulkLoadingId());
+                    schedule(recover(claimed));
+
+                    return claimInterrupted();
+                });
+    }
+
+    private Uni<Void> recover(BulkLoadStatusEntity bulkLoadStatusEntity) {
+        Path file = bulkLoadFile(bulkLoadStatusEntity.getBulkLoadingId());
+
+        return Uni.createFrom().item(() -> Files.exists(file))
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool())
+                .chain(exists -> {
+                    if (Boolean.TRUE.equals(exists)) {
+                        return resume(bulkLoadStatusEntity, file);
+                    }
+
+                    Log.warnf("BulkLoadService -> recover: file of bulkLoad [%s] not found, marking it as failed", bulkLoadStatusEntity.getBulkLoadingId());
+
+                    return fail(bulkLoadStatusEntity.id, restoreBulkLoadStatus(bulkLoadStatusEntity), ErrorCodes.ERROR_BULKLOAD_INTERRUPTED_MSG);
+                });
+    }
+
+    /**
+     * Queues a bulk load for processing. The processor is fed by a single caller at a time, as required by reactive
+     * streams.
+     */
+    private synchronized void schedule(Uni<Void> load) {
+        loads.onNext(load.onFailure().recoverWithItem(failure -> {
+            Log.error("BulkLoadService -> schedule: error processing bulkLoad", failure);
+
+            return null;
+        }));
+    }
+
+    private Uni<BulkLoadStatusEntity> findSubmitted(String pspId, String requestId, String contentHash) {
+        return bulkLoadStatusRepository.find("pspId = ?1 and requestId = ?2 and contentHash = ?3", pspId, requestId, contentHash)
+                .firstResult();
+    }
+
+    private Uni<Void> processChunk(List<BulkLoadRow> chunk, BulkLoadStatus bulkLoadStatus) {
+        Log.debugf("BulkLoadService -> processChunk: processing chunk of %d terminals for bulkLoad [%s]", chunk.size(), bulkLoadStatus.getBulkLoadingId());
+        bulkLoadStatus.recordRead(chunk.size());
+
+        List<BulkLoadRow> validRows = new ArrayList<>();
+        for (BulkLoadRow row : chunk) {
+            if (row.terminal() == null) {
+                Log.errorf("BulkLoadService -> processChunk: malformed terminal at row [%d]: %s", row.rowIndex(), row.mappingError());
+                bulkLoadStatus.recordFailure(row, ErrorCodes.ERROR_INVALID_TERMINAL, ErrorCodes.ERROR_INVALID_TERMINAL_MSG + ": " + row.mappingError());
+
+                continue;
+            }
+
+            Set<ConstraintViolation<TerminalDto>> violations = validator.validate(row.terminal());
+
+            if (violations.isEmpty()) {
+                validRows.add(row);
+            } else {
+                String violationMessages = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining(", "));
+
+                Log.errorf("BulkLoadService -> processChunk: invalid terminal [%s]: %s", row.terminal(), violationMessages);
+                bulkLoadStatus.recordFailure(row, ErrorCodes.ERROR_INVALID_TERMINAL, ErrorCodes.ERROR_INVALID_TERMINAL_MSG + ": " + violationMessages);
+            }
+        }
+
+        if (validRows.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        List<String> solutionIds = validRows.stream()
+                .map(row -> row.terminal().solutionId())
+                .distinct()
+                .toList();
+
+        return solutionService.findAllByPspAndSolutionId(bulkLoadStatus.getPspId(), solutionIds)
+                .onItem()
+                .transformToUni(solutionEntities -> {
+                    Set<String> ownedSolutions = solutionEntities.stream()
+                            .map(solution -> solution.id.toString())
+                            .collect(Collectors.toSet());
+
+                    List<BulkLoadRow> ownedRows = new ArrayList<>();
+                    for (BulkLoadRow row : validRows) {
+                        if (ownedSolutions.contains(row.terminal().solutionId())) {
+                            ownedRows.add(row);
+                        } else {
+                            bulkLoadStatus.recordFailure(row, ErrorCodes.ERROR_SOLUTION_NOT_FOUND, ErrorCodes.ERROR_SOLUTION_NOT_FOUND_MSG);
+                        }
+                    }
+
+                    return terminalService.processBulkLoad(ownedRows, bulkLoadStatus);
+                });
+    }
+
+    private Uni<Void> fail(ObjectId id, BulkLoadStatus bulkLoadStatus, String errorMessage) {
+        bulkLoadStatus.recordError(errorMessage);
+
+        return flush(id, bulkLoadStatus, BulkLoadState.FAILED)
+                .onFailure(failure -> !(failure instanceof LeaseLostException))
+                .recoverWithItem(failure -> {
+                    Log.errorf(failure, "BulkLoadService -> fail: error persisting failure of bulkLoad [%s]", bulkLoadStatus.getBulkLoadingId());
+
+                    return null;
+                });
+    }
+
+    private Uni<Void> flush(ObjectId id, BulkLoadStatus bulkLoadStatus, BulkLoadState state) {
+        List<BulkLoadErrorEntity> errors = bulkLoadStatus.drainErrors()
+                .stream()
+                .map(error -> createBulkLoadErrorEntity(bulkLoadStatus.getBulkLoadingId(), error))
+                .toList();
+
+        Uni<Void> errorsPersisted = errors.isEmpty()
+                ? Uni.createFrom().voidItem()
+                : bulkLoadErrorRepository.persist(errors);
+
+        return errorsPersisted
+                .chain(() -> bulkLoadStatusRepository.mongoCollection().updateOne(
+                        Filters.and(Filters.eq("_id", id), Filters.eq("owner", owner)),
+                        Updates.combine(
+                                Updates.set("state", state.name()),
+                                Updates.set("heartbeatAt", new Date()),
+                                Updates.set("totalRecords", bulkLoadStatus.getTotalRecords()),
+                                Updates.set("successRecords", bulkLoadStatus.getSuccessRecords()),
+                                Updates.set("failedRecords", bulkLoadStatus.getFailedRecords()),
+                                Updates.set("errorMessages", bulkLoadStatus.getErrorMessages()),
+                                Updates.set("errorCounts", bulkLoadStatus.getErrorCounts()))))
+                .onItem()
+                .transformToUni(updateResult -> updateResult.getMatchedCount() == 0
+                        ? Uni.createFrom().failure(new LeaseLostException())
+                        : Uni.createFrom().voidItem());
+    }
+
+    private StoredFile storeFile(String bulkLoadingId, InputStream fileInputStream) throws IOException {
+        Path file = bulkLoadFile(bulkLoadingId);
+        Files.createDirectories(file.getParent());
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        if (Files.copy(new DigestInputStream(fileInputStream, digest), file, StandardCopyOption.REPLACE_EXISTING) == 0) {
+            Files.deleteIfExists(file);
+
+            return null;
+        }
+
+        return new StoredFile(file, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private Path bulkLoadFile(String bulkLoadingId) {
+        return Path.of(config.workDir()).resolve(bulkLoadingId + ".json");
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Log.warnf(e, "BulkLoadService -> deleteFile: error deleting bulkLoad file [%s]", file);
+        }
+    }
+
+    private BulkLoadErrorEntity createBulkLoadErrorEntity(String bulkLoadingId, BulkLoadError error) {
+        BulkLoadErrorEntity bulkLoadErrorEntity = new BulkLoadErrorEntity();
+        bulkLoadErrorEntity.setBulkLoadingId(bulkLoadingId);
+        bulkLoadErrorEntity.setRowIndex(error.rowIndex());
+        bulkLoadErrorEntity.setTerminalId(error.terminalId());
+        bulkLoadErrorEntity.setErrorCode(error.errorCode());
+        bulkLoadErrorEntity.setMessage(error.message());
+
+        return bulkLoadErrorEntity;
+    }
+
+    private BulkLoadStatusEntity createBulkLoadStatusEntity(String bulkLoadingId, String pspId, String requestId, String contentHash) {
+        BulkLoadStatusEntity bulkLoadStatusEntity = new BulkLoadStatusEntity();
+        bulkLoadStatusEntity.setBulkLoadingId(bulkLoadingId);
+        bulkLoadStatusEntity.setPspId(pspId);
+        bulkLoadStatusEntity.setRequestId(requestId);
+        bulkLoadStatusEntity.setContentHash(contentHash);
+        bulkLoadStatusEntity.setState(BulkLoadState.PENDING);
+        bulkLoadStatusEntity.setErrorMessages(new ArrayList<>());
+        bulkLoadStatusEntity.setOwner(owner);
+        bulkLoadStatusEntity.setHeartbeatAt(new Date());
+
+        return bulkLoadStatusEntity;
+    }
+
+    private static BulkLoadStatus restoreBulkLoadStatus(BulkLoadStatusEntity bulkLoadStatusEntity) {
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus(bulkLoadStatusEntity.getBulkLoadingId(), bulkLoadStatusEntity.getPspId());
+        bulkLoadStatus.restore(
+                bulkLoadStatusEntity.getTotalRecords(),
+                bulkLoadStatusEntity.getSuccessRecords(),
+                Objects.requireNonNullElse(bulkLoadStatusEntity.getErrorCounts(), Map.of()));
+
+        return bulkLoadStatus;
+    }
+
+    private static boolean isDuplicateKey(Throwable failure) {
+        return failure instanceof MongoWriteException writeException
+                && writeException.getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
+    }
+
+    private record StoredFile(Path path, String contentHash) {
+    }
+
+    /**
+     * Reads a bulk load file one chunk at a time, skipping the rows committed by a previous run.
+     */
+    private class ChunkReader {
+        private final TerminalJsonStreamReader terminalReader;
+        private final long committedRecords;
+        private long rowIndex;
+
+        ChunkReader(Path file, long committedRecords) {
+            try {
+                this.terminalReader = new TerminalJsonStreamReader(objectMapper, Files.newInputStream(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.committedRecords = committedRecords;
+        }
+
+        /**
+         * @return the next chunk of terminals, empty when the file has been read entirely
+         */
+        List<BulkLoadRow> next() {
+            while (rowIndex < committedRecords && terminalReader.hasNext()) {
+                terminalReader.skip();
+                rowIndex++;
+            }
+
+            List<BulkLoadRow> chunk = new ArrayList<>(config.chunkSize());
+            while (chunk.size() < config.chunkSize() && terminalReader.hasNext()) {
+                chunk.add(nextRow(rowIndex++));
+            }
+
+            return chunk;
+        }
+
+        /*
+         * An element that is well-formed JSON but cannot be bound to a terminal fails only its own row; a file that
+         * is not well-formed JSON still fails the whole bulk load, since the following rows cannot be located.
+         */
+        private BulkLoadRow nextRow(long index) {
+            try {
+                return new BulkLoadRow(index, terminalReader.next());
+            } catch (UncheckedIOException e) {
+                if (!(e.getCause() instanceof JsonMappingException mappingException)) {
+                    throw e;
+                }
+                terminalReader.skip();
+
+                return BulkLoadRow.malformed(index, mappingException.getOriginalMessage());
+            }
+        }
+
+        void close() {
+            try {
+                terminalReader.close();
+            } catch (IOException e) {
+                Log.warnf(e, "BulkLoadService -> close: error closing bulkLoad file");
+            }
+        }
+    }
+
+    /**
+     * Thrown when a flush finds the bulk load claimed by another instance, after its lease expired.
+     */
+    private static class LeaseLostException extends RuntimeException {
+    }
+}
@@ -0,0 +1,88 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The terminalUuids of the terminals of a solution by terminalId, packed for TerminalUuidCache. The terminalIds are
+ * kept in a sorted array, and the uuid at the same position takes two longs instead of a string and a map entry.
+ * The few terminalUuids that are not canonical uuids are kept as strings.
+ */
+final class PackedTerminalUuids {
+
+    static final PackedTerminalUuids EMPTY = new PackedTerminalUuids(new String[0], new long[0], new long[0], Map.of());
+
+    private final String[] terminalIds;
+
+    private final long[] mostSignificantBits;
+
+    private final long[] leastSignificantBits;
+
+    private final Map<String, String> notCanonical;
+
+    private PackedTerminalUuids(String[] terminalIds, long[] mostSignificantBits, long[] leastSignificantBits, Map<String, String> notCanonical) {
+        this.terminalIds = terminalIds;
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.notCanonical = notCanonical;
+    }
+
+    /**
+     * @param terminalUuids terminalUuids of the terminals of a solution by terminalId
+     * @return the packed terminalUuids
+     */
+    static PackedTerminalUuids of(Map<String, String> terminalUuids) {
+        if (terminalUuids.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<String> canonical = new ArrayList<>();
+        Map<String, String> notCanonical = new HashMap<>();
+        terminalUuids.forEach((terminalId, terminalUuid) -> {
+            if (TerminalUuid.of(terminalUuid).toUuid() != null) {
+                canonical.add(terminalId);
+            } else {
+                notCanonical.put(terminalId, terminalUuid);
+            }
+        });
+        String[] terminalIds = canonical.stream()
+                .sorted()
+                .toArray(String[]::new);
+
+        long[] mostSignificantBits = new long[terminalIds.length];
+        long[] leastSignificantBits = new long[terminalIds.length];
+        for (int i = 0; i < terminalIds.length; i++) {
+            UUID uuid = UUID.fromString(terminalUuids.get(terminalIds[i]));
+            mostSignificantBits[i] = uuid.getMostSignificantBits();
+            leastSignificantBits[i] = uuid.getLeastSignificantBits();
+        }
+
+        return new PackedTerminalUuids(terminalIds, mostSignificantBits, leastSignificantBits, Map.copyOf(notCanonical));
+    }
+
+    /**
+     * @param terminalId ID of the terminal for the PSP
+     * @return the terminalUuid of the terminal, null if the solution has no terminal with that terminalId
+     */
+    String get(String terminalId) {
+        int index = Arrays.binarySearch(terminalIds, terminalId);
+        if (index < 0) {
+            return notCanonical.get(terminalId);
+        }
+
+        return new UUID(mostSignificantBits[index], leastSignificantBits[index]).toString();
+    }
+
+    /**
+     * @return number of terminals of the solution
+     */
+    int size() {
+        return terminalIds.length + notCanonical.size();
+    }
+}
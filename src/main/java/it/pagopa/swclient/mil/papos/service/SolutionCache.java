@@ -0,0 +1,79 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.SolutionCacheConfig;
+import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * In-memory cache of the solutions looked up by pspId, locationCode and id, which nearly every terminal and
+ * transaction request reads first while solutions rarely change. Entries expire after the configured TTL and are
+ * evicted when a solution is created, updated or deleted through this instance; the changes made by other instances
+ * are seen when the entries expire.
+ */
+@ApplicationScoped
+public class SolutionCache {
+
+    private final TtlCache<List<SolutionEntity>> byPspId;
+
+    private final TtlCache<List<SolutionEntity>> byLocationCode;
+
+    private final TtlCache<SolutionEntity> byId;
+
+    public SolutionCache(SolutionCacheConfig config) {
+        this.byPspId = new TtlCache<>(config.enabled(), config.ttl(), config.maxEntries());
+        this.byLocationCode = new TtlCache<>(config.enabled(), config.ttl(), config.maxEntries());
+        this.byId = new TtlCache<>(config.enabled(), config.ttl(), config.maxEntries());
+    }
+
+    /**
+     * Returns the solutions of a PSP, loading them if not cached.
+     *
+     * @param pspId  ID of the POS service provider
+     * @param loader reads the solutions from the database
+     * @return the solutions of the PSP
+     */
+    public Uni<List<SolutionEntity>> getByPspId(String pspId, Supplier<Uni<List<SolutionEntity>>> loader) {
+        return byPspId.get(pspId, () -> loader.get().onItem().ifNotNull().transform(List::copyOf));
+    }
+
+    /**
+     * Returns the solutions of a location, loading them if not cached.
+     *
+     * @param locationCode location code of the solutions
+     * @param loader       reads the solutions from the database
+     * @return the solutions of the location
+     */
+    public Uni<List<SolutionEntity>> getByLocationCode(String locationCode, Supplier<Uni<List<SolutionEntity>>> loader) {
+        return byLocationCode.get(locationCode, () -> loader.get().onItem().ifNotNull().transform(List::copyOf));
+    }
+
+    /**
+     * Returns a solution by id, loading it if not cached. Solutions not found are not cached.
+     *
+     * @param solutionId id of the solution
+     * @param loader     reads the solution from the database
+     * @return the solution, null if not found
+     */
+    public Uni<SolutionEntity> getById(String solutionId, Supplier<Uni<SolutionEntity>> loader) {
+        return byId.get(solutionId, loader);
+    }
+
+    /**
+     * Evicts the lookups a solution belongs to: its pspId, its locationCode and its id.
+     *
+     * @param solution solution created, updated or deleted
+     */
+    public void evict(SolutionEntity solution) {
+        if (solution == null) {
+            return;
+        }
+
+        byPspId.evict(solution.getPspId());
+        byLocationCode.evict(solution.getLocationCode());
+        byId.evict(solution.id == null ? null : solution.id.toString());
+    }
+}
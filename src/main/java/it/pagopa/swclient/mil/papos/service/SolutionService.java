@@ -1,22 +1,46 @@
 package it.pagopa.swclient.mil.papos.service;
 
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
 import io.quarkus.logging.Log;
+import io.quarkus.mongodb.FindOptions;
 import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.PagingConfig;
+import it.pagopa.swclient.mil.papos.dao.ReadRouting;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.SolutionRepository;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.SolutionDto;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 @ApplicationScoped
 public class SolutionService {
 
+    private static final String PSP_ID = "pspId";
+
+    private static final String LOCATION_CODE = "locationCode";
+
     private final SolutionRepository solutionRepository;
 
-    public SolutionService(SolutionRepository solutionRepository) {
+    private final PagingConfig pagingConfig;
+
+    private final SolutionCache solutionCache;
+
+    private final ReadRouting readRouting;
+
+    public SolutionService(SolutionRepository solutionRepository, PagingConfig pagingConfig, SolutionCache solutionCache, ReadRouting readRouting) {
         this.solutionRepository = solutionRepository;
+        this.pagingConfig = pagingConfig;
+        this.solutionCache = solutionCache;
+        this.readRouting = readRouting;
     }
     
 
@@ -37,22 +61,21 @@ public class SolutionService {
                 .onFailure()
                 .transform(error -> error)
                 .onItem()
-                .transform(solutionSaved -> solutionSaved);
+                .invoke(solutionCache::evict);
     }
 
     /**
-     * Find all the solutions.
+     * Find all the solutions, in _id order, with the listing read preference.
      *
-     * @param pageNumber   0-based page index
-     * @param pageSize    page size
+     * @param after      id of the last solution of the previous page, null to select the page by pageNumber
+     * @param pageNumber 0-based page index, ignored when after is given
+     * @param pageSize   page size
      * @return Solutions found
      */
-    public Uni<List<SolutionEntity>> findSolutions(int pageNumber, int pageSize) {
-        Log.debugf("SolutionService -> findSolutions - Input pageNumber: %s, size: %s", pageNumber, pageSize);
+    public Uni<KeysetPage<SolutionEntity>> findSolutions(ObjectId after, int pageNumber, int pageSize) {
+        Log.debugf("SolutionService -> findSolutions - Input after: %s, pageNumber: %s, size: %s", after, pageNumber, pageSize);
 
-        return solutionRepository.findAll()
-                .page(pageNumber, pageSize)
-                .list();
+        return findPage(new Document(), after, pageNumber, pageSize);
     }
 
     /**
@@ -64,7 +87,7 @@ public class SolutionService {
     public Uni<SolutionEntity> findById(String solutionId) {
         Log.debugf("SolutionService -> findById - Input parameters: %s", solutionId);
 
-        return solutionRepository.findById(new ObjectId(solutionId));
+        return solutionCache.getById(solutionId, () -> solutionRepository.findById(new ObjectId(solutionId)));
     }
 
     /**
@@ -79,8 +102,8 @@ public class SolutionService {
         return solutionRepository.delete(solution)
                 .onFailure()
                 .transform(error -> error)
-                .onItem()
-                .transform(solutionDeleted -> solutionDeleted);
+                .onTermination()
+                .invoke(() -> solutionCache.evict(solution));
     }
 
     /**
@@ -92,14 +115,21 @@ public class SolutionService {
      */
     public Uni<SolutionEntity> updateSolution(String solutionId, SolutionDto solutionDto, SolutionEntity oldSolution) {
         Log.debugf("SolutionService -> updateTerminal - Input parameters: %s, %s, %s", solutionId, solutionDto, oldSolution);
-        oldSolution.setLocationCode(solutionDto.locationCode());
-        oldSolution.setPspId(solutionDto.pspId());
-
-        return solutionRepository.update(oldSolution)
+        // oldSolution may be the instance held by the cache, so it is left untouched and a new entity is written
+        SolutionEntity solution = new SolutionEntity();
+        solution.id = oldSolution.id;
+        solution.setLocationCode(solutionDto.locationCode());
+        solution.setPspId(solutionDto.pspId());
+        solutionCache.evict(oldSolution);
+
+        return solutionRepository.update(solution)
                 .onFailure()
                 .transform(error -> error)
-                .onItem()
-                .transform(terminalUpdated -> terminalUpdated);
+                .onTermination()
+                .invoke(() -> {
+                    solutionCache.evict(oldSolution);
+                    solutionCache.evict(solution);
+                });
     }
 
 
@@ -111,7 +141,8 @@ public class SolutionService {
     public Uni<Long> getSolutionsCount() {
         Log.debugf("SolutionService -> getSolutionsCount");
 
-        return solutionRepository.count();
+        return readRouting.forListings(solutionRepository.mongoCollection())
+                .countDocuments();
     }
 
     /**
@@ -124,7 +155,41 @@ public class SolutionService {
     public Uni<Long> getSolutionCountByAttribute(String attributeName, String attributeValue) {
         Log.debugf("SolutionService -> getSolutionCountByAttribute - Input parameters: %s, %s", attributeName, attributeValue);
 
-        return solutionRepository.count(attributeName, attributeValue);
+        return readRouting.forListings(solutionRepository.mongoCollection())
+                .countDocuments(Filters.eq(attributeName, attributeValue));
+    }
+
+    /**
+     * Returns the total number of solutions as requested by withTotal. The estimate is read from the collection
+     * metadata, without scanning the collection.
+     *
+     * @param withTotal how the total has to be computed
+     * @return a number, null if withTotal is NONE
+     */
+    public Uni<Long> getSolutionsCount(TotalMode withTotal) {
+        Log.debugf("SolutionService -> getSolutionsCount - Input parameters: %s", withTotal);
+
+        return withTotal.count(this::getSolutionsCount,
+                () -> readRouting.forListings(solutionRepository.mongoCollection()).estimatedDocumentCount());
+    }
+
+    /**
+     * Returns the total number of solutions with the given attribute as requested by withTotal. The estimate stops
+     * counting past the configured limit, and is left out when the limit is exceeded.
+     *
+     * @param attributeName  name of the attribute
+     * @param attributeValue value of the attribute
+     * @param withTotal      how the total has to be computed
+     * @return a number, null if withTotal is NONE or the estimate exceeds the limit
+     */
+    public Uni<Long> getSolutionCountByAttribute(String attributeName, String attributeValue, TotalMode withTotal) {
+        Log.debugf("SolutionService -> getSolutionCountByAttribute - Input parameters: %s, %s, %s", attributeName, attributeValue, withTotal);
+
+        return withTotal.count(() -> getSolutionCountByAttribute(attributeName, attributeValue),
+                () -> readRouting.forListings(solutionRepository.mongoCollection()).countDocuments(Filters.eq(attributeName, attributeValue),
+                                new CountOptions().limit(pagingConfig.estimatedCountLimit() + 1))
+                        .onItem()
+                        .transform(count -> TotalMode.withinLimit(count, pagingConfig.estimatedCountLimit())));
     }
 
     /**
@@ -136,25 +201,24 @@ public class SolutionService {
     public Uni<List<SolutionEntity>> findAllByPspId(String pspId) {
         Log.debugf("SolutionService -> findAllByPspId - Input parameters: %s", pspId);
 
-        return solutionRepository.find("pspId = ?1", pspId).list();
+        return solutionCache.getByPspId(pspId, () -> solutionRepository.find("pspId = ?1", pspId).list());
     }
 
     /**
-     * Returns a list of solutions paginated. The query filters on attributeName.
+     * Returns a list of solutions paginated in _id order. The query filters on attributeName and reads with the listing
+     * read preference.
      *
      * @param attributeName  string representing the name of attribute to be filtered
      * @param attributeValue value of attribute
-     * @param pageIndex      0-based page index
+     * @param after          id of the last solution of the previous page, null to select the page by pageIndex
+     * @param pageIndex      0-based page index, ignored when after is given
      * @param pageSize       page size
-     * @return a list of solutions
+     * @return a page of solutions
      */
-    public Uni<List<SolutionEntity>> getSolutionsListPagedByAttribute(String attributeName, String attributeValue, int pageIndex, int pageSize) {
-        Log.debugf("SolutionService -> getSolutionListPagedByAttribute - Input parameters: %s, %s, %s, %s", attributeName, attributeValue, pageIndex, pageSize);
+    public Uni<KeysetPage<SolutionEntity>> getSolutionsListPagedByAttribute(String attributeName, String attributeValue, ObjectId after, int pageIndex, int pageSize) {
+        Log.debugf("SolutionService -> getSolutionListPagedByAttribute - Input parameters: %s, %s, %s, %s, %s", attributeName, attributeValue, after, pageIndex, pageSize);
 
-        return solutionRepository
-                .find(String.format("%s = ?1", attributeName), attributeValue)
-                .page(pageIndex, pageSize)
-                .list();
+        return findPage(Filters.eq(attributeName, attributeValue), after, pageIndex, pageSize);
     }
 
     /**
@@ -166,9 +230,9 @@ public class SolutionService {
     public Uni<List<SolutionEntity>> getSolutionsListByLocationCode(String locationCode) {
         Log.debugf("SolutionService -> getSolutionsListByLocationCode - Input parameters: %s", locationCode);
 
-        return solutionRepository
+        return solutionCache.getByLocationCode(locationCode, () -> solutionRepository
                 .find("locationCode = ?1", locationCode)
-                .list();
+                .list());
     }
 
     /**
@@ -181,7 +245,13 @@ public class SolutionService {
     public Uni<List<SolutionEntity>> findAllByLocationOrPsp(String attributeName, String attributeValue) {
         Log.debugf("SolutionService -> findAllByLocationOrPsp - Input parameters: [%s, %s]", attributeName, attributeValue);
 
-        return solutionRepository.list(String.format("%s = ?1", attributeName), attributeValue);
+        Supplier<Uni<List<SolutionEntity>>> loader = () -> solutionRepository.list(String.format("%s = ?1", attributeName), attributeValue);
+
+        return switch (attributeName) {
+            case PSP_ID -> solutionCache.getByPspId(attributeValue, loader);
+            case LOCATION_CODE -> solutionCache.getByLocationCode(attributeValue, loader);
+            default -> loader.get();
+        };
     }
 
     /**
@@ -200,5 +270,32 @@ public class SolutionService {
         return solutionRepository.list("pspId = ?1 and _id in ?2", pspId, solutionObjectIds);
     }
 
+    /**
+     * Find all solutions whose id is among the ones given in input. The ids that are null or not valid ObjectIds
+     * match no solution.
+     *
+     * @param solutionIds id of the solutions
+     * @return list of Solution found
+     */
+    public Uni<List<SolutionEntity>> findAllByIds(List<String> solutionIds) {
+        Log.debugf("SolutionService -> findAllByIds - Input parameters: %s", solutionIds);
+        List<ObjectId> solutionObjectIds = solutionIds.stream()
+                .filter(solutionId -> solutionId != null && ObjectId.isValid(solutionId))
+                .map(ObjectId::new)
+                .toList();
+
+        return solutionRepository.list("_id in ?1", solutionObjectIds);
+    }
+
+    private Uni<KeysetPage<SolutionEntity>> findPage(Bson filter, ObjectId after, int pageIndex, int pageSize) {
+        int first = after == null ? pageIndex * pageSize : 0;
+        Bson pageFilter = after == null ? filter : Filters.and(filter, Filters.gt("_id", after));
 
+        return readRouting.forListings(solutionRepository.mongoCollection())
+                .find(pageFilter, new FindOptions().sort(Sorts.ascending("_id")).skip(first).limit(pageSize + 1))
+                .collect()
+                .asList()
+                .onItem()
+                .transform(solutions -> KeysetPage.of(solutions, pageSize, solution -> solution.id));
+    }
 }
@@ -1,16 +1,43 @@
 package it.pagopa.swclient.mil.papos.service;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
 import io.quarkus.logging.Log;
+import io.quarkus.mongodb.FindOptions;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.BulkLoadConfig;
+import it.pagopa.swclient.mil.papos.config.PagingConfig;
 import it.pagopa.swclient.mil.papos.dao.*;
+import it.pagopa.swclient.mil.papos.model.BulkLoadRow;
 import it.pagopa.swclient.mil.papos.model.BulkLoadStatus;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.TerminalDto;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.model.WorkstationsDto;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class TerminalService {
@@ -19,77 +46,85 @@ public class TerminalService {
 
     private final BulkLoadStatusRepository bulkLoadStatusRepository;
 
-    public TerminalService(TerminalRepository terminalRepository, BulkLoadStatusRepository bulkLoadStatusRepository) {
+    private final BulkLoadConfig bulkLoadConfig;
+
+    private final PagingConfig pagingConfig;
+
+    private final TerminalUuidCache terminalUuidCache;
+
+    private final ReadRouting readRouting;
+
+    public TerminalService(TerminalRepository terminalRepository, BulkLoadStatusRepository bulkLoadStatusRepository, BulkLoadConfig bulkLoadConfig, PagingConfig pagingConfig,
+                           TerminalUuidCache terminalUuidCache, ReadRouting readRouting) {
         this.terminalRepository = terminalRepository;
         this.bulkLoadStatusRepository = bulkLoadStatusRepository;
+        this.bulkLoadConfig = bulkLoadConfig;
+        this.pagingConfig = pagingConfig;
+        this.terminalUuidCache = terminalUuidCache;
+        this.readRouting = readRouting;
     }
 
     /**
-     * Create a new terminal starting from a terminalDto.
+     * Create a new terminal starting from a terminalDto. The terminal is upserted on (solutionId, terminalId), so
+     * an existing terminal with the same key is detected by the database and left untouched.
      *
      * @param terminalDto dto of terminal to be generated
-     * @return terminal created
+     * @return terminal created, null if a terminal with the same solutionId and terminalId already exists
      */
     public Uni<TerminalEntity> createTerminal(TerminalDto terminalDto) {
         Log.debugf("TerminalService -> createTerminal - Input parameters: %s", terminalDto);
 
-        String terminalUuid = Utility.generateRandomUuid();
+        TerminalUuid terminalUuid = TerminalUuid.of(Utility.generateRandomUuid());
         TerminalEntity entity = createTerminalEntity(terminalDto, terminalUuid);
 
-        return terminalRepository.persist(entity)
-                .onFailure()
-                .transform(error -> error)
+        return terminalRepository.mongoCollection()
+                .updateOne(
+                        terminalKey(terminalDto),
+                        Updates.combine(
+                                Updates.setOnInsert("terminalUuid", terminalUuid),
+                                Updates.setOnInsert("enabled", terminalDto.enabled()),
+                                Updates.setOnInsert("workstations", terminalDto.workstations())),
+                        new UpdateOptions().upsert(true))
                 .onItem()
-                .transform(terminalSaved -> terminalSaved);
+                .transform(result -> {
+                    if (result.getUpsertedId() == null) {
+                        Log.debugf("TerminalService -> createTerminal: terminal [%s] already exists", terminalDto);
+
+                        return null;
+                    }
+                    entity.id = result.getUpsertedId().asObjectId().getValue();
+                    terminalUuidCache.evict(terminalDto.solutionId());
+
+                    return entity;
+                });
     }
 
     /**
-     * Allows the bulk loading of a set of terminals starting from a fileContent.
+     * Persists a chunk of terminals of a bulk load, recording the outcome of each terminal on the bulk load status.
+     * Terminals are upserted on (solutionId, terminalId) in unordered batches, with a bounded number of batches in
+     * flight at the same time, so that a failing terminal does not prevent the others of its batch from being stored.
      *
-     * @param terminalRequests file json containing a set of terminals
-     * @return list of terminal created
+     * @param rows           chunk of terminals to be created, with their position in the bulk load file
+     * @param bulkLoadStatus status of the bulk load the chunk belongs to
+     * @return void
      */
-    public Uni<BulkLoadStatusEntity> processBulkLoad(List<TerminalDto> terminalRequests, int totalRecords, String pspId) {
-        Log.debugf("TerminalService -> processBulkLoad - Input parameters: file content length: %d bytes", terminalRequests.size());
-
-        String bulkLoadingId = Utility.generateRandomUuid();
-        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus(bulkLoadingId, totalRecords);
-        bulkLoadStatus.setFailedRecords(totalRecords - terminalRequests.size());
-        bulkLoadStatus.setPspId(pspId);
-        List<Uni<Void>> terminalCreationUnis = new ArrayList<>();
-
-        for (TerminalDto terminal : terminalRequests) {
-            Uni<Void> terminalCreationUni = createTerminal(terminal)
-                    .onFailure()
-                    .transform(failure -> {
-                        bulkLoadStatus.recordFailure(failure.getMessage());
-
-                        return failure;
-                    })
-                    .onItem()
-                    .transform(success -> {
-                        bulkLoadStatus.recordSuccess();
-
-                        return null;
-                    });
-
-            terminalCreationUnis.add(terminalCreationUni);
-        }
-
-        Uni<Void> allTerminalCreations = Uni.combine().all().unis(terminalCreationUnis).discardItems();
+    public Uni<Void> processBulkLoad(List<BulkLoadRow> rows, BulkLoadStatus bulkLoadStatus) {
+        Log.debugf("TerminalService -> processBulkLoad - Input parameters: chunk of %d terminals, bulkLoadingId: %s", rows.size(), bulkLoadStatus.getBulkLoadingId());
 
-        return allTerminalCreations
+        return Multi.createFrom().iterable(rows)
+                .group()
+                .intoLists()
+                .of(bulkLoadConfig.batchSize())
                 .onItem()
-                .transformToUni(ignored -> bulkLoadStatusRepository.persist(createBulkLoadStatusEntity(bulkLoadStatus)))
-                .onFailure()
-                .transform(error -> {
-                    Log.error("TerminalService -> processBulkLoad: error persisting bulkLoadStatus", error);
-
-                    return error;
-                })
+                .transformToUni(batch -> persistBulkLoadBatch(batch, bulkLoadStatus))
+                .merge(bulkLoadConfig.maxInFlightBatches())
                 .onItem()
-                .transform(terminalSaved -> terminalSaved);
-
+                .ignoreAsUni()
+                .onTermination()
+                .invoke(() -> rows.stream()
+                        .map(row -> row.terminal().solutionId())
+                        .distinct()
+                        .forEach(terminalUuidCache::evict));
     }
 
     /**
@@ -115,24 +150,39 @@ public class TerminalService {
     public Uni<Long> getTerminalCountByWorkstation(String workstation, List<String> solutionIds) {
         Log.debugf("TerminalService -> getTerminalCountByWorkstation - Input parameter: %s", workstation);
 
-        return terminalRepository.count("workstations = ?1 and solutionId in ?2", workstation, solutionIds);
+        return readRouting.forListings(terminalRepository.mongoCollection())
+                .countDocuments(workstationFilter(workstation, solutionIds));
+    }
+
+    /**
+     * Returns the total number of terminals of a workstation as requested by withTotal. The estimate stops counting
+     * past the configured limit, and is left out when the limit is exceeded.
+     *
+     * @param workstation name of workstation
+     * @param solutionIds list of Solution
+     * @param withTotal   how the total has to be computed
+     * @return a number, null if withTotal is NONE or the estimate exceeds the limit
+     */
+    public Uni<Long> getTerminalCountByWorkstation(String workstation, List<String> solutionIds, TotalMode withTotal) {
+        Log.debugf("TerminalService -> getTerminalCountByWorkstation - Input parameters: %s, %s, %s", workstation, solutionIds, withTotal);
+
+        return withTotal.count(() -> getTerminalCountByWorkstation(workstation, solutionIds),
+                () -> countUpToLimit(workstationFilter(workstation, solutionIds)));
     }
 
     /**
-     * Returns a list of terminals paginated. The query filters on workstation.
+     * Returns a list of terminals paginated in _id order. The query filters on workstation and reads with the listing read preference.
      *
      * @param workstation name of workstation
-     * @param pageIndex   0-based page index
+     * @param after       id of the last terminal of the previous page, null to select the page by pageIndex
+     * @param pageIndex   0-based page index, ignored when after is given
      * @param pageSize    page size
-     * @return a list of terminals
+     * @return a page of terminals
      */
-    public Uni<List<TerminalEntity>> getTerminalListPagedByWorkstation(String workstation, int pageIndex, int pageSize, List<String> solutionIds) {
-        Log.debugf("TerminalService -> getTerminalListPagedByWorkstation - Input parameters: %s, %s, %s, %s", workstation, pageIndex, pageSize, solutionIds);
+    public Uni<KeysetPage<TerminalEntity>> getTerminalListPagedByWorkstation(String workstation, ObjectId after, int pageIndex, int pageSize, List<String> solutionIds) {
+        Log.debugf("TerminalService -> getTerminalListPagedByWorkstation - Input parameters: %s, %s, %s, %s, %s", workstation, after, pageIndex, pageSize, solutionIds);
 
-        return terminalRepository
-                .find("workstations = ?1 and solutionId in ?2", workstation, solutionIds)
-                .page(pageIndex, pageSize)
-                .list();
+        return findPage(workstationFilter(workstation, solutionIds), after, pageIndex, pageSize);
     }
 
     /**
@@ -145,10 +195,26 @@ public class TerminalService {
         Log.debugf("TerminalService -> findTerminal - Input parameters: %s", terminalUuid);
 
         return terminalRepository
-                .find("terminalUuid = ?1", terminalUuid)
+                .find(new Document("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of(terminalUuid)))))
                 .firstResult();
     }
 
+    /**
+     * Find all terminals whose terminalUuid is among the ones given in input.
+     *
+     * @param terminalUuids uuids of the terminals
+     * @return list of terminals found
+     */
+    public Uni<List<TerminalEntity>> findAllByTerminalUuids(List<String> terminalUuids) {
+        Log.debugf("TerminalService -> findAllByTerminalUuids - Input parameters: %s", terminalUuids);
+
+        return terminalRepository
+                .find(new Document("terminalUuid", TerminalUuidCodec.in(terminalUuids.stream()
+                        .map(TerminalUuid::of)
+                        .toList())))
+                .list();
+    }
+
     /**
      * Update terminal adding workstations from a workstationDto.
      *
@@ -169,25 +235,33 @@ public class TerminalService {
     }
 
     /**
-     * Update terminal starting from a terminalDto.
+     * Update terminal starting from a terminalDto. A terminal with the same (solutionId, terminalId) is detected by
+     * the unique index on the key, and the terminal is left untouched.
      *
      * @param terminalDto  dto of modified terminal
      * @param terminalUuid terminalUuid of old terminal to be modified
-     * @return terminal updated
+     * @return terminal updated, null if another terminal with the same solutionId and terminalId already exists
      */
     public Uni<TerminalEntity> updateTerminal(String terminalUuid, TerminalDto terminalDto, TerminalEntity oldTerminal) {
         Log.debugf("TerminalService -> updateTerminal - Input parameters: %s, %s, %s", terminalUuid, terminalDto, oldTerminal);
 
-        TerminalEntity entity = createTerminalEntity(terminalDto, terminalUuid);
+        TerminalEntity entity = createTerminalEntity(terminalDto, TerminalUuid.of(terminalUuid));
         entity.id = oldTerminal.id;
         entity.setTerminalUuid(oldTerminal.getTerminalUuid());
         entity.setWorkstations(oldTerminal.getWorkstations());
 
         return terminalRepository.update(entity)
-                .onFailure()
-                .transform(error -> error)
-                .onItem()
-                .transform(terminalUpdated -> terminalUpdated);
+                .onFailure(TerminalService::isDuplicateKey)
+                .recoverWithItem(error -> {
+                    Log.debugf("TerminalService -> updateTerminal: terminal [%s] already exists", terminalDto);
+
+                    return null;
+                })
+                .onTermination()
+                .invoke(() -> {
+                    terminalUuidCache.evict(oldTerminal.getSolutionId());
+                    terminalUuidCache.evict(entity.getSolutionId());
+                });
     }
 
     /**
@@ -202,8 +276,27 @@ public class TerminalService {
         return terminalRepository.delete(terminal)
                 .onFailure()
                 .transform(error -> error)
-                .onItem()
-                .transform(terminalDeleted -> terminalDeleted);
+                .onTermination()
+                .invoke(() -> terminalUuidCache.evict(terminal.getSolutionId()));
+    }
+
+    /**
+     * Delete the terminals with the given terminalUuids, used to discard the terminals of a bulk load chunk that was
+     * interrupted before being committed.
+     *
+     * @param terminalUuids uuids of the terminals to be deleted
+     * @return number of terminals deleted
+     */
+    public Uni<Long> deleteByTerminalUuids(List<String> terminalUuids) {
+        Log.debugf("TerminalService -> deleteByTerminalUuids - Input parameters: %s terminals", terminalUuids.size());
+
+        List<TerminalUuid> values = terminalUuids.stream()
+                .map(TerminalUuid::of)
+                .toList();
+
+        return terminalRepository.delete(new Document("terminalUuid", TerminalUuidCodec.in(values)))
+                .onTermination()
+                .invoke(terminalUuidCache::clear);
     }
 
     /**
@@ -215,7 +308,23 @@ public class TerminalService {
     public Uni<Long> countBySolutionIds(List<String> solutionIds) {
         Log.debugf("TerminalService -> countBySolutionIds - Input parameter: %s", solutionIds);
 
-        return terminalRepository.count("solutionId in (?1)", solutionIds);
+        return readRouting.forListings(terminalRepository.mongoCollection())
+                .countDocuments(Filters.in("solutionId", solutionIds));
+    }
+
+    /**
+     * Returns the total number of terminals of the solutions as requested by withTotal. The estimate stops counting
+     * past the configured limit, and is left out when the limit is exceeded.
+     *
+     * @param solutionIds list of Solution
+     * @param withTotal   how the total has to be computed
+     * @return a number, null if withTotal is NONE or the estimate exceeds the limit
+     */
+    public Uni<Long> countBySolutionIds(List<String> solutionIds, TotalMode withTotal) {
+        Log.debugf("TerminalService -> countBySolutionIds - Input parameters: %s, %s", solutionIds, withTotal);
+
+        return withTotal.count(() -> countBySolutionIds(solutionIds),
+                () -> countUpToLimit(Filters.in("solutionId", solutionIds)));
     }
 
     /**
@@ -230,6 +339,37 @@ public class TerminalService {
         return terminalRepository.find("solutionId in ?1", solutionIds).list();
     }
 
+    /**
+     * Returns the ids of all the terminals corresponding to the list of solution ids, without reading the rest of the
+     * terminals.
+     *
+     * @param solutionIds list of Solution
+     * @return a list of terminal ids
+     */
+    public Uni<List<TerminalIds>> findTerminalIdsBySolutionIds(List<String> solutionIds) {
+        Log.debugf("TerminalService -> findTerminalIdsBySolutionIds - Input parameter: %s", solutionIds);
+
+        return terminalRepository.find("solutionId in ?1", solutionIds)
+                .project(TerminalIds.class)
+                .list();
+    }
+
+    /**
+     * Returns the ids of the terminals by solutionIds and terminalId given in input, without reading the rest of the
+     * terminals.
+     *
+     * @param solutionIds list of solutions
+     * @param terminalId  ID of the terminal for the PSP
+     * @return list of terminal ids found
+     */
+    public Uni<List<TerminalIds>> findTerminalIdsBySolutionIdsAndTerminalId(List<String> solutionIds, String terminalId) {
+        Log.debugf("TerminalService -> findTerminalIdsBySolutionIdsAndTerminalId - Input parameters: %s, %s", solutionIds, terminalId);
+
+        return terminalRepository.find("solutionId in ?1 and terminalId = ?2", solutionIds, terminalId)
+                .project(TerminalIds.class)
+                .list();
+    }
+
     /**
      * Returns all terminals by solutionIds and terminalId given in input.
      *
@@ -244,20 +384,154 @@ public class TerminalService {
     }
 
     /**
-     * Find all terminal equals to solutionIds given in input.
+     * Returns the terminalUuids of the terminals with the given terminalId among the terminals of the solutions. The
+     * terminalUuids of each solution are kept by TerminalUuidCache, so the terminals are read only for the solutions
+     * not cached.
+     *
+     * @param solutionIds list of solutions
+     * @param terminalId  ID of the terminal for the PSP
+     * @return terminalUuids of the terminals found
+     */
+    public Uni<List<String>> findTerminalUuidsBySolutionIdsAndTerminalId(List<String> solutionIds, String terminalId) {
+        Log.debugf("TerminalService -> findTerminalUuidsBySolutionIdsAndTerminalId - Input parameters: %s, %s", solutionIds, terminalId);
+
+        if (!terminalUuidCache.isEnabled()) {
+            return findTerminalIdsBySolutionIdsAndTerminalId(solutionIds, terminalId)
+                    .onItem()
+                    .transform(terminals -> terminals.stream()
+                            .map(TerminalIds::terminalUuid)
+                            .filter(Objects::nonNull)
+                            .map(TerminalUuid::value)
+                            .toList());
+        }
+
+        return terminalUuidCache.getBySolutionIds(solutionIds, this::loadTerminalUuids)
+                .onItem()
+                .transform(terminalUuidsBySolution -> solutionIds.stream()
+                        .map(terminalUuidsBySolution::get)
+                        .filter(Objects::nonNull)
+                        .map(terminalUuids -> terminalUuids.get(terminalId))
+                        .filter(Objects::nonNull)
+                        .toList());
+    }
+
+    /**
+     * Find all terminal equals to solutionIds given in input, in _id order, with the listing read preference.
      *
      * @param solutionIds list of Solution
-     * @return Solutions found
+     * @param after       id of the last terminal of the previous page, null to select the page by pageIndex
+     * @param pageIndex   0-based page index, ignored when after is given
+     * @param pageSize    page size
+     * @return a page of terminals
      */
-    public Uni<List<TerminalEntity>> findBySolutionIds(List<String> solutionIds, int pageIndex, int pageSize) {
-        Log.debugf("TerminalService -> findBySolutionIds - Input parameter: %s, %s, %s", solutionIds, pageIndex, pageSize);
+    public Uni<KeysetPage<TerminalEntity>> findBySolutionIds(List<String> solutionIds, ObjectId after, int pageIndex, int pageSize) {
+        Log.debugf("TerminalService -> findBySolutionIds - Input parameter: %s, %s, %s, %s", solutionIds, after, pageIndex, pageSize);
 
-        return terminalRepository.find("solutionId in ?1", solutionIds)
-                .page(pageIndex, pageSize)
-                .list();
+        return findPage(Filters.in("solutionId", solutionIds), after, pageIndex, pageSize);
     }
 
-    private TerminalEntity createTerminalEntity(TerminalDto terminalDto, String terminalUuid) {
+    /**
+     * Streams every terminal of the given solutions, workstations included, from a single cursor read with the
+     * listing read preference. The terminals are ordered by solution and then by _id, the order of the index on
+     * solutionId, so the server never sorts them in memory.
+     *
+     * @param solutionIds list of Solution
+     * @return terminals found
+     */
+    public Multi<TerminalEntity> exportBySolutionIds(List<String> solutionIds) {
+        Log.debugf("TerminalService -> exportBySolutionIds - Input parameter: %s", solutionIds);
+
+        return readRouting.forListings(terminalRepository.mongoCollection())
+                .find(Filters.in("solutionId", solutionIds), new FindOptions().sort(Sorts.ascending("solutionId", "_id")));
+    }
+
+    private Uni<Map<String, PackedTerminalUuids>> loadTerminalUuids(List<String> solutionIds) {
+        return findTerminalIdsBySolutionIds(solutionIds)
+                .onItem()
+                .transform(terminals -> {
+                    Map<String, Map<String, String>> terminalUuidsBySolution = new HashMap<>();
+                    solutionIds.forEach(solutionId -> terminalUuidsBySolution.put(solutionId, new HashMap<>()));
+                    terminals.stream()
+                            .filter(terminal -> terminal.terminalId() != null && terminal.terminalUuid() != null)
+                            .forEach(terminal -> terminalUuidsBySolution
+                                    .computeIfAbsent(terminal.solutionId(), solutionId -> new HashMap<>())
+                                    .put(terminal.terminalId(), terminal.terminalUuid().value()));
+                    Map<String, PackedTerminalUuids> packedBySolution = new HashMap<>();
+                    terminalUuidsBySolution.forEach((solutionId, terminalUuids) -> packedBySolution.put(solutionId, PackedTerminalUuids.of(terminalUuids)));
+
+                    return packedBySolution;
+                });
+    }
+
+    private Uni<Long> countUpToLimit(Bson filter) {
+        return readRouting.forListings(terminalRepository.mongoCollection())
+                .countDocuments(filter, new CountOptions().limit(pagingConfig.estimatedCountLimit() + 1))
+                .onItem()
+                .transform(count -> TotalMode.withinLimit(count, pagingConfig.estimatedCountLimit()));
+    }
+
+    private Uni<Void> persistBulkLoadBatch(List<BulkLoadRow> batch, BulkLoadStatus bulkLoadStatus) {
+        Log.debugf("TerminalService -> persistBulkLoadBatch: storing batch of %d terminals for bulkLoad [%s]", batch.size(), bulkLoadStatus.getBulkLoadingId());
+
+        List<UpdateOneModel<TerminalEntity>> upserts = batch.stream()
+                .map(row -> createTerminalUpsert(row.terminal(), TerminalUuid.of(Utility.generateBulkLoadTerminalUuid(bulkLoadStatus.getBulkLoadingId(), row.rowIndex()))))
+                .toList();
+
+        return terminalRepository.mongoCollection()
+                .bulkWrite(upserts, new BulkWriteOptions().ordered(false))
+                .onItem()
+                .invoke(() -> bulkLoadStatus.recordSuccess(batch.size()))
+                .onFailure()
+                .recoverWithItem(failure -> {
+                    Log.errorf(failure, "TerminalService -> persistBulkLoadBatch: error storing batch of %d terminals for bulkLoad [%s]", batch.size(), bulkLoadStatus.getBulkLoadingId());
+
+                    Map<Integer, String> writeErrors = failure instanceof MongoBulkWriteException bulkWriteException
+                            ? bulkWriteException.getWriteErrors()
+                                    .stream()
+                                    .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))
+                            : null;
+
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (writeErrors == null) {
+                            bulkLoadStatus.recordFailure(batch.get(i), ErrorCodes.ERROR_GENERIC_FROM_DB, failure.getMessage());
+                        } else if (writeErrors.containsKey(i)) {
+                            bulkLoadStatus.recordFailure(batch.get(i), ErrorCodes.ERROR_GENERIC_FROM_DB, writeErrors.get(i));
+                        } else {
+                            bulkLoadStatus.recordSuccess(1);
+                        }
+                    }
+
+                    return null;
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Upserts a terminal of a bulk load on (solutionId, terminalId): a new terminal is inserted with the given uuid,
+     * while an existing one is updated with the enabled flag and, if present, the workstations of the file.
+     */
+    private UpdateOneModel<TerminalEntity> createTerminalUpsert(TerminalDto terminalDto, TerminalUuid terminalUuid) {
+        List<Bson> updates = new ArrayList<>();
+        updates.add(Updates.setOnInsert("terminalUuid", terminalUuid));
+        updates.add(Updates.set("enabled", terminalDto.enabled()));
+        if (terminalDto.workstations() != null) {
+            updates.add(Updates.set("workstations", terminalDto.workstations()));
+        }
+
+        return new UpdateOneModel<>(terminalKey(terminalDto), Updates.combine(updates), new UpdateOptions().upsert(true));
+    }
+
+    private static Bson workstationFilter(String workstation, List<String> solutionIds) {
+        return Filters.and(Filters.eq("workstations", workstation), Filters.in("solutionId", solutionIds));
+    }
+
+    private static Bson terminalKey(TerminalDto terminalDto) {
+        return Filters.and(
+                Filters.eq("solutionId", terminalDto.solutionId()),
+                Filters.eq("terminalId", terminalDto.terminalId()));
+    }
+
+    private TerminalEntity createTerminalEntity(TerminalDto terminalDto, TerminalUuid terminalUuid) {
         Log.debugf("TerminalService -> createTerminalEntity: storing terminal [%s] on DB", terminalDto);
 
         TerminalEntity terminalEntity = new TerminalEntity();
@@ -270,17 +544,20 @@ public class TerminalService {
         return terminalEntity;
     }
 
-    private BulkLoadStatusEntity createBulkLoadStatusEntity(BulkLoadStatus bulkLoadStatus) {
-        Log.debugf("TerminalService -> createBulkLoadStatusEntity: storing bulkLoadStatus [%s] on DB", bulkLoadStatus);
+    private Uni<KeysetPage<TerminalEntity>> findPage(Bson filter, ObjectId after, int pageIndex, int pageSize) {
+        int first = after == null ? pageIndex * pageSize : 0;
+        Bson pageFilter = after == null ? filter : Filters.and(filter, Filters.gt("_id", after));
 
-        BulkLoadStatusEntity bulkLoadStatusEntity = new BulkLoadStatusEntity();
-        bulkLoadStatusEntity.setBulkLoadingId(bulkLoadStatus.getBulkLoadingId());
-        bulkLoadStatusEntity.setTotalRecords(bulkLoadStatus.getTotalRecords());
-        bulkLoadStatusEntity.setSuccessRecords(bulkLoadStatus.getSuccessRecords());
-        bulkLoadStatusEntity.setFailedRecords(bulkLoadStatus.getFailedRecords());
-        bulkLoadStatusEntity.setErrorMessages(bulkLoadStatus.getErrorMessages());
-        bulkLoadStatusEntity.setPspId(bulkLoadStatus.getPspId());
+        return readRouting.forListings(terminalRepository.mongoCollection())
+                .find(pageFilter, new FindOptions().sort(Sorts.ascending("_id")).skip(first).limit(pageSize + 1))
+                .collect()
+                .asList()
+                .onItem()
+                .transform(terminals -> KeysetPage.of(terminals, pageSize, terminal -> terminal.id));
+    }
 
-        return bulkLoadStatusEntity;
+    private static boolean isDuplicateKey(Throwable failure) {
+        return failure instanceof MongoWriteException writeException
+                && writeException.getError().getCategory() == ErrorCategory.DUPLICATE_KEY;
     }
 }
@@ -0,0 +1,63 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.TerminalCacheConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of the terminalUuids of the terminals of each solution, by terminalId, so that the transactions of
+ * a PSP can be queried without reading its terminals first. The terminalUuids of a solution are packed (see
+ * PackedTerminalUuids). The entries of a solution expire after the configured TTL and are evicted when one of its
+ * terminals is created, updated or deleted through this instance.
+ */
+@ApplicationScoped
+public class TerminalUuidCache {
+
+    private final TtlCache<PackedTerminalUuids> bySolutionId;
+
+    private final boolean enabled;
+
+    public TerminalUuidCache(TerminalCacheConfig config) {
+        this.bySolutionId = new TtlCache<>(config.enabled(), config.ttl(), config.maxEntries());
+        this.enabled = config.enabled();
+    }
+
+    /**
+     * @return true if the terminalUuids are kept in memory, false if every lookup reads them from the database
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the terminalUuids of the terminals of the solutions, loading together the solutions not cached.
+     *
+     * @param solutionIds ids of the solutions
+     * @param loader      reads from the database the terminalUuids by terminalId of the solutions not cached, with
+     *                    empty terminalUuids for the solutions without terminals
+     * @return for each solution, the terminalUuids of its terminals by terminalId
+     */
+    Uni<Map<String, PackedTerminalUuids>> getBySolutionIds(List<String> solutionIds, Function<List<String>, Uni<Map<String, PackedTerminalUuids>>> loader) {
+        return bySolutionId.getAll(solutionIds, loader);
+    }
+
+    /**
+     * Evicts the terminalUuids of a solution.
+     *
+     * @param solutionId id of the solution whose terminals changed
+     */
+    public void evict(String solutionId) {
+        bySolutionId.evict(solutionId);
+    }
+
+    /**
+     * Evicts the terminalUuids of every solution, when the solutions of the terminals changed are not known.
+     */
+    public void clear() {
+        bySolutionId.clear();
+    }
+}
@@ -1,25 +1,86 @@
 package it.pagopa.swclient.mil.papos.service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
 import io.quarkus.logging.Log;
 import io.quarkus.panache.common.Sort;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import it.pagopa.swclient.mil.papos.config.PagingConfig;
+import it.pagopa.swclient.mil.papos.config.TerminalUuidConfig;
+import it.pagopa.swclient.mil.papos.dao.LatestTransactionIndex;
+import it.pagopa.swclient.mil.papos.dao.ReadRouting;
+import it.pagopa.swclient.mil.papos.dao.SolutionRepository;
 import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
+import it.pagopa.swclient.mil.papos.dao.TerminalUuidCodec;
 import it.pagopa.swclient.mil.papos.dao.TransactionRepository;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollup;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollupEntity;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchResult;
 import it.pagopa.swclient.mil.papos.model.TransactionDto;
+import it.pagopa.swclient.mil.papos.model.TransactionSearchResult;
+import it.pagopa.swclient.mil.papos.model.UpdateTransactionBatchItemDto;
 import it.pagopa.swclient.mil.papos.model.UpdateTransactionDto;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
 
 import static it.pagopa.swclient.mil.papos.util.Utility.roundCeilObjectIdhex;
 
 @ApplicationScoped
 public class TransactionService {
+    private static final String TERMINALS_COLLECTION = "terminals";
+
+    private static final String TRANSACTIONS_COLLECTION = "transactions";
+
+    private static final String SOLUTIONS_COLLECTION = "solutions";
+
+    private static final int REFRESH_CONCURRENCY = 16;
+
     private final TransactionRepository transactionRepository;
 
-    public TransactionService(TransactionRepository transactionRepository) {
+    private final SolutionRepository solutionRepository;
+
+    private final PagingConfig pagingConfig;
+
+    private final ReadRouting readRouting;
+
+    private final LatestTransactionIndex latestTransactionIndex;
+
+    private final TransactionRollup transactionRollup;
+
+    private final TerminalUuidConfig terminalUuidConfig;
+
+    public TransactionService(TransactionRepository transactionRepository, SolutionRepository solutionRepository, PagingConfig pagingConfig, ReadRouting readRouting,
+                              LatestTransactionIndex latestTransactionIndex, TransactionRollup transactionRollup, TerminalUuidConfig terminalUuidConfig) {
         this.transactionRepository = transactionRepository;
+        this.solutionRepository = solutionRepository;
+        this.pagingConfig = pagingConfig;
+        this.readRouting = readRouting;
+        this.latestTransactionIndex = latestTransactionIndex;
+        this.transactionRollup = transactionRollup;
+        this.terminalUuidConfig = terminalUuidConfig;
     }
 
     /**
@@ -37,7 +98,59 @@ public class TransactionService {
                 .onFailure()
                 .transform(error -> error)
                 .onItem()
-                .transform(transactionSaved -> transactionSaved);
+                .call(latestTransactionIndex::record)
+                .onItem()
+                .call(transactionRollup::add);
+    }
+
+    /**
+     * Creates many transactions with a single unordered insertMany, and then records them in latestTransactions and
+     * in the rollups in bulk. The ids are assigned before the insert, so that each item gets the id of its transaction
+     * or a 500 if its insert failed.
+     *
+     * @param transactionDtos dtos of the transactions to be generated, already authorized
+     * @return outcomes of the transactions, in the same order
+     */
+    public Uni<List<TransactionBatchResult>> createTransactions(List<TransactionDto> transactionDtos) {
+        Log.debugf("TransactionService -> createTransactions - Input parameters: %d transactions", transactionDtos.size());
+
+        List<TransactionEntity> entities = transactionDtos.stream()
+                .map(transactionDto -> {
+                    TransactionEntity entity = createTransactionEntity(transactionDto);
+                    entity.id = new ObjectId();
+
+                    return entity;
+                })
+                .toList();
+
+        return transactionRepository.mongoCollection()
+                .insertMany(entities, new InsertManyOptions().ordered(false))
+                .onItem()
+                .transform(result -> (IntPredicate) index -> false)
+                .onFailure()
+                .recoverWithItem(failure -> {
+                    Log.errorf(failure, "TransactionService -> createTransactions: error inserting batch of %d transactions", entities.size());
+
+                    return failedWrites(failure);
+                })
+                .onItem()
+                .transformToUni(failed -> {
+                    List<TransactionBatchResult> results = new ArrayList<>();
+                    List<TransactionEntity> inserted = new ArrayList<>();
+                    for (int i = 0; i < entities.size(); i++) {
+                        String transactionId = entities.get(i).id.toHexString();
+                        if (failed.test(i)) {
+                            results.add(TransactionBatchResult.failure(transactionId, 500, ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG));
+                        } else {
+                            results.add(TransactionBatchResult.success(transactionId, 201));
+                            inserted.add(entities.get(i));
+                        }
+                    }
+
+                    return latestTransactionIndex.recordAll(inserted)
+                            .chain(() -> transactionRollup.addAll(inserted))
+                            .replaceWith(results);
+                });
     }
 
     /**
@@ -64,10 +177,12 @@ public class TransactionService {
     public Uni<List<TransactionEntity>> getTransactionListPagedByPayeeAndTerminals(String payeeCode, List<String> terminalUuids, Date startDate, Date endDate, Sort sortStrategy, int pageIndex, int pageSize) {
         Log.debugf("TransactionService -> getTransactionListPagedByAttribute - Input parameters: %s, %s, %s, %s, %s, %s, %s", payeeCode, terminalUuids, startDate, endDate, sortStrategy, pageIndex, pageSize);
 
-        String query = "{ 'payeeCode': ?1, '_id': { '$gte': ?2, '$lte': ?3 }, 'terminalUuid': { '$in': [?4] } }";
+        Document query = new Document("payeeCode", payeeCode)
+                .append("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)))
+                .append("terminalUuid", terminalUuidIn(terminalUuids));
 
         return transactionRepository
-                .find(query, sortStrategy, payeeCode, roundCeilObjectIdhex(startDate), roundCeilObjectIdhex(endDate), terminalUuids)
+                .find(query, toSortDocument(sortStrategy))
                 .page(pageIndex, pageSize)
                 .list();
     }
@@ -81,7 +196,7 @@ public class TransactionService {
     public Uni<Long> getTransactionCountByTerminals(List<String> terminalUuids) {
         Log.debugf("TransactionService -> getTransactionCountByAttribute - Input parameters: %s", terminalUuids);
 
-        return transactionRepository.count("terminalUuid in ?1", terminalUuids);
+        return transactionRepository.count(new Document("terminalUuid", terminalUuidIn(terminalUuids)));
     }
 
     /**
@@ -95,14 +210,178 @@ public class TransactionService {
     public Uni<List<TransactionEntity>> getTransactionListPagedByTerminals(List<String> terminalUuids, Date startDate, Date endDate, Sort sortStrategy, int pageIndex, int pageSize) {
         Log.debugf("TransactionService -> getTransactionListPagedByTerminals - Input parameters: %s, %s, %s, %s, %s, %s", terminalUuids, startDate, endDate, sortStrategy, pageIndex, pageSize);
 
-        String query = "{ '_id': { '$gte': ?2, '$lte': ?3 }, 'terminalUuid': { '$in': [?1] } }";
+        Document query = new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)))
+                .append("terminalUuid", terminalUuidIn(terminalUuids));
 
         return transactionRepository
-                .find(query, sortStrategy, terminalUuids, roundCeilObjectIdhex(startDate), roundCeilObjectIdhex(endDate))
+                .find(query, toSortDocument(sortStrategy))
                 .page(pageIndex, pageSize)
                 .list();
     }
 
+    /**
+     * Returns a page of the transactions of the terminals of every solution of a PSP, together with the number of
+     * solutions, terminals and transactions found. Solutions, terminals and transactions are joined server-side by a
+     * single aggregation on the solutions, so neither the solutionIds nor the terminalUuids leave the database.
+     *
+     * @param pspId        ID of the POS service provider
+     * @param startDate    lower bound of the creation date of the transactions
+     * @param endDate      upper bound of the creation date of the transactions
+     * @param sortStrategy sort of the transactions
+     * @param withTotal    how the number of transactions has to be computed
+     * @param after        id of the last transaction of the previous page, null to select the page by pageIndex
+     * @param pageIndex    0-based page index, ignored when after is given
+     * @param pageSize     page size
+     * @return counts and page of transactions found
+     */
+    public Uni<TransactionSearchResult> findTransactionPageByPsp(String pspId, Date startDate, Date endDate, Sort sortStrategy, TotalMode withTotal, ObjectId after, int pageIndex, int pageSize) {
+        Log.debugf("TransactionService -> findTransactionPageByPsp - Input parameters: %s, %s, %s, %s, %s, %s, %s, %s", pspId, startDate, endDate, sortStrategy, withTotal, after, pageIndex, pageSize);
+
+        Document transactionFilter = new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate))
+                .append("$lte", roundCeilObjectIdhex(endDate)));
+
+        return findTransactionPageBySolutions(new Document("pspId", pspId), transactionFilter, sortStrategy, withTotal, after, pageIndex, pageSize);
+    }
+
+    /**
+     * Returns a page of the transactions of a payee made on the terminals of every solution of a location, together
+     * with the number of solutions, terminals and transactions found. The total is counted on the same filtered
+     * transactions of the page, in the same aggregation.
+     *
+     * @param locationCode code of the location of the solutions
+     * @param payeeCode    CF of the subject that receives the payment
+     * @param startDate    lower bound of the creation date of the transactions
+     * @param endDate      upper bound of the creation date of the transactions
+     * @param sortStrategy sort of the transactions
+     * @param withTotal    how the number of transactions has to be computed
+     * @param after        id of the last transaction of the previous page, null to select the page by pageIndex
+     * @param pageIndex    0-based page index, ignored when after is given
+     * @param pageSize     page size
+     * @return counts and page of transactions found
+     */
+    public Uni<TransactionSearchResult> findTransactionPageByPayee(String locationCode, String payeeCode, Date startDate, Date endDate, Sort sortStrategy, TotalMode withTotal, ObjectId after, int pageIndex, int pageSize) {
+        Log.debugf("TransactionService -> findTransactionPageByPayee - Input parameters: %s, %s, %s, %s, %s, %s, %s, %s, %s", locationCode, payeeCode, startDate, endDate, sortStrategy, withTotal, after, pageIndex, pageSize);
+
+        Document transactionFilter = new Document("payeeCode", payeeCode)
+                .append("_id", new Document("$gte", roundCeilObjectIdhex(startDate))
+                        .append("$lte", roundCeilObjectIdhex(endDate)));
+
+        return findTransactionPageBySolutions(new Document("locationCode", locationCode), transactionFilter, sortStrategy, withTotal, after, pageIndex, pageSize);
+    }
+
+    /*
+     * The page is a k-way merge of the terminals, in the same aggregation: the $lookup of each terminal reads through
+     * the terminalUuid_1__id_1 index (payeeCode_1_terminalUuid_1__id_1 for a payee) only the first transactions that
+     * can end up in the page, and the page is then sorted and cut out of them. Paging by after, that is at most size+1
+     * transactions past the keyset bound on _id, so every page costs the same regardless of its depth. Paging by
+     * index, no transaction before the page can be skipped inside a $lookup, so each terminal reads skip+size+1
+     * transactions and deep pages cost more: the cursor is meant for them. The total is a further facet branch, left
+     * out when not requested; when estimated it stops one past the configured limit, and the total is left out when
+     * the limit is exceeded. Every read uses the listing read preference.
+     */
+    private Uni<TransactionSearchResult> findTransactionPageBySolutions(Document solutionFilter, Document transactionFilter, Sort sortStrategy, TotalMode withTotal, ObjectId after, int pageIndex, int pageSize) {
+        Document sort = toSortDocument(sortStrategy);
+
+        List<Document> totalLookupStages = new ArrayList<>(List.of(
+                new Document("$match", transactionFilter),
+                new Document("$project", new Document("_id", 1))));
+        List<Document> totalStages = new ArrayList<>();
+        if (withTotal == TotalMode.ESTIMATED) {
+            totalLookupStages.add(new Document("$limit", pagingConfig.estimatedCountLimit() + 1));
+            totalStages.add(new Document("$limit", pagingConfig.estimatedCountLimit() + 1));
+        }
+        totalStages.add(new Document("$count", "total"));
+
+        Document facet = new Document()
+                .append("counts", List.of(
+                        new Document("$group", new Document("_id", null)
+                                .append("solutions", new Document("$addToSet", "$solutionId"))
+                                .append("terminals", new Document("$sum", new Document("$cond",
+                                        List.of(new Document("$ifNull", List.of("$terminal.terminalUuid", false)), 1, 0))))),
+                        new Document("$project", new Document("_id", 0)
+                                .append("solutions", new Document("$size", "$solutions"))
+                                .append("terminals", 1))));
+        Document pageFilter = transactionFilter;
+        List<Document> pageStages = new ArrayList<>(List.of(new Document("$sort", sort)));
+        int skip = 0;
+        if (after != null) {
+            Document idFilter = new Document(transactionFilter.get("_id", Document.class))
+                    .append(sort.getInteger("_id", 1) > 0 ? "$gt" : "$lt", after);
+            pageFilter = new Document(transactionFilter).append("_id", idFilter);
+        } else if (pageIndex > 0) {
+            skip = pageIndex * pageSize;
+            pageStages.add(new Document("$skip", skip));
+        }
+        pageStages.add(new Document("$limit", pageSize + 1));
+        facet.append("transactions", transactionsOfTerminals(
+                List.of(new Document("$match", pageFilter),
+                        new Document("$sort", sort),
+                        new Document("$limit", skip + pageSize + 1)),
+                pageStages));
+        if (withTotal != TotalMode.NONE) {
+            facet.append("total", transactionsOfTerminals(totalLookupStages, totalStages));
+        }
+
+        List<Document> pipeline = terminalsOfSolutions(solutionFilter);
+        pipeline.add(new Document("$facet", facet));
+
+        return readRouting.forListings(solutionRepository.mongoCollection())
+                .aggregate(pipeline, Document.class)
+                .collect()
+                .first()
+                .onItem()
+                .transform(result -> toTransactionSearchResult(result, result.getList("transactions", Document.class)
+                        .stream()
+                        .map(TransactionService::toTransactionEntity)
+                        .toList(), pageSize, withTotal));
+    }
+
+    private TransactionSearchResult toTransactionSearchResult(Document result, List<TransactionEntity> transactions, int pageSize, TotalMode withTotal) {
+        List<Document> counts = result.getList("counts", Document.class);
+        List<Document> total = result.getList("total", Document.class);
+        KeysetPage<TransactionEntity> page = KeysetPage.of(transactions, pageSize, transaction -> transaction.id);
+
+        Long totalElements = total == null ? null : total.stream().findFirst().map(count -> count.get("total", Number.class).longValue()).orElse(0L);
+        if (totalElements != null && withTotal == TotalMode.ESTIMATED) {
+            totalElements = TotalMode.withinLimit(totalElements, pagingConfig.estimatedCountLimit());
+        }
+
+        return new TransactionSearchResult(
+                counts.isEmpty() ? 0 : counts.get(0).get("solutions", Number.class).longValue(),
+                counts.isEmpty() ? 0 : counts.get(0).get("terminals", Number.class).longValue(),
+                totalElements,
+                page.items(),
+                page.nextAfter());
+    }
+
+    /**
+     * Streams every transaction of the terminals of every solution of a PSP created in a date range, as the cursor of
+     * the aggregation is read, so that memory does not depend on the number of transactions. The transactions are
+     * grouped by terminal, in no defined order of the terminals, and those of each terminal are in ascending _id
+     * order: each terminal is read through the terminalUuid_1__id_1 index, without a global sort.
+     *
+     * @param pspId     ID of the POS service provider
+     * @param startDate lower bound of the creation date of the transactions
+     * @param endDate   upper bound of the creation date of the transactions
+     * @return transactions found
+     */
+    public Multi<TransactionEntity> exportTransactionsByPsp(String pspId, Date startDate, Date endDate) {
+        Log.debugf("TransactionService -> exportTransactionsByPsp - Input parameters: %s, %s, %s", pspId, startDate, endDate);
+
+        Document transactionFilter = new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate))
+                .append("$lte", roundCeilObjectIdhex(endDate)));
+
+        List<Document> pipeline = terminalsOfSolutions(new Document("pspId", pspId));
+        pipeline.addAll(transactionsOfTerminals(
+                List.of(new Document("$match", transactionFilter),
+                        new Document("$sort", new Document("_id", 1))),
+                List.of()));
+
+        return readRouting.forListings(solutionRepository.mongoCollection())
+                .aggregate(pipeline, Document.class)
+                .map(TransactionService::toTransactionEntity);
+    }
+
     /**
      * Find first transaction equals to transactionId given in input.
      *
@@ -118,7 +397,8 @@ public class TransactionService {
     }
 
     /**
-     * Delete transaction starting from a transactionEntity.
+     * Delete transaction starting from a transactionEntity. The latestTransactions and the rollups are maintained from
+     * the document the delete removed, so a delete repeated concurrently, which removes nothing, leaves them alone.
      *
      * @param transaction transaction to be deleted
      * @return void
@@ -126,15 +406,23 @@ public class TransactionService {
     public Uni<Void> deleteTransaction(TransactionEntity transaction) {
         Log.debugf("TransactionService -> deleteTransaction - Input parameters: %s", transaction);
 
-        return transactionRepository.delete(transaction)
+        return transactionRepository.mongoCollection()
+                .findOneAndDelete(Filters.eq("_id", transaction.id))
                 .onFailure()
                 .transform(error -> error)
                 .onItem()
-                .transform(transactionDeleted -> transactionDeleted);
+                .ifNotNull()
+                .call(deleted -> latestTransactionIndex.refresh(deleted.getTerminalUuid(), deleted.getStatus(), deleted.id))
+                .onItem()
+                .ifNotNull()
+                .call(transactionRollup::remove)
+                .replaceWithVoid();
     }
 
     /**
-     * Update transaction starting from a terminalDto.
+     * Update transaction starting from a terminalDto. The latestTransactions and the rollups are maintained from the
+     * document as the update found it, rather than as it was read before, so that concurrent updates of the same
+     * transaction each move it from the status and amount they actually replaced.
      *
      * @param transactionDto dto of modified terminal
      * @param transactionId  transactionId of old transaction to be modified
@@ -143,18 +431,151 @@ public class TransactionService {
     public Uni<TransactionEntity> updateTransaction(String transactionId, UpdateTransactionDto transactionDto, TransactionEntity oldTransaction) {
         Log.debugf("TransactionService -> updateTransaction - Input parameters: %s, %s, %s", transactionId, transactionDto, oldTransaction);
 
-        oldTransaction.setStatus(transactionDto.status());
-        oldTransaction.setAmount(transactionDto.amount());
+        Date updatedAt = new Date();
 
-        return transactionRepository.update(oldTransaction)
+        return transactionRepository.mongoCollection()
+                .findOneAndUpdate(Filters.eq("_id", oldTransaction.id),
+                        Updates.combine(Updates.set("status", transactionDto.status()),
+                                Updates.set("amount", transactionDto.amount()),
+                                Updates.set("lastUpdateTimestamp", updatedAt)),
+                        new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE))
                 .onFailure()
                 .transform(error -> error)
                 .onItem()
-                .transform(transactionUpdated -> transactionUpdated);
+                .transformToUni(before -> {
+                    if (before == null) {
+                        // deleted in the meantime: nothing was written, so there is nothing to maintain
+                        oldTransaction.setStatus(transactionDto.status());
+                        oldTransaction.setAmount(transactionDto.amount());
+                        oldTransaction.setLastUpdateTimestamp(updatedAt);
+
+                        return Uni.createFrom().item(oldTransaction);
+                    }
+
+                    TransactionEntity transactionUpdated = copyOf(before);
+                    transactionUpdated.setStatus(transactionDto.status());
+                    transactionUpdated.setAmount(transactionDto.amount());
+                    transactionUpdated.setLastUpdateTimestamp(updatedAt);
+
+                    return latestTransactionIndex.record(transactionUpdated)
+                            .chain(() -> Objects.equals(before.getStatus(), transactionUpdated.getStatus())
+                                    ? Uni.createFrom().voidItem()
+                                    : latestTransactionIndex.refresh(before.getTerminalUuid(), before.getStatus(), before.id))
+                            .chain(() -> transactionRollup.replace(before, transactionUpdated))
+                            .replaceWith(transactionUpdated);
+                });
+    }
+
+    /**
+     * Updates status and amount of many transactions of the solutions of a location. The transactions are read and
+     * authorized by a single aggregation joining them with their terminals and solutions, and are updated by a single
+     * unordered bulk write, each write conditioned on the status and amount read; the latestTransactions and the
+     * rollups are then maintained in bulk as well, from the status and amount each write actually replaced. Each item
+     * gets its own outcome: 404 if the transaction does not exist or belongs to another location, 400 if it repeats an
+     * earlier item, 500 if its write failed, 204 otherwise.
+     *
+     * @param locationCode code of the location of the solutions
+     * @param items        updates to be applied
+     * @return outcomes of the items, in the same order
+     */
+    public Uni<List<TransactionBatchResult>> updateTransactions(String locationCode, List<UpdateTransactionBatchItemDto> items) {
+        Log.debugf("TransactionService -> updateTransactions - Input parameters: %s, %d items", locationCode, items.size());
+
+        List<ObjectId> transactionIds = items.stream()
+                .map(item -> new ObjectId(item.transactionId()))
+                .distinct()
+                .toList();
+
+        return findTransactionsOfLocation(locationCode, transactionIds)
+                .onItem()
+                .transformToUni(transactions -> {
+                    TransactionBatchResult[] results = new TransactionBatchResult[items.size()];
+                    Set<String> seen = new HashSet<>();
+                    List<Integer> updated = new ArrayList<>();
+                    List<TransactionEntity> before = new ArrayList<>();
+                    List<TransactionEntity> after = new ArrayList<>();
+
+                    for (int i = 0; i < items.size(); i++) {
+                        UpdateTransactionBatchItemDto item = items.get(i);
+                        TransactionEntity transaction = transactions.get(new ObjectId(item.transactionId()));
+                        if (!seen.add(item.transactionId())) {
+                            results[i] = TransactionBatchResult.failure(item.transactionId(), 400, ErrorCodes.ERROR_TRANSACTION_REPEATED_IN_BATCH, ErrorCodes.ERROR_TRANSACTION_REPEATED_IN_BATCH_MSG);
+                        } else if (transaction == null) {
+                            results[i] = TransactionBatchResult.failure(item.transactionId(), 404, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG);
+                        } else {
+                            TransactionEntity transactionUpdated = copyOf(transaction);
+                            transactionUpdated.setStatus(item.status());
+                            transactionUpdated.setAmount(item.amount());
+                            updated.add(i);
+                            before.add(transaction);
+                            after.add(transactionUpdated);
+                        }
+                    }
+
+                    if (updated.isEmpty()) {
+                        return Uni.createFrom().item(List.of(results));
+                    }
+
+                    Date updatedAt = new Date();
+                    after.forEach(transaction -> transaction.setLastUpdateTimestamp(updatedAt));
+
+                    return applyUpdates(before, after)
+                            .onItem()
+                            .transformToUni(outcome -> {
+                                List<Integer> written = new ArrayList<>();
+                                for (int j = 0; j < updated.size(); j++) {
+                                    if (outcome.failed().test(j)) {
+                                        results[updated.get(j)] = TransactionBatchResult.failure(items.get(updated.get(j)).transactionId(), 500, ErrorCodes.ERROR_GENERIC_FROM_DB, ErrorCodes.ERROR_GENERIC_FROM_DB_MSG);
+                                    } else {
+                                        written.add(j);
+                                    }
+                                }
+
+                                return findUnmatched(after, written, outcome.matched())
+                                        .onItem()
+                                        .transformToUni(unmatched -> updateFromCurrent(after, unmatched)
+                                                .onItem()
+                                                .transformToUni(current -> {
+                                                    List<TransactionEntity> beforeApplied = new ArrayList<>();
+                                                    List<TransactionEntity> afterApplied = new ArrayList<>();
+                                                    for (int j : written) {
+                                                        String transactionId = items.get(updated.get(j)).transactionId();
+                                                        TransactionEntity replaced = unmatched.contains(j) ? current.get(j) : before.get(j);
+                                                        if (replaced == null) {
+                                                            results[updated.get(j)] = TransactionBatchResult.failure(transactionId, 404, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG);
+                                                        } else {
+                                                            results[updated.get(j)] = TransactionBatchResult.success(transactionId, 204);
+                                                            beforeApplied.add(replaced);
+                                                            afterApplied.add(after.get(j));
+                                                        }
+                                                    }
+
+                                                    return maintainDerivedCollections(beforeApplied, afterApplied)
+                                                            .replaceWith(() -> List.of(results));
+                                                }));
+                            });
+                });
+    }
+
+    /**
+     * Returns the number and the amount of the transactions of a payee for each day in a range, terminal and status,
+     * read from the rollups rather than from the transactions.
+     *
+     * @param payeeCode CF of the subject that receives the payment
+     * @param startDate any instant of the first day
+     * @param endDate   any instant of the last day
+     * @return the rollups found, ordered by day, terminal and status
+     */
+    public Uni<List<TransactionRollupEntity>> getTransactionStatsByPayee(String payeeCode, Date startDate, Date endDate) {
+        Log.debugf("TransactionService -> getTransactionStatsByPayee - Input parameters: %s, %s, %s", payeeCode, startDate, endDate);
+
+        return transactionRollup.findByPayee(payeeCode, startDate, endDate);
     }
 
     /**
-     * Returns a list of transactions corresponding to given terminalUuids, status.
+     * Returns a list of transactions corresponding to given terminalUuids, status. The latest transaction by _id is
+     * found through the latestTransactions entries of the terminals; the transactions are searched when the entries
+     * are not ready or the one found does not match, and any other sort is applied to the transactions.
      *
      * @param terminalUuids list of uuid of terminal associated to pspId of the solution
      * @param status        of the transaction
@@ -163,13 +584,207 @@ public class TransactionService {
     public Uni<TransactionEntity> findLatestByTerminalUuidAndStatus(List<String> terminalUuids, String status, Sort sort) {
         Log.debugf("TransactionService -> getTransactionCountByTerminals - Input parameters: %s, %s, %s", terminalUuids, status, sort);
 
-        return transactionRepository.find("terminalUuid in ?1 and status = ?2", sort, terminalUuids, status)
+        if (!latestTransactionIndex.isReady() || !new Document("_id", -1).equals(toSortDocument(sort))) {
+            return findFirstByTerminalUuidAndStatus(terminalUuids, status, sort);
+        }
+
+        return latestTransactionIndex.findLatest(terminalUuids, status)
+                .onItem()
+                .transformToUni(latest -> {
+                    if (latest == null) {
+                        return findFirstByTerminalUuidAndStatus(terminalUuids, status, sort)
+                                .onItem()
+                                .ifNotNull()
+                                .call(latestTransactionIndex::record);
+                    }
+
+                    return transactionRepository.findById(latest.getTransactionId())
+                            .onItem()
+                            .transformToUni(transaction -> {
+                                if (transaction != null && Objects.equals(status, transaction.getStatus())) {
+                                    return Uni.createFrom().item(transaction);
+                                }
+                                Log.debugf("TransactionService -> findLatestByTerminalUuidAndStatus: stale latest transaction [%s] of [%s, %s]", latest.getTransactionId(), latest.getTerminalUuid(), status);
+
+                                return latestTransactionIndex.refresh(latest.getTerminalUuid(), status, latest.getTransactionId())
+                                        .chain(() -> findFirstByTerminalUuidAndStatus(terminalUuids, status, sort));
+                            });
+                });
+    }
+
+    /*
+     * Reads from the primary, as the other authorization reads: the terminal of each transaction is joined with its
+     * solution, and only the transactions whose solution belongs to the location are returned. The terminal is joined
+     * on both representations of the terminalUuid, so that it is found while the terminalUuids are being migrated.
+     */
+    private Uni<Map<ObjectId, TransactionEntity>> findTransactionsOfLocation(String locationCode, List<ObjectId> transactionIds) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("_id", new Document("$in", transactionIds))),
+                new Document("$addFields", new Document("terminalUuids", TerminalUuidCodec.bothRepresentations("terminalUuid", terminalUuidConfig.binaryStorage()))),
+                new Document("$lookup", new Document("from", TERMINALS_COLLECTION)
+                        .append("localField", "terminalUuids")
+                        .append("foreignField", "terminalUuid")
+                        .append("pipeline", List.of(new Document("$project", new Document("_id", 0).append("solutionId", 1))))
+                        .append("as", "terminal")),
+                new Document("$addFields", new Document("solutionId", new Document("$convert", new Document("input", new Document("$arrayElemAt", List.of("$terminal.solutionId", 0)))
+                        .append("to", "objectId")
+                        .append("onError", null)
+                        .append("onNull", null)))),
+                new Document("$lookup", new Document("from", SOLUTIONS_COLLECTION)
+                        .append("localField", "solutionId")
+                        .append("foreignField", "_id")
+                        .append("pipeline", List.of(new Document("$project", new Document("_id", 0).append("locationCode", 1))))
+                        .append("as", "solution")),
+                new Document("$match", new Document("solution.locationCode", locationCode)),
+                new Document("$project", new Document("terminalUuids", 0)
+                        .append("terminal", 0)
+                        .append("solutionId", 0)
+                        .append("solution", 0)));
+
+        return transactionRepository.mongoCollection()
+                .aggregate(pipeline, Document.class)
+                .map(TransactionService::toTransactionEntity)
+                .collect()
+                .asMap(transaction -> transaction.id);
+    }
+
+    /*
+     * Each write is conditioned on the status and amount read, so that a transaction changed in the meantime is not
+     * moved in the rollups from values it no longer had, and sets lastUpdateTimestamp to the time of the batch, which
+     * tells the writes that matched when some did not.
+     */
+    private Uni<BulkUpdateOutcome> applyUpdates(List<TransactionEntity> before, List<TransactionEntity> after) {
+        List<UpdateOneModel<TransactionEntity>> updates = new ArrayList<>();
+        for (int i = 0; i < after.size(); i++) {
+            updates.add(new UpdateOneModel<>(
+                    Filters.and(Filters.eq("_id", after.get(i).id), Filters.eq("status", before.get(i).getStatus()), Filters.eq("amount", before.get(i).getAmount())),
+                    Updates.combine(Updates.set("status", after.get(i).getStatus()),
+                            Updates.set("amount", after.get(i).getAmount()),
+                            Updates.set("lastUpdateTimestamp", after.get(i).getLastUpdateTimestamp()))));
+        }
+
+        return transactionRepository.mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .onItem()
+                .transform(result -> new BulkUpdateOutcome(index -> false, result.getMatchedCount()))
+                .onFailure()
+                .recoverWithItem(failure -> {
+                    Log.errorf(failure, "TransactionService -> applyUpdates: error updating batch of %d transactions", after.size());
+
+                    return failedUpdates(failure);
+                });
+    }
+
+    /*
+     * A failure other than the write errors of single writes leaves unknown which writes were applied, so all of them
+     * are reported as failed.
+     */
+    private static IntPredicate failedWrites(Throwable failure) {
+        if (failure instanceof MongoBulkWriteException bulkWriteException) {
+            Set<Integer> writeErrors = bulkWriteException.getWriteErrors()
+                    .stream()
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+
+            return writeErrors::contains;
+        }
+
+        return index -> true;
+    }
+
+    private static BulkUpdateOutcome failedUpdates(Throwable failure) {
+        long matched = failure instanceof MongoBulkWriteException bulkWriteException && bulkWriteException.getWriteResult() != null
+                ? bulkWriteException.getWriteResult().getMatchedCount()
+                : 0;
+
+        return new BulkUpdateOutcome(failedWrites(failure), matched);
+    }
+
+    /*
+     * The bulk write only reports how many writes matched: when fewer than the writes without errors, the transactions
+     * are read back, and those not carrying the values and the lastUpdateTimestamp of the batch were not matched. A
+     * transaction matched and then changed again before being read back is taken as not matched as well.
+     */
+    private Uni<Set<Integer>> findUnmatched(List<TransactionEntity> after, List<Integer> written, long matched) {
+        if (matched >= written.size()) {
+            return Uni.createFrom().item(Set.of());
+        }
+
+        return transactionRepository.mongoCollection()
+                .find(Filters.in("_id", written.stream().map(j -> after.get(j).id).toList()))
+                .collect()
+                .asMap(transaction -> transaction.id)
+                .onItem()
+                .transform(current -> written.stream()
+                        .filter(j -> {
+                            TransactionEntity transaction = current.get(after.get(j).id);
+
+                            return transaction == null
+                                    || !Objects.equals(transaction.getLastUpdateTimestamp(), after.get(j).getLastUpdateTimestamp())
+                                    || !Objects.equals(transaction.getStatus(), after.get(j).getStatus())
+                                    || !Objects.equals(transaction.getAmount(), after.get(j).getAmount());
+                        })
+                        .collect(Collectors.toSet()));
+    }
+
+    /*
+     * Applies the writes that were not matched one at a time, taking from each write the status and amount it
+     * replaced, as updateTransaction does. A transaction deleted in the meantime has no entry in the result.
+     */
+    private Uni<Map<Integer, TransactionEntity>> updateFromCurrent(List<TransactionEntity> after, Set<Integer> unmatched) {
+        if (unmatched.isEmpty()) {
+            return Uni.createFrom().item(Map.of());
+        }
+
+        return Multi.createFrom().iterable(unmatched)
+                .onItem()
+                .transformToUni(j -> transactionRepository.mongoCollection()
+                        .findOneAndUpdate(Filters.eq("_id", after.get(j).id),
+                                Updates.combine(Updates.set("status", after.get(j).getStatus()),
+                                        Updates.set("amount", after.get(j).getAmount()),
+                                        Updates.set("lastUpdateTimestamp", after.get(j).getLastUpdateTimestamp())),
+                                new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE))
+                        .onItem()
+                        .ifNotNull()
+                        .transform(replaced -> Map.entry(j, replaced)))
+                .merge(REFRESH_CONCURRENCY)
+                .collect()
+                .asMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /*
+     * The refresh of the latestTransactions left behind by a status change reads the transactions of the terminal, so
+     * it is issued per transaction, with bounded concurrency.
+     */
+    private Uni<Void> maintainDerivedCollections(List<TransactionEntity> before, List<TransactionEntity> after) {
+        List<TransactionEntity> statusChanged = new ArrayList<>();
+        for (int i = 0; i < before.size(); i++) {
+            if (!Objects.equals(before.get(i).getStatus(), after.get(i).getStatus())) {
+                statusChanged.add(before.get(i));
+            }
+        }
+
+        return latestTransactionIndex.recordAll(after)
+                .chain(() -> Multi.createFrom().iterable(statusChanged)
+                        .onItem()
+                        .transformToUni(transaction -> latestTransactionIndex.refresh(transaction.getTerminalUuid(), transaction.getStatus(), transaction.id))
+                        .merge(REFRESH_CONCURRENCY)
+                        .collect()
+                        .last())
+                .chain(() -> transactionRollup.replaceAll(before, after));
+    }
+
+    private Uni<TransactionEntity> findFirstByTerminalUuidAndStatus(List<String> terminalUuids, String status, Sort sort) {
+        Document query = new Document("terminalUuid", terminalUuidIn(terminalUuids))
+                .append("status", status);
+
+        return transactionRepository.find(query, toSortDocument(sort))
                 .firstResult();
     }
 
     private TransactionEntity createTransactionEntity(TransactionDto transactionDto) {
         TransactionEntity transactionEntity = new TransactionEntity();
-        transactionEntity.setTerminalUuid(transactionDto.terminalUuid());
+        transactionEntity.setTerminalUuid(TerminalUuid.of(transactionDto.terminalUuid()));
         transactionEntity.setNoticeNumber(transactionDto.noticeNumber());
         transactionEntity.setPayeeCode(transactionDto.payeeCode());
         transactionEntity.setCreationTimestamp(new Date());
@@ -178,4 +793,97 @@ public class TransactionService {
 
         return transactionEntity;
     }
+
+    /*
+     * Selects the solutions and joins them with their terminals, one document per terminal. The solutions without
+     * terminals are kept with no terminal, so that they are still counted. Each terminal carries its terminalUuid in
+     * both representations too, for transactionsOfTerminals to join the transactions however they store it.
+     */
+    private List<Document> terminalsOfSolutions(Document solutionFilter) {
+        return new ArrayList<>(List.of(
+                new Document("$match", solutionFilter),
+                new Document("$project", new Document("_id", 0)
+                        .append("solutionId", new Document("$toString", "$_id"))),
+                new Document("$lookup", new Document("from", TERMINALS_COLLECTION)
+                        .append("localField", "solutionId")
+                        .append("foreignField", "solutionId")
+                        .append("pipeline", List.of(new Document("$project", new Document("_id", 0)
+                                .append("terminalUuid", 1)
+                                .append("terminalUuids", TerminalUuidCodec.bothRepresentations("terminalUuid", terminalUuidConfig.binaryStorage())))))
+                        .append("as", "terminal")),
+                new Document("$unwind", new Document("path", "$terminal")
+                        .append("preserveNullAndEmptyArrays", true))));
+    }
+
+    /*
+     * Joins the terminals flowing in the pipeline with their transactions, selected by the lookup stages, and replaces
+     * them with the transactions. The $lookup is directly followed by the $unwind of its result, so the server never
+     * materializes the array of the transactions of a terminal.
+     */
+    private static List<Document> transactionsOfTerminals(List<Document> lookupStages, List<Document> stages) {
+        List<Document> pipeline = new ArrayList<>(List.of(
+                new Document("$match", new Document("terminal.terminalUuid", new Document("$exists", true))),
+                new Document("$lookup", new Document("from", TRANSACTIONS_COLLECTION)
+                        .append("localField", "terminal.terminalUuids")
+                        .append("foreignField", "terminalUuid")
+                        .append("pipeline", lookupStages)
+                        .append("as", "transaction")),
+                new Document("$unwind", "$transaction"),
+                new Document("$replaceRoot", new Document("newRoot", "$transaction"))));
+        pipeline.addAll(stages);
+
+        return pipeline;
+    }
+
+    /*
+     * Matches the terminalUuids both as strings and as binaries, however each transaction stores them.
+     */
+    private static Document terminalUuidIn(List<String> terminalUuids) {
+        return TerminalUuidCodec.in(terminalUuids.stream()
+                .map(TerminalUuid::of)
+                .toList());
+    }
+
+    private static Document toSortDocument(Sort sortStrategy) {
+        Document sort = new Document();
+        sortStrategy.getColumns()
+                .forEach(column -> sort.append(column.getName(), column.getDirection() == Sort.Direction.Ascending ? 1 : -1));
+
+        return sort;
+    }
+
+    private static TransactionEntity copyOf(TransactionEntity transaction) {
+        TransactionEntity copy = new TransactionEntity();
+        copy.id = transaction.id;
+        copy.setTerminalUuid(transaction.getTerminalUuid());
+        copy.setNoticeNumber(transaction.getNoticeNumber());
+        copy.setPayeeCode(transaction.getPayeeCode());
+        copy.setCreationTimestamp(transaction.getCreationTimestamp());
+        copy.setLastUpdateTimestamp(transaction.getLastUpdateTimestamp());
+        copy.setStatus(transaction.getStatus());
+        copy.setAmount(transaction.getAmount());
+
+        return copy;
+    }
+
+    private static TransactionEntity toTransactionEntity(Document document) {
+        TransactionEntity transactionEntity = new TransactionEntity();
+        transactionEntity.id = document.getObjectId("_id");
+        transactionEntity.setTerminalUuid(TerminalUuidCodec.fromDocumentValue(document.get("terminalUuid")));
+        transactionEntity.setNoticeNumber(document.getString("noticeNumber"));
+        transactionEntity.setPayeeCode(document.getString("payeeCode"));
+        transactionEntity.setCreationTimestamp(document.getDate("creationTimestamp"));
+        transactionEntity.setLastUpdateTimestamp(document.getDate("lastUpdateTimestamp"));
+        transactionEntity.setStatus(document.getString("status"));
+        Number amount = document.get("amount", Number.class);
+        transactionEntity.setAmount(amount == null ? null : amount.longValue());
+
+        return transactionEntity;
+    }
+
+    /*
+     * Outcome of the bulk write of a batch: the writes that failed, by index, and how many writes matched.
+     */
+    private record BulkUpdateOutcome(IntPredicate failed, long matched) {
+    }
 }
@@ -0,0 +1,147 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import io.quarkus.logging.Log;
+import io.smallrye.mutiny.Uni;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Map of values loaded from the database, each kept until the TTL expires or until it is evicted. When the number of
+ * entries reaches the limit, the whole map is cleared rather than tracking the usage of each entry.
+ *
+ * @param <T> type of the values
+ */
+final class TtlCache<T> {
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on every eviction, so that a load started before a change does not cache what it read.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final boolean enabled;
+
+    private final Duration ttl;
+
+    private final int maxEntries;
+
+    TtlCache(boolean enabled, Duration ttl, int maxEntries) {
+        this.enabled = enabled;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the value of a key, loading it if not cached. Null values are not cached.
+     *
+     * @param key    key of the value
+     * @param loader reads the value from the database
+     * @return the value
+     */
+    Uni<T> get(String key, Supplier<Uni<T>> loader) {
+        if (!enabled || key == null) {
+            return loader.get();
+        }
+
+        long now = System.nanoTime();
+        T value = getIfPresent(key, now);
+        if (value != null) {
+            return Uni.createFrom().item(value);
+        }
+
+        long loadGeneration = generation.get();
+
+        return loader.get()
+                .onItem()
+                .invoke(loaded -> put(key, loaded, now, loadGeneration));
+    }
+
+    /**
+     * Returns the values of many keys, loading together the ones not cached. Keys without a loaded value are left out
+     * of the result.
+     *
+     * @param keys   keys of the values
+     * @param loader reads from the database the values of the keys not cached
+     * @return the values by key
+     */
+    Uni<Map<String, T>> getAll(List<String> keys, Function<List<String>, Uni<Map<String, T>>> loader) {
+        if (!enabled) {
+            return loader.apply(keys);
+        }
+
+        long now = System.nanoTime();
+        Map<String, T> values = new HashMap<>();
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : keys) {
+            T value = getIfPresent(key, now);
+            if (value != null) {
+                values.put(key, value);
+            } else {
+                missingKeys.add(key);
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return Uni.createFrom().item(values);
+        }
+
+        long loadGeneration = generation.get();
+
+        return loader.apply(missingKeys)
+                .onItem()
+                .transform(loaded -> {
+                    loaded.forEach((key, value) -> put(key, value, now, loadGeneration));
+                    values.putAll(loaded);
+
+                    return values;
+                });
+    }
+
+    /**
+     * Evicts the value of a key.
+     *
+     * @param key key of the value
+     */
+    void evict(String key) {
+        generation.incrementAndGet();
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Evicts every value.
+     */
+    void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    private T getIfPresent(String key, long now) {
+        Entry<T> entry = entries.get(key);
+
+        return entry != null && now - entry.expiresAt() < 0 ? entry.value() : null;
+    }
+
+    private void put(String key, T value, long loadedAt, long loadGeneration) {
+        if (value == null || generation.get() != loadGeneration) {
+            return;
+        }
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            Log.debugf("TtlCache -> put: %d entries cached, evicting all of them", entries.size());
+            entries.clear();
+        }
+        entries.put(key, new Entry<>(value, loadedAt + ttl.toNanos()));
+    }
+
+    private record Entry<T>(T value, long expiresAt) {
+    }
+}
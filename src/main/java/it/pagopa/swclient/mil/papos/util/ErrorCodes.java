@@ -33,6 +33,9 @@ public final class ErrorCodes {
     public static final String ERROR_SOLUTIONID_MUST_NOT_BE_NULL                                 = MODULE_ID + "000019";
     public static final String ERROR_LOCATIONCODE_MUST_NOT_BE_NULL                               = MODULE_ID + "000020";
     public static final String ERROR_TERMINALUUID_MUST_NOT_BE_NULL                               = MODULE_ID + "000021";
+    public static final String ERROR_TRANSACTIONID_MUST_NOT_BE_NULL                              = MODULE_ID + "000022";
+    public static final String ERROR_BATCH_SIZE_NOT_VALID                                        = MODULE_ID + "000023";
+    public static final String ERROR_PAGE_SIZE_NOT_VALID                                         = MODULE_ID + "000024";
 
     /*
      * Service errors code from 000200 to 000500
@@ -53,6 +56,10 @@ public final class ErrorCodes {
     public static final String ERROR_COUNTING_SOLUTIONS                                          = MODULE_ID + "000213";
     public static final String ERROR_NO_SOLUTIONS_FOUND                                          = MODULE_ID + "000214";
     public static final String ERROR_NO_TERMINALS_FOUND                                          = MODULE_ID + "000215";
+    public static final String ERROR_INVALID_TERMINAL                                            = MODULE_ID + "000216";
+    public static final String ERROR_BULKLOAD_INTERRUPTED                                        = MODULE_ID + "000217";
+    public static final String ERROR_TERMINAL_ALREADY_EXISTS                                     = MODULE_ID + "000218";
+    public static final String ERROR_TRANSACTION_REPEATED_IN_BATCH                               = MODULE_ID + "000219";
 
     /*
      * Error descriptions
@@ -78,6 +85,9 @@ public final class ErrorCodes {
     private static final String ERROR_SOLUTIONID_MUST_NOT_BE_NULL_DESCR = "solutionId must not be null";
     private static final String ERROR_LOCATIONCODE_MUST_NOT_BE_NULL_DESCR = "locationCode must not be null";
     private static final String ERROR_TERMINALUUID_MUST_NOT_BE_NULL_DESCR  = "terminalUuId must not be null";
+    private static final String ERROR_TRANSACTIONID_MUST_NOT_BE_NULL_DESCR = "transactionId must not be null";
+    private static final String ERROR_BATCH_SIZE_NOT_VALID_DESCR = "transactions must contain from 1 to 1000 items";
+    private static final String ERROR_PAGE_SIZE_NOT_VALID_DESCR = "size must be at least 1";
 
     private static final String ERROR_GENERIC_FROM_DB_DESCR = "unexpected error from db";
     private static final String ERROR_COUNTING_TERMINALS_DESCR = "error occurred while counting terminals";
@@ -96,6 +106,10 @@ public final class ErrorCodes {
     private static final String ERROR_NO_SOLUTIONS_FOUND_DESCR = "no solutions found with given pspId and solutionIds";
     private static final String ERROR_NO_SOLUTIONS_FOUND_PAYEE_DESCR = "no solutions found with given payeeCode";
     private static final String ERROR_NO_TERMINALS_FOUND_DESCR = "no terminals found with given pspId";
+    private static final String ERROR_INVALID_TERMINAL_DESCR = "invalid terminal in bulk load file";
+    private static final String ERROR_BULKLOAD_INTERRUPTED_DESCR = "bulk load interrupted by a service restart";
+    private static final String ERROR_TERMINAL_ALREADY_EXISTS_DESCR = "terminal already exists for the solution";
+    private static final String ERROR_TRANSACTION_REPEATED_IN_BATCH_DESCR = "transaction repeated in the batch";
 
     /*
      * Error complete message
@@ -121,6 +135,9 @@ public final class ErrorCodes {
     public static final String ERROR_SOLUTIONID_MUST_NOT_BE_NULL_MSG = "[" + ERROR_SOLUTIONID_MUST_NOT_BE_NULL + "] " + ERROR_SOLUTIONID_MUST_NOT_BE_NULL_DESCR;
     public static final String ERROR_LOCATIONCODE_MUST_NOT_BE_NULL_MSG = "[" + ERROR_LOCATIONCODE_MUST_NOT_BE_NULL + "] " + ERROR_LOCATIONCODE_MUST_NOT_BE_NULL_DESCR;
     public static final String ERROR_TERMINALUUID_MUST_NOT_BE_NULL_MSG = "[" + ERROR_TERMINALUUID_MUST_NOT_BE_NULL + "] " + ERROR_TERMINALUUID_MUST_NOT_BE_NULL_DESCR;
+    public static final String ERROR_TRANSACTIONID_MUST_NOT_BE_NULL_MSG = "[" + ERROR_TRANSACTIONID_MUST_NOT_BE_NULL + "] " + ERROR_TRANSACTIONID_MUST_NOT_BE_NULL_DESCR;
+    public static final String ERROR_BATCH_SIZE_NOT_VALID_MSG = "[" + ERROR_BATCH_SIZE_NOT_VALID + "] " + ERROR_BATCH_SIZE_NOT_VALID_DESCR;
+    public static final String ERROR_PAGE_SIZE_NOT_VALID_MSG = "[" + ERROR_PAGE_SIZE_NOT_VALID + "] " + ERROR_PAGE_SIZE_NOT_VALID_DESCR;
 
     public static final String ERROR_GENERIC_FROM_DB_MSG = "[" + ERROR_GENERIC_FROM_DB + "] " + ERROR_GENERIC_FROM_DB_DESCR;
     public static final String ERROR_COUNTING_TERMINALS_MSG = "[" + ERROR_COUNTING_TERMINALS + "] " + ERROR_COUNTING_TERMINALS_DESCR;
@@ -139,5 +156,9 @@ public final class ErrorCodes {
     public static final String ERROR_NO_SOLUTIONS_FOUND_MSG = "[" + ERROR_NO_SOLUTIONS_FOUND + "] " + ERROR_NO_SOLUTIONS_FOUND_DESCR;
     public static final String ERROR_NO_SOLUTIONS_FOUND_PAYEE_MSG = "[" + ERROR_NO_SOLUTIONS_FOUND + "] " + ERROR_NO_SOLUTIONS_FOUND_PAYEE_DESCR;
     public static final String ERROR_NO_TERMINALS_FOUND_MSG = "[" + ERROR_NO_TERMINALS_FOUND + "] " + ERROR_NO_TERMINALS_FOUND_DESCR;
+    public static final String ERROR_INVALID_TERMINAL_MSG = "[" + ERROR_INVALID_TERMINAL + "] " + ERROR_INVALID_TERMINAL_DESCR;
+    public static final String ERROR_BULKLOAD_INTERRUPTED_MSG = "[" + ERROR_BULKLOAD_INTERRUPTED + "] " + ERROR_BULKLOAD_INTERRUPTED_DESCR;
+    public static final String ERROR_TERMINAL_ALREADY_EXISTS_MSG = "[" + ERROR_TERMINAL_ALREADY_EXISTS + "] " + ERROR_TERMINAL_ALREADY_EXISTS_DESCR;
+    public static final String ERROR_TRANSACTION_REPEATED_IN_BATCH_MSG = "[" + ERROR_TRANSACTION_REPEATED_IN_BATCH + "] " + ERROR_TRANSACTION_REPEATED_IN_BATCH_DESCR;
 
 }
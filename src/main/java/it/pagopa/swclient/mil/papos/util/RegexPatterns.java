@@ -9,6 +9,8 @@ public class RegexPatterns {
     public static final String SORT_STRATEGY_PATTERN = "asc|desc";
     public static final String TRANSACTION_STATUS_PATTERN = "CLOSED_OK|ERROR_ON_PAYMENT|ABORT|CREATED";
     public static final String MONGO_OBJECT_ID_PATTERN = "^[a-fA-F0-9]{24}$";
+    public static final String CURSOR_PATTERN = "^[A-Za-z0-9_-]{16}$";
+    public static final String WITH_TOTAL_PATTERN = "false|exact|estimated";
 
     private RegexPatterns() {
     }
@@ -0,0 +1,135 @@
+package it.pagopa.swclient.mil.papos.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.swclient.mil.papos.model.TerminalDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of terminals one element at a time, so that the content of a bulk load file is never
+ * materialized on heap as a whole.
+ */
+public class TerminalJsonStreamReader implements Iterator<TerminalDto>, Closeable {
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final boolean empty;
+    private final JsonStreamContext arrayContext;
+    private JsonToken currentToken;
+
+    /**
+     * Opens the stream and checks that it starts with a JSON array.
+     *
+     * @param objectMapper mapper used to bind each element to a {@link TerminalDto}
+     * @param inputStream  stream containing the JSON array of terminals
+     * @throws IOException if the stream cannot be read or does not contain a JSON array
+     */
+    public TerminalJsonStreamReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(inputStream);
+
+        try {
+            JsonToken firstToken = parser.nextToken();
+            this.empty = firstToken == null;
+
+            if (!empty && firstToken != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "expected a JSON array of terminals, found " + firstToken);
+            }
+            this.arrayContext = parser.getParsingContext();
+        } catch (IOException e) {
+            parser.close();
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the stream does not contain any JSON content
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (empty) {
+            return false;
+        }
+
+        try {
+            if (currentToken == null) {
+                currentToken = parser.nextToken();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (currentToken == JsonToken.START_OBJECT) {
+            return true;
+        }
+
+        if (currentToken == JsonToken.END_ARRAY) {
+            return false;
+        }
+
+        throw new UncheckedIOException(new JsonParseException(parser, "expected a terminal object, found " + currentToken));
+    }
+
+    /**
+     * Binds the next terminal. When the element cannot be bound, as for a field of the wrong type, the
+     * {@link com.fasterxml.jackson.databind.JsonMappingException} is thrown as the cause of an
+     * {@link UncheckedIOException} and the reader is left inside the element: {@link #skip()} moves past it, so that
+     * the following terminals can still be read.
+     *
+     * @return the next terminal
+     */
+    @Override
+    public TerminalDto next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            TerminalDto terminal = objectMapper.readValue(parser, TerminalDto.class);
+            currentToken = null;
+
+            return terminal;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Skips the next terminal without binding it, used to move past the rows already committed by a resumed bulk load,
+     * or the rest of the terminal whose binding failed.
+     */
+    public void skip() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        try {
+            while (parser.getParsingContext() != arrayContext) {
+                if (parser.nextToken() == null) {
+                    throw new JsonParseException(parser, "unexpected end of the JSON array of terminals");
+                }
+            }
+            currentToken = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
@@ -2,11 +2,13 @@ package it.pagopa.swclient.mil.papos.util;
 
 import org.bson.types.ObjectId;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Base64;
 import java.util.Date;
 import java.util.UUID;
 
@@ -19,6 +21,19 @@ public class Utility {
         return uuid.toString();
     }
 
+    /**
+     * Generates the terminalUuid of a terminal loaded by a bulk load. The uuid only depends on the bulk load and on
+     * the position of the terminal in the file, so that a resumed bulk load assigns the same uuid to the same row.
+     *
+     * @param bulkLoadingId ID of the bulk load
+     * @param rowIndex      0-based position of the terminal in the bulk load file
+     * @return a name-based uuid
+     */
+    public static String generateBulkLoadTerminalUuid(String bulkLoadingId, long rowIndex) {
+        UUID uuid = UUID.nameUUIDFromBytes((bulkLoadingId + "/" + rowIndex).getBytes(StandardCharsets.UTF_8));
+        return uuid.toString();
+    }
+
     public static Date convertStringToDate(String date, boolean startOfDay) {
         LocalDate localDate = LocalDate.parse(date, DateTimeFormatter.ISO_LOCAL_DATE);
         LocalTime localTime = startOfDay ? LocalTime.of(0, 0, 0) : LocalTime.of(23, 59, 59);
@@ -27,10 +42,67 @@ public class Utility {
         return Date.from(zonedDateTime.toInstant());
     }
 
+    /**
+     * Encodes the id of the last element of a page as the opaque cursor returned to the clients.
+     *
+     * @param id id of the last element of the page, may be null
+     * @return a url-safe cursor, null if the id is null
+     */
+    public static String encodeCursor(ObjectId id) {
+        if (id == null) {
+            return null;
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.toByteArray());
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(ObjectId)}.
+     *
+     * @param cursor opaque cursor received from a client, may be null
+     * @return the id encoded in the cursor, null if the cursor is null
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public static ObjectId decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+
+        return new ObjectId(Base64.getUrlDecoder().decode(cursor));
+    }
+
     public static ObjectId roundCeilObjectIdhex(Date date) {
         ObjectId objectId = new ObjectId(date);
         objectId = new ObjectId(objectId.toHexString().substring(0, 8) + "0000000000000000");
 
         return objectId;
     }
+
+    /**
+     * Formats the values as a CSV line terminated by a line feed. Null values are empty fields, dates are written as
+     * ISO-8601 instants and the fields containing a separator, a quote or a line break are quoted as in RFC 4180.
+     *
+     * @param values values of the fields
+     * @return the CSV line
+     */
+    public static String toCsvLine(Object... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            String field = value instanceof Date date ? date.toInstant().toString() : value.toString();
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                line.append('"').append(field.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(field);
+            }
+        }
+
+        return line.append('\n').toString();
+    }
 }
@@ -0,0 +1,174 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.IndexOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.config.IndexConfig;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+
+class IndexProvisionerTest {
+
+    ReactiveMongoCollection<?> terminals;
+
+    ReactiveMongoCollection<?> transactions;
+
+    ReactiveMongoCollection<?> solutions;
+
+    ReactiveMongoCollection<?> bulkLoadStatuses;
+
+    ReactiveMongoCollection<?> bulkLoadErrors;
+
+    ReactiveMongoCollection<?> latestTransactions;
+
+    ReactiveMongoCollection<?> transactionRollups;
+
+    IndexConfig config;
+
+    IndexProvisioner indexProvisioner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createTestObjects() {
+        TerminalRepository terminalRepository = Mockito.mock(TerminalRepository.class);
+        TransactionRepository transactionRepository = Mockito.mock(TransactionRepository.class);
+        SolutionRepository solutionRepository = Mockito.mock(SolutionRepository.class);
+        BulkLoadStatusRepository bulkLoadStatusRepository = Mockito.mock(BulkLoadStatusRepository.class);
+        BulkLoadErrorRepository bulkLoadErrorRepository = Mockito.mock(BulkLoadErrorRepository.class);
+        LatestTransactionRepository latestTransactionRepository = Mockito.mock(LatestTransactionRepository.class);
+        TransactionRollupRepository transactionRollupRepository = Mockito.mock(TransactionRollupRepository.class);
+
+        terminals = mockCollection("terminals");
+        transactions = mockCollection("transactions");
+        solutions = mockCollection("solutions");
+        bulkLoadStatuses = mockCollection("bulkLoadStatuses");
+        bulkLoadErrors = mockCollection("bulkLoadErrors");
+        latestTransactions = mockCollection("latestTransactions");
+        transactionRollups = mockCollection("transactionRollups");
+
+        Mockito.when(terminalRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<TerminalEntity>) terminals);
+        Mockito.when(transactionRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<TransactionEntity>) transactions);
+        Mockito.when(solutionRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<SolutionEntity>) solutions);
+        Mockito.when(bulkLoadStatusRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<BulkLoadStatusEntity>) bulkLoadStatuses);
+        Mockito.when(bulkLoadErrorRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<BulkLoadErrorEntity>) bulkLoadErrors);
+        Mockito.when(latestTransactionRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<LatestTransactionEntity>) latestTransactions);
+        Mockito.when(transactionRollupRepository.mongoCollection()).thenReturn((ReactiveMongoCollection<TransactionRollupEntity>) transactionRollups);
+
+        config = Mockito.mock(IndexConfig.class);
+        Mockito.when(config.createOnStartup()).thenReturn(true);
+
+        indexProvisioner = new IndexProvisioner(terminalRepository, transactionRepository, solutionRepository,
+                bulkLoadStatusRepository, bulkLoadErrorRepository, latestTransactionRepository, transactionRollupRepository, config);
+    }
+
+    @Test
+    void testProvision_Success() {
+        Mockito.when(transactions.listIndexes())
+                .thenReturn(Multi.createFrom().items(
+                        indexDocument("_id_"),
+                        indexDocument("payeeCode_1_terminalUuid_1__id_1"),
+                        indexDocument("terminalUuid_1_status_1__id_1"),
+                        indexDocument("terminalUuid_1__id_1"),
+                        indexDocument("creationTimestamp_1")));
+
+        List<IndexProvisioner.IndexReport> reports = indexProvisioner.provision()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Map<String, IndexProvisioner.IndexReport> reportsByCollection = reports.stream()
+                .collect(Collectors.toMap(IndexProvisioner.IndexReport::collection, report -> report));
+        Assertions.assertEquals(7, reportsByCollection.size());
+
+        IndexProvisioner.IndexReport transactionsReport = reportsByCollection.get("transactions");
+        Assertions.assertTrue(transactionsReport.missing().isEmpty());
+        Assertions.assertEquals(List.of("creationTimestamp_1"), transactionsReport.extra());
+
+        ArgumentCaptor<IndexOptions> optionsCaptor = ArgumentCaptor.forClass(IndexOptions.class);
+        Mockito.verify(terminals, Mockito.times(4)).createIndex(any(Bson.class), optionsCaptor.capture());
+        IndexOptions terminalKey = optionsCaptor.getAllValues().get(0);
+        Assertions.assertEquals(IndexProvisioner.TERMINALS_SOLUTION_TERMINAL_INDEX, terminalKey.getName());
+        Assertions.assertTrue(terminalKey.isUnique());
+    }
+
+    @Test
+    void testProvision_CreateIndexError() {
+        Mockito.when(terminals.createIndex(any(Bson.class), any(IndexOptions.class)))
+                .thenAnswer(invocation -> {
+                    IndexOptions options = invocation.getArgument(1);
+
+                    return IndexProvisioner.TERMINALS_SOLUTION_TERMINAL_INDEX.equals(options.getName())
+                            ? Uni.createFrom().failure(new RuntimeException("duplicate key"))
+                            : Uni.createFrom().item(options.getName());
+                });
+        Mockito.when(terminals.listIndexes())
+                .thenReturn(Multi.createFrom().items(
+                        indexDocument("_id_"),
+                        indexDocument("terminalUuid_1"),
+                        indexDocument("solutionId_1__id_1"),
+                        indexDocument("workstations_1_solutionId_1__id_1")));
+
+        List<IndexProvisioner.IndexReport> reports = indexProvisioner.provision()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        IndexProvisioner.IndexReport terminalsReport = reports.get(0);
+        Assertions.assertEquals("terminals", terminalsReport.collection());
+        Assertions.assertEquals(List.of(IndexProvisioner.TERMINALS_SOLUTION_TERMINAL_INDEX), terminalsReport.missing());
+        Assertions.assertEquals(List.of(IndexProvisioner.TERMINALS_SOLUTION_TERMINAL_INDEX), terminalsReport.missingUnique());
+        Assertions.assertTrue(terminalsReport.extra().isEmpty());
+        Mockito.verify(transactions, Mockito.times(3)).createIndex(any(Bson.class), any(IndexOptions.class));
+    }
+
+    @Test
+    void testOnStart_UniqueIndexMissing() {
+        Mockito.when(terminals.createIndex(any(Bson.class), any(IndexOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("duplicate key")));
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> indexProvisioner.onStart(null));
+
+        Assertions.assertTrue(exception.getMessage().contains("terminals.terminalUuid_1"));
+    }
+
+    @Test
+    void testOnStart_Disabled() {
+        Mockito.when(config.createOnStartup()).thenReturn(false);
+
+        indexProvisioner.onStart(null);
+
+        Mockito.verify(terminals, Mockito.never()).createIndex(any(Bson.class), any(IndexOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<?> mockCollection(String name) {
+        ReactiveMongoCollection<Document> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(collection.getNamespace()).thenReturn(new MongoNamespace("mil", name));
+        Mockito.when(collection.createIndex(any(Bson.class), any(IndexOptions.class)))
+                .thenAnswer(invocation -> Uni.createFrom().item(((IndexOptions) invocation.getArgument(1)).getName()));
+        Mockito.when(collection.listIndexes())
+                .thenReturn(Multi.createFrom().empty());
+
+        return collection;
+    }
+
+    private static Document indexDocument(String name) {
+        return new Document("name", name);
+    }
+}
@@ -0,0 +1,285 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.config.LatestTransactionConfig;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+
+class LatestTransactionIndexTest {
+
+    static final TerminalUuid TERMINAL_UUID = TerminalUuid.of("0f1f7f4e-3c41-4c1d-9f4a-1f1e7a3b2c10");
+
+    ReactiveMongoCollection<LatestTransactionEntity> latestTransactions;
+
+    ReactiveMongoCollection<TransactionEntity> transactions;
+
+    TransactionRepository transactionRepository;
+
+    LatestTransactionConfig config;
+
+    LatestTransactionIndex latestTransactionIndex;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createTestObjects() {
+        LatestTransactionRepository latestTransactionRepository = Mockito.mock(LatestTransactionRepository.class);
+        transactionRepository = Mockito.mock(TransactionRepository.class);
+        latestTransactions = Mockito.mock(ReactiveMongoCollection.class);
+        transactions = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(latestTransactionRepository.mongoCollection()).thenReturn(latestTransactions);
+        Mockito.when(transactionRepository.mongoCollection()).thenReturn(transactions);
+        Mockito.when(latestTransactions.getNamespace()).thenReturn(new MongoNamespace("mil", "latestTransactions"));
+
+        config = Mockito.mock(LatestTransactionConfig.class);
+        Mockito.when(config.enabled()).thenReturn(true);
+        Mockito.when(config.rebuildOnStartup()).thenReturn(true);
+
+        latestTransactionIndex = new LatestTransactionIndex(latestTransactionRepository, transactionRepository, config);
+    }
+
+    @Test
+    void testRecord_MovesForward() {
+        TransactionEntity transaction = transaction(new ObjectId(), "CREATED");
+        Mockito.when(latestTransactions.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(0, 0L, null)));
+
+        latestTransactionIndex.record(transaction)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<UpdateOptions> optionsCaptor = ArgumentCaptor.forClass(UpdateOptions.class);
+        Mockito.verify(latestTransactions).updateOne(filterCaptor.capture(), updateCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.and(Filters.eq("terminalUuid", TERMINAL_UUID.value()), Filters.eq("status", "CREATED"))), toDocument(filterCaptor.getValue()));
+        Assertions.assertEquals(toDocument(Updates.max("transactionId", transaction.id)), toDocument(updateCaptor.getValue()));
+        Assertions.assertTrue(optionsCaptor.getValue().isUpsert());
+    }
+
+    @Test
+    void testRecord_FailureNotPropagated() {
+        Mockito.when(latestTransactions.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("timeout")));
+
+        latestTransactionIndex.record(transaction(new ObjectId(), "CREATED"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+    }
+
+    @Test
+    void testRecord_Disabled() {
+        Mockito.when(config.enabled()).thenReturn(false);
+
+        latestTransactionIndex.record(transaction(new ObjectId(), "CREATED"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verifyNoInteractions(latestTransactions);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRecordAll_SingleBulkWrite() {
+        TransactionEntity created = transaction(new ObjectId(), "CREATED");
+        TransactionEntity closed = transaction(new ObjectId(), "CLOSED");
+        Mockito.when(latestTransactions.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+
+        latestTransactionIndex.recordAll(List.of(created, closed, transaction(null, "CREATED")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<List<UpdateOneModel<LatestTransactionEntity>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+        Mockito.verify(latestTransactions).bulkWrite(updatesCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(2, updatesCaptor.getValue().size());
+        Assertions.assertEquals(toDocument(Filters.and(Filters.eq("terminalUuid", TERMINAL_UUID.value()), Filters.eq("status", "CLOSED"))), toDocument(updatesCaptor.getValue().get(1).getFilter()));
+        Assertions.assertEquals(toDocument(Updates.max("transactionId", closed.id)), toDocument(updatesCaptor.getValue().get(1).getUpdate()));
+        Assertions.assertTrue(updatesCaptor.getValue().get(1).getOptions().isUpsert());
+        Assertions.assertFalse(optionsCaptor.getValue().isOrdered());
+    }
+
+    @Test
+    void testRecordAll_FailureNotPropagated() {
+        Mockito.when(latestTransactions.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("timeout")));
+
+        latestTransactionIndex.recordAll(List.of(transaction(new ObjectId(), "CREATED")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefresh_ReplacesStaleEntry() {
+        ObjectId staleId = new ObjectId();
+        TransactionEntity previous = transaction(new ObjectId(), "CREATED");
+        ReactivePanacheQuery<TransactionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().item(previous));
+        Mockito.when(transactionRepository.find(new Document("terminalUuid", TerminalUuidCodec.in(List.of(TERMINAL_UUID))).append("status", "CREATED"), new Document("_id", -1)))
+                .thenReturn(query);
+        Mockito.when(latestTransactions.updateOne(any(Bson.class), any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(1, 1L, null)));
+
+        latestTransactionIndex.refresh(TERMINAL_UUID, "CREATED", staleId)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(latestTransactions).updateOne(filterCaptor.capture(), any(Bson.class));
+        Assertions.assertEquals(staleId, toDocument(filterCaptor.getValue()).getArray("$and").get(1).asDocument().getObjectId("transactionId").getValue());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefresh_DeletesEntryWithoutTransactions() {
+        ReactivePanacheQuery<TransactionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().nullItem());
+        Mockito.when(transactionRepository.find(any(Document.class), any(Document.class))).thenReturn(query);
+        Mockito.when(latestTransactions.deleteOne(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(DeleteResult.acknowledged(1)));
+
+        latestTransactionIndex.refresh(TERMINAL_UUID, "CREATED", new ObjectId())
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(latestTransactions).deleteOne(any(Bson.class));
+        Mockito.verify(latestTransactions, Mockito.never()).updateOne(any(Bson.class), any(Bson.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuild_MovesForwardOnCanonicalString() {
+        ReactiveMongoCollection<Document> documents = mockDocuments();
+        Mockito.when(documents.createIndex(any(Bson.class), any(IndexOptions.class)))
+                .thenReturn(Uni.createFrom().item(IndexProvisioner.LATEST_TRANSACTIONS_KEY_INDEX));
+        Mockito.when(documents.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+        Mockito.when(documents.deleteMany(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(DeleteResult.acknowledged(1)));
+        Mockito.when(documents.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(0, 0L, null)));
+        ObjectId stringId = new ObjectId();
+        ObjectId binaryId = new ObjectId();
+        Mockito.when(transactions.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", new Document("terminalUuid", TERMINAL_UUID.value()).append("status", "CREATED")).append("transactionId", stringId),
+                        new Document("_id", new Document("terminalUuid", TERMINAL_UUID.toUuid()).append("status", "CREATED")).append("transactionId", binaryId)));
+
+        Assertions.assertFalse(latestTransactionIndex.isReady());
+
+        latestTransactionIndex.rebuild()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<List<UpdateOneModel<Document>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(documents).bulkWrite(updatesCaptor.capture(), any(BulkWriteOptions.class));
+        Assertions.assertEquals(2, updatesCaptor.getValue().size());
+        Bson key = Filters.and(Filters.eq("terminalUuid", TERMINAL_UUID.value()), Filters.eq("status", "CREATED"));
+        Assertions.assertEquals(toDocument(key), toDocument(updatesCaptor.getValue().get(0).getFilter()));
+        Assertions.assertEquals(toDocument(key), toDocument(updatesCaptor.getValue().get(1).getFilter()));
+        Assertions.assertEquals(toDocument(Updates.max("transactionId", binaryId)), toDocument(updatesCaptor.getValue().get(1).getUpdate()));
+
+        ArgumentCaptor<Bson> deleteCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(documents).deleteMany(deleteCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.type("terminalUuid", BsonType.BINARY)), toDocument(deleteCaptor.getValue()));
+
+        ArgumentCaptor<Bson> markerCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<UpdateOptions> optionsCaptor = ArgumentCaptor.forClass(UpdateOptions.class);
+        Mockito.verify(documents).updateOne(markerCaptor.capture(), any(Bson.class), optionsCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.eq("_id", "rebuilt")), toDocument(markerCaptor.getValue()));
+        Assertions.assertTrue(optionsCaptor.getValue().isUpsert());
+    }
+
+    @Test
+    void testOnStart_ReadyOnceRebuilt() {
+        ReactiveMongoCollection<Document> documents = mockDocuments();
+        Mockito.when(config.rebuildOnStartup()).thenReturn(false);
+        Mockito.when(config.readyCheckInterval()).thenReturn(Duration.ofMinutes(1));
+        Mockito.when(documents.countDocuments(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(1L));
+
+        latestTransactionIndex.onStart(null);
+
+        Assertions.assertTrue(latestTransactionIndex.isReady());
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(documents).countDocuments(filterCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.eq("_id", "rebuilt")), toDocument(filterCaptor.getValue()));
+    }
+
+    @Test
+    void testOnStart_NotReadyWithoutRebuild() {
+        ReactiveMongoCollection<Document> documents = mockDocuments();
+        Mockito.when(config.rebuildOnStartup()).thenReturn(false);
+        Mockito.when(config.readyCheckInterval()).thenReturn(Duration.ofMinutes(1));
+        Mockito.when(documents.countDocuments(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(0L));
+
+        latestTransactionIndex.onStart(null);
+
+        Assertions.assertFalse(latestTransactionIndex.isReady());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReactiveMongoCollection<Document> mockDocuments() {
+        ReactiveMongoCollection<Document> documents = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(latestTransactions.withDocumentClass(Document.class)).thenReturn(documents);
+
+        return documents;
+    }
+
+    private static TransactionEntity transaction(ObjectId id, String status) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.id = id;
+        transaction.setTerminalUuid(TERMINAL_UUID);
+        transaction.setStatus(status);
+
+        return transaction;
+    }
+
+    private static BsonDocument toDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(new TerminalUuidCodec(false)),
+                MongoClientSettings.getDefaultCodecRegistry()));
+    }
+}
@@ -0,0 +1,59 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.ReadPreference;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import it.pagopa.swclient.mil.papos.util.TestData;
+import org.bson.Document;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+class ReadRoutingTest {
+
+    @Test
+    void testForListings_SecondaryWithMaxStaleness() {
+        ReactiveMongoCollection<Document> collection = mockCollection();
+        ReactiveMongoCollection<Document> routed = mockCollection();
+        ReadPreference expected = ReadPreference.secondaryPreferred(90, TimeUnit.SECONDS);
+        Mockito.when(collection.withReadPreference(expected)).thenReturn(routed);
+
+        ReadRouting readRouting = new ReadRouting(TestData.getReadRoutingConfig("secondaryPreferred", Duration.ofSeconds(90)));
+
+        Assertions.assertSame(routed, readRouting.forListings(collection));
+    }
+
+    @Test
+    void testForListings_SecondaryWithoutMaxStaleness() {
+        ReactiveMongoCollection<Document> collection = mockCollection();
+        ReactiveMongoCollection<Document> routed = mockCollection();
+        Mockito.when(collection.withReadPreference(ReadPreference.nearest())).thenReturn(routed);
+
+        ReadRouting readRouting = new ReadRouting(TestData.getReadRoutingConfig("nearest", null));
+
+        Assertions.assertSame(routed, readRouting.forListings(collection));
+    }
+
+    @Test
+    void testForListings_Primary() {
+        ReactiveMongoCollection<Document> collection = mockCollection();
+
+        ReadRouting readRouting = new ReadRouting(TestData.getReadRoutingConfig("primary", Duration.ofSeconds(90)));
+
+        Assertions.assertSame(collection, readRouting.forListings(collection));
+        Mockito.verify(collection, Mockito.never()).withReadPreference(Mockito.any());
+    }
+
+    @Test
+    void testReadRouting_UnknownReadPreference() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new ReadRouting(TestData.getReadRoutingConfig("secondaryOnly", null)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<Document> mockCollection() {
+        return Mockito.mock(ReactiveMongoCollection.class);
+    }
+}
@@ -0,0 +1,131 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.types.Binary;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+class TerminalUuidCodecTest {
+
+    private static final String CANONICAL_UUID = "74a7c24f-5c64-41c2-aeac-d1fae93bff49";
+
+    @Test
+    void testEncode_BinaryStorage() {
+        TerminalUuidCodec codec = new TerminalUuidCodec(true);
+        codec.confirmMigrated();
+
+        BsonValue encoded = encode(codec, TerminalUuid.of(CANONICAL_UUID));
+
+        Assertions.assertTrue(encoded.isBinary());
+        Assertions.assertEquals(BsonBinarySubType.UUID_STANDARD.getValue(), encoded.asBinary().getType());
+        Assertions.assertEquals(UUID.fromString(CANONICAL_UUID), encoded.asBinary().asUuid());
+    }
+
+    @Test
+    void testEncode_MigrationNotConfirmed() {
+        TerminalUuidCodec codec = new TerminalUuidCodec(true);
+
+        Assertions.assertFalse(codec.writesBinary());
+        Assertions.assertEquals(new BsonString(CANONICAL_UUID), encode(codec, TerminalUuid.of(CANONICAL_UUID)));
+    }
+
+    @Test
+    void testEncode_NotCanonical() {
+        TerminalUuidCodec codec = new TerminalUuidCodec(true);
+        codec.confirmMigrated();
+
+        BsonValue encoded = encode(codec, TerminalUuid.of("c7a1b24b0583477292ebdbaa"));
+
+        Assertions.assertEquals(new BsonString("c7a1b24b0583477292ebdbaa"), encoded);
+    }
+
+    @Test
+    void testEncode_StringStorage() {
+        TerminalUuidCodec codec = new TerminalUuidCodec(false);
+        codec.confirmMigrated();
+
+        BsonValue encoded = encode(codec, TerminalUuid.of(CANONICAL_UUID));
+
+        Assertions.assertEquals(new BsonString(CANONICAL_UUID), encoded);
+    }
+
+    @Test
+    void testDecode_BothRepresentations() {
+        TerminalUuidCodec codec = new TerminalUuidCodec(false);
+
+        Assertions.assertEquals(TerminalUuid.of(CANONICAL_UUID),
+                decode(codec, new BsonBinary(UUID.fromString(CANONICAL_UUID), UuidRepresentation.STANDARD)));
+        Assertions.assertEquals(TerminalUuid.of(CANONICAL_UUID), decode(codec, new BsonString(CANONICAL_UUID)));
+    }
+
+    @Test
+    void testIn_BothRepresentations() {
+        Document in = TerminalUuidCodec.in(List.of(TerminalUuid.of(CANONICAL_UUID), TerminalUuid.of("c7a1b24b0583477292ebdbaa")));
+
+        Assertions.assertEquals(new Document("$in", List.of(
+                        CANONICAL_UUID,
+                        new BsonBinary(UUID.fromString(CANONICAL_UUID), UuidRepresentation.STANDARD),
+                        "c7a1b24b0583477292ebdbaa")),
+                in);
+    }
+
+    @Test
+    void testBothRepresentations() {
+        Assertions.assertEquals("$terminal.terminalUuid", TerminalUuidCodec.bothRepresentations("terminal.terminalUuid", false));
+
+        List<?> both = (List<?>) TerminalUuidCodec.bothRepresentations("terminal.terminalUuid", true);
+        Assertions.assertEquals("$terminal.terminalUuid", both.get(0));
+        List<?> cond = ((Document) both.get(1)).getList("$cond", Object.class);
+        Document toString = ((Document) cond.get(1)).get("$convert", Document.class);
+        Document toBinary = ((Document) cond.get(2)).get("$convert", Document.class);
+        Assertions.assertEquals("string", toString.getString("to"));
+        Assertions.assertEquals(new Document("type", "binData").append("subtype", 4), toBinary.get("to"));
+        Assertions.assertEquals("uuid", toBinary.getString("format"));
+        Assertions.assertEquals("$terminal.terminalUuid", toBinary.get("onError"));
+    }
+
+    @Test
+    void testFromDocumentValue() {
+        UUID uuid = UUID.fromString(CANONICAL_UUID);
+        BsonBinary binary = new BsonBinary(uuid, UuidRepresentation.STANDARD);
+
+        Assertions.assertEquals(TerminalUuid.of(CANONICAL_UUID), TerminalUuidCodec.fromDocumentValue(CANONICAL_UUID));
+        Assertions.assertEquals(TerminalUuid.of(CANONICAL_UUID), TerminalUuidCodec.fromDocumentValue(uuid));
+        Assertions.assertEquals(TerminalUuid.of(CANONICAL_UUID), TerminalUuidCodec.fromDocumentValue(new Binary(binary.getType(), binary.getData())));
+        Assertions.assertNull(TerminalUuidCodec.fromDocumentValue(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TerminalUuidCodec.fromDocumentValue(1));
+    }
+
+    private static BsonValue encode(TerminalUuidCodec codec, TerminalUuid terminalUuid) {
+        BsonDocument document = new BsonDocument();
+        BsonDocumentWriter writer = new BsonDocumentWriter(document);
+        writer.writeStartDocument();
+        writer.writeName("terminalUuid");
+        codec.encode(writer, terminalUuid, EncoderContext.builder().build());
+        writer.writeEndDocument();
+
+        return document.get("terminalUuid");
+    }
+
+    private static TerminalUuid decode(TerminalUuidCodec codec, BsonValue value) {
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("terminalUuid", value));
+        reader.readStartDocument();
+        reader.readName();
+
+        return codec.decode(reader, DecoderContext.builder().build());
+    }
+}
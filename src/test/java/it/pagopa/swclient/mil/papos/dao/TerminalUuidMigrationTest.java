@@ -0,0 +1,230 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.mongodb.reactive.ReactiveMongoDatabase;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.config.TerminalUuidConfig;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+
+class TerminalUuidMigrationTest {
+
+    ReactiveMongoCollection<Document> terminals;
+
+    ReactiveMongoCollection<Document> transactions;
+
+    ReactiveMongoCollection<Document> latestTransactions;
+
+    ReactiveMongoCollection<Document> transactionRollups;
+
+    ReactiveMongoCollection<Document> migrations;
+
+    TerminalUuidConfig config;
+
+    TerminalUuidCodec codec;
+
+    TerminalUuidMigration terminalUuidMigration;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createTestObjects() {
+        TerminalRepository terminalRepository = Mockito.mock(TerminalRepository.class);
+        TransactionRepository transactionRepository = Mockito.mock(TransactionRepository.class);
+        LatestTransactionRepository latestTransactionRepository = Mockito.mock(LatestTransactionRepository.class);
+        TransactionRollupRepository transactionRollupRepository = Mockito.mock(TransactionRollupRepository.class);
+        ReactiveMongoCollection<TerminalEntity> terminalEntities = Mockito.mock(ReactiveMongoCollection.class);
+        ReactiveMongoCollection<TransactionEntity> transactionEntities = Mockito.mock(ReactiveMongoCollection.class);
+        ReactiveMongoCollection<LatestTransactionEntity> latestTransactionEntities = Mockito.mock(ReactiveMongoCollection.class);
+        ReactiveMongoCollection<TransactionRollupEntity> transactionRollupEntities = Mockito.mock(ReactiveMongoCollection.class);
+        ReactiveMongoDatabase database = Mockito.mock(ReactiveMongoDatabase.class);
+
+        terminals = mockCollection("terminals");
+        transactions = mockCollection("transactions");
+        latestTransactions = mockCollection("latestTransactions");
+        transactionRollups = mockCollection("transactionRollups");
+        migrations = mockCollection("migrations");
+
+        Mockito.when(terminalRepository.mongoCollection()).thenReturn(terminalEntities);
+        Mockito.when(transactionRepository.mongoCollection()).thenReturn(transactionEntities);
+        Mockito.when(latestTransactionRepository.mongoCollection()).thenReturn(latestTransactionEntities);
+        Mockito.when(transactionRollupRepository.mongoCollection()).thenReturn(transactionRollupEntities);
+        Mockito.when(terminalEntities.withDocumentClass(Document.class)).thenReturn(terminals);
+        Mockito.when(transactionEntities.withDocumentClass(Document.class)).thenReturn(transactions);
+        Mockito.when(latestTransactionEntities.withDocumentClass(Document.class)).thenReturn(latestTransactions);
+        Mockito.when(transactionRollupEntities.withDocumentClass(Document.class)).thenReturn(transactionRollups);
+        Mockito.when(terminalRepository.mongoDatabase()).thenReturn(database);
+        Mockito.when(database.getCollection("migrations")).thenReturn(migrations);
+        Mockito.when(migrations.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(0, 0L, null)));
+
+        config = Mockito.mock(TerminalUuidConfig.class);
+        Mockito.when(config.binaryStorage()).thenReturn(true);
+        Mockito.when(config.migrateOnStartup()).thenReturn(true);
+        Mockito.when(config.migrationBatchSize()).thenReturn(2);
+        Mockito.when(config.confirmationCheckInterval()).thenReturn(Duration.ofMinutes(1));
+
+        codec = new TerminalUuidCodec(true);
+        terminalUuidMigration = new TerminalUuidMigration(terminalRepository, transactionRepository, latestTransactionRepository, transactionRollupRepository, config, codec);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMigrate_Success() {
+        String uuid = "74a7c24f-5c64-41c2-aeac-d1fae93bff49";
+        Mockito.when(terminals.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", new ObjectId()).append("terminalUuid", uuid),
+                        new Document("_id", new ObjectId()).append("terminalUuid", "c7a1b24b0583477292ebdbaa")));
+        BulkWriteResult result = Mockito.mock(BulkWriteResult.class);
+        Mockito.when(result.getModifiedCount()).thenReturn(1);
+        Mockito.when(terminals.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(result));
+
+        terminalUuidMigration.migrate()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(1L);
+
+        ArgumentCaptor<List<UpdateOneModel<Document>>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(terminals).bulkWrite(batchCaptor.capture(), any(BulkWriteOptions.class));
+        Assertions.assertEquals(1, batchCaptor.getValue().size());
+        BsonDocument update = batchCaptor.getValue().get(0).getUpdate().toBsonDocument();
+        Assertions.assertEquals(new BsonBinary(UUID.fromString(uuid), UuidRepresentation.STANDARD),
+                update.getDocument("$set").get("terminalUuid"));
+        Mockito.verify(transactions, Mockito.never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMigrate_DerivedEntriesToCanonicalString() {
+        String uuid = "74a7c24f-5c64-41c2-aeac-d1fae93bff49";
+        ObjectId entryId = new ObjectId();
+        ObjectId transactionId = new ObjectId();
+        Mockito.when(latestTransactions.find(any(Bson.class)))
+                .thenReturn(Multi.createFrom().item(new Document("_id", entryId)
+                        .append("terminalUuid", UUID.fromString(uuid))
+                        .append("status", "CREATED")
+                        .append("transactionId", transactionId)));
+        Mockito.when(latestTransactions.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+
+        terminalUuidMigration.migrate()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(0L);
+
+        ArgumentCaptor<List<WriteModel<Document>>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+        Mockito.verify(latestTransactions).bulkWrite(batchCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertTrue(optionsCaptor.getValue().isOrdered());
+        UpdateOneModel<Document> merge = (UpdateOneModel<Document>) batchCaptor.getValue().get(0);
+        Assertions.assertEquals(Filters.and(Filters.eq("terminalUuid", uuid), Filters.eq("status", "CREATED")).toBsonDocument(), merge.getFilter().toBsonDocument());
+        Assertions.assertEquals(Updates.max("transactionId", transactionId).toBsonDocument(), merge.getUpdate().toBsonDocument());
+        Assertions.assertTrue(merge.getOptions().isUpsert());
+        DeleteOneModel<Document> delete = (DeleteOneModel<Document>) batchCaptor.getValue().get(1);
+        Assertions.assertEquals(Filters.eq("_id", entryId).toBsonDocument(), delete.getFilter().toBsonDocument());
+        Mockito.verify(transactionRollups, Mockito.never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void testConfirm_Complete() {
+        terminalUuidMigration.confirm()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(true);
+
+        Assertions.assertTrue(codec.writesBinary());
+        ArgumentCaptor<Bson> flagCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<UpdateOptions> optionsCaptor = ArgumentCaptor.forClass(UpdateOptions.class);
+        Mockito.verify(migrations).updateOne(flagCaptor.capture(), any(Bson.class), optionsCaptor.capture());
+        Assertions.assertEquals(Filters.eq("_id", "terminalUuidBinaryStorage").toBsonDocument(), flagCaptor.getValue().toBsonDocument());
+        Assertions.assertTrue(optionsCaptor.getValue().isUpsert());
+    }
+
+    @Test
+    void testConfirm_ConfirmedByAnotherInstance() {
+        Mockito.when(migrations.countDocuments(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(1L));
+        Mockito.when(transactions.countDocuments(any(Bson.class), any(CountOptions.class)))
+                .thenReturn(Uni.createFrom().item(1L));
+
+        terminalUuidMigration.confirm()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(true);
+
+        Assertions.assertTrue(codec.writesBinary());
+        Mockito.verify(transactions, Mockito.never()).countDocuments(any(Bson.class), any(CountOptions.class));
+        Mockito.verify(migrations, Mockito.never()).updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class));
+    }
+
+    @Test
+    void testConfirm_StringsLeft() {
+        Mockito.when(transactions.countDocuments(any(Bson.class), any(CountOptions.class)))
+                .thenReturn(Uni.createFrom().item(1L));
+
+        terminalUuidMigration.confirm()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(false);
+
+        Assertions.assertFalse(codec.writesBinary());
+        Mockito.verify(migrations, Mockito.never()).updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class));
+    }
+
+    @Test
+    void testOnStart_StringStorage() {
+        Mockito.when(config.binaryStorage()).thenReturn(false);
+
+        terminalUuidMigration.onStart(null);
+
+        Mockito.verify(terminals, Mockito.never()).find(any(Bson.class), any(FindOptions.class));
+        Assertions.assertFalse(codec.writesBinary());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<Document> mockCollection(String name) {
+        ReactiveMongoCollection<Document> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(collection.getNamespace()).thenReturn(new MongoNamespace("mil", name));
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().empty());
+        Mockito.when(collection.find(any(Bson.class)))
+                .thenReturn(Multi.createFrom().empty());
+        Mockito.when(collection.countDocuments(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(0L));
+        Mockito.when(collection.countDocuments(any(Bson.class), any(CountOptions.class)))
+                .thenReturn(Uni.createFrom().item(0L));
+
+        return collection;
+    }
+}
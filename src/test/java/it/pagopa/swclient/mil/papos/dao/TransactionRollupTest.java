@@ -0,0 +1,281 @@
+package it.pagopa.swclient.mil.papos.dao;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoNamespace;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.config.TransactionRollupConfig;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.util.TestData;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+
+class TransactionRollupTest {
+
+    static final TerminalUuid TERMINAL_UUID = TerminalUuid.of("0f1f7f4e-3c41-4c1d-9f4a-1f1e7a3b2c10");
+
+    // created at 2024-08-08T07:24:13Z
+    static final ObjectId TRANSACTION_ID = new ObjectId("66b4729d7bca521f8c2f97e0");
+
+    ReactiveMongoCollection<TransactionRollupEntity> transactionRollups;
+
+    ReactiveMongoCollection<TransactionEntity> transactions;
+
+    TransactionRollupConfig config;
+
+    TransactionRollup transactionRollup;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createTestObjects() {
+        TransactionRollupRepository transactionRollupRepository = Mockito.mock(TransactionRollupRepository.class);
+        TransactionRepository transactionRepository = Mockito.mock(TransactionRepository.class);
+        transactionRollups = Mockito.mock(ReactiveMongoCollection.class);
+        transactions = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(transactionRollupRepository.mongoCollection()).thenReturn(transactionRollups);
+        Mockito.when(transactionRepository.mongoCollection()).thenReturn(transactions);
+        Mockito.when(transactionRollups.getNamespace()).thenReturn(new MongoNamespace("mil", "transactionRollups"));
+        Mockito.when(transactionRollups.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(1, 1L, null)));
+
+        config = Mockito.mock(TransactionRollupConfig.class);
+        Mockito.when(config.enabled()).thenReturn(true);
+
+        transactionRollup = new TransactionRollup(transactionRollupRepository, transactionRepository,
+                new ReadRouting(TestData.getReadRoutingConfig("primary", null)), config);
+    }
+
+    @Test
+    void testAdd_IncrementsEntry() {
+        transactionRollup.add(transaction("CREATED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<UpdateOptions> optionsCaptor = ArgumentCaptor.forClass(UpdateOptions.class);
+        Mockito.verify(transactionRollups).updateOne(filterCaptor.capture(), updateCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.and(
+                        Filters.eq("payeeCode", "06534340721"),
+                        Filters.eq("day", "2024-08-08"),
+                        Filters.eq("terminalUuid", TERMINAL_UUID.value()),
+                        Filters.eq("status", "CREATED"))),
+                toDocument(filterCaptor.getValue()));
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", 1L), Updates.inc("amount", 150L))), toDocument(updateCaptor.getValue()));
+        Assertions.assertTrue(optionsCaptor.getValue().isUpsert());
+    }
+
+    @Test
+    void testRemove_DecrementsEntry() {
+        transactionRollup.remove(transaction("CREATED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(transactionRollups).updateOne(any(Bson.class), updateCaptor.capture(), any(UpdateOptions.class));
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", -1L), Updates.inc("amount", -150L))), toDocument(updateCaptor.getValue()));
+    }
+
+    @Test
+    void testReplace_MovesBetweenEntries() {
+        transactionRollup.replace(transaction("CREATED", null), transaction("CLOSED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(transactionRollups, Mockito.times(2)).updateOne(any(Bson.class), updateCaptor.capture(), any(UpdateOptions.class));
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", -1L), Updates.inc("amount", 0L))), toDocument(updateCaptor.getAllValues().get(0)));
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", 1L), Updates.inc("amount", 150L))), toDocument(updateCaptor.getAllValues().get(1)));
+    }
+
+    @Test
+    void testReplace_Unchanged() {
+        transactionRollup.replace(transaction("CREATED", 150L), transaction("CREATED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(transactionRollups, Mockito.never()).updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAddAll_SingleBulkWrite() {
+        Mockito.when(transactionRollups.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+        TransactionEntity withoutPayee = transaction("CREATED", null);
+        withoutPayee.setPayeeCode(null);
+
+        transactionRollup.addAll(List.of(transaction("CREATED", null), withoutPayee, transaction("CREATED", null)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<List<UpdateOneModel<TransactionRollupEntity>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(transactionRollups).bulkWrite(updatesCaptor.capture(), any(BulkWriteOptions.class));
+        Assertions.assertEquals(2, updatesCaptor.getValue().size());
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", 1L), Updates.inc("amount", 0L))), toDocument(updatesCaptor.getValue().get(0).getUpdate()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplaceAll_SingleBulkWrite() {
+        Mockito.when(transactionRollups.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+
+        transactionRollup.replaceAll(
+                        List.of(transaction("CREATED", null), transaction("CLOSED", 150L)),
+                        List.of(transaction("CLOSED", 150L), transaction("CLOSED", 150L)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<List<UpdateOneModel<TransactionRollupEntity>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+        Mockito.verify(transactionRollups).bulkWrite(updatesCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(2, updatesCaptor.getValue().size());
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", -1L), Updates.inc("amount", 0L))), toDocument(updatesCaptor.getValue().get(0).getUpdate()));
+        Assertions.assertEquals(toDocument(Updates.combine(Updates.inc("count", 1L), Updates.inc("amount", 150L))), toDocument(updatesCaptor.getValue().get(1).getUpdate()));
+        Assertions.assertTrue(updatesCaptor.getValue().get(1).getOptions().isUpsert());
+        Assertions.assertFalse(optionsCaptor.getValue().isOrdered());
+    }
+
+    @Test
+    void testReplaceAll_Unchanged() {
+        transactionRollup.replaceAll(List.of(transaction("CREATED", 150L)), List.of(transaction("CREATED", 150L)))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(transactionRollups, Mockito.never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void testAdd_FailureNotPropagated() {
+        Mockito.when(transactionRollups.updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("timeout")));
+
+        transactionRollup.add(transaction("CREATED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+    }
+
+    @Test
+    void testAdd_Disabled() {
+        Mockito.when(config.enabled()).thenReturn(false);
+
+        transactionRollup.add(transaction("CREATED", 150L))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(transactionRollups, Mockito.never()).updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class));
+    }
+
+    @Test
+    void testFindByPayee_ByDayRange() {
+        TransactionRollupEntity rollup = new TransactionRollupEntity();
+        Mockito.when(transactionRollups.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().item(rollup));
+
+        transactionRollup.findByPayee("06534340721", Date.from(Instant.parse("2024-08-01T00:00:00Z")), Date.from(Instant.parse("2024-08-31T23:59:59Z")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of(rollup));
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(transactionRollups).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(toDocument(Filters.and(
+                        Filters.eq("payeeCode", "06534340721"),
+                        Filters.gte("day", "2024-08-01"),
+                        Filters.lte("day", "2024-08-31"))),
+                toDocument(filterCaptor.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuild_ReplacesRollupsOnCanonicalString() {
+        ReactiveMongoCollection<Document> rollupDocuments = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(transactionRollups.withDocumentClass(Document.class)).thenReturn(rollupDocuments);
+        Mockito.when(rollupDocuments.createIndex(any(Bson.class), any(IndexOptions.class)))
+                .thenReturn(Uni.createFrom().item(IndexProvisioner.TRANSACTION_ROLLUPS_KEY_INDEX));
+        Mockito.when(rollupDocuments.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+        Mockito.when(rollupDocuments.deleteMany(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(DeleteResult.acknowledged(1)));
+        Document key = new Document("payeeCode", "06534340721").append("day", "2024-08-08").append("status", "CREATED");
+        Mockito.when(transactions.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", new Document(key).append("terminalUuid", TERMINAL_UUID.value())).append("count", 2L).append("amount", 300L),
+                        new Document("_id", new Document(key).append("terminalUuid", TERMINAL_UUID.toUuid())).append("count", 1L).append("amount", 150L)));
+
+        transactionRollup.rebuild()
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        ArgumentCaptor<List<ReplaceOneModel<Document>>> writesCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(rollupDocuments).bulkWrite(writesCaptor.capture(), any(BulkWriteOptions.class));
+        Assertions.assertEquals(1, writesCaptor.getValue().size());
+        ReplaceOneModel<Document> write = writesCaptor.getValue().get(0);
+        Assertions.assertEquals(TERMINAL_UUID.value(), toDocument(write.getFilter()).getString("terminalUuid").getValue());
+        Assertions.assertEquals(3L, write.getReplacement().getLong("count"));
+        Assertions.assertEquals(450L, write.getReplacement().getLong("amount"));
+        Assertions.assertTrue(write.getReplaceOptions().isUpsert());
+
+        ArgumentCaptor<Bson> deleteCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(rollupDocuments).deleteMany(deleteCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.type("terminalUuid", BsonType.BINARY)), toDocument(deleteCaptor.getValue()));
+    }
+
+    private static TransactionEntity transaction(String status, Long amount) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.id = TRANSACTION_ID;
+        transaction.setPayeeCode("06534340721");
+        transaction.setTerminalUuid(TERMINAL_UUID);
+        transaction.setStatus(status);
+        transaction.setAmount(amount);
+
+        return transaction;
+    }
+
+    private static BsonDocument toDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, CodecRegistries.fromRegistries(
+                CodecRegistries.fromCodecs(new TerminalUuidCodec(false)),
+                MongoClientSettings.getDefaultCodecRegistry()));
+    }
+}
@@ -0,0 +1,71 @@
+package it.pagopa.swclient.mil.papos.model;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+class BulkLoadStatusTest {
+
+    @Test
+    void testRecordFailure_CountsAndDrainsErrors() {
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+        int failures = BulkLoadStatus.MAX_ERROR_MESSAGES * 2;
+
+        IntStream.range(0, failures)
+                .parallel()
+                .forEach(i -> bulkLoadStatus.recordFailure(
+                        new BulkLoadRow(i, new TerminalDto("66a79a4624356b00da07cfbf", "terminal" + i, true, null)),
+                        i % 2 == 0 ? "CODE_A" : "CODE_B", "error " + i));
+
+        Assertions.assertEquals(failures, bulkLoadStatus.getFailedRecords());
+        Assertions.assertTrue(bulkLoadStatus.getErrorMessages().isEmpty());
+        Assertions.assertEquals(Map.of("CODE_A", (long) BulkLoadStatus.MAX_ERROR_MESSAGES, "CODE_B", (long) BulkLoadStatus.MAX_ERROR_MESSAGES),
+                bulkLoadStatus.getErrorCounts());
+
+        List<BulkLoadError> errors = bulkLoadStatus.drainErrors();
+        Assertions.assertEquals(failures, errors.size());
+        Assertions.assertTrue(bulkLoadStatus.drainErrors().isEmpty());
+    }
+
+    @Test
+    void testRecordError_ErrorMessagesCapped() {
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+
+        IntStream.range(0, BulkLoadStatus.MAX_ERROR_MESSAGES * 2)
+                .parallel()
+                .forEach(i -> bulkLoadStatus.recordError("error " + i));
+
+        Assertions.assertEquals(BulkLoadStatus.MAX_ERROR_MESSAGES, bulkLoadStatus.getErrorMessages().size());
+        Assertions.assertEquals(0, bulkLoadStatus.getFailedRecords());
+    }
+
+    @Test
+    void testRestore() {
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+
+        bulkLoadStatus.restore(10, 7, Map.of("CODE_A", 2L, "CODE_B", 1L));
+        bulkLoadStatus.recordFailure(new BulkLoadRow(10, new TerminalDto("66a79a4624356b00da07cfbf", "34523860", true, null)), "CODE_A", "error");
+
+        Assertions.assertEquals(10, bulkLoadStatus.getTotalRecords());
+        Assertions.assertEquals(7, bulkLoadStatus.getSuccessRecords());
+        Assertions.assertEquals(4, bulkLoadStatus.getFailedRecords());
+        Assertions.assertEquals(Map.of("CODE_A", 3L, "CODE_B", 1L), bulkLoadStatus.getErrorCounts());
+    }
+
+    @Test
+    void testRecordSuccess_NoErrors() {
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+
+        bulkLoadStatus.recordRead(2);
+        bulkLoadStatus.recordSuccess(2);
+
+        Assertions.assertEquals(2, bulkLoadStatus.getTotalRecords());
+        Assertions.assertEquals(2, bulkLoadStatus.getSuccessRecords());
+        Assertions.assertEquals(0, bulkLoadStatus.getFailedRecords());
+        Assertions.assertTrue(bulkLoadStatus.getErrorCounts().isEmpty());
+        Assertions.assertTrue(bulkLoadStatus.drainErrors().isEmpty());
+    }
+}
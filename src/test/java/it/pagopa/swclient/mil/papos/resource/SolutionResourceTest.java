@@ -11,9 +11,12 @@ import io.restassured.response.Response;
 import io.smallrye.mutiny.Uni;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.SolutionDto;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.service.TerminalService;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.TestData;
 import jakarta.ws.rs.WebApplicationException;
 import org.junit.jupiter.api.Assertions;
@@ -159,11 +162,11 @@ class SolutionResourceTest {
     @Test
     @TestSecurity(user = "testUser", roles = { "mil_papos_admin" })
     void testFindAll_200() {
-        Mockito.when(solutionService.getSolutionsCount())
+        Mockito.when(solutionService.getSolutionsCount(TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.findSolutions(anyInt(), anyInt()))
-                .thenReturn(Uni.createFrom().item(new ArrayList<>()));
+        Mockito.when(solutionService.findSolutions(any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -181,9 +184,12 @@ class SolutionResourceTest {
     @Test
     @TestSecurity(user = "testUser", roles = { "mil_papos_admin" })
     void testFindSolutionsEndpoint_500TC() {
-        Mockito.when(solutionService.getSolutionsCount())
+        Mockito.when(solutionService.getSolutionsCount(TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
+        Mockito.when(solutionService.findSolutions(any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
+
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
@@ -195,15 +201,16 @@ class SolutionResourceTest {
                 .extract().response();
 
         Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(ErrorCodes.ERROR_COUNTING_SOLUTIONS, response.jsonPath().getString("codes[0]"));
     }
 
     @Test
     @TestSecurity(user = "testUser", roles = { "mil_papos_admin" })
     void testFindSolutionsEndpoint_500TLP() {
-        Mockito.when(solutionService.getSolutionsCount())
+        Mockito.when(solutionService.getSolutionsCount(TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.findSolutions(anyInt(), anyInt()))
+        Mockito.when(solutionService.findSolutions(any(), anyInt(), anyInt()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -225,11 +232,11 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "AGID_01")
     })
     void testFindByPspId_200() {
-        Mockito.when(solutionService.getSolutionCountByAttribute("AGID_01", "AGID_01"))
+        Mockito.when(solutionService.getSolutionCountByAttribute("AGID_01", "AGID_01", TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.getSolutionsListPagedByAttribute("AGID_01", "AGID_01", 0, 10))
-                .thenReturn(Uni.createFrom().item(new ArrayList<>()));
+        Mockito.when(solutionService.getSolutionsListPagedByAttribute("AGID_01", "AGID_01", null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -251,9 +258,13 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "AGID_01")
     })
     void testFindByPspId_500TC() {
-        Mockito.when(solutionService.getSolutionCountByAttribute(anyString(), anyString()))
+        Mockito.when(solutionService.getSolutionCountByAttribute(anyString(), anyString(), any()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
+        Mockito.when(solutionService.getSolutionsListPagedByAttribute(anyString(), anyString(), any(), anyInt(),
+                anyInt()))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
+
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
@@ -266,6 +277,7 @@ class SolutionResourceTest {
                 .extract().response();
 
         Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(ErrorCodes.ERROR_COUNTING_SOLUTIONS, response.jsonPath().getString("codes[0]"));
     }
 
     @Test
@@ -274,10 +286,10 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "AGID_01")
     })
     void testFindByPspId_500TLP() {
-        Mockito.when(solutionService.getSolutionCountByAttribute(anyString(), anyString()))
+        Mockito.when(solutionService.getSolutionCountByAttribute(anyString(), anyString(), any()))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.getSolutionsListPagedByAttribute(anyString(), anyString(), anyInt(),
+        Mockito.when(solutionService.getSolutionsListPagedByAttribute(anyString(), anyString(), any(), anyInt(),
                 anyInt()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
@@ -301,11 +313,11 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "locationCode")
     })
     void testFindByLocationCode_200() {
-        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode"))
+        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode", TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.getSolutionsListPagedByAttribute("locationCode", "locationCode", 0, 10))
-                .thenReturn(Uni.createFrom().item(new ArrayList<>()));
+        Mockito.when(solutionService.getSolutionsListPagedByAttribute("locationCode", "locationCode", null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -326,7 +338,7 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "locationCrode")
     })
     void testFindByLocationCode_401() {
-        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode"))
+        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode", TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -349,7 +361,7 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "locationCode")
     })
     void testFindByLocationCode_500TC() {
-        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode"))
+        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode", TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -372,10 +384,10 @@ class SolutionResourceTest {
             @Claim(key = "sub", value = "locationCode")
     })
     void testFindByLocationCode_500TLP() {
-        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode"))
+        Mockito.when(solutionService.getSolutionCountByAttribute("locationCode", "locationCode", TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(solutionService.getSolutionsListPagedByAttribute("locationCode", "locationCode", 0, 10))
+        Mockito.when(solutionService.getSolutionsListPagedByAttribute("locationCode", "locationCode", null, 0, 10))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -9,18 +9,25 @@ import io.quarkus.test.security.jwt.Claim;
 import io.quarkus.test.security.jwt.JwtSecurity;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusEntity;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
+import it.pagopa.swclient.mil.papos.model.BulkLoadState;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.TerminalDto;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.model.WorkstationsDto;
+import it.pagopa.swclient.mil.papos.service.BulkLoadService;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.service.TerminalService;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.TestData;
-import jakarta.ws.rs.InternalServerErrorException;
+import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -31,8 +38,6 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static io.restassured.RestAssured.given;
 import static it.pagopa.swclient.mil.papos.util.TestData.*;
@@ -49,6 +54,9 @@ class TerminalResourceTest {
     @InjectMock
     static SolutionService solutionService;
 
+    @InjectMock
+    static BulkLoadService bulkLoadService;
+
     static ObjectMapper objectMapper;
 
     static TerminalDto terminalDto;
@@ -96,6 +104,32 @@ class TerminalResourceTest {
         Assertions.assertEquals(201, response.statusCode());
     }
 
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testCreateTerminalEndpoint_409() {
+        Mockito.when(solutionService.findById(any(String.class)))
+                .thenReturn(Uni.createFrom().item(solutionEntity));
+
+        Mockito.when(terminalService.createTerminal(any(TerminalDto.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(terminalDto)
+                .when()
+                .post("/")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(409, response.statusCode());
+        Assertions.assertEquals(ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS, response.jsonPath().getString("codes[0]"));
+    }
+
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
@@ -179,11 +213,10 @@ class TerminalResourceTest {
         String fileContent = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, { \"solutionId\": \"66a79a4624346b20da01cfbf\", \"terminalId\": \"84523987\", \"enabled\": false }]";
         InputStream fileInputStream = new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8));
 
-        Mockito.when(solutionService.findAllByPspAndSolutionId("TMIL0101", Arrays.asList("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf")))
-                .thenReturn(Uni.createFrom().item(mockedListSolution()));
-
-        Mockito.when(terminalService.processBulkLoad(anyList(), eq(2), anyString()))
-                .thenReturn(Uni.createFrom().item(new BulkLoadStatusEntity()));
+        BulkLoadStatusEntity pendingBulkLoad = TestData.getCorrectBulkLoadStatusEntity();
+        pendingBulkLoad.setState(BulkLoadState.PENDING);
+        Mockito.when(bulkLoadService.submit(eq("TMIL0101"), any(String.class), any(InputStream.class)))
+                .thenReturn(Uni.createFrom().item(pendingBulkLoad));
 
         Response response = given()
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
@@ -194,6 +227,8 @@ class TerminalResourceTest {
                 .extract().response();
 
         Assertions.assertEquals(202, response.statusCode());
+        Assertions.assertEquals("PENDING", response.jsonPath().getString("state"));
+        Assertions.assertTrue(response.getHeader("Location").endsWith("/terminals/bulkload/" + pendingBulkLoad.getBulkLoadingId()));
     }
 
     @Test
@@ -221,6 +256,9 @@ class TerminalResourceTest {
     void testBulkLoadTerminals_FileEmpty() {
         InputStream fileInputStream = new ByteArrayInputStream(new byte[0]);
 
+        Mockito.when(bulkLoadService.submit(eq("AGID_01"), any(String.class), any(InputStream.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+
         Response response = given()
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
                 .multiPart("file", "file.json", fileInputStream, MediaType.APPLICATION_OCTET_STREAM)
@@ -238,10 +276,10 @@ class TerminalResourceTest {
             @Claim(key = "sub", value = "TMIL0101")
     })
     void testBulkLoadTerminals_500() {
-        String fileContent = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, { \"solutionId\": \"66a79a4624346b20da01cfbf\", \"terminalId\": \"84523987\", \"enabled\": false }]";
+        String fileContent = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }]";
         InputStream fileInputStream = new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8));
 
-        Mockito.when(solutionService.findAllByPspAndSolutionId("TMIL0101", Arrays.asList("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf")))
+        Mockito.when(bulkLoadService.submit(eq("TMIL0101"), any(String.class), any(InputStream.class)))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -258,25 +296,24 @@ class TerminalResourceTest {
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "TMIL0101")
+            @Claim(key = "sub", value = "AGID_01")
     })
-    void testBulkLoadTerminals_404ES() {
-        String fileContent = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, { \"solutionId\": \"66a79a4624346b20da01cfbf\", \"terminalId\": \"84523987\", \"enabled\": false }]";
-        InputStream fileInputStream = new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8));
-
-        List<SolutionEntity> empty = new ArrayList<>();
-        Mockito.when(solutionService.findAllByPspAndSolutionId("TMIL0101", Arrays.asList("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf")))
-                .thenReturn(Uni.createFrom().item(empty));
+    void testGetBulkLoadingStatusFile_202() {
+        BulkLoadStatusEntity runningBulkLoad = TestData.getCorrectBulkLoadStatusEntity();
+        runningBulkLoad.setState(BulkLoadState.IN_PROGRESS);
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().item(runningBulkLoad));
 
         Response response = given()
+                .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .multiPart("file", "file.json", fileInputStream, MediaType.APPLICATION_OCTET_STREAM)
                 .when()
-                .post("/bulkload")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(404, response.statusCode());
+        Assertions.assertEquals(202, response.statusCode());
+        Assertions.assertEquals("IN_PROGRESS", response.jsonPath().getString("state"));
     }
 
     @Test
@@ -284,18 +321,35 @@ class TerminalResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "AGID_01")
     })
-    void testBulkLoadTerminals_ServiceError() {
-        byte[] fileContent = "malformed content".getBytes();
-        InputStream fileInputStream = new ByteArrayInputStream(fileContent);
+    void testGetBulkLoadingStatusFile_200() {
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().item(TestData.getCorrectBulkLoadStatusEntity()));
 
-        Mockito.when(terminalService.processBulkLoad(mockedListTerminalDto(), 2, "AGID_01"))
-                .thenReturn(Uni.createFrom().failure(new RuntimeException("Service error")));
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .when()
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "AGID_01")
+    })
+    void testGetBulkLoadingStatusFile_500() {
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
+                .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .multiPart("file", "file.json", fileInputStream, MediaType.APPLICATION_OCTET_STREAM)
                 .when()
-                .post("/bulkload")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
                 .then()
                 .extract().response();
 
@@ -305,61 +359,95 @@ class TerminalResourceTest {
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "TMIL0101")
+            @Claim(key = "sub", value = "AGID_01")
     })
-    void testBulkLoadTerminals_InternalServerErrorException() {
-        String fileContent = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, { \"solutionId\": \"66a79a4624346b20da01cfbf\", \"terminalId\": \"84523987\", \"enabled\": false }]";
-        InputStream fileInputStream = new ByteArrayInputStream(fileContent.getBytes(StandardCharsets.UTF_8));
+    void testGetBulkLoadingStatusFile_404() {
+        bulkLoadStatusEntity = null;
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().item(bulkLoadStatusEntity));
 
-        List<SolutionEntity> mockedSolutions = mockedListSolution();
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .when()
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .then()
+                .extract().response();
 
-        Mockito.when(solutionService.findAllByPspAndSolutionId("TMIL0101", Arrays.asList("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf")))
-                .thenReturn(Uni.createFrom().item(mockedSolutions));
+        bulkLoadStatusEntity = TestData.getCorrectBulkLoadStatusEntity();
+        Assertions.assertEquals(404, response.statusCode());
+    }
 
-        Set<String> uniqueSolutions = mockedSolutions.stream()
-                .map(solution -> solution.id.toString())
-                .collect(Collectors.toSet());
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "AGID_01")
+    })
+    void testGetBulkLoadingErrors_200() {
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().item(TestData.getCorrectBulkLoadStatusEntity()));
+        Mockito.when(bulkLoadService.getErrorCount(any(String.class)))
+                .thenReturn(Uni.createFrom().item(1L));
+        Mockito.when(bulkLoadService.getErrorListPaged(any(String.class), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectBulkLoadErrorEntity())));
 
-        List<TerminalDto> filteredTerminals = Stream.of(
-                        new TerminalDto("66a79a4624356b00da07cfbf", "34523860", true, null),
-                        new TerminalDto("66a79a4624346b20da01cfbf", "84523987", false, null)
-                )
-                .filter(terminal -> uniqueSolutions.contains(terminal.solutionId()))
-                .toList();
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("page", 0)
+                .queryParam("size", 10)
+                .when()
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa/errors")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(1, response.jsonPath().getInt("page.totalElements"));
+        Assertions.assertEquals("34523861", response.jsonPath().getString("errors[0].terminalId"));
+    }
 
-        Mockito.when(terminalService.processBulkLoad(filteredTerminals, filteredTerminals.size(), "TMIL0101"))
-                .thenReturn(Uni.createFrom().failure(new InternalServerErrorException()));
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "AGID_01")
+    })
+    void testGetBulkLoadingErrors_404() {
+        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().nullItem());
 
         Response response = given()
-                .contentType(ContentType.MULTIPART)
+                .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .multiPart("file", "file.json", fileInputStream, MediaType.APPLICATION_OCTET_STREAM)
+                .queryParam("page", 0)
+                .queryParam("size", 10)
                 .when()
-                .post("/bulkload")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa/errors")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.getStatusCode());
+        Assertions.assertEquals(404, response.statusCode());
     }
 
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "AGID_01")
+            @Claim(key = "sub", value = "AGID_02")
     })
-    void testGetBulkLoadingStatusFile_200() {
+    void testGetBulkLoadingErrors_401() {
         Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
                 .thenReturn(Uni.createFrom().item(TestData.getCorrectBulkLoadStatusEntity()));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("page", 0)
+                .queryParam("size", 10)
                 .when()
-                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa/errors")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(401, response.statusCode());
     }
 
     @Test
@@ -367,15 +455,21 @@ class TerminalResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "AGID_01")
     })
-    void testGetBulkLoadingStatusFile_500() {
+    void testGetBulkLoadingErrors_500() {
         Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
+                .thenReturn(Uni.createFrom().item(TestData.getCorrectBulkLoadStatusEntity()));
+        Mockito.when(bulkLoadService.getErrorCount(any(String.class)))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+        Mockito.when(bulkLoadService.getErrorListPaged(any(String.class), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectBulkLoadErrorEntity())));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("page", 0)
+                .queryParam("size", 10)
                 .when()
-                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa/errors")
                 .then()
                 .extract().response();
 
@@ -387,21 +481,19 @@ class TerminalResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "AGID_01")
     })
-    void testGetBulkLoadingStatusFile_404() {
-        bulkLoadStatusEntity = null;
-        Mockito.when(terminalService.findBulkLoadStatus(any(String.class)))
-                .thenReturn(Uni.createFrom().item(bulkLoadStatusEntity));
-
+    void testGetBulkLoadingErrors_400() {
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("page", 0)
+                .queryParam("size", 0)
                 .when()
-                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .get("/bulkload/d43d21a5-f8a7-4a68-8320-60b8f342c4aa/errors")
                 .then()
                 .extract().response();
 
-        bulkLoadStatusEntity = TestData.getCorrectBulkLoadStatusEntity();
-        Assertions.assertEquals(404, response.statusCode());
+        Assertions.assertEquals(400, response.statusCode());
+        Mockito.verify(bulkLoadService, Mockito.never()).getErrorCount(any(String.class));
     }
 
     @Test
@@ -413,11 +505,11 @@ class TerminalResourceTest {
         Mockito.when(solutionService.findAllByLocationOrPsp(any(String.class), any(String.class)))
                 .thenReturn(Uni.createFrom().item(mockedListSolution()));
 
-        Mockito.when(terminalService.countBySolutionIds(Collections.singletonList("payeeCode")))
+        Mockito.when(terminalService.countBySolutionIds(Collections.singletonList("payeeCode"), TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(terminalService.findBySolutionIds(Collections.singletonList("payeeCode"), 0, 10))
-                .thenReturn(Uni.createFrom().item(mockedList()));
+        Mockito.when(terminalService.findBySolutionIds(Collections.singletonList("payeeCode"), null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(mockedList(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -433,6 +525,102 @@ class TerminalResourceTest {
         Assertions.assertEquals(200, response.statusCode());
     }
 
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_200Ndjson() {
+        Mockito.when(solutionService.findAllByLocationOrPsp("pspId", "TMIL0101"))
+                .thenReturn(Uni.createFrom().item(mockedListSolution()));
+
+        Mockito.when(terminalService.exportBySolutionIds(List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf")))
+                .thenReturn(Multi.createFrom().items(getCorrectTerminalEntity(), getCorrectTerminalEntity()));
+
+        Response response = given()
+                .accept("application/x-ndjson")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "TMIL0101")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        List<String> lines = response.body().asString().lines().filter(line -> !line.isBlank()).toList();
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertTrue(lines.get(0).contains("\"terminalId\":\"34523860\""));
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_200Csv() {
+        TerminalEntity terminal = getCorrectTerminalEntity();
+        terminal.setWorkstations(List.of("ws1", "ws2"));
+        Mockito.when(solutionService.findAllByLocationOrPsp(any(String.class), any(String.class)))
+                .thenReturn(Uni.createFrom().item(mockedListSolution()));
+
+        Mockito.when(terminalService.exportBySolutionIds(anyList()))
+                .thenReturn(Multi.createFrom().item(terminal));
+
+        Response response = given()
+                .accept("text/csv")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "TMIL0101")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(List.of(
+                        "id,terminalUuid,solutionId,terminalId,enabled,workstations",
+                        ",74a7c24f-5c64-41c2-aeac-d1fae93bff49,66a79a4624356b00da07cfbf,34523860,true,ws1;ws2"),
+                response.body().asString().lines().toList());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_404() {
+        Mockito.when(solutionService.findAllByLocationOrPsp(any(String.class), any(String.class)))
+                .thenReturn(Uni.createFrom().item(Collections.emptyList()));
+
+        Response response = given()
+                .accept("application/x-ndjson")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "TMIL0101")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(404, response.statusCode());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_401() {
+        Response response = given()
+                .accept("text/csv")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "AGID_01")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(401, response.statusCode());
+    }
+
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
@@ -442,11 +630,11 @@ class TerminalResourceTest {
         Mockito.when(solutionService.findAllByLocationOrPsp(any(String.class), any(String.class)))
                 .thenReturn(Uni.createFrom().item(mockedListSolution()));
 
-        Mockito.when(terminalService.countBySolutionIds(Collections.singletonList("pspId")))
+        Mockito.when(terminalService.countBySolutionIds(Collections.singletonList("pspId"), TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(terminalService.findBySolutionIds(Collections.singletonList("pspId"), 0, 10))
-                .thenReturn(Uni.createFrom().item(mockedList()));
+        Mockito.when(terminalService.findBySolutionIds(Collections.singletonList("pspId"), null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(mockedList(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -462,6 +650,41 @@ class TerminalResourceTest {
         Assertions.assertEquals(200, response.statusCode());
     }
 
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "AGID_01")
+    })
+    void testFindByPspId_200Cursor() {
+        List<TerminalEntity> terminals = mockedList();
+        ObjectId after = new ObjectId("66a79a4624356b00da07cfbf");
+        ObjectId last = new ObjectId("66a79a4624356b00da07cfc0");
+
+        Mockito.when(solutionService.findAllByLocationOrPsp(any(String.class), any(String.class)))
+                .thenReturn(Uni.createFrom().item(mockedListSolution()));
+
+        Mockito.when(terminalService.countBySolutionIds(Collections.singletonList("pspId"), TotalMode.EXACT))
+                .thenReturn(Uni.createFrom().item(10L));
+
+        Mockito.when(terminalService.findBySolutionIds(Collections.singletonList("pspId"), after, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(terminals, last)));
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "AGID_01")
+                .queryParam("after", Utility.encodeCursor(after))
+                .queryParam("page", 0)
+                .queryParam("size", 10)
+                .when()
+                .get("/findByPspId")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(Utility.encodeCursor(last), response.jsonPath().getString("nextCursor"));
+    }
+
     @Test
     @TestSecurity(user = "testUser", roles = {"public_administration"})
     @JwtSecurity(claims = {
@@ -523,9 +746,12 @@ class TerminalResourceTest {
                 .map(solution -> solution.id.toString())
                 .toList();
 
-        Mockito.when(terminalService.countBySolutionIds(solutionIds))
+        Mockito.when(terminalService.countBySolutionIds(solutionIds, TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
+        Mockito.when(terminalService.findBySolutionIds(solutionIds, null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(mockedList(), null)));
+
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
@@ -554,10 +780,10 @@ class TerminalResourceTest {
                 .map(solution -> solution.id.toString())
                 .toList();
 
-        Mockito.when(terminalService.countBySolutionIds(solutionIds))
+        Mockito.when(terminalService.countBySolutionIds(solutionIds, TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(terminalService.findBySolutionIds(solutionIds, 0, 10))
+        Mockito.when(terminalService.findBySolutionIds(solutionIds, null, 0, 10))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -583,11 +809,11 @@ class TerminalResourceTest {
         Mockito.when(solutionService.getSolutionsListByLocationCode(anyString()))
                 .thenReturn(Uni.createFrom().item(mockedListSolution()));
 
-        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
+        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"), TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(terminalService.getTerminalListPagedByWorkstation("workstation", 0, 10, Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
-                .thenReturn(Uni.createFrom().item(new ArrayList<>()));
+        Mockito.when(terminalService.getTerminalListPagedByWorkstation("workstation", null, 0, 10, Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(new ArrayList<>(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -663,9 +889,12 @@ class TerminalResourceTest {
                 .thenReturn(Uni.createFrom().item(mockedListSolution()));
 
         List<String> solutionIds = mockedListSolution().stream().map(solution -> solution.id.toString()).toList();
-        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", solutionIds))
+        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", solutionIds, TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
+        Mockito.when(terminalService.getTerminalListPagedByWorkstation("workstation", null, 0, 10, solutionIds))
+                .thenReturn(Uni.createFrom().item(new KeysetPage<>(mockedList(), null)));
+
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
@@ -679,6 +908,7 @@ class TerminalResourceTest {
                 .extract().response();
 
         Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(ErrorCodes.ERROR_COUNTING_TERMINALS, response.jsonPath().getString("codes[0]"));
     }
 
     @Test
@@ -691,10 +921,10 @@ class TerminalResourceTest {
                 .thenReturn(Uni.createFrom().item(mockedListSolution()));
 
         List<String> solutionIds = mockedListSolution().stream().map(solution -> solution.id.toString()).toList();
-        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", solutionIds))
+        Mockito.when(terminalService.getTerminalCountByWorkstation("workstation", solutionIds, TotalMode.EXACT))
                 .thenReturn(Uni.createFrom().item(10L));
 
-        Mockito.when(terminalService.getTerminalListPagedByWorkstation("workstation", 0, 10, solutionIds))
+        Mockito.when(terminalService.getTerminalListPagedByWorkstation("workstation", null, 0, 10, solutionIds))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -892,6 +1122,35 @@ class TerminalResourceTest {
         Assertions.assertEquals(204, response.statusCode());
     }
 
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testUpdateTerminal_409() {
+        Mockito.when(solutionService.findById(any(String.class)))
+                .thenReturn(Uni.createFrom().item(solutionEntity));
+
+        Mockito.when(terminalService.findTerminal(any(String.class)))
+                .thenReturn(Uni.createFrom().item(terminalEntity));
+
+        Mockito.when(terminalService.updateTerminal(any(String.class), any(TerminalDto.class), any(TerminalEntity.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(terminalDto)
+                .when()
+                .patch("/d43d21a5-f8a7-4a68-8320-60b8f342c4aa")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(409, response.statusCode());
+        Assertions.assertEquals(ErrorCodes.ERROR_TERMINAL_ALREADY_EXISTS, response.jsonPath().getString("codes[0]"));
+    }
+
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
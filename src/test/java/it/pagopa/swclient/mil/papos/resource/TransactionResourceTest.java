@@ -9,18 +9,29 @@ import io.quarkus.test.security.jwt.Claim;
 import io.quarkus.test.security.jwt.JwtSecurity;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
 import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollupEntity;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchDto;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchResult;
 import it.pagopa.swclient.mil.papos.model.TransactionDto;
+import it.pagopa.swclient.mil.papos.model.TransactionSearchResult;
+import it.pagopa.swclient.mil.papos.model.UpdateTransactionBatchDto;
+import it.pagopa.swclient.mil.papos.model.UpdateTransactionBatchItemDto;
 import it.pagopa.swclient.mil.papos.model.UpdateTransactionDto;
 import it.pagopa.swclient.mil.papos.service.SolutionService;
 import it.pagopa.swclient.mil.papos.service.TerminalService;
 import it.pagopa.swclient.mil.papos.service.TransactionService;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.TestData;
 import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.ws.rs.WebApplicationException;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -225,26 +236,12 @@ class TransactionResourceTest {
             @Claim(key = "sub", value = "06534340721")
     })
     void testFindByPayeeCode_200() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        Mockito.when(transactionService.getTransactionCountByPayee("06534340721"))
-                .thenReturn(Uni.createFrom().item(10L));
-
-        List<String> terminalUuids = TestData.mockedList().stream()
-                .map(TerminalEntity::getTerminalUuid)
-                .toList();
-
-        Sort sort = Sort.by("creationTimestamp", Sort.Direction.Ascending);
-        Mockito.when(transactionService.getTransactionListPagedByPayeeAndTerminals("06534340721", terminalUuids,
+        Sort sort = Sort.by("_id", Sort.Direction.Descending);
+        Mockito.when(transactionService.findTransactionPageByPayee("06534340721", "06534340721",
                         Utility.convertStringToDate("2023-01-01", true),
                         Utility.convertStringToDate("2023-12-31", false),
-                        sort, 0, 10))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListTransaction()));
+                        sort, TotalMode.EXACT, null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, 25L, TestData.mockedListTransaction(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -261,6 +258,8 @@ class TransactionResourceTest {
                 .extract().response();
 
         Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(25, response.jsonPath().getInt("page.totalElements"));
+        Assertions.assertEquals(3, response.jsonPath().getInt("page.totalPages"));
     }
 
     @Test
@@ -268,8 +267,8 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_500TC() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
+    void testFindByPayeeCode_500TLP() {
+        Mockito.when(transactionService.findTransactionPageByPayee(anyString(), anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -278,7 +277,7 @@ class TransactionResourceTest {
                 .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
+                .queryParam("sortStrategy", "desc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
@@ -295,9 +294,8 @@ class TransactionResourceTest {
             @Claim(key = "sub", value = "06534340721")
     })
     void testFindByPayeeCode_404() {
-        List<SolutionEntity> empty = new ArrayList<>();
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(empty));
+        Mockito.when(transactionService.findTransactionPageByPayee(anyString(), anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(0, 0, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -305,7 +303,7 @@ class TransactionResourceTest {
                 .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
+                .queryParam("sortStrategy", "desc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
@@ -321,21 +319,17 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_500TLP() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    void testFindByPayeeCode_404FABSI() {
+        Mockito.when(transactionService.findTransactionPageByPayee(anyString(), anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 0, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .queryParam("payeeCode", "AGID_01")
+                .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
+                .queryParam("sortStrategy", "desc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
@@ -343,7 +337,7 @@ class TransactionResourceTest {
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(404, response.statusCode());
     }
 
     @Test
@@ -351,14 +345,9 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_404FABSI() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        List<TerminalEntity> empty = new ArrayList<>();
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(empty));
+    void testFindByPayeeCode_404TCBP() {
+        Mockito.when(transactionService.findTransactionPageByPayee(anyString(), anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -366,7 +355,7 @@ class TransactionResourceTest {
                 .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
+                .queryParam("sortStrategy", "desc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
@@ -382,32 +371,38 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_500TCBP() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        Mockito.when(transactionService.getTransactionCountByPayee("06534340721"))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    void testGetStatsByPayeeCode_200() {
+        TransactionRollupEntity created = new TransactionRollupEntity();
+        created.setDay("2023-01-01");
+        created.setStatus("CREATED");
+        created.setCount(2L);
+        created.setAmount(300L);
+        TransactionRollupEntity closed = new TransactionRollupEntity();
+        closed.setDay("2023-01-02");
+        closed.setStatus("CLOSED");
+        closed.setCount(1L);
+        closed.setAmount(150L);
+        Mockito.when(transactionService.getTransactionStatsByPayee(
+                        "06534340721",
+                        Utility.convertStringToDate("2023-01-01", true),
+                        Utility.convertStringToDate("2023-01-31", false)))
+                .thenReturn(Uni.createFrom().item(List.of(created, closed)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
                 .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
-                .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "desc")
-                .queryParam("page", 0)
-                .queryParam("size", 10)
+                .queryParam("endDate", "2023-01-31")
                 .when()
-                .get("/findByPayeeCode")
+                .get("/stats")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(2, response.jsonPath().getList("stats").size());
+        Assertions.assertEquals(3, response.jsonPath().getLong("count"));
+        Assertions.assertEquals(450, response.jsonPath().getLong("amount"));
     }
 
     @Test
@@ -415,32 +410,22 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_404TCBP() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("locationCode", "06534340721"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        Mockito.when(transactionService.getTransactionCountByPayee("06534340721"))
-                .thenReturn(Uni.createFrom().item(0L));
+    void testGetStatsByPayeeCode_500() {
+        Mockito.when(transactionService.getTransactionStatsByPayee(anyString(), any(Date.class), any(Date.class)))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
                 .queryParam("payeeCode", "06534340721")
                 .queryParam("startDate", "2023-01-01")
-                .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "desc")
-                .queryParam("page", 0)
-                .queryParam("size", 10)
+                .queryParam("endDate", "2023-01-31")
                 .when()
-                .get("/findByPayeeCode")
+                .get("/stats")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(404, response.statusCode());
+        Assertions.assertEquals(500, response.statusCode());
     }
 
     @Test
@@ -448,39 +433,52 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "06534340721")
     })
-    void testFindByPayeeCode_500TLPPT() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        Mockito.when(terminalService.findAllBySolutionIds(anyList()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
+    void testGetStatsByPayeeCode_401() {
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("payeeCode", "80000000001")
+                .queryParam("startDate", "2023-01-01")
+                .queryParam("endDate", "2023-01-31")
+                .when()
+                .get("/stats")
+                .then()
+                .extract().response();
 
-        Mockito.when(transactionService.getTransactionCountByPayee(anyString()))
-                .thenReturn(Uni.createFrom().item(10L));
+        Assertions.assertEquals(401, response.statusCode());
+    }
 
-        Mockito.when(transactionService.getTransactionListPagedByPayeeAndTerminals(anyString(), anyList(),
-                        any(Date.class),
-                        any(Date.class),
-                        any(Sort.class),
-                        anyInt(),
-                        anyInt()))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testFindByPspId_200() {
+        Sort sort = Sort.by("_id", Sort.Direction.Ascending);
+        Mockito.when(transactionService.findTransactionPageByPsp(
+                        "TMIL0101",
+                        Utility.convertStringToDate("2023-01-01", true),
+                        Utility.convertStringToDate("2023-12-31", false),
+                        sort, TotalMode.EXACT, null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, 10L, TestData.mockedListTransaction(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .queryParam("payeeCode", "06534340721")
+                .queryParam("pspId", "TMIL0101")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "desc")
+                .queryParam("sortStrategy", "asc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
-                .get("/findByPayeeCode")
+                .get("/findByPspId")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(10, response.jsonPath().getInt("page.totalElements"));
+        Assertions.assertEquals(1, response.jsonPath().getInt("page.totalPages"));
     }
 
     @Test
@@ -488,27 +486,16 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "TMIL0101")
     })
-    void testFindByPspId_200() {
-        Mockito.when(solutionService.findAllByLocationOrPsp("pspId", "TMIL0101"))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        List<String> terminalUuids = TestData.mockedList().stream()
-                .map(TerminalEntity::getTerminalUuid)
-                .toList();
-        Mockito.when(transactionService.getTransactionCountByTerminals(terminalUuids))
-                .thenReturn(Uni.createFrom().item(10L));
-
-        Sort sort = Sort.by("creationTimestamp", Sort.Direction.Ascending);
-        Mockito.when(transactionService.getTransactionListPagedByTerminals(
-                        terminalUuids,
+    void testFindByPspId_200Cursor() {
+        ObjectId after = new ObjectId("66b49e6d7bca521f8c2f97e0");
+        ObjectId nextAfter = new ObjectId("66b49e6d7bca521f8c2f97e9");
+        Sort sort = Sort.by("_id", Sort.Direction.Descending);
+        Mockito.when(transactionService.findTransactionPageByPsp(
+                        "TMIL0101",
                         Utility.convertStringToDate("2023-01-01", true),
                         Utility.convertStringToDate("2023-12-31", false),
-                        sort, 0, 10))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListTransaction()));
+                        sort, TotalMode.EXACT, after, 0, 10))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, 30L, TestData.mockedListTransaction(), nextAfter)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -516,68 +503,73 @@ class TransactionResourceTest {
                 .queryParam("pspId", "TMIL0101")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
-                .queryParam("page", 0)
+                .queryParam("sortStrategy", "desc")
                 .queryParam("size", 10)
+                .queryParam("after", Utility.encodeCursor(after))
                 .when()
                 .get("/findByPspId")
                 .then()
                 .extract().response();
 
         Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(Utility.encodeCursor(nextAfter), response.jsonPath().getString("nextCursor"));
     }
 
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "AGID_01")
+            @Claim(key = "sub", value = "TMIL0101")
     })
-    void testFindByPspId_500FABLP() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    void testFindByPspId_200WithoutTotal() {
+        ObjectId nextAfter = new ObjectId("66b49e6d7bca521f8c2f97e9");
+        Sort sort = Sort.by("_id", Sort.Direction.Descending);
+        Mockito.when(transactionService.findTransactionPageByPsp(
+                        "TMIL0101",
+                        Utility.convertStringToDate("2023-01-01", true),
+                        Utility.convertStringToDate("2023-12-31", false),
+                        sort, TotalMode.NONE, null, 0, 10))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, null, TestData.mockedListTransaction(), nextAfter)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .queryParam("pspId", "AGID_01")
+                .queryParam("pspId", "TMIL0101")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
-                .queryParam("page", 0)
+                .queryParam("sortStrategy", "desc")
                 .queryParam("size", 10)
+                .queryParam("withTotal", "false")
                 .when()
                 .get("/findByPspId")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertNull(response.jsonPath().get("page.totalElements"));
+        Assertions.assertTrue(response.jsonPath().getBoolean("page.hasNext"));
     }
 
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "AGID_01")
+            @Claim(key = "sub", value = "TMIL0101")
     })
-    void testFindByPspId_404FABLP() {
-        List<SolutionEntity> empty = new ArrayList<>();
-        Mockito.when(solutionService.findAllByLocationOrPsp("pspId", "pspId"))
-                .thenReturn(Uni.createFrom().item(empty));
-
+    void testFindByPspId_400Cursor() {
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .queryParam("pspId", "AGID_01")
+                .queryParam("pspId", "TMIL0101")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
-                .queryParam("page", 0)
+                .queryParam("sortStrategy", "desc")
                 .queryParam("size", 10)
+                .queryParam("after", "not a cursor")
                 .when()
                 .get("/findByPspId")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(404, response.statusCode());
+        Assertions.assertEquals(400, response.statusCode());
     }
 
     @Test
@@ -585,12 +577,8 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "AGID_01")
     })
-    void testFindByPspId_500FABSI() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
+    void testFindByPspId_500FTPBP() {
+        Mockito.when(transactionService.findTransactionPageByPsp(anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -599,7 +587,7 @@ class TransactionResourceTest {
                 .queryParam("pspId", "AGID_01")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "asc")
+                .queryParam("sortStrategy", "desc")
                 .queryParam("page", 0)
                 .queryParam("size", 10)
                 .when()
@@ -615,14 +603,9 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "AGID_01")
     })
-    void testFindByPspId_404FABSI() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        List<TerminalEntity> empty = new ArrayList<>();
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(empty));
+    void testFindByPspId_404FABLP() {
+        Mockito.when(transactionService.findTransactionPageByPsp(anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(0, 0, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -644,26 +627,16 @@ class TransactionResourceTest {
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
-            @Claim(key = "sub", value = "TMIL0101")
+            @Claim(key = "sub", value = "AGID_01")
     })
-    void testFindByPspId_500TCBT() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        List<String> terminalUuids = TestData.mockedList().stream()
-                .map(TerminalEntity::getTerminalUuid)
-                .toList();
-        Mockito.when(transactionService.getTransactionCountByTerminals(terminalUuids))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    void testFindByPspId_404FABSI() {
+        Mockito.when(transactionService.findTransactionPageByPsp(anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 0, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
-                .queryParam("pspId", "TMIL0101")
+                .queryParam("pspId", "AGID_01")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
                 .queryParam("sortStrategy", "asc")
@@ -674,7 +647,7 @@ class TransactionResourceTest {
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(404, response.statusCode());
     }
 
     @Test
@@ -683,18 +656,8 @@ class TransactionResourceTest {
             @Claim(key = "sub", value = "AGID_01")
     })
     void testFindByPspId_404() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
-
-        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "66a79a4624346b20da01cfbf");
-        Mockito.when(terminalService.findAllBySolutionIds(solutionIds))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
-
-        List<String> terminalUuids = TestData.mockedList().stream()
-                .map(TerminalEntity::getTerminalUuid)
-                .toList();
-        Mockito.when(transactionService.getTransactionCountByTerminals(terminalUuids))
-                .thenReturn(Uni.createFrom().item(0L));
+        Mockito.when(transactionService.findTransactionPageByPsp(anyString(), any(Date.class), any(Date.class), any(Sort.class), any(), any(), anyInt(), anyInt()))
+                .thenReturn(Uni.createFrom().item(new TransactionSearchResult(2, 2, 0L, List.of(), null)));
 
         Response response = given()
                 .contentType(ContentType.JSON)
@@ -718,40 +681,76 @@ class TransactionResourceTest {
     @JwtSecurity(claims = {
             @Claim(key = "sub", value = "TMIL0101")
     })
-    void testFindByPspId_500TLPBA() {
-        Mockito.when(solutionService.findAllByLocationOrPsp(anyString(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
+    void testExportByPspId_200Ndjson() {
+        Mockito.when(transactionService.exportTransactionsByPsp(
+                        "TMIL0101",
+                        Utility.convertStringToDate("2023-01-01", true),
+                        Utility.convertStringToDate("2023-12-31", false)))
+                .thenReturn(Multi.createFrom().items(TestData.getCorrectTransactionEntity(), TestData.getCorrectTransactionEntity()));
 
-        Mockito.when(terminalService.findAllBySolutionIds(anyList()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
+        Response response = given()
+                .accept("application/x-ndjson")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "TMIL0101")
+                .queryParam("startDate", "2023-01-01")
+                .queryParam("endDate", "2023-12-31")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
 
-        Mockito.when(transactionService.getTransactionCountByTerminals(anyList()))
-                .thenReturn(Uni.createFrom().item(10L));
+        Assertions.assertEquals(200, response.statusCode());
+        List<String> lines = response.body().asString().lines().filter(line -> !line.isBlank()).toList();
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertTrue(lines.get(0).contains("\"noticeNumber\":\"123456789123456789\""));
+    }
 
-        Mockito.when(transactionService.getTransactionListPagedByTerminals(
-                        anyList(),
-                        any(Date.class),
-                        any(Date.class),
-                        any(Sort.class),
-                        anyInt(),
-                        anyInt()))
-                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_200Csv() {
+        Mockito.when(transactionService.exportTransactionsByPsp(anyString(), any(Date.class), any(Date.class)))
+                .thenReturn(Multi.createFrom().item(TestData.getCorrectTransactionEntity()));
 
         Response response = given()
-                .contentType(ContentType.JSON)
+                .accept("text/csv")
                 .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
                 .queryParam("pspId", "TMIL0101")
                 .queryParam("startDate", "2023-01-01")
                 .queryParam("endDate", "2023-12-31")
-                .queryParam("sortStrategy", "desc")
-                .queryParam("page", 0)
-                .queryParam("size", 10)
                 .when()
-                .get("/findByPspId")
+                .get("/export")
                 .then()
                 .extract().response();
 
-        Assertions.assertEquals(500, response.statusCode());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(List.of(
+                        "id,terminalUuid,noticeNumber,payeeCode,creationTimestamp,lastUpdateTimestamp,status,amount",
+                        "66b49e6d7bca521f8c2f97e0,,123456789123456789,06534340721,,,,"),
+                response.body().asString().lines().toList());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "TMIL0101")
+    })
+    void testExportByPspId_401() {
+        Response response = given()
+                .accept("application/x-ndjson")
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .queryParam("pspId", "AGID_01")
+                .queryParam("startDate", "2023-01-01")
+                .queryParam("endDate", "2023-12-31")
+                .when()
+                .get("/export")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(401, response.statusCode());
+        Mockito.verify(transactionService, Mockito.never()).exportTransactionsByPsp(anyString(), any(Date.class), any(Date.class));
     }
 
     @Test
@@ -763,7 +762,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -814,7 +813,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -838,7 +837,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -886,7 +885,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -916,7 +915,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -947,7 +946,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -969,6 +968,161 @@ class TransactionResourceTest {
         Assertions.assertEquals(500, response.statusCode());
     }
 
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testCreateTransactions_200() {
+        TerminalEntity otherTerminal = TestData.getCorrectTerminalEntity();
+        otherTerminal.setTerminalUuid(TerminalUuid.of("0f1f7f4e-3c41-4c1d-9f4a-1f1e7a3b2c10"));
+        otherTerminal.setSolutionId("66a79a4624356b00da07cfc0");
+        SolutionEntity otherSolution = TestData.getCorrectSolutionEntity();
+        otherSolution.id = new ObjectId("66a79a4624356b00da07cfc0");
+        otherSolution.setLocationCode("80016350821");
+
+        TransactionDto owned = new TransactionDto("74a7c24f-5c64-41c2-aeac-d1fae93bff49", "485564829563528563", "06534340721");
+        TransactionDto ofOtherLocation = new TransactionDto("0f1f7f4e-3c41-4c1d-9f4a-1f1e7a3b2c10", "485564829563528564", "06534340721");
+
+        Mockito.when(terminalService.findAllByTerminalUuids(anyList()))
+                .thenReturn(Uni.createFrom().item(List.of(terminalEntity, otherTerminal)));
+        Mockito.when(solutionService.findAllByIds(anyList()))
+                .thenReturn(Uni.createFrom().item(List.of(solutionEntity, otherSolution)));
+        Mockito.when(transactionService.createTransactions(List.of(owned)))
+                .thenReturn(Uni.createFrom().item(List.of(TransactionBatchResult.success("66b49e6d7bca521f8c2f97e0", 201))));
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(new TransactionBatchDto(List.of(owned, transactionDto, ofOtherLocation)))
+                .when()
+                .post("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(List.of(201, 404, 401), response.jsonPath().getList("results.status"));
+        Assertions.assertEquals("66b49e6d7bca521f8c2f97e0", response.jsonPath().getString("results[0].transactionId"));
+        Assertions.assertEquals(ErrorCodes.ERROR_TERMINAL_NOT_FOUND, response.jsonPath().getString("results[1].errors.codes[0]"));
+        Assertions.assertEquals(ErrorCodes.ERROR_CHECK_TOKEN, response.jsonPath().getString("results[2].errors.codes[0]"));
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testCreateTransactions_400() {
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(new TransactionBatchDto(List.of(new TransactionDto("74a7c24f-5c64-41c2-aeac-d1fae93bff49", "123", "06534340721"))))
+                .when()
+                .post("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(400, response.statusCode());
+        Mockito.verify(terminalService, Mockito.never()).findAllByTerminalUuids(anyList());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testCreateTransactions_500() {
+        Mockito.when(terminalService.findAllByTerminalUuids(anyList()))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(new TransactionBatchDto(List.of(transactionDto)))
+                .when()
+                .post("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(500, response.statusCode());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testUpdateTransactions_200() {
+        UpdateTransactionBatchDto batch = new UpdateTransactionBatchDto(List.of(
+                new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 100L, "CLOSED"),
+                new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e1", 100L, "CLOSED")));
+
+        Mockito.when(transactionService.updateTransactions("06534340721", batch.transactions()))
+                .thenReturn(Uni.createFrom().item(List.of(
+                        TransactionBatchResult.success("66b49e6d7bca521f8c2f97e0", 204),
+                        TransactionBatchResult.failure("66b49e6d7bca521f8c2f97e1", 404, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, ErrorCodes.ERROR_TRANSACTION_NOT_FOUND_MSG))));
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(batch)
+                .when()
+                .patch("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals(List.of(204, 404), response.jsonPath().getList("results.status"));
+        Assertions.assertNull(response.jsonPath().get("results[0].errors"));
+        Assertions.assertEquals(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, response.jsonPath().getString("results[1].errors.codes[0]"));
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testUpdateTransactions_400() {
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(new UpdateTransactionBatchDto(List.of()))
+                .when()
+                .patch("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(400, response.statusCode());
+        Mockito.verify(transactionService, Mockito.never()).updateTransactions(anyString(), anyList());
+    }
+
+    @Test
+    @TestSecurity(user = "testUser", roles = {"public_administration"})
+    @JwtSecurity(claims = {
+            @Claim(key = "sub", value = "06534340721")
+    })
+    void testUpdateTransactions_500() {
+        Mockito.when(transactionService.updateTransactions(anyString(), anyList()))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+
+        Response response = given()
+                .contentType(ContentType.JSON)
+                .header("RequestId", "1a2b3c4d-5e6f-789a-bcde-f0123456789a")
+                .and()
+                .body(new UpdateTransactionBatchDto(List.of(new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 100L, "CLOSED"))))
+                .when()
+                .patch("/batch")
+                .then()
+                .extract().response();
+
+        Assertions.assertEquals(500, response.statusCode());
+    }
+
     @Test
     @TestSecurity(user = "testUser", roles = {"pos_service_provider"})
     @JwtSecurity(claims = {
@@ -978,7 +1132,7 @@ class TransactionResourceTest {
         Mockito.when(transactionService.findTransaction("66b49e6d7bca521f8c2f97e0"))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid()))
+        Mockito.when(terminalService.findTerminal(transactionEntity.getTerminalUuid().value()))
                 .thenReturn(Uni.createFrom().item(terminalEntity));
 
         Mockito.when(solutionService.findById(terminalEntity.getSolutionId()))
@@ -1005,8 +1159,8 @@ class TransactionResourceTest {
         Mockito.when(solutionService.findAllByPspId(anyString()))
                 .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
 
-        Mockito.when(terminalService.findAllBySolutionIdAndTerminalId(anyList(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
+        Mockito.when(terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(anyList(), anyString()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectTerminalEntity().getTerminalUuid().value())));
 
         Mockito.when(transactionService.findLatestByTerminalUuidAndStatus(anyList(), anyString(), any(Sort.class)))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
@@ -1084,7 +1238,7 @@ class TransactionResourceTest {
         Mockito.when(solutionService.findAllByPspId(anyString()))
                 .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
 
-        Mockito.when(terminalService.findAllBySolutionIdAndTerminalId(anyList(), anyString()))
+        Mockito.when(terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(anyList(), anyString()))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Response response = given()
@@ -1111,8 +1265,8 @@ class TransactionResourceTest {
         Mockito.when(solutionService.findAllByPspId(anyString()))
                 .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
 
-        List<TerminalEntity> empty = new ArrayList<>();
-        Mockito.when(terminalService.findAllBySolutionIdAndTerminalId(anyList(), anyString()))
+        List<String> empty = new ArrayList<>();
+        Mockito.when(terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(anyList(), anyString()))
                 .thenReturn(Uni.createFrom().item(empty));
 
         Response response = given()
@@ -1139,8 +1293,8 @@ class TransactionResourceTest {
         Mockito.when(solutionService.findAllByPspId(anyString()))
                 .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
 
-        Mockito.when(terminalService.findAllBySolutionIdAndTerminalId(anyList(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
+        Mockito.when(terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(anyList(), anyString()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectTerminalEntity().getTerminalUuid().value())));
 
         Mockito.when(transactionService.findLatestByTerminalUuidAndStatus(anyList(), anyString(), any(Sort.class)))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
@@ -1169,8 +1323,8 @@ class TransactionResourceTest {
         Mockito.when(solutionService.findAllByPspId(anyString()))
                 .thenReturn(Uni.createFrom().item(TestData.mockedListSolution()));
 
-        Mockito.when(terminalService.findAllBySolutionIdAndTerminalId(anyList(), anyString()))
-                .thenReturn(Uni.createFrom().item(TestData.mockedList()));
+        Mockito.when(terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(anyList(), anyString()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectTerminalEntity().getTerminalUuid().value())));
 
         transactionEntity = null;
         Mockito.when(transactionService.findLatestByTerminalUuidAndStatus(anyList(), anyString(), any(Sort.class)))
@@ -0,0 +1,540 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.panache.common.Sort;
+import io.quarkus.test.InjectMock;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.config.BulkLoadConfig;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorEntity;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorRepository;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusEntity;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusRepository;
+import it.pagopa.swclient.mil.papos.model.BulkLoadState;
+import it.pagopa.swclient.mil.papos.model.BulkLoadStatus;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
+import it.pagopa.swclient.mil.papos.util.TestData;
+import it.pagopa.swclient.mil.papos.util.Utility;
+import jakarta.inject.Inject;
+import jakarta.validation.Validator;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.StreamSupport;
+
+import static it.pagopa.swclient.mil.papos.util.TestData.getBulkLoadConfig;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+
+@QuarkusTest
+class BulkLoadServiceTest {
+
+    private static final String BULK_LOAD_FILE = "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, "
+            + "{ \"solutionId\": \"invalid\", \"terminalId\": \"34523861\", \"enabled\": true }, "
+            + "{ \"solutionId\": \"66a79a4624346b20da01cfbe\", \"terminalId\": \"34523862\", \"enabled\": false }]";
+
+    @InjectMock
+    TerminalService terminalService;
+
+    @InjectMock
+    SolutionService solutionService;
+
+    @InjectMock
+    BulkLoadStatusRepository bulkLoadStatusRepository;
+
+    @InjectMock
+    BulkLoadErrorRepository bulkLoadErrorRepository;
+
+    @Inject
+    Validator validator;
+
+    @TempDir
+    Path workDir;
+
+    ReactiveMongoCollection<BulkLoadStatusEntity> collection;
+
+    BulkLoadService bulkLoadService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void createTestObjects() {
+        collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(bulkLoadStatusRepository.mongoCollection()).thenReturn(collection);
+        Mockito.when(collection.updateOne(any(Bson.class), any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(1, 1L, null)));
+        Mockito.when(bulkLoadErrorRepository.persist(anyIterable()))
+                .thenReturn(Uni.createFrom().voidItem());
+
+        bulkLoadService = new BulkLoadService(terminalService, solutionService, bulkLoadStatusRepository, bulkLoadErrorRepository, new ObjectMapper(), validator,
+                getBulkLoadConfig(1, 1, workDir.toString()));
+    }
+
+    @AfterEach
+    void shutdown() {
+        bulkLoadService.shutdown();
+    }
+
+    @Test
+    void testSubmit_Success() {
+        stubSubmitted(null);
+        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
+                .thenAnswer(invocation -> {
+                    BulkLoadStatusEntity bulkLoadStatus = invocation.getArgument(0);
+                    bulkLoadStatus.id = new ObjectId();
+
+                    return Uni.createFrom().item(bulkLoadStatus);
+                });
+
+        BulkLoadStatusEntity result = bulkLoadService.submit("AGID_01", "requestId", stream("[]"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Assertions.assertEquals(BulkLoadState.PENDING, result.getState());
+        Assertions.assertEquals("AGID_01", result.getPspId());
+        Assertions.assertEquals("requestId", result.getRequestId());
+        Assertions.assertEquals("4f53cda18c2baa0c0354bb5f9a3ecbe5ed12ab4d8e11ba873c2f11161202b945", result.getContentHash());
+        Assertions.assertNotNull(result.getOwner());
+        Assertions.assertNotNull(result.getHeartbeatAt());
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.timeout(5000).times(2)).updateOne(any(Bson.class), updateCaptor.capture());
+        Assertions.assertEquals(BulkLoadState.COMPLETED.name(), stateOf(updateCaptor.getValue()));
+    }
+
+    @Test
+    void testSubmit_EmptyFile() throws IOException {
+        bulkLoadService.submit("AGID_01", "requestId", stream(""))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(null);
+
+        Mockito.verify(bulkLoadStatusRepository, Mockito.never()).persist(any(BulkLoadStatusEntity.class));
+        try (var files = Files.list(workDir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testSubmit_AlreadySubmitted() throws IOException {
+        BulkLoadStatusEntity submitted = TestData.getCorrectBulkLoadStatusEntity();
+        stubSubmitted(submitted);
+
+        bulkLoadService.submit("AGID_01", "requestId", stream(BULK_LOAD_FILE))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(submitted);
+
+        Mockito.verify(bulkLoadStatusRepository, Mockito.never()).persist(any(BulkLoadStatusEntity.class));
+        try (var files = Files.list(workDir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testSubmit_SubmittedConcurrently() throws IOException {
+        BulkLoadStatusEntity submitted = TestData.getCorrectBulkLoadStatusEntity();
+        stubSubmitted(null, submitted);
+
+        MongoWriteException duplicateKeyException = Mockito.mock(MongoWriteException.class);
+        Mockito.when(duplicateKeyException.getError()).thenReturn(new WriteError(11000, "duplicate key", new BsonDocument()));
+        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
+                .thenReturn(Uni.createFrom().failure(duplicateKeyException));
+
+        bulkLoadService.submit("AGID_01", "requestId", stream(BULK_LOAD_FILE))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(submitted);
+
+        try (var files = Files.list(workDir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testSubmit_PersistenceError() throws IOException {
+        stubSubmitted(null);
+        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("persist error")));
+
+        bulkLoadService.submit("AGID_01", "requestId", stream(BULK_LOAD_FILE))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitFailure()
+                .assertFailedWith(RuntimeException.class, "persist error");
+
+        try (var files = Files.list(workDir)) {
+            Assertions.assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProcess_Success() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), BULK_LOAD_FILE);
+
+        Mockito.when(solutionService.findAllByPspAndSolutionId(eq("AGID_01"), anyList()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectSolutionEntity())));
+        Mockito.when(terminalService.processBulkLoad(anyList(), any(BulkLoadStatus.class)))
+                .thenAnswer(invocation -> {
+                    List<?> terminals = invocation.getArgument(0);
+                    BulkLoadStatus bulkLoadStatus = invocation.getArgument(1);
+                    bulkLoadStatus.recordSuccess(terminals.size());
+
+                    return Uni.createFrom().voidItem();
+                });
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.times(5)).updateOne(any(Bson.class), updateCaptor.capture());
+
+        BsonDocument lastUpdate = setOf(updateCaptor.getValue());
+        Assertions.assertEquals(BulkLoadState.COMPLETED.name(), lastUpdate.getString("state").getValue());
+        Assertions.assertEquals(3, lastUpdate.getInt64("totalRecords").getValue());
+        Assertions.assertEquals(1, lastUpdate.getInt64("successRecords").getValue());
+        Assertions.assertEquals(2, lastUpdate.getInt64("failedRecords").getValue());
+        Assertions.assertEquals(1, lastUpdate.getDocument("errorCounts").getInt64(ErrorCodes.ERROR_INVALID_TERMINAL).getValue());
+        Assertions.assertEquals(1, lastUpdate.getDocument("errorCounts").getInt64(ErrorCodes.ERROR_SOLUTION_NOT_FOUND).getValue());
+        Assertions.assertFalse(Files.exists(file));
+
+        ArgumentCaptor<Iterable<BulkLoadErrorEntity>> errorsCaptor = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(bulkLoadErrorRepository, Mockito.times(2)).persist(errorsCaptor.capture());
+
+        List<BulkLoadErrorEntity> errors = errorsCaptor.getAllValues()
+                .stream()
+                .flatMap(batch -> StreamSupport.stream(batch.spliterator(), false))
+                .toList();
+        Assertions.assertEquals(List.of(1L, 2L), errors.stream().map(BulkLoadErrorEntity::getRowIndex).toList());
+        Assertions.assertEquals(ErrorCodes.ERROR_INVALID_TERMINAL, errors.get(0).getErrorCode());
+        Assertions.assertEquals("34523862", errors.get(1).getTerminalId());
+        Assertions.assertEquals(ErrorCodes.ERROR_SOLUTION_NOT_FOUND, errors.get(1).getErrorCode());
+        Assertions.assertEquals("bulkLoadingId", errors.get(1).getBulkLoadingId());
+    }
+
+    @Test
+    void testProcess_Resumed() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), BULK_LOAD_FILE);
+
+        Mockito.when(solutionService.findAllByPspAndSolutionId(eq("AGID_01"), anyList()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectSolutionEntity())));
+        Mockito.when(terminalService.processBulkLoad(anyList(), any(BulkLoadStatus.class)))
+                .thenReturn(Uni.createFrom().voidItem());
+
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+        bulkLoadStatus.restore(2, 1, Map.of(ErrorCodes.ERROR_INVALID_TERMINAL, 1L));
+        bulkLoadService.process(new ObjectId(), bulkLoadStatus, file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.times(3)).updateOne(any(Bson.class), updateCaptor.capture());
+
+        BsonDocument lastUpdate = setOf(updateCaptor.getValue());
+        Assertions.assertEquals(BulkLoadState.COMPLETED.name(), lastUpdate.getString("state").getValue());
+        Assertions.assertEquals(3, lastUpdate.getInt64("totalRecords").getValue());
+        Assertions.assertEquals(1, lastUpdate.getInt64("successRecords").getValue());
+        Assertions.assertEquals(2, lastUpdate.getInt64("failedRecords").getValue());
+        Mockito.verify(solutionService).findAllByPspAndSolutionId("AGID_01", List.of("66a79a4624346b20da01cfbe"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProcess_MalformedRow() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"),
+                "[{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523860\", \"enabled\": true }, "
+                        + "{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"enabled\": \"x\", \"terminalId\": \"34523861\", \"workstations\": [\"ws1\"] }, "
+                        + "{ \"solutionId\": \"66a79a4624356b00da07cfbf\", \"terminalId\": \"34523862\", \"enabled\": false }]");
+
+        Mockito.when(solutionService.findAllByPspAndSolutionId(eq("AGID_01"), anyList()))
+                .thenReturn(Uni.createFrom().item(List.of(TestData.getCorrectSolutionEntity())));
+        Mockito.when(terminalService.processBulkLoad(anyList(), any(BulkLoadStatus.class)))
+                .thenAnswer(invocation -> {
+                    List<?> terminals = invocation.getArgument(0);
+                    BulkLoadStatus bulkLoadStatus = invocation.getArgument(1);
+                    bulkLoadStatus.recordSuccess(terminals.size());
+
+                    return Uni.createFrom().voidItem();
+                });
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.times(5)).updateOne(any(Bson.class), updateCaptor.capture());
+
+        BsonDocument lastUpdate = setOf(updateCaptor.getValue());
+        Assertions.assertEquals(BulkLoadState.COMPLETED.name(), lastUpdate.getString("state").getValue());
+        Assertions.assertEquals(3, lastUpdate.getInt64("totalRecords").getValue());
+        Assertions.assertEquals(2, lastUpdate.getInt64("successRecords").getValue());
+        Assertions.assertEquals(1, lastUpdate.getInt64("failedRecords").getValue());
+        Assertions.assertEquals(1, lastUpdate.getDocument("errorCounts").getInt64(ErrorCodes.ERROR_INVALID_TERMINAL).getValue());
+
+        ArgumentCaptor<Iterable<BulkLoadErrorEntity>> errorsCaptor = ArgumentCaptor.forClass(Iterable.class);
+        Mockito.verify(bulkLoadErrorRepository).persist(errorsCaptor.capture());
+
+        List<BulkLoadErrorEntity> errors = StreamSupport.stream(errorsCaptor.getValue().spliterator(), false).toList();
+        Assertions.assertEquals(1, errors.size());
+        Assertions.assertEquals(1L, errors.get(0).getRowIndex());
+        Assertions.assertNull(errors.get(0).getTerminalId());
+        Assertions.assertEquals(ErrorCodes.ERROR_INVALID_TERMINAL, errors.get(0).getErrorCode());
+    }
+
+    @Test
+    void testProcess_MalformedFile() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), "malformed content");
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).updateOne(any(Bson.class), updateCaptor.capture());
+
+        BsonDocument lastUpdate = setOf(updateCaptor.getValue());
+        Assertions.assertEquals(BulkLoadState.FAILED.name(), lastUpdate.getString("state").getValue());
+        Assertions.assertEquals(ErrorCodes.ERROR_PROCESSING_FILE_MSG, lastUpdate.getArray("errorMessages").get(0).asString().getValue());
+        Assertions.assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testProcess_ServiceError() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), BULK_LOAD_FILE);
+
+        Mockito.when(solutionService.findAllByPspAndSolutionId(eq("AGID_01"), anyList()))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("db error")));
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.times(2)).updateOne(any(Bson.class), updateCaptor.capture());
+        Assertions.assertEquals(BulkLoadState.FAILED.name(), stateOf(updateCaptor.getValue()));
+    }
+
+    @Test
+    void testProcess_FlushError() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), "[]");
+
+        Mockito.when(collection.updateOne(any(Bson.class), any(Bson.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("db error")));
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        Mockito.verify(collection, Mockito.times(2)).updateOne(any(Bson.class), any(Bson.class));
+        Assertions.assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testProcess_LeaseLost() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), BULK_LOAD_FILE);
+
+        Mockito.when(collection.updateOne(any(Bson.class), any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(0, 0L, null)));
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).updateOne(filterCaptor.capture(), any(Bson.class));
+        Assertions.assertTrue(filterCaptor.getValue().toBsonDocument().toJson().contains("\"owner\""));
+        Mockito.verify(solutionService, Mockito.never()).findAllByPspAndSolutionId(any(String.class), anyList());
+        Assertions.assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void testProcess_ErrorsPersistenceError() throws IOException {
+        Path file = Files.writeString(workDir.resolve("bulkLoad.json"), BULK_LOAD_FILE);
+
+        Mockito.when(solutionService.findAllByPspAndSolutionId(eq("AGID_01"), anyList()))
+                .thenReturn(Uni.createFrom().item(List.of()));
+        Mockito.when(terminalService.processBulkLoad(anyList(), any(BulkLoadStatus.class)))
+                .thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(bulkLoadErrorRepository.persist(anyIterable()))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("db error")));
+
+        bulkLoadService.process(new ObjectId(), new BulkLoadStatus("bulkLoadingId", "AGID_01"), file)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem();
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.times(2)).updateOne(any(Bson.class), updateCaptor.capture());
+        Assertions.assertEquals(BulkLoadState.FAILED.name(), stateOf(updateCaptor.getValue()));
+    }
+
+    @Test
+    void testGetErrorCount_Success() {
+        Mockito.when(bulkLoadErrorRepository.count("bulkLoadingId = ?1", "bulkLoadingId"))
+                .thenReturn(Uni.createFrom().item(2L));
+
+        bulkLoadService.getErrorCount("bulkLoadingId")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetErrorListPaged_Success() {
+        List<BulkLoadErrorEntity> errors = List.of(TestData.getCorrectBulkLoadErrorEntity());
+
+        ReactivePanacheQuery<BulkLoadErrorEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.page(0, 10)).thenReturn(query);
+        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(errors));
+        Mockito.when(bulkLoadErrorRepository.find(eq("bulkLoadingId = ?1"), any(Sort.class), eq("bulkLoadingId"))).thenReturn(query);
+
+        bulkLoadService.getErrorListPaged("bulkLoadingId", 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(errors);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnStart_Resume() throws IOException {
+        BulkLoadStatusEntity interrupted = TestData.getCorrectBulkLoadStatusEntity();
+        interrupted.id = new ObjectId();
+        interrupted.setState(BulkLoadState.IN_PROGRESS);
+        interrupted.setTotalRecords(3);
+        interrupted.setSuccessRecords(3);
+        Files.writeString(workDir.resolve(interrupted.getBulkLoadingId() + ".json"), BULK_LOAD_FILE);
+        stubInterrupted(interrupted);
+
+        Mockito.when(terminalService.deleteByTerminalUuids(anyList()))
+                .thenReturn(Uni.createFrom().item(0L));
+        Mockito.when(bulkLoadErrorRepository.delete("bulkLoadingId = ?1 and rowIndex >= ?2", interrupted.getBulkLoadingId(), 3L))
+                .thenReturn(Uni.createFrom().item(0L));
+
+        bulkLoadService.onStart(null);
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.timeout(5000).times(2)).updateOne(any(Bson.class), updateCaptor.capture());
+        Assertions.assertEquals(BulkLoadState.COMPLETED.name(), stateOf(updateCaptor.getValue()));
+
+        ArgumentCaptor<List<String>> uuidsCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(terminalService).deleteByTerminalUuids(uuidsCaptor.capture());
+        Assertions.assertEquals(List.of(Utility.generateBulkLoadTerminalUuid(interrupted.getBulkLoadingId(), 3)), uuidsCaptor.getValue());
+        Mockito.verify(solutionService, Mockito.never()).findAllByPspAndSolutionId(any(String.class), anyList());
+    }
+
+    @Test
+    void testOnStart_FileNotFound() {
+        BulkLoadStatusEntity interrupted = TestData.getCorrectBulkLoadStatusEntity();
+        interrupted.id = new ObjectId();
+        interrupted.setState(BulkLoadState.PENDING);
+        stubInterrupted(interrupted);
+
+        bulkLoadService.onStart(null);
+
+        ArgumentCaptor<Bson> updateCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection, Mockito.timeout(5000)).updateOne(any(Bson.class), updateCaptor.capture());
+
+        BsonDocument update = setOf(updateCaptor.getValue());
+        Assertions.assertEquals(BulkLoadState.FAILED.name(), update.getString("state").getValue());
+        Assertions.assertEquals(ErrorCodes.ERROR_BULKLOAD_INTERRUPTED_MSG, update.getArray("errorMessages").get(0).asString().getValue());
+    }
+
+    @Test
+    void testOnStart_ClaimsPeriodically() {
+        BulkLoadConfig config = Mockito.mock(BulkLoadConfig.class);
+        Mockito.when(config.workers()).thenReturn(1);
+        Mockito.when(config.recoverOnStartup()).thenReturn(true);
+        Mockito.when(config.leaseDuration()).thenReturn(Duration.ofMillis(100));
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("connection error")), Uni.createFrom().nullItem());
+
+        BulkLoadService periodicBulkLoadService = new BulkLoadService(terminalService, solutionService, bulkLoadStatusRepository, bulkLoadErrorRepository, new ObjectMapper(), validator, config);
+        periodicBulkLoadService.onStart(null);
+
+        Mockito.verify(collection, Mockito.timeout(5000).atLeast(3)).findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class));
+        periodicBulkLoadService.shutdown();
+    }
+
+    @Test
+    void testOnStart_Disabled() {
+        BulkLoadConfig config = Mockito.mock(BulkLoadConfig.class);
+        Mockito.when(config.workers()).thenReturn(1);
+        Mockito.when(config.recoverOnStartup()).thenReturn(false);
+
+        BulkLoadService disabledBulkLoadService = new BulkLoadService(terminalService, solutionService, bulkLoadStatusRepository, bulkLoadErrorRepository, new ObjectMapper(), validator, config);
+        disabledBulkLoadService.onStart(null);
+        disabledBulkLoadService.shutdown();
+
+        Mockito.verify(collection, Mockito.never()).findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubSubmitted(BulkLoadStatusEntity submitted, BulkLoadStatusEntity... submittedLater) {
+        ReactivePanacheQuery<BulkLoadStatusEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().item(submitted),
+                Arrays.stream(submittedLater).map(entity -> Uni.createFrom().item(entity)).toArray(Uni[]::new));
+        Mockito.when(bulkLoadStatusRepository.find(eq("pspId = ?1 and requestId = ?2 and contentHash = ?3"), eq("AGID_01"), eq("requestId"), any(String.class)))
+                .thenReturn(query);
+    }
+
+    private void stubInterrupted(BulkLoadStatusEntity interrupted) {
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(interrupted), Uni.createFrom().nullItem());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BsonDocument setOf(Bson update) {
+        return update.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).getDocument("$set");
+    }
+
+    private static String stateOf(Bson update) {
+        return setOf(update).getString("state").getValue();
+    }
+}
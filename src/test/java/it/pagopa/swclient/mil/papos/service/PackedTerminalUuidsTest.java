@@ -0,0 +1,42 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class PackedTerminalUuidsTest {
+
+    @Test
+    void testGet_Canonical() {
+        PackedTerminalUuids terminalUuids = PackedTerminalUuids.of(Map.of(
+                "34523860", "2c9a8a3e-8b0f-4f6a-9d0e-1d2c3b4a5f60",
+                "12345678", "00000000-0000-0000-0000-000000000001"));
+
+        Assertions.assertEquals(2, terminalUuids.size());
+        Assertions.assertEquals("2c9a8a3e-8b0f-4f6a-9d0e-1d2c3b4a5f60", terminalUuids.get("34523860"));
+        Assertions.assertEquals("00000000-0000-0000-0000-000000000001", terminalUuids.get("12345678"));
+        Assertions.assertNull(terminalUuids.get("99999999"));
+    }
+
+    @Test
+    void testGet_NotCanonical() {
+        PackedTerminalUuids terminalUuids = PackedTerminalUuids.of(Map.of(
+                "34523860", "2C9A8A3E-8B0F-4F6A-9D0E-1D2C3B4A5F60",
+                "12345678", "not-a-uuid",
+                "87654321", "2c9a8a3e-8b0f-4f6a-9d0e-1d2c3b4a5f61"));
+
+        Assertions.assertEquals(3, terminalUuids.size());
+        Assertions.assertEquals("2C9A8A3E-8B0F-4F6A-9D0E-1D2C3B4A5F60", terminalUuids.get("34523860"));
+        Assertions.assertEquals("not-a-uuid", terminalUuids.get("12345678"));
+        Assertions.assertEquals("2c9a8a3e-8b0f-4f6a-9d0e-1d2c3b4a5f61", terminalUuids.get("87654321"));
+    }
+
+    @Test
+    void testOf_Empty() {
+        PackedTerminalUuids terminalUuids = PackedTerminalUuids.of(Map.of());
+
+        Assertions.assertEquals(0, terminalUuids.size());
+        Assertions.assertNull(terminalUuids.get("34523860"));
+    }
+}
@@ -0,0 +1,104 @@
+package it.pagopa.swclient.mil.papos.service;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
+import it.pagopa.swclient.mil.papos.util.TestData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class SolutionCacheTest {
+
+    @Test
+    void testGetByPspId_CachedUntilEvicted() {
+        SolutionCache solutionCache = new SolutionCache(TestData.getSolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+        SolutionEntity solution = TestData.getCorrectSolutionEntity();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<List<SolutionEntity>>> loader = countingLoader(loads, List.of(solution));
+
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of(solution));
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of(solution));
+        Assertions.assertEquals(1, loads.get());
+
+        solutionCache.evict(solution);
+
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of(solution));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetByLocationCode_Expired() {
+        SolutionCache solutionCache = new SolutionCache(TestData.getSolutionCacheConfig(true, Duration.ZERO, 10));
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<List<SolutionEntity>>> loader = countingLoader(loads, List.of());
+
+        assertItem(solutionCache.getByLocationCode("06534340721", loader), List.of());
+        assertItem(solutionCache.getByLocationCode("06534340721", loader), List.of());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetById_NotFoundNotCached() {
+        SolutionCache solutionCache = new SolutionCache(TestData.getSolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<SolutionEntity>> loader = () -> {
+            loads.incrementAndGet();
+
+            return Uni.createFrom().nullItem();
+        };
+
+        assertItem(solutionCache.getById("66a79a4624356b00da07cfbf", loader), null);
+        assertItem(solutionCache.getById("66a79a4624356b00da07cfbf", loader), null);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetByPspId_EvictedWhileLoading() {
+        SolutionCache solutionCache = new SolutionCache(TestData.getSolutionCacheConfig(true, Duration.ofMinutes(1), 10));
+        SolutionEntity solution = TestData.getCorrectSolutionEntity();
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<List<SolutionEntity>>> loader = () -> {
+            loads.incrementAndGet();
+
+            return Uni.createFrom().item(() -> {
+                solutionCache.evict(solution);
+
+                return List.of(solution);
+            });
+        };
+
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of(solution));
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of(solution));
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGetByPspId_Disabled() {
+        SolutionCache solutionCache = new SolutionCache(TestData.getSolutionCacheConfig(false, Duration.ofMinutes(1), 10));
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Uni<List<SolutionEntity>>> loader = countingLoader(loads, List.of());
+
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of());
+        assertItem(solutionCache.getByPspId("TMIL0101", loader), List.of());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    private static Supplier<Uni<List<SolutionEntity>>> countingLoader(AtomicInteger loads, List<SolutionEntity> solutions) {
+        return () -> {
+            loads.incrementAndGet();
+
+            return Uni.createFrom().item(solutions);
+        };
+    }
+
+    private static <T> void assertItem(Uni<T> uni, T expected) {
+        uni.subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(expected);
+    }
+}
@@ -1,27 +1,38 @@
 package it.pagopa.swclient.mil.papos.service;
 
+import com.mongodb.client.model.Filters;
+import io.quarkus.mongodb.FindOptions;
 import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.dao.ReadRouting;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.SolutionRepository;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.SolutionDto;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.util.TestData;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.WebApplicationException;
 
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import static it.pagopa.swclient.mil.papos.util.TestData.mockedListSolution;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
 
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 
 @QuarkusTest
@@ -42,7 +53,8 @@ class SolutionServiceTest {
     static void createTestObjects() {
         solutionEntity = TestData.getCorrectSolutionEntity();
         solutionDto = TestData.getCorrectSolutionDto();
-        solutionService = new SolutionService(solutionRepository);
+        solutionService = new SolutionService(solutionRepository, TestData.getPagingConfig(100),
+                new SolutionCache(TestData.getSolutionCacheConfig(false, Duration.ofMinutes(1), 10)), new ReadRouting(TestData.getReadRoutingConfig("primary", null)));
     }
 
     @Test
@@ -85,7 +97,7 @@ class SolutionServiceTest {
     @Test
     void testGetSolutionsCount_Success() {
         Long countNumber = 10L;
-        Mockito.when(solutionRepository.count())
+        Mockito.when(mockCollection().countDocuments())
                 .thenReturn(Uni.createFrom().item(countNumber));
 
         Uni<Long> result = solutionService.getSolutionsCount();
@@ -96,24 +108,60 @@ class SolutionServiceTest {
 
     @Test
     void testFindSolutions_Success() {
-        ReactivePanacheQuery<SolutionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
-        Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
-        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(mockedListSolution()));
+        List<SolutionEntity> solutions = mockedListSolution();
+        Mockito.when(mockCollection().find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(solutions));
 
-        Mockito.when(solutionRepository.findAll())
-                .thenReturn(query);
+        solutionService.findSolutions(null, 1, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(solutions, null));
+    }
+
+    @Test
+    void testFindSolutions_Cursor() {
+        List<SolutionEntity> solutions = mockedListSolution();
+        ObjectId after = new ObjectId("66a79a4624356b00da07cf00");
+        ReactiveMongoCollection<SolutionEntity> collection = mockCollection();
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(solutions));
+
+        KeysetPage<SolutionEntity> page = solutionService.findSolutions(after, 5, 1)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
 
-        Uni<List<SolutionEntity>> solutionsEntityUni = solutionService.findSolutions(1, 10);
+        Assertions.assertEquals(List.of(solutions.get(0)), page.items());
+        Assertions.assertEquals(solutions.get(0).id, page.nextAfter());
 
-        solutionsEntityUni
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(Filters.and(new Document(), Filters.gt("_id", after)).toBsonDocument(), filterCaptor.getValue().toBsonDocument());
+    }
+
+    @Test
+    void testGetSolutionsCount_Estimated() {
+        Mockito.when(mockCollection().estimatedDocumentCount())
+                .thenReturn(Uni.createFrom().item(1000L));
+
+        solutionService.getSolutionsCount(TotalMode.ESTIMATED)
                 .subscribe()
-                .with(list -> Assertions.assertEquals(mockedListSolution(), list));
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(1000L);
+    }
 
+    @Test
+    void testGetSolutionByAttributeCount_WithoutTotal() {
+        solutionService.getSolutionCountByAttribute("pspId", "pspId", TotalMode.NONE)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(null);
     }
 
     @Test
     void testGetSolutionByAttributeCount_Success() {
-        Mockito.when(solutionRepository.count("pspId", "pspId"))
+        Mockito.when(mockCollection().countDocuments(any(Bson.class)))
                 .thenReturn(Uni.createFrom().item(10L));
 
         var solutionCount = solutionService.getSolutionCountByAttribute("pspId", "pspId");
@@ -139,15 +187,32 @@ class SolutionServiceTest {
 
     @Test
     void testGetSolutionsList_Success() {
-        ReactivePanacheQuery<SolutionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
-        Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
-        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(mockedListSolution()));
-        Mockito.when(solutionRepository.find(String.format("%s = ?1", "pspId"), "pspId")).thenReturn(query);
+        List<SolutionEntity> solutions = mockedListSolution();
+        Mockito.when(mockCollection().find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(solutions));
 
-        Uni<List<SolutionEntity>> result = solutionService.getSolutionsListPagedByAttribute("pspId", "pspId", 0, 10);
+        solutionService.getSolutionsListPagedByAttribute("pspId", "pspId", null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(solutions, null));
+    }
 
-        result.subscribe()
-                .with(list -> Assertions.assertEquals(mockedListSolution(), list));
+    @Test
+    void testGetSolutionsList_Cursor() {
+        List<SolutionEntity> solutions = mockedListSolution();
+        ObjectId after = new ObjectId("66a79a4624356b00da07cf00");
+        ReactiveMongoCollection<SolutionEntity> collection = mockCollection();
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(solutions));
+
+        solutionService.getSolutionsListPagedByAttribute("pspId", "pspId", after, 3, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(solutions, null));
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(Filters.and(Filters.eq("pspId", "pspId"), Filters.gt("_id", after)).toBsonDocument(), filterCaptor.getValue().toBsonDocument());
     }
 
     @Test
@@ -176,6 +241,17 @@ class SolutionServiceTest {
     }
 
 
+    @Test
+    void testFindAllByIds_SkipsInvalidIds() {
+        Mockito.when(solutionRepository.list("_id in ?1", List.of(new ObjectId("66a79a4624356b00da07cfbf"))))
+                .thenReturn(Uni.createFrom().item(mockedListSolution()));
+
+        solutionService.findAllByIds(Arrays.asList("66a79a4624356b00da07cfbf", "solutionId", null))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(mockedListSolution());
+    }
+
     @Test
     void testDeleteSolution_Success() {
         Mockito.when(solutionRepository.delete(any(SolutionEntity.class)))
@@ -224,6 +300,46 @@ class SolutionServiceTest {
                 .with(entity -> Assertions.assertEquals(solutionEntity, entity));
     }
 
+    @Test
+    void testUpdateSolution_EvictsCachedLookups() {
+        SolutionService cachedSolutionService = new SolutionService(solutionRepository, TestData.getPagingConfig(100),
+                new SolutionCache(TestData.getSolutionCacheConfig(true, Duration.ofMinutes(1), 10)), new ReadRouting(TestData.getReadRoutingConfig("primary", null)));
+        SolutionEntity solution = TestData.getCorrectSolutionEntity();
+        List<SolutionEntity> solutions = List.of(solution);
+        Mockito.when(solutionRepository.list("pspId = ?1", "TMIL0199"))
+                .thenReturn(Uni.createFrom().item(solutions));
+        Mockito.when(solutionRepository.update(any(SolutionEntity.class)))
+                .thenReturn(Uni.createFrom().item(solution));
+
+        cachedSolutionService.findAllByLocationOrPsp("pspId", "TMIL0199")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(solutions);
+        cachedSolutionService.findAllByLocationOrPsp("pspId", "TMIL0199")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(solutions);
+        Mockito.verify(solutionRepository, Mockito.times(1)).list("pspId = ?1", "TMIL0199");
+
+        solution.setPspId("TMIL0199");
+        cachedSolutionService.updateSolution(solution.id.toString(), new SolutionDto("TMIL0101", "06534340721"), solution)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(solution);
+        cachedSolutionService.findAllByLocationOrPsp("pspId", "TMIL0199")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+        Mockito.verify(solutionRepository, Mockito.times(2)).list("pspId = ?1", "TMIL0199");
+
+        ArgumentCaptor<SolutionEntity> updateCaptor = ArgumentCaptor.forClass(SolutionEntity.class);
+        Mockito.verify(solutionRepository, Mockito.atLeastOnce()).update(updateCaptor.capture());
+        Assertions.assertNotSame(solution, updateCaptor.getValue());
+        Assertions.assertEquals(solution.id, updateCaptor.getValue().id);
+        Assertions.assertEquals("TMIL0101", updateCaptor.getValue().getPspId());
+        Assertions.assertEquals("TMIL0199", solution.getPspId());
+    }
+
     @Test
     void testUpdateSolution_Failure() {
         Mockito.when(solutionRepository.update(any(SolutionEntity.class)))
@@ -236,4 +352,11 @@ class SolutionServiceTest {
                 .assertFailedWith(WebApplicationException.class);
     }
 
-} 
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<SolutionEntity> mockCollection() {
+        ReactiveMongoCollection<SolutionEntity> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(solutionRepository.mongoCollection()).thenReturn(collection);
+
+        return collection;
+    }
+}
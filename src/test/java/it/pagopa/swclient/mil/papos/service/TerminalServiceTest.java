@@ -1,27 +1,60 @@
 package it.pagopa.swclient.mil.papos.service;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.result.UpdateResult;
+import io.quarkus.mongodb.FindOptions;
 import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
 import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
 import it.pagopa.swclient.mil.papos.dao.*;
+import it.pagopa.swclient.mil.papos.model.BulkLoadError;
+import it.pagopa.swclient.mil.papos.model.BulkLoadStatus;
+import it.pagopa.swclient.mil.papos.model.KeysetPage;
 import it.pagopa.swclient.mil.papos.model.TerminalDto;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
 import it.pagopa.swclient.mil.papos.model.WorkstationsDto;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.TestData;
+import it.pagopa.swclient.mil.papos.util.Utility;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.WebApplicationException;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static it.pagopa.swclient.mil.papos.util.TestData.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 
 @QuarkusTest
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -49,23 +82,42 @@ class TerminalServiceTest {
         workstationsDto = TestData.getCorrectWorkstationDto();
         terminalEntity = TestData.getCorrectTerminalEntity();
         bulkLoadStatusEntity = TestData.getCorrectBulkLoadStatusEntity();
-        terminalService = new TerminalService(terminalRepository, bulkLoadStatusRepository);
+        terminalService = new TerminalService(terminalRepository, bulkLoadStatusRepository, getBulkLoadConfig(2, 1, "target"), getPagingConfig(100),
+                new TerminalUuidCache(getTerminalCacheConfig(false, Duration.ofMinutes(1), 10)), new ReadRouting(getReadRoutingConfig("primary", null)));
     }
 
     @Test
     void testCreateTerminal_Success() {
-        Mockito.when(terminalRepository.persist(any(TerminalEntity.class)))
-                .thenReturn(Uni.createFrom().item(terminalEntity));
+        ObjectId id = new ObjectId();
+        Mockito.when(mockCollection().updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(0, 0L, new BsonObjectId(id))));
 
-        Uni<TerminalEntity> result = terminalService.createTerminal(terminalDto);
+        TerminalEntity result = terminalService.createTerminal(terminalDto)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
 
-        result.subscribe()
-                .with(entity -> Assertions.assertEquals(terminalEntity, entity));
+        Assertions.assertEquals(id, result.id);
+        Assertions.assertEquals(terminalDto.terminalId(), result.getTerminalId());
+        Assertions.assertNotNull(result.getTerminalUuid());
+    }
+
+    @Test
+    void testCreateTerminal_AlreadyExists() {
+        Mockito.when(mockCollection().updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(UpdateResult.acknowledged(1, 0L, null)));
+
+        terminalService.createTerminal(terminalDto)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertItem(null);
     }
 
     @Test
     void testCreateTerminal_Failure() {
-        Mockito.when(terminalRepository.persist(any(TerminalEntity.class)))
+        Mockito.when(mockCollection().updateOne(any(Bson.class), any(Bson.class), any(UpdateOptions.class)))
                 .thenReturn(Uni.createFrom().failure(new InternalServerErrorException()));
 
         Uni<TerminalEntity> result = terminalService.createTerminal(terminalDto);
@@ -76,31 +128,84 @@ class TerminalServiceTest {
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void testProcessBulkLoad_Success() {
-        Mockito.when(terminalRepository.persist(any(TerminalEntity.class)))
-                .thenReturn(Uni.createFrom().item(new TerminalEntity()));
-        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
-                .thenReturn(Uni.createFrom().item(new BulkLoadStatusEntity()));
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(BulkWriteResult.class)));
+
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+        Uni<Void> result = terminalService.processBulkLoad(mockedListBulkLoadRow(), bulkLoadStatus);
+
+        result.subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertCompleted();
+        Assertions.assertEquals(2, bulkLoadStatus.getSuccessRecords());
 
-        Uni<BulkLoadStatusEntity> result = terminalService.processBulkLoad(mockedListTerminalDto(), 2, "AGID_01");
+        ArgumentCaptor<List<UpdateOneModel<TerminalEntity>>> upsertsCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection, Mockito.times(2)).bulkWrite(upsertsCaptor.capture(), any(BulkWriteOptions.class));
+
+        UpdateOneModel<TerminalEntity> upsert = upsertsCaptor.getAllValues().get(1).get(0);
+        Assertions.assertTrue(upsert.getOptions().isUpsert());
+        Assertions.assertEquals("34523861", toDocument(upsert.getFilter()).getString("terminalId").getValue());
+        Assertions.assertEquals(Utility.generateBulkLoadTerminalUuid("bulkLoadingId", 1),
+                toDocument(upsert.getUpdate()).getDocument("$setOnInsert").getString("terminalUuid").getValue());
+    }
+
+    @Test
+    void testProcessBulkLoad_EmptyChunk() {
+        Uni<Void> result = terminalService.processBulkLoad(List.of(), new BulkLoadStatus("bulkLoadingId", "AGID_01"));
 
         result.subscribe()
                 .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
                 .assertCompleted();
     }
 
     @Test
-    void testProcessBulkLoad_CreateTerminalFailure() {
-        Mockito.when(terminalRepository.persist(any(TerminalEntity.class)))
-                .thenReturn(Uni.createFrom().failure(new RuntimeException()));
-        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
-                .thenReturn(Uni.createFrom().item(new BulkLoadStatusEntity()));
+    void testProcessBulkLoad_BatchFailure() {
+        Mockito.when(mockCollection().bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new RuntimeException("batch error")));
 
-        Uni<BulkLoadStatusEntity> result = terminalService.processBulkLoad(mockedListTerminalDto(), 2, "AGID_01");
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+        Uni<Void> result = terminalService.processBulkLoad(mockedListBulkLoadRow(), bulkLoadStatus);
 
         result.subscribe()
                 .withSubscriber(UniAssertSubscriber.create())
-                .assertFailedWith(RuntimeException.class);
+                .awaitItem()
+                .assertCompleted();
+        Assertions.assertEquals(0, bulkLoadStatus.getSuccessRecords());
+        Assertions.assertEquals(2, bulkLoadStatus.getFailedRecords());
+        Assertions.assertEquals(Map.of(ErrorCodes.ERROR_GENERIC_FROM_DB, 2L), bulkLoadStatus.getErrorCounts());
+        Assertions.assertTrue(bulkLoadStatus.getErrorMessages().isEmpty());
+
+        List<BulkLoadError> errors = bulkLoadStatus.drainErrors();
+        Assertions.assertEquals(List.of(0L, 1L), errors.stream().map(BulkLoadError::rowIndex).toList());
+        Assertions.assertEquals("batch error", errors.get(0).message());
+    }
+
+    @Test
+    void testProcessBulkLoad_PartialBatchFailure() {
+        MongoBulkWriteException bulkWriteException = Mockito.mock(MongoBulkWriteException.class);
+        Mockito.when(bulkWriteException.getWriteErrors())
+                .thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+
+        Mockito.when(mockCollection().bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().failure(bulkWriteException));
+
+        TerminalService batchTerminalService = new TerminalService(terminalRepository, bulkLoadStatusRepository, getBulkLoadConfig(2, 2, "target"), getPagingConfig(100),
+                new TerminalUuidCache(getTerminalCacheConfig(false, Duration.ofMinutes(1), 10)), new ReadRouting(getReadRoutingConfig("primary", null)));
+        BulkLoadStatus bulkLoadStatus = new BulkLoadStatus("bulkLoadingId", "AGID_01");
+        Uni<Void> result = batchTerminalService.processBulkLoad(mockedListBulkLoadRow(), bulkLoadStatus);
+
+        result.subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .assertCompleted();
+        Assertions.assertEquals(1, bulkLoadStatus.getSuccessRecords());
+        Assertions.assertEquals(1, bulkLoadStatus.getFailedRecords());
+        Assertions.assertEquals("34523860", bulkLoadStatus.drainErrors().get(0).terminalId());
     }
 
     @Test
@@ -117,23 +222,9 @@ class TerminalServiceTest {
                 .assertItem(bulkLoadStatusEntity);
     }
 
-    @Test
-    void testProcessBulkLoad_PersistenceError() {
-        Mockito.when(terminalRepository.persist(any(TerminalEntity.class)))
-                .thenReturn(Uni.createFrom().item(new TerminalEntity()));
-        Mockito.when(bulkLoadStatusRepository.persist(any(BulkLoadStatusEntity.class)))
-                .thenReturn(Uni.createFrom().failure(new RuntimeException("Error persisting bulk load status")));
-
-        Uni<BulkLoadStatusEntity> result = terminalService.processBulkLoad(mockedListTerminalDto(), 2, "AGID_01");
-
-        result.subscribe()
-                .withSubscriber(UniAssertSubscriber.create())
-                .assertFailedWith(RuntimeException.class, "Error persisting bulk load status");
-    }
-
     @Test
     void testGetTerminalCountWorkstation_Success() {
-        Mockito.when(terminalRepository.count("workstations = ?1 and solutionId in ?2", "workstation", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
+        Mockito.when(mockCollection().countDocuments(any(Bson.class)))
                 .thenReturn(Uni.createFrom().item(10L));
 
         var terminalCount = terminalService.getTerminalCountByWorkstation("workstation", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"));
@@ -146,22 +237,47 @@ class TerminalServiceTest {
 
     @Test
     void testGetTerminalListWorkstation_Success() {
-        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
-        Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
-        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(mockedList()));
-        Mockito.when(terminalRepository.find("workstations = ?1 and solutionId in ?2", "workstation", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"))).thenReturn(query);
+        List<TerminalEntity> terminals = mockedList();
+        Mockito.when(mockCollection().find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(terminals));
 
-        Uni<List<TerminalEntity>> result = terminalService.getTerminalListPagedByWorkstation("workstation", 0, 10, Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"));
+        terminalService.getTerminalListPagedByWorkstation("workstation", null, 0, 10, Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(terminals, null));
+    }
 
-        result.subscribe()
-                .with(list -> Assertions.assertEquals(mockedList(), list));
+    @Test
+    void testGetTerminalListWorkstation_Cursor() {
+        ObjectId after = new ObjectId("66a79a4624356b00da07cf00");
+        List<TerminalEntity> terminals = mockedList();
+        terminals.get(0).id = new ObjectId("66a79a4624356b00da07cf01");
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(terminals));
+
+        KeysetPage<TerminalEntity> page = terminalService.getTerminalListPagedByWorkstation("workstation", after, 4, 1, List.of("66a79a4624356b00da07cfbf"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Assertions.assertEquals(List.of(terminals.get(0)), page.items());
+        Assertions.assertEquals(new ObjectId("66a79a4624356b00da07cf01"), page.nextAfter());
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(toDocument(Filters.and(
+                        Filters.and(Filters.eq("workstations", "workstation"), Filters.in("solutionId", List.of("66a79a4624356b00da07cfbf"))),
+                        Filters.gt("_id", after))),
+                toDocument(filterCaptor.getValue()));
     }
 
     @Test
     void testFindTerminal_Success() {
         ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
         Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().item(terminalEntity));
-        Mockito.when(terminalRepository.find("terminalUuid = ?1", "terminalUuid")).thenReturn(query);
+        Mockito.when(terminalRepository.find(new Document("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("terminalUuid")))))).thenReturn(query);
 
         Uni<TerminalEntity> terminalEntityUni = terminalService.findTerminal("terminalUuid");
 
@@ -171,6 +287,19 @@ class TerminalServiceTest {
                 .assertItem(terminalEntity);
     }
 
+    @Test
+    void testFindAllByTerminalUuids_Success() {
+        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(List.of(terminalEntity)));
+        Mockito.when(terminalRepository.find(new Document("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("terminalUuid1"), TerminalUuid.of("terminalUuid2"))))))
+                .thenReturn(query);
+
+        terminalService.findAllByTerminalUuids(List.of("terminalUuid1", "terminalUuid2"))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of(terminalEntity));
+    }
+
     @Test
     void testUpdateWorkstations_Success() {
         Mockito.when(terminalRepository.update(any(TerminalEntity.class)))
@@ -217,6 +346,19 @@ class TerminalServiceTest {
                 .assertFailedWith(WebApplicationException.class);
     }
 
+    @Test
+    void testUpdateTerminal_DuplicateKey() {
+        MongoWriteException duplicateKeyException = Mockito.mock(MongoWriteException.class);
+        Mockito.when(duplicateKeyException.getError()).thenReturn(new WriteError(11000, "duplicate key", new BsonDocument()));
+        Mockito.when(terminalRepository.update(any(TerminalEntity.class)))
+                .thenReturn(Uni.createFrom().failure(duplicateKeyException));
+
+        terminalService.updateTerminal("terminalUuid", terminalDto, terminalEntity)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(null);
+    }
+
     @Test
     void testDeleteTerminal_Success() {
         Mockito.when(terminalRepository.delete(any(TerminalEntity.class)))
@@ -228,6 +370,19 @@ class TerminalServiceTest {
                 .with(Assertions::assertNull);
     }
 
+    @Test
+    void testDeleteByTerminalUuids_Success() {
+        List<String> terminalUuids = List.of("terminalUuid1", "terminalUuid2");
+        Mockito.when(terminalRepository.delete(new Document("terminalUuid", TerminalUuidCodec.in(
+                        List.of(TerminalUuid.of("terminalUuid1"), TerminalUuid.of("terminalUuid2"))))))
+                .thenReturn(Uni.createFrom().item(2L));
+
+        terminalService.deleteByTerminalUuids(terminalUuids)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(2L);
+    }
+
     @Test
     void testDeleteTerminal_Failure() {
         Mockito.when(terminalRepository.delete(any(TerminalEntity.class)))
@@ -242,7 +397,7 @@ class TerminalServiceTest {
 
     @Test
     void testCountBySolutionIds_Success() {
-        Mockito.when(terminalRepository.count("solutionId in (?1)", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
+        Mockito.when(mockCollection().countDocuments(any(Bson.class)))
                 .thenReturn(Uni.createFrom().item(10L));
 
         var terminalCount = terminalService.countBySolutionIds(Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"));
@@ -255,15 +410,51 @@ class TerminalServiceTest {
 
     @Test
     void testFindBySolutionIds_Success() {
-        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
-        Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
-        Mockito.when(query.list()).thenReturn(Uni.createFrom().item(mockedList()));
-        Mockito.when(terminalRepository.find("solutionId in ?1", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"))).thenReturn(query);
+        List<TerminalEntity> terminals = mockedList();
+        Mockito.when(mockCollection().find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(terminals));
 
-        Uni<List<TerminalEntity>> result = terminalService.findBySolutionIds(Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"), 0, 10);
+        terminalService.findBySolutionIds(Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"), null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(terminals, null));
+    }
 
-        result.subscribe()
-                .with(list -> Assertions.assertEquals(mockedList(), list));
+    @Test
+    void testFindBySolutionIds_Cursor() {
+        List<TerminalEntity> terminals = mockedList();
+        ObjectId after = new ObjectId("66a79a4624356b00da07cf00");
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(terminals));
+
+        terminalService.findBySolutionIds(List.of("66a79a4624356b00da07cfbf"), after, 2, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new KeysetPage<>(terminals, null));
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(toDocument(Filters.and(Filters.in("solutionId", List.of("66a79a4624356b00da07cfbf")), Filters.gt("_id", after))),
+                toDocument(filterCaptor.getValue()));
+    }
+
+    @Test
+    void testExportBySolutionIds_Success() {
+        List<TerminalEntity> terminals = mockedList();
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.find(any(Bson.class), any(FindOptions.class)))
+                .thenReturn(Multi.createFrom().iterable(terminals));
+
+        terminalService.exportBySolutionIds(List.of("66a79a4624356b00da07cfbf"))
+                .subscribe()
+                .withSubscriber(AssertSubscriber.create(10))
+                .awaitCompletion()
+                .assertItems(terminals.toArray(TerminalEntity[]::new));
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        Mockito.verify(collection).find(filterCaptor.capture(), any(FindOptions.class));
+        Assertions.assertEquals(toDocument(Filters.in("solutionId", List.of("66a79a4624356b00da07cfbf"))), toDocument(filterCaptor.getValue()));
     }
 
     @Test
@@ -287,4 +478,129 @@ class TerminalServiceTest {
         result.subscribe()
                 .with(list -> Assertions.assertEquals(mockedList(), list));
     }
+
+    @Test
+    void testFindTerminalUuidsBySolutionIdsAndTerminalId_CacheDisabled() {
+        List<String> solutionIds = List.of("96a79a4624356b00da07cfbf");
+        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        ReactivePanacheQuery<TerminalIds> projectedQuery = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(projectedQuery.list()).thenReturn(Uni.createFrom().item(List.of(
+                new TerminalIds("96a79a4624356b00da07cfbf", "34523860", TerminalUuid.of("c7a1b24b0583477292ebdbaa")))));
+        Mockito.when(query.project(TerminalIds.class)).thenReturn(projectedQuery);
+        Mockito.when(terminalRepository.find("solutionId in ?1 and terminalId = ?2", solutionIds, "34523860")).thenReturn(query);
+
+        terminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, "34523860")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of("c7a1b24b0583477292ebdbaa"));
+    }
+
+    @Test
+    void testFindTerminalUuidsBySolutionIdsAndTerminalId_Cached() {
+        TerminalService cachedTerminalService = new TerminalService(terminalRepository, bulkLoadStatusRepository, getBulkLoadConfig(2, 1, "target"), getPagingConfig(100),
+                new TerminalUuidCache(getTerminalCacheConfig(true, Duration.ofMinutes(1), 10)), new ReadRouting(getReadRoutingConfig("primary", null)));
+        List<String> solutionIds = List.of("66a79a4624356b00da07cfbf", "76a79a4624356b00da07cfbf");
+        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        ReactivePanacheQuery<TerminalIds> projectedQuery = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(projectedQuery.list()).thenReturn(Uni.createFrom().item(List.of(
+                new TerminalIds("66a79a4624356b00da07cfbf", "34523860", TerminalUuid.of("c7a1b24b0583477292ebdbaa")),
+                new TerminalIds("76a79a4624356b00da07cfbf", null, TerminalUuid.of("uuid2")))));
+        Mockito.when(query.project(TerminalIds.class)).thenReturn(projectedQuery);
+        Mockito.when(terminalRepository.find("solutionId in ?1", solutionIds)).thenReturn(query);
+
+        cachedTerminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, "34523860")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of("c7a1b24b0583477292ebdbaa"));
+        cachedTerminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, "99999999")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of());
+
+        Mockito.verify(terminalRepository, Mockito.times(1)).find("solutionId in ?1", solutionIds);
+    }
+
+    @Test
+    void testFindTerminalUuidsBySolutionIdsAndTerminalId_EvictedOnDelete() {
+        TerminalService cachedTerminalService = new TerminalService(terminalRepository, bulkLoadStatusRepository, getBulkLoadConfig(2, 1, "target"), getPagingConfig(100),
+                new TerminalUuidCache(getTerminalCacheConfig(true, Duration.ofMinutes(1), 10)), new ReadRouting(getReadRoutingConfig("primary", null)));
+        List<String> solutionIds = List.of("86a79a4624356b00da07cfbf");
+        ReactivePanacheQuery<TerminalEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        ReactivePanacheQuery<TerminalIds> projectedQuery = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(projectedQuery.list()).thenReturn(Uni.createFrom().item(List.of()));
+        Mockito.when(query.project(TerminalIds.class)).thenReturn(projectedQuery);
+        Mockito.when(terminalRepository.find("solutionId in ?1", solutionIds)).thenReturn(query);
+        TerminalEntity terminal = TestData.getCorrectTerminalEntity();
+        terminal.setSolutionId("86a79a4624356b00da07cfbf");
+        Mockito.when(terminalRepository.delete(terminal)).thenReturn(Uni.createFrom().voidItem());
+
+        cachedTerminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, "34523860")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of());
+        cachedTerminalService.deleteTerminal(terminal)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+        cachedTerminalService.findTerminalUuidsBySolutionIdsAndTerminalId(solutionIds, "34523860")
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of());
+
+        Mockito.verify(terminalRepository, Mockito.times(2)).find("solutionId in ?1", solutionIds);
+    }
+
+    @Test
+    void testCountBySolutionIds_Estimated() {
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.countDocuments(any(Bson.class), any(CountOptions.class)))
+                .thenReturn(Uni.createFrom().item(100L));
+
+        terminalService.countBySolutionIds(List.of("66a79a4624356b00da07cfbf"), TotalMode.ESTIMATED)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(100L);
+
+        ArgumentCaptor<Bson> filterCaptor = ArgumentCaptor.forClass(Bson.class);
+        ArgumentCaptor<CountOptions> optionsCaptor = ArgumentCaptor.forClass(CountOptions.class);
+        Mockito.verify(collection).countDocuments(filterCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(toDocument(Filters.in("solutionId", List.of("66a79a4624356b00da07cfbf"))), toDocument(filterCaptor.getValue()));
+        Assertions.assertEquals(101, optionsCaptor.getValue().getLimit());
+    }
+
+    @Test
+    void testCountBySolutionIds_EstimatedOverLimit() {
+        ReactiveMongoCollection<TerminalEntity> collection = mockCollection();
+        Mockito.when(collection.countDocuments(any(Bson.class), any(CountOptions.class)))
+                .thenReturn(Uni.createFrom().item(101L));
+
+        terminalService.countBySolutionIds(List.of("66a79a4624356b00da07cfbf"), TotalMode.ESTIMATED)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(null);
+    }
+
+    @Test
+    void testGetTerminalCountWorkstation_WithoutTotal() {
+        terminalService.getTerminalCountByWorkstation("workstation", List.of("66a79a4624356b00da07cfbf"), TotalMode.NONE)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(null);
+
+        Mockito.verify(terminalRepository, Mockito.never()).mongoCollection();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<TerminalEntity> mockCollection() {
+        ReactiveMongoCollection<TerminalEntity> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(terminalRepository.mongoCollection()).thenReturn(collection);
+
+        return collection;
+    }
+
+    private static BsonDocument toDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, CodecRegistries.fromRegistries(
+                CodecRegistries.fromProviders(new TerminalUuidCodecProvider()),
+                MongoClientSettings.getDefaultCodecRegistry()));
+    }
 }
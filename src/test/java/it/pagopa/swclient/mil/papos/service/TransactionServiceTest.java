@@ -1,22 +1,55 @@
 package it.pagopa.swclient.mil.papos.service;
 
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.result.InsertManyResult;
 import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
 import io.quarkus.panache.common.Sort;
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
 import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import it.pagopa.swclient.mil.papos.dao.LatestTransactionEntity;
+import it.pagopa.swclient.mil.papos.dao.LatestTransactionIndex;
+import it.pagopa.swclient.mil.papos.dao.ReadRouting;
+import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
+import it.pagopa.swclient.mil.papos.dao.SolutionRepository;
+import it.pagopa.swclient.mil.papos.dao.TerminalUuidCodec;
 import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
 import it.pagopa.swclient.mil.papos.dao.TransactionRepository;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollup;
+import it.pagopa.swclient.mil.papos.dao.TransactionRollupEntity;
+import it.pagopa.swclient.mil.papos.model.TerminalUuid;
+import it.pagopa.swclient.mil.papos.model.TransactionBatchResult;
 import it.pagopa.swclient.mil.papos.model.TransactionDto;
+import it.pagopa.swclient.mil.papos.model.TotalMode;
+import it.pagopa.swclient.mil.papos.model.TransactionSearchResult;
+import it.pagopa.swclient.mil.papos.model.UpdateTransactionBatchItemDto;
 import it.pagopa.swclient.mil.papos.model.UpdateTransactionDto;
+import it.pagopa.swclient.mil.papos.util.ErrorCodes;
 import it.pagopa.swclient.mil.papos.util.TestData;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.WebApplicationException;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.text.ParseException;
@@ -35,12 +68,19 @@ class TransactionServiceTest {
     @InjectMock
     static TransactionRepository transactionRepository;
 
+    @InjectMock
+    static SolutionRepository solutionRepository;
+
     static TransactionEntity transactionEntity;
 
     static TransactionDto transactionDto;
 
     static UpdateTransactionDto updateTransactionDto;
 
+    static LatestTransactionIndex latestTransactionIndex;
+
+    static TransactionRollup transactionRollup;
+
     static TransactionService transactionService;
 
     @BeforeAll
@@ -48,7 +88,24 @@ class TransactionServiceTest {
         transactionEntity = TestData.getCorrectTransactionEntity();
         transactionDto = TestData.getCorrectTransactionDto();
         updateTransactionDto = TestData.getCorrectUpdateTransactionDto();
-        transactionService = new TransactionService(transactionRepository);
+        latestTransactionIndex = Mockito.mock(LatestTransactionIndex.class);
+        transactionRollup = Mockito.mock(TransactionRollup.class);
+        transactionService = new TransactionService(transactionRepository, solutionRepository, TestData.getPagingConfig(100), new ReadRouting(TestData.getReadRoutingConfig("primary", null)),
+                latestTransactionIndex, transactionRollup, TestData.getTerminalUuidConfig(false));
+    }
+
+    @BeforeEach
+    void resetLatestTransactionIndex() {
+        Mockito.reset(latestTransactionIndex);
+        Mockito.when(latestTransactionIndex.record(any(TransactionEntity.class))).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(latestTransactionIndex.refresh(any(), any(), any())).thenReturn(Uni.createFrom().voidItem());
+        Mockito.reset(transactionRollup);
+        Mockito.when(transactionRollup.add(any(TransactionEntity.class))).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(transactionRollup.remove(any(TransactionEntity.class))).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(transactionRollup.replace(any(TransactionEntity.class), any(TransactionEntity.class))).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(latestTransactionIndex.recordAll(anyList())).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(transactionRollup.replaceAll(anyList(), anyList())).thenReturn(Uni.createFrom().voidItem());
+        Mockito.when(transactionRollup.addAll(anyList())).thenReturn(Uni.createFrom().voidItem());
     }
 
     @Test
@@ -62,6 +119,20 @@ class TransactionServiceTest {
                 .with(entity -> Assertions.assertEquals(transactionEntity, entity));
     }
 
+    @Test
+    void testCreateTransaction_RecordsLatest() {
+        Mockito.when(transactionRepository.persist(any(TransactionEntity.class)))
+                .thenReturn(Uni.createFrom().item(transactionEntity));
+
+        transactionService.createTransaction(transactionDto)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(transactionEntity);
+
+        Mockito.verify(latestTransactionIndex).record(transactionEntity);
+        Mockito.verify(transactionRollup).add(transactionEntity);
+    }
+
     @Test
     void testCreateTransaction_Failure() {
         Mockito.when(transactionRepository.persist(any(TransactionEntity.class)))
@@ -74,6 +145,71 @@ class TransactionServiceTest {
                 .assertFailedWith(InternalServerErrorException.class);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateTransactions_Success() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+                .thenReturn(Uni.createFrom().item(Mockito.mock(InsertManyResult.class)));
+
+        List<TransactionBatchResult> results = transactionService.createTransactions(List.of(transactionDto, transactionDto))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        ArgumentCaptor<List<TransactionEntity>> entitiesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<InsertManyOptions> optionsCaptor = ArgumentCaptor.forClass(InsertManyOptions.class);
+        Mockito.verify(collection).insertMany(entitiesCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertFalse(optionsCaptor.getValue().isOrdered());
+        List<TransactionEntity> entities = entitiesCaptor.getValue();
+        Assertions.assertEquals(List.of(entities.get(0).id.toHexString(), entities.get(1).id.toHexString()), results.stream().map(TransactionBatchResult::transactionId).toList());
+        Assertions.assertEquals(List.of(201, 201), results.stream().map(TransactionBatchResult::status).toList());
+        Assertions.assertEquals("CREATED", entities.get(0).getStatus());
+
+        Mockito.verify(latestTransactionIndex).recordAll(entities);
+        Mockito.verify(transactionRollup).addAll(entities);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateTransactions_WriteError() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        MongoBulkWriteException bulkWriteException = Mockito.mock(MongoBulkWriteException.class);
+        Mockito.when(bulkWriteException.getWriteErrors())
+                .thenReturn(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0)));
+        Mockito.when(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+                .thenReturn(Uni.createFrom().failure(bulkWriteException));
+
+        List<TransactionBatchResult> results = transactionService.createTransactions(List.of(transactionDto, transactionDto))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        Assertions.assertEquals(List.of(500, 201), results.stream().map(TransactionBatchResult::status).toList());
+
+        ArgumentCaptor<List<TransactionEntity>> insertedCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(transactionRollup).addAll(insertedCaptor.capture());
+        Assertions.assertEquals(List.of(results.get(1).transactionId()), insertedCaptor.getValue().stream().map(transaction -> transaction.id.toHexString()).toList());
+    }
+
+    @Test
+    void testCreateTransactions_Failure() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+                .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
+
+        List<TransactionBatchResult> results = transactionService.createTransactions(List.of(transactionDto, transactionDto))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        Assertions.assertEquals(List.of(500, 500), results.stream().map(TransactionBatchResult::status).toList());
+        Mockito.verify(transactionRollup).addAll(List.of());
+    }
+
     @Test
     void testGetTransactionCountByPayee_Success() {
         Mockito.when(transactionRepository.count(anyString(), anyString()))
@@ -91,13 +227,15 @@ class TransactionServiceTest {
         Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
         Mockito.when(query.list()).thenReturn(Uni.createFrom().item(TestData.mockedListTransaction()));
 
-        String queryStr = "{ 'payeeCode': ?1, '_id': { '$gte': ?2, '$lte': ?3 }, 'terminalUuid': { '$in': [?4] } }";
         Sort sort = Sort.by("_id", Sort.Direction.Ascending);
 
         Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
         Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+        Document queryDocument = new Document("payeeCode", "06534340721")
+                .append("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)))
+                .append("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("c7a1b24b0583477292ebdbaa"))));
 
-        Mockito.when(transactionRepository.find(queryStr, sort, "06534340721", roundCeilObjectIdhex(startDate), roundCeilObjectIdhex(endDate), List.of("c7a1b24b0583477292ebdbaa")))
+        Mockito.when(transactionRepository.find(queryDocument, new Document("_id", 1)))
                 .thenReturn(query);
 
         Uni<List<TransactionEntity>> result = transactionService.getTransactionListPagedByPayeeAndTerminals(
@@ -127,8 +265,9 @@ class TransactionServiceTest {
 
     @Test
     void testDeleteTransaction_Success() {
-        Mockito.when(transactionRepository.delete(any(TransactionEntity.class)))
-                .thenReturn(Uni.createFrom().voidItem());
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndDelete(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(transactionEntity));
 
         Uni<Void> result = transactionService.deleteTransaction(transactionEntity);
 
@@ -136,9 +275,42 @@ class TransactionServiceTest {
                 .with(Assertions::assertNull);
     }
 
+    @Test
+    void testDeleteTransaction_RemovesFromRollups() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        TransactionEntity deleted = TestData.getCorrectTransactionEntity();
+        deleted.setStatus("CLOSED");
+        Mockito.when(collection.findOneAndDelete(any(Bson.class)))
+                .thenReturn(Uni.createFrom().item(deleted));
+
+        transactionService.deleteTransaction(transactionEntity)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(transactionRollup).remove(deleted);
+        Mockito.verify(latestTransactionIndex).refresh(deleted.getTerminalUuid(), "CLOSED", deleted.id);
+    }
+
+    @Test
+    void testDeleteTransaction_AlreadyDeleted() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndDelete(any(Bson.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+
+        transactionService.deleteTransaction(transactionEntity)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(transactionRollup, Mockito.never()).remove(any(TransactionEntity.class));
+        Mockito.verify(latestTransactionIndex, Mockito.never()).refresh(any(), any(), any());
+    }
+
     @Test
     void testDeleteTransaction_Failure() {
-        Mockito.when(transactionRepository.delete(any(TransactionEntity.class)))
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndDelete(any(Bson.class)))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Uni<Void> result = transactionService.deleteTransaction(transactionEntity);
@@ -150,18 +322,229 @@ class TransactionServiceTest {
 
     @Test
     void testUpdateTransaction_Success() {
-        Mockito.when(transactionRepository.update(any(TransactionEntity.class)))
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
                 .thenReturn(Uni.createFrom().item(transactionEntity));
 
-        Uni<TransactionEntity> result = transactionService.updateTransaction("transactionId", updateTransactionDto, transactionEntity);
+        TransactionEntity updated = transactionService.updateTransaction("transactionId", updateTransactionDto, transactionEntity)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
 
-        result.subscribe()
-                .with(entity -> Assertions.assertEquals(transactionEntity, entity));
+        Assertions.assertEquals(transactionEntity.id, updated.id);
+        Assertions.assertEquals(updateTransactionDto.status(), updated.getStatus());
+        Assertions.assertEquals(updateTransactionDto.amount(), updated.getAmount());
+    }
+
+    @Test
+    void testUpdateTransaction_StatusChanged() {
+        TransactionEntity transaction = TestData.getCorrectTransactionEntity();
+        transaction.setTerminalUuid(TerminalUuid.of("16a79a4624356b00da07cfbf"));
+        transaction.setStatus("CREATED");
+        // another update changed the status after the transaction was read
+        TransactionEntity stored = TestData.getCorrectTransactionEntity();
+        stored.id = transaction.id;
+        stored.setTerminalUuid(transaction.getTerminalUuid());
+        stored.setStatus("PENDING");
+        stored.setAmount(50L);
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        ArgumentCaptor<FindOneAndUpdateOptions> optionsCaptor = ArgumentCaptor.forClass(FindOneAndUpdateOptions.class);
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), optionsCaptor.capture()))
+                .thenReturn(Uni.createFrom().item(stored));
+
+        TransactionEntity updated = transactionService.updateTransaction(transaction.id.toHexString(), new UpdateTransactionDto(100L, "CLOSED"), transaction)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Assertions.assertEquals(ReturnDocument.BEFORE, optionsCaptor.getValue().getReturnDocument());
+        Assertions.assertEquals("CLOSED", updated.getStatus());
+        Assertions.assertEquals(100L, updated.getAmount());
+        Mockito.verify(latestTransactionIndex).record(updated);
+        Mockito.verify(latestTransactionIndex).refresh(TerminalUuid.of("16a79a4624356b00da07cfbf"), "PENDING", transaction.id);
+        Mockito.verify(transactionRollup).replace(stored, updated);
+    }
+
+    @Test
+    void testUpdateTransaction_AlreadyDeleted() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(Uni.createFrom().nullItem());
+
+        transactionService.updateTransaction("transactionId", updateTransactionDto, transactionEntity)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted();
+
+        Mockito.verify(latestTransactionIndex, Mockito.never()).record(any(TransactionEntity.class));
+        Mockito.verify(transactionRollup, Mockito.never()).replace(any(TransactionEntity.class), any(TransactionEntity.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateTransactions_PerItemResults() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e0"))
+                        .append("terminalUuid", "16a79a4624356b00da07cfbf")
+                        .append("payeeCode", "06534340721")
+                        .append("status", "CREATED")));
+        BulkWriteResult bulkWriteResult = Mockito.mock(BulkWriteResult.class);
+        Mockito.when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(bulkWriteResult));
+
+        List<TransactionBatchResult> results = transactionService.updateTransactions("06534340721", List.of(
+                        new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 100L, "CLOSED"),
+                        new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e1", 100L, "CLOSED"),
+                        new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 200L, "ERROR")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        Assertions.assertEquals(List.of(204, 404, 400), results.stream().map(TransactionBatchResult::status).toList());
+        Assertions.assertEquals(ErrorCodes.ERROR_TRANSACTION_NOT_FOUND, results.get(1).errors().getCodes().get(0));
+        Assertions.assertEquals(ErrorCodes.ERROR_TRANSACTION_REPEATED_IN_BATCH, results.get(2).errors().getCodes().get(0));
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        Assertions.assertTrue(pipelineCaptor.getValue().contains(new Document("$match", new Document("solution.locationCode", "06534340721"))));
+        Assertions.assertEquals("terminalUuids", pipelineCaptor.getValue().get(2).get("$lookup", Document.class).getString("localField"));
+
+        ArgumentCaptor<List<UpdateOneModel<TransactionEntity>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<BulkWriteOptions> optionsCaptor = ArgumentCaptor.forClass(BulkWriteOptions.class);
+        Mockito.verify(collection).bulkWrite(updatesCaptor.capture(), optionsCaptor.capture());
+        Assertions.assertEquals(1, updatesCaptor.getValue().size());
+        Assertions.assertEquals(Filters.and(Filters.eq("_id", new ObjectId("66b49e6d7bca521f8c2f97e0")), Filters.eq("status", "CREATED"), Filters.eq("amount", null)).toBsonDocument(),
+                updatesCaptor.getValue().get(0).getFilter().toBsonDocument());
+        Assertions.assertFalse(optionsCaptor.getValue().isOrdered());
+        Mockito.verify(collection, Mockito.never()).find(any(Bson.class));
+
+        ArgumentCaptor<List<TransactionEntity>> afterCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(latestTransactionIndex).recordAll(afterCaptor.capture());
+        Assertions.assertEquals("CLOSED", afterCaptor.getValue().get(0).getStatus());
+        Assertions.assertEquals(100L, afterCaptor.getValue().get(0).getAmount());
+        Mockito.verify(latestTransactionIndex).refresh(TerminalUuid.of("16a79a4624356b00da07cfbf"), "CREATED", new ObjectId("66b49e6d7bca521f8c2f97e0"));
+        Mockito.verify(transactionRollup).replaceAll(anyList(), eq(afterCaptor.getValue()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateTransactions_WriteError() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e0")).append("status", "CREATED"),
+                        new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e1")).append("status", "CREATED")));
+        MongoBulkWriteException bulkWriteException = Mockito.mock(MongoBulkWriteException.class);
+        Mockito.when(bulkWriteException.getWriteErrors())
+                .thenReturn(List.of(new BulkWriteError(50, "operation exceeded time limit", new BsonDocument(), 1)));
+        BulkWriteResult bulkWriteResult = Mockito.mock(BulkWriteResult.class);
+        Mockito.when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+        Mockito.when(bulkWriteException.getWriteResult()).thenReturn(bulkWriteResult);
+        Mockito.when(collection.bulkWrite(anyList(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().failure(bulkWriteException));
+
+        List<TransactionBatchResult> results = transactionService.updateTransactions("06534340721", List.of(
+                        new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 100L, "CREATED"),
+                        new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e1", 100L, "CLOSED")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        Assertions.assertEquals(List.of(204, 500), results.stream().map(TransactionBatchResult::status).toList());
+
+        ArgumentCaptor<List<TransactionEntity>> afterCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(latestTransactionIndex).recordAll(afterCaptor.capture());
+        Assertions.assertEquals(List.of(new ObjectId("66b49e6d7bca521f8c2f97e0")), afterCaptor.getValue().stream().map(transaction -> transaction.id).toList());
+        Mockito.verify(latestTransactionIndex, Mockito.never()).refresh(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUpdateTransactions_ConcurrentlyChanged() {
+        ObjectId matchedId = new ObjectId("66b49e6d7bca521f8c2f97e0");
+        ObjectId changedId = new ObjectId("66b49e6d7bca521f8c2f97e1");
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", matchedId).append("status", "CREATED"),
+                        new Document("_id", changedId).append("status", "CREATED")));
+        ArgumentCaptor<List<UpdateOneModel<TransactionEntity>>> updatesCaptor = ArgumentCaptor.forClass(List.class);
+        BulkWriteResult bulkWriteResult = Mockito.mock(BulkWriteResult.class);
+        Mockito.when(bulkWriteResult.getMatchedCount()).thenReturn(1);
+        Mockito.when(collection.bulkWrite(updatesCaptor.capture(), any(BulkWriteOptions.class)))
+                .thenReturn(Uni.createFrom().item(bulkWriteResult));
+        // the first transaction was written by the batch, the second one had been moved to PENDING by another update
+        Mockito.when(collection.find(any(Bson.class)))
+                .thenAnswer(invocation -> {
+                    Date updatedAt = new Date(updatesCaptor.getValue().get(0).getUpdate().toBsonDocument().getDocument("$set").getDateTime("lastUpdateTimestamp").getValue());
+
+                    return Multi.createFrom().items(
+                            transaction(matchedId, "CLOSED", 100L, updatedAt),
+                            transaction(changedId, "PENDING", 50L, new Date(0)));
+                });
+        TransactionEntity replaced = transaction(changedId, "PENDING", 50L, new Date(0));
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
+                .thenReturn(Uni.createFrom().item(replaced));
+
+        List<TransactionBatchResult> results = transactionService.updateTransactions("06534340721", List.of(
+                        new UpdateTransactionBatchItemDto(matchedId.toHexString(), 100L, "CLOSED"),
+                        new UpdateTransactionBatchItemDto(changedId.toHexString(), 100L, "CLOSED")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertCompleted()
+                .getItem();
+
+        Assertions.assertEquals(List.of(204, 204), results.stream().map(TransactionBatchResult::status).toList());
+        Mockito.verify(collection).findOneAndUpdate(eq(Filters.eq("_id", changedId)), any(Bson.class), any(FindOneAndUpdateOptions.class));
+
+        ArgumentCaptor<List<TransactionEntity>> beforeCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(transactionRollup).replaceAll(beforeCaptor.capture(), anyList());
+        Assertions.assertEquals(List.of("CREATED", "PENDING"), beforeCaptor.getValue().stream().map(TransactionEntity::getStatus).toList());
+        Assertions.assertSame(replaced, beforeCaptor.getValue().get(1));
+    }
+
+    @Test
+    void testUpdateTransactions_Failure() {
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().failure(new WebApplicationException()));
+
+        transactionService.updateTransactions("06534340721", List.of(new UpdateTransactionBatchItemDto("66b49e6d7bca521f8c2f97e0", 100L, "CLOSED")))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertFailedWith(WebApplicationException.class);
+
+        Mockito.verify(collection, Mockito.never()).bulkWrite(anyList(), any(BulkWriteOptions.class));
+    }
+
+    @Test
+    void testGetTransactionStatsByPayee_Success() throws ParseException {
+        TransactionRollupEntity rollup = new TransactionRollupEntity();
+        rollup.setPayeeCode("06534340721");
+        rollup.setDay("2024-01-01");
+        rollup.setCount(2L);
+        rollup.setAmount(300L);
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-31");
+        Mockito.when(transactionRollup.findByPayee("06534340721", startDate, endDate))
+                .thenReturn(Uni.createFrom().item(List.of(rollup)));
+
+        transactionService.getTransactionStatsByPayee("06534340721", startDate, endDate)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(List.of(rollup));
     }
 
     @Test
     void testUpdateTransaction_Failure() {
-        Mockito.when(transactionRepository.update(any(TransactionEntity.class)))
+        ReactiveMongoCollection<TransactionEntity> collection = mockTransactionCollection();
+        Mockito.when(collection.findOneAndUpdate(any(Bson.class), any(Bson.class), any(FindOneAndUpdateOptions.class)))
                 .thenReturn(Uni.createFrom().failure(new WebApplicationException()));
 
         Uni<TransactionEntity> result = transactionService.updateTransaction("transactionId", updateTransactionDto, transactionEntity);
@@ -176,7 +559,9 @@ class TransactionServiceTest {
         ReactivePanacheQuery<TransactionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
         Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().item(transactionEntity));
         Sort sort = Sort.by("creationTimestamp", Sort.Direction.Descending);
-        Mockito.when(transactionRepository.find("terminalUuid in ?1 and status = ?2", sort, List.of("16a79a4624356b00da07cfbf"), "status")).thenReturn(query);
+        Document queryDocument = new Document("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("16a79a4624356b00da07cfbf"))))
+                .append("status", "status");
+        Mockito.when(transactionRepository.find(queryDocument, new Document("creationTimestamp", -1))).thenReturn(query);
 
         Uni<TransactionEntity> result = transactionService.findLatestByTerminalUuidAndStatus(List.of("16a79a4624356b00da07cfbf"), "status", sort);
 
@@ -185,9 +570,53 @@ class TransactionServiceTest {
                 .assertItem(transactionEntity);
     }
 
+    @Test
+    void testLatestByTerminalUuidAndStatus_FromLatestTransactions() {
+        TransactionEntity transaction = TestData.getCorrectTransactionEntity();
+        transaction.setStatus("CREATED");
+        LatestTransactionEntity latest = latestTransactionEntity(transaction.id, "CREATED");
+        Mockito.when(latestTransactionIndex.isReady()).thenReturn(true);
+        Mockito.when(latestTransactionIndex.findLatest(List.of("16a79a4624356b00da07cfbf"), "CREATED"))
+                .thenReturn(Uni.createFrom().item(latest));
+        Mockito.when(transactionRepository.findById(transaction.id))
+                .thenReturn(Uni.createFrom().item(transaction));
+
+        transactionService.findLatestByTerminalUuidAndStatus(List.of("16a79a4624356b00da07cfbf"), "CREATED", Sort.by("_id", Sort.Direction.Descending))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(transaction);
+
+        Mockito.verify(transactionRepository, Mockito.never()).find(any(Document.class), any(Document.class));
+    }
+
+    @Test
+    void testLatestByTerminalUuidAndStatus_StaleLatestTransaction() {
+        TransactionEntity closed = TestData.getCorrectTransactionEntity();
+        closed.setStatus("CLOSED");
+        LatestTransactionEntity latest = latestTransactionEntity(closed.id, "CREATED");
+        Mockito.when(latestTransactionIndex.isReady()).thenReturn(true);
+        Mockito.when(latestTransactionIndex.findLatest(List.of("16a79a4624356b00da07cfbf"), "CREATED"))
+                .thenReturn(Uni.createFrom().item(latest));
+        Mockito.when(transactionRepository.findById(closed.id))
+                .thenReturn(Uni.createFrom().item(closed));
+        ReactivePanacheQuery<TransactionEntity> query = Mockito.mock(ReactivePanacheQuery.class);
+        Mockito.when(query.firstResult()).thenReturn(Uni.createFrom().item(transactionEntity));
+        Document queryDocument = new Document("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("16a79a4624356b00da07cfbf"))))
+                .append("status", "CREATED");
+        Mockito.when(transactionRepository.find(queryDocument, new Document("_id", -1))).thenReturn(query);
+
+        transactionService.findLatestByTerminalUuidAndStatus(List.of("16a79a4624356b00da07cfbf"), "CREATED", Sort.by("_id", Sort.Direction.Descending))
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(transactionEntity);
+
+        Mockito.verify(latestTransactionIndex).refresh(latest.getTerminalUuid(), "CREATED", closed.id);
+    }
+
     @Test
     void testCountByTerminals_Success() {
-        Mockito.when(transactionRepository.count("terminalUuid in ?1", Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf")))
+        Mockito.when(transactionRepository.count(new Document("terminalUuid", TerminalUuidCodec.in(
+                        List.of(TerminalUuid.of("66a79a4624356b00da07cfbf"), TerminalUuid.of("16a79a4624356b00da07cfbf"))))))
                 .thenReturn(Uni.createFrom().item(10L));
 
         var terminalCount = transactionService.getTransactionCountByTerminals(Arrays.asList("66a79a4624356b00da07cfbf", "16a79a4624356b00da07cfbf"));
@@ -206,13 +635,14 @@ class TransactionServiceTest {
         Mockito.when(query.page(anyInt(), anyInt())).thenReturn(query);
         Mockito.when(query.list()).thenReturn(Uni.createFrom().item(TestData.mockedListTransaction()));
 
-        String queryStr = "{ '_id': { '$gte': ?2, '$lte': ?3 }, 'terminalUuid': { '$in': [?1] } }";
         Sort sort = Sort.by("_id", Sort.Direction.Ascending);
 
         Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
         Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+        Document queryDocument = new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)))
+                .append("terminalUuid", TerminalUuidCodec.in(List.of(TerminalUuid.of("66a79a4624356b00da07cfbf"), TerminalUuid.of("c7a1b24b0583477292ebdbaa"))));
 
-        Mockito.when(transactionRepository.find(queryStr, sort,terminalUuids, roundCeilObjectIdhex(startDate), roundCeilObjectIdhex(endDate)))
+        Mockito.when(transactionRepository.find(queryDocument, new Document("_id", 1)))
                 .thenReturn(query);
 
         Uni<List<TransactionEntity>> result = transactionService.getTransactionListPagedByTerminals(
@@ -225,4 +655,317 @@ class TransactionServiceTest {
 
         result.subscribe().with(list -> Assertions.assertEquals(TestData.mockedListTransaction(), list));
     }
+
+    @Test
+    void testFindTransactionPageByPsp_Success() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        TransactionEntity transaction = TestData.getCorrectTransactionEntity();
+        Document facet = new Document("counts", List.of(new Document("solutions", 2).append("terminals", 3)))
+                .append("total", List.of(new Document("total", 1)))
+                .append("transactions", List.of(new Document("_id", transaction.id)
+                        .append("payeeCode", transaction.getPayeeCode())
+                        .append("amount", 100)));
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        TransactionSearchResult result = transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Descending), TotalMode.EXACT, null, 1, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Assertions.assertEquals(2, result.solutionCount());
+        Assertions.assertEquals(3, result.terminalCount());
+        Assertions.assertEquals(1, result.totalElements());
+        Assertions.assertEquals(1, result.transactions().size());
+        Assertions.assertEquals(transaction.id, result.transactions().get(0).id);
+        Assertions.assertEquals(transaction.getPayeeCode(), result.transactions().get(0).getPayeeCode());
+        Assertions.assertEquals(100L, result.transactions().get(0).getAmount());
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        Assertions.assertEquals(new Document("pspId", "TMIL0101"), pipeline.get(0).get("$match"));
+
+        Document facetStage = pipeline.get(pipeline.size() - 1).get("$facet", Document.class);
+        Assertions.assertFalse(facetStage.containsKey("terminalUuids"));
+
+        List<Document> page = facetStage.getList("transactions", Document.class);
+        Assertions.assertEquals("terminal.terminalUuids", page.get(1).get("$lookup", Document.class).getString("localField"));
+        List<Document> lookupStages = page.get(1).get("$lookup", Document.class).getList("pipeline", Document.class);
+        Assertions.assertEquals(new Document("_id", -1), lookupStages.get(1).get("$sort"));
+        Assertions.assertEquals(21, lookupStages.get(2).get("$limit"));
+        Assertions.assertEquals(new Document("_id", -1), page.get(page.size() - 3).get("$sort"));
+        Assertions.assertEquals(10, page.get(page.size() - 2).get("$skip"));
+        Assertions.assertEquals(11, page.get(page.size() - 1).get("$limit"));
+        Assertions.assertNull(result.nextAfter());
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_NoSolutions() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Document facet = new Document("counts", List.of())
+                .append("total", List.of())
+                .append("transactions", List.of());
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.EXACT, null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new TransactionSearchResult(0, 0, 0L, List.of(), null));
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_Failure() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().failure(new WebApplicationException()));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.EXACT, null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertFailedWith(WebApplicationException.class);
+    }
+
+    @Test
+    void testExportTransactionsByPsp_Success() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        TransactionEntity transaction = TestData.getCorrectTransactionEntity();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().items(
+                        new Document("_id", transaction.id).append("payeeCode", transaction.getPayeeCode()),
+                        new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e1")).append("amount", 100)));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        List<TransactionEntity> transactions = transactionService.exportTransactionsByPsp("TMIL0101", startDate, endDate)
+                .subscribe()
+                .withSubscriber(AssertSubscriber.create(10))
+                .awaitCompletion()
+                .getItems();
+
+        Assertions.assertEquals(2, transactions.size());
+        Assertions.assertEquals(transaction.id, transactions.get(0).id);
+        Assertions.assertEquals(transaction.getPayeeCode(), transactions.get(0).getPayeeCode());
+        Assertions.assertEquals(100L, transactions.get(1).getAmount());
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        Assertions.assertEquals(new Document("pspId", "TMIL0101"), pipeline.get(0).get("$match"));
+        Assertions.assertTrue(pipeline.stream().noneMatch(stage -> stage.containsKey("$facet") || stage.containsKey("$sort")));
+
+        List<Document> lookupStages = pipeline.get(pipeline.size() - 3).get("$lookup", Document.class).getList("pipeline", Document.class);
+        Document transactionFilter = new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)));
+        Assertions.assertEquals(List.of(new Document("$match", transactionFilter), new Document("$sort", new Document("_id", 1))), lookupStages);
+    }
+
+    @Test
+    void testExportTransactionsByPsp_Failure() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().failure(new WebApplicationException()));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.exportTransactionsByPsp("TMIL0101", startDate, endDate)
+                .subscribe()
+                .withSubscriber(AssertSubscriber.create(10))
+                .awaitFailure()
+                .assertFailedWith(WebApplicationException.class);
+    }
+
+    @Test
+    void testFindTransactionPageByPayee_Success() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Document facet = new Document("counts", List.of(new Document("solutions", 1).append("terminals", 2)))
+                .append("total", List.of(new Document("total", 25L)))
+                .append("transactions", List.of());
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPayee("06534340721", "80000000001", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.EXACT, null, 2, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new TransactionSearchResult(1, 2, 25L, List.of(), null));
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        Assertions.assertEquals(new Document("locationCode", "06534340721"), pipeline.get(0).get("$match"));
+
+        Document transactionFilter = new Document("payeeCode", "80000000001")
+                .append("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate)));
+        Document facetStage = pipeline.get(pipeline.size() - 1).get("$facet", Document.class);
+        Document lookup = facetStage.getList("total", Document.class).get(1).get("$lookup", Document.class);
+        Assertions.assertEquals(new Document("$match", transactionFilter), lookup.getList("pipeline", Document.class).get(0));
+        List<Document> page = facetStage.getList("transactions", Document.class);
+        Assertions.assertEquals(31, page.get(1).get("$lookup", Document.class).getList("pipeline", Document.class).get(2).get("$limit"));
+        Assertions.assertEquals(20, page.get(page.size() - 2).get("$skip"));
+        Assertions.assertFalse(facetStage.containsKey("terminalUuids"));
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_Cursor() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        List<Document> transactions = List.of(
+                new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e3")),
+                new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e2")),
+                new Document("_id", new ObjectId("66b49e6d7bca521f8c2f97e1")));
+        Document facet = new Document("counts", List.of(new Document("solutions", 1).append("terminals", 1)))
+                .append("total", List.of(new Document("total", 10)))
+                .append("transactions", transactions);
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+        ObjectId after = new ObjectId("66b49e6d7bca521f8c2f97e4");
+
+        TransactionSearchResult result = transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Descending), TotalMode.EXACT, after, 5, 2)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .awaitItem()
+                .getItem();
+
+        Assertions.assertEquals(2, result.transactions().size());
+        Assertions.assertEquals(new ObjectId("66b49e6d7bca521f8c2f97e2"), result.nextAfter());
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        Document facetStage = pipeline.get(pipeline.size() - 1).get("$facet", Document.class);
+
+        List<Document> page = facetStage.getList("transactions", Document.class);
+        List<Document> lookupStages = page.get(1).get("$lookup", Document.class).getList("pipeline", Document.class);
+        Document idFilter = new Document("$gte", roundCeilObjectIdhex(startDate))
+                .append("$lte", roundCeilObjectIdhex(endDate))
+                .append("$lt", after);
+        Assertions.assertEquals(new Document("_id", idFilter), lookupStages.get(0).get("$match"));
+        Assertions.assertEquals(3, lookupStages.get(2).get("$limit"));
+        Assertions.assertEquals(new Document("_id", -1), page.get(page.size() - 2).get("$sort"));
+        Assertions.assertEquals(3, page.get(page.size() - 1).get("$limit"));
+        Assertions.assertFalse(facetStage.containsKey("terminalUuids"));
+
+        List<Document> totalLookupStages = facetStage.getList("total", Document.class).get(1).get("$lookup", Document.class).getList("pipeline", Document.class);
+        Assertions.assertEquals(new Document("_id", new Document("$gte", roundCeilObjectIdhex(startDate)).append("$lte", roundCeilObjectIdhex(endDate))),
+                totalLookupStages.get(0).get("$match"));
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_WithoutTotal() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Document facet = new Document("counts", List.of(new Document("solutions", 1).append("terminals", 1)))
+                .append("transactions", List.of());
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.NONE, null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new TransactionSearchResult(1, 1, null, List.of(), null));
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        Assertions.assertFalse(pipeline.get(pipeline.size() - 1).get("$facet", Document.class).containsKey("total"));
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_EstimatedTotal() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Document facet = new Document("counts", List.of(new Document("solutions", 1).append("terminals", 1)))
+                .append("total", List.of(new Document("total", 100)))
+                .append("transactions", List.of());
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.ESTIMATED, null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new TransactionSearchResult(1, 1, 100L, List.of(), null));
+
+        ArgumentCaptor<List<Document>> pipelineCaptor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(collection).aggregate(pipelineCaptor.capture(), eq(Document.class));
+        List<Document> pipeline = pipelineCaptor.getValue();
+        List<Document> total = pipeline.get(pipeline.size() - 1).get("$facet", Document.class).getList("total", Document.class);
+        List<Document> totalLookupStages = total.get(1).get("$lookup", Document.class).getList("pipeline", Document.class);
+        Assertions.assertEquals(101, totalLookupStages.get(totalLookupStages.size() - 1).get("$limit"));
+        Assertions.assertEquals(101, total.get(total.size() - 2).get("$limit"));
+    }
+
+    @Test
+    void testFindTransactionPageByPsp_EstimatedTotalOverLimit() throws ParseException {
+        ReactiveMongoCollection<SolutionEntity> collection = mockSolutionCollection();
+        Document facet = new Document("counts", List.of(new Document("solutions", 1).append("terminals", 1)))
+                .append("total", List.of(new Document("total", 101)))
+                .append("transactions", List.of());
+        Mockito.when(collection.aggregate(anyList(), eq(Document.class)))
+                .thenReturn(Multi.createFrom().item(facet));
+
+        Date startDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-01-01");
+        Date endDate = new SimpleDateFormat("yyyy-MM-dd").parse("2024-12-31");
+
+        transactionService.findTransactionPageByPsp("TMIL0101", startDate, endDate, Sort.by("_id", Sort.Direction.Ascending), TotalMode.ESTIMATED, null, 0, 10)
+                .subscribe()
+                .withSubscriber(UniAssertSubscriber.create())
+                .assertItem(new TransactionSearchResult(1, 1, null, List.of(), null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<SolutionEntity> mockSolutionCollection() {
+        ReactiveMongoCollection<SolutionEntity> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(solutionRepository.mongoCollection()).thenReturn(collection);
+
+        return collection;
+    }
+
+    private static TransactionEntity transaction(ObjectId id, String status, Long amount, Date lastUpdateTimestamp) {
+        TransactionEntity transaction = new TransactionEntity();
+        transaction.id = id;
+        transaction.setTerminalUuid(TerminalUuid.of("16a79a4624356b00da07cfbf"));
+        transaction.setStatus(status);
+        transaction.setAmount(amount);
+        transaction.setLastUpdateTimestamp(lastUpdateTimestamp);
+
+        return transaction;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ReactiveMongoCollection<TransactionEntity> mockTransactionCollection() {
+        ReactiveMongoCollection<TransactionEntity> collection = Mockito.mock(ReactiveMongoCollection.class);
+        Mockito.when(transactionRepository.mongoCollection()).thenReturn(collection);
+
+        return collection;
+    }
+
+    private static LatestTransactionEntity latestTransactionEntity(ObjectId transactionId, String status) {
+        LatestTransactionEntity latest = new LatestTransactionEntity();
+        latest.setTerminalUuid(TerminalUuid.of("16a79a4624356b00da07cfbf"));
+        latest.setStatus(status);
+        latest.setTransactionId(transactionId);
+
+        return latest;
+    }
 }
@@ -1,5 +1,12 @@
 package it.pagopa.swclient.mil.papos.util;
 
+import it.pagopa.swclient.mil.papos.config.BulkLoadConfig;
+import it.pagopa.swclient.mil.papos.config.PagingConfig;
+import it.pagopa.swclient.mil.papos.config.ReadRoutingConfig;
+import it.pagopa.swclient.mil.papos.config.SolutionCacheConfig;
+import it.pagopa.swclient.mil.papos.config.TerminalCacheConfig;
+import it.pagopa.swclient.mil.papos.config.TerminalUuidConfig;
+import it.pagopa.swclient.mil.papos.dao.BulkLoadErrorEntity;
 import it.pagopa.swclient.mil.papos.dao.BulkLoadStatusEntity;
 import it.pagopa.swclient.mil.papos.dao.SolutionEntity;
 import it.pagopa.swclient.mil.papos.dao.TerminalEntity;
@@ -7,8 +14,10 @@ import it.pagopa.swclient.mil.papos.dao.TransactionEntity;
 import it.pagopa.swclient.mil.papos.model.*;
 import org.bson.types.ObjectId;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 public final class TestData {
 
@@ -19,7 +28,7 @@ public final class TestData {
     public static TerminalEntity getCorrectTerminalEntity() {
         TerminalEntity terminalEntity = new TerminalEntity();
         terminalEntity.setSolutionId("66a79a4624356b00da07cfbf");
-        terminalEntity.setTerminalUuid("74a7c24f-5c64-41c2-aeac-d1fae93bff49");
+        terminalEntity.setTerminalUuid(TerminalUuid.of("74a7c24f-5c64-41c2-aeac-d1fae93bff49"));
         terminalEntity.setTerminalId("34523860");
         terminalEntity.setEnabled(true);
 
@@ -39,6 +48,17 @@ public final class TestData {
         return bulkLoadStatusEntity;
     }
 
+    public static BulkLoadErrorEntity getCorrectBulkLoadErrorEntity() {
+        BulkLoadErrorEntity bulkLoadErrorEntity = new BulkLoadErrorEntity();
+        bulkLoadErrorEntity.setBulkLoadingId("74a7c24f-5c64-41c2-aeac-d1fae93bff49");
+        bulkLoadErrorEntity.setRowIndex(1);
+        bulkLoadErrorEntity.setTerminalId("34523861");
+        bulkLoadErrorEntity.setErrorCode("00TR000211");
+        bulkLoadErrorEntity.setMessage("[00TR000211] solution not found on db");
+
+        return bulkLoadErrorEntity;
+    }
+
     public static WorkstationsDto getCorrectWorkstationDto() {
         return new WorkstationsDto(List.of("cassa-1-ufficio-3", "cassa-2-ufficio-3"));
     }
@@ -76,11 +96,11 @@ public final class TestData {
 
     public static List<TerminalEntity> mockedList() {
         TerminalEntity te1 = new TerminalEntity();
-        te1.setTerminalUuid("c7a1b24b0583477292ebdbaa");
+        te1.setTerminalUuid(TerminalUuid.of("c7a1b24b0583477292ebdbaa"));
         te1.setTerminalId("34523860");
         te1.setSolutionId("66a79a4624356b00da07cfbf");
         TerminalEntity te2 = new TerminalEntity();
-        te2.setTerminalUuid("uuid2");
+        te2.setTerminalUuid(TerminalUuid.of("uuid2"));
 
         return List.of(te1, te2);
     }
@@ -100,9 +120,9 @@ public final class TestData {
 
     public static List<TransactionEntity> mockedListTransaction() {
         TransactionEntity te1 = new TransactionEntity();
-        te1.setTerminalUuid("c7a1b24b0583477292ebdbaa");
+        te1.setTerminalUuid(TerminalUuid.of("c7a1b24b0583477292ebdbaa"));
         TransactionEntity te2 = new TransactionEntity();
-        te2.setTerminalUuid("c7a1b24b0583477292ebdbaa");
+        te2.setTerminalUuid(TerminalUuid.of("c7a1b24b0583477292ebdbaa"));
 
         return List.of(te1, te2);
     }
@@ -114,4 +134,129 @@ public final class TestData {
         return List.of(td1, td2);
     }
 
+    public static List<BulkLoadRow> mockedListBulkLoadRow() {
+        List<TerminalDto> terminals = mockedListTerminalDto();
+
+        return List.of(new BulkLoadRow(0, terminals.get(0)), new BulkLoadRow(1, terminals.get(1)));
+    }
+
+    public static PagingConfig getPagingConfig(int estimatedCountLimit) {
+        return () -> estimatedCountLimit;
+    }
+
+    public static ReadRoutingConfig getReadRoutingConfig(String listingReadPreference, Duration listingMaxStaleness) {
+        return new ReadRoutingConfig() {
+            @Override
+            public String listingReadPreference() {
+                return listingReadPreference;
+            }
+
+            @Override
+            public Optional<Duration> listingMaxStaleness() {
+                return Optional.ofNullable(listingMaxStaleness);
+            }
+        };
+    }
+
+    public static SolutionCacheConfig getSolutionCacheConfig(boolean enabled, Duration ttl, int maxEntries) {
+        return new SolutionCacheConfig() {
+            @Override
+            public boolean enabled() {
+                return enabled;
+            }
+
+            @Override
+            public Duration ttl() {
+                return ttl;
+            }
+
+            @Override
+            public int maxEntries() {
+                return maxEntries;
+            }
+        };
+    }
+
+    public static TerminalCacheConfig getTerminalCacheConfig(boolean enabled, Duration ttl, int maxEntries) {
+        return new TerminalCacheConfig() {
+            @Override
+            public boolean enabled() {
+                return enabled;
+            }
+
+            @Override
+            public Duration ttl() {
+                return ttl;
+            }
+
+            @Override
+            public int maxEntries() {
+                return maxEntries;
+            }
+        };
+    }
+
+    public static TerminalUuidConfig getTerminalUuidConfig(boolean binaryStorage) {
+        return new TerminalUuidConfig() {
+            @Override
+            public boolean binaryStorage() {
+                return binaryStorage;
+            }
+
+            @Override
+            public boolean migrateOnStartup() {
+                return false;
+            }
+
+            @Override
+            public int migrationBatchSize() {
+                return 500;
+            }
+
+            @Override
+            public Duration confirmationCheckInterval() {
+                return Duration.ofMinutes(1);
+            }
+        };
+    }
+
+    public static BulkLoadConfig getBulkLoadConfig(int chunkSize, int batchSize, String workDir) {
+        return new BulkLoadConfig() {
+            @Override
+            public int chunkSize() {
+                return chunkSize;
+            }
+
+            @Override
+            public int batchSize() {
+                return batchSize;
+            }
+
+            @Override
+            public int maxInFlightBatches() {
+                return 2;
+            }
+
+            @Override
+            public String workDir() {
+                return workDir;
+            }
+
+            @Override
+            public int workers() {
+                return 1;
+            }
+
+            @Override
+            public boolean recoverOnStartup() {
+                return true;
+            }
+
+            @Override
+            public Duration leaseDuration() {
+                return Duration.ofMinutes(5);
+            }
+        };
+    }
+
 }